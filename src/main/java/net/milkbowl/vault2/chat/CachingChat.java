@@ -0,0 +1,471 @@
+package net.milkbowl.vault2.chat;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.helper.context.Context;
+import net.milkbowl.vault2.helper.subject.Subject;
+import net.milkbowl.vault2.helper.subject.SubjectType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link ChatUnlocked} decorator that caches prefixes, suffixes and info values per context and
+ * subject, so chat formatters can query metadata for every message without a provider lookup.
+ *
+ * The cache holds at most {@code maximumSize} context and subject pairs. Beyond that it evicts the
+ * least recently read eighth of its entries, where recency is measured by how many entries had been
+ * created when an entry was last read. A cached read takes no lock and allocates nothing: entries are
+ * found through nested concurrent maps keyed by the context's values and the subject's identifier,
+ * and the primitive getters unbox the cached value directly. Entries for a subject are invalidated in every context whenever the subject
+ * is changed through this decorator, since a change in one context can be visible in others through
+ * fallback lookups. A change to a group invalidates the whole cache, as it may affect every member.
+ * Changes made to the provider directly must be reported through {@link #invalidate(Subject)} or
+ * {@link #invalidateAll()}.
+ *
+ * Info values are held in per-entry arrays indexed by an {@link InfoKeyRegistry} owned by this cache,
+ * so an entry grows only to the ids of the keys read through this cache.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class CachingChat implements ChatUnlocked {
+
+  private final ChatUnlocked delegate;
+  private final int maximumSize;
+
+  private final Map<Map<String, String>, Map<String, CachedMeta>> cache = new ConcurrentHashMap<>();
+  private final AtomicInteger size = new AtomicInteger();
+  //counts created entries; each read stamps its entry with the count to approximate recency.
+  private final AtomicLong clock = new AtomicLong();
+  private final Object evictLock = new Object();
+  //ids of the info keys read through this cache; never shrinks, but dies with the cache.
+  private final InfoKeyRegistry keys = new InfoKeyRegistry();
+
+  /**
+   * Constructs a new {@code CachingChat} around the provided chat provider.
+   *
+   * @param delegate the chat provider to cache; must not be null
+   * @param maximumSize the maximum number of context and subject pairs to cache
+   */
+  public CachingChat(@NotNull final ChatUnlocked delegate, final int maximumSize) {
+
+    if(maximumSize <= 0) {
+      throw new IllegalArgumentException("maximumSize must be positive");
+    }
+
+    this.delegate = delegate;
+    this.maximumSize = maximumSize;
+  }
+
+  public ChatUnlocked delegate() {
+
+    return delegate;
+  }
+
+  /**
+   * Discards every cached entry for the subject in every context.
+   *
+   * @param subject the subject whose entries are discarded; must not be null
+   */
+  public void invalidate(@NotNull final Subject subject) {
+
+    if(subject.type() == SubjectType.GROUP) {
+      invalidateAll();
+      return;
+    }
+
+    for(final Map<String, CachedMeta> subjects : cache.values()) {
+      if(subjects.remove(subject.identifier()) != null) {
+        size.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Discards every cached entry.
+   */
+  public void invalidateAll() {
+
+    for(final Map<String, CachedMeta> subjects : cache.values()) {
+      for(final String subject : subjects.keySet()) {
+        if(subjects.remove(subject) != null) {
+          size.decrementAndGet();
+        }
+      }
+    }
+  }
+
+  /**
+   * Retrieves the number of context and subject pairs currently cached.
+   *
+   * @return the number of cached entries
+   */
+  public int size() {
+
+    return size.get();
+  }
+
+  @Override
+  public boolean isEnabled() {
+
+    return delegate.isEnabled();
+  }
+
+  @Override
+  public @NotNull String getName() {
+
+    return delegate.getName();
+  }
+
+  @Override
+  public boolean hasGroupSupport() {
+
+    return delegate.hasGroupSupport();
+  }
+
+  @Override
+  public Optional<String> getPrefix(@NotNull final Context context, @NotNull final Subject subject) {
+
+    final CachedMeta entry = entry(context, subject);
+    Optional<String> prefix = entry.prefix;
+    if(prefix == null) {
+      prefix = delegate.getPrefix(context, subject);
+      entry.prefix = prefix;
+    }
+    return prefix;
+  }
+
+  @Override
+  public CompletableFuture<Optional<String>> getPrefixAsync(@NotNull final Context context, @NotNull final Subject subject) {
+
+    final CachedMeta entry = entry(context, subject);
+    final Optional<String> prefix = entry.prefix;
+    if(prefix != null) {
+      return CompletableFuture.completedFuture(prefix);
+    }
+    return delegate.getPrefixAsync(context, subject).thenApply(value->{
+      entry.prefix = value;
+      return value;
+    });
+  }
+
+  @Override
+  public Optional<String> getSuffix(@NotNull final Context context, @NotNull final Subject subject) {
+
+    final CachedMeta entry = entry(context, subject);
+    Optional<String> suffix = entry.suffix;
+    if(suffix == null) {
+      suffix = delegate.getSuffix(context, subject);
+      entry.suffix = suffix;
+    }
+    return suffix;
+  }
+
+  @Override
+  public CompletableFuture<Optional<String>> getSuffixAsync(@NotNull final Context context, @NotNull final Subject subject) {
+
+    final CachedMeta entry = entry(context, subject);
+    final Optional<String> suffix = entry.suffix;
+    if(suffix != null) {
+      return CompletableFuture.completedFuture(suffix);
+    }
+    return delegate.getSuffixAsync(context, subject).thenApply(value->{
+      entry.suffix = value;
+      return value;
+    });
+  }
+
+  @Override
+  public boolean setPrefix(@NotNull final Context context, @NotNull final Subject subject, @NotNull final String prefix) {
+
+    return invalidateAfter(subject, delegate.setPrefix(context, subject, prefix));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> setPrefixAsync(@NotNull final Context context, @NotNull final Subject subject, @NotNull final String prefix) {
+
+    return delegate.setPrefixAsync(context, subject, prefix).thenApply(result->invalidateAfter(subject, result));
+  }
+
+  @Override
+  public boolean copyPrefix(@NotNull final Context context, @NotNull final Subject from, @NotNull final Subject to) {
+
+    return invalidateAfter(to, delegate.copyPrefix(context, from, to));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> copyPrefixAsync(@NotNull final Context context, @NotNull final Subject from, @NotNull final Subject to) {
+
+    return delegate.copyPrefixAsync(context, from, to).thenApply(result->invalidateAfter(to, result));
+  }
+
+  @Override
+  public boolean setSuffix(@NotNull final Context context, @NotNull final Subject subject, @NotNull final String suffix) {
+
+    return invalidateAfter(subject, delegate.setSuffix(context, subject, suffix));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> setSuffixAsync(@NotNull final Context context, @NotNull final Subject subject, @NotNull final String suffix) {
+
+    return delegate.setSuffixAsync(context, subject, suffix).thenApply(result->invalidateAfter(subject, result));
+  }
+
+  @Override
+  public boolean copySuffix(@NotNull final Context context, @NotNull final Subject from, @NotNull final Subject to) {
+
+    return invalidateAfter(to, delegate.copySuffix(context, from, to));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> copySuffixAsync(@NotNull final Context context, @NotNull final Subject from, @NotNull final Subject to) {
+
+    return delegate.copySuffixAsync(context, from, to).thenApply(result->invalidateAfter(to, result));
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> Optional<T> get(final Context context, final Subject subject, final InfoKey<T> key) {
+
+    final CachedMeta entry = entry(context, subject);
+    final int id = keys.id(key);
+    Optional<?> value = entry.value(id);
+    if(value == null) {
+      value = delegate.get(context, subject, key);
+      entry.value(id, value, keys.size());
+    }
+    return (Optional<T>)value;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> CompletableFuture<Optional<T>> getAsync(final Context context, final Subject subject, final InfoKey<T> key) {
+
+    final CachedMeta entry = entry(context, subject);
+    final int id = keys.id(key);
+    final Optional<?> value = entry.value(id);
+    if(value != null) {
+      return CompletableFuture.completedFuture((Optional<T>)value);
+    }
+    return delegate.getAsync(context, subject, key).thenApply(result->{
+      entry.value(id, result, keys.size());
+      return result;
+    });
+  }
+
+  @Override
+  public int getInt(@NotNull final Context context, @NotNull final Subject subject, @NotNull final IntInfoKey key, final int defaultValue) {
+
+    final Optional<Integer> value = get(context, subject, key);
+    return (value.isPresent())? value.get() : defaultValue;
+  }
+
+  @Override
+  public double getDouble(@NotNull final Context context, @NotNull final Subject subject, @NotNull final DoubleInfoKey key, final double defaultValue) {
+
+    final Optional<Double> value = get(context, subject, key);
+    return (value.isPresent())? value.get() : defaultValue;
+  }
+
+  @Override
+  public boolean getBool(@NotNull final Context context, @NotNull final Subject subject, @NotNull final BoolInfoKey key, final boolean defaultValue) {
+
+    final Optional<Boolean> value = get(context, subject, key);
+    return (value.isPresent())? value.get() : defaultValue;
+  }
+
+  @Override
+  public <T> boolean set(final Context context, final Subject subject, final InfoKey<T> key, final T value) {
+
+    return invalidateAfter(subject, delegate.set(context, subject, key, value));
+  }
+
+  @Override
+  public <T> CompletableFuture<Boolean> setAsync(final Context context, final Subject subject, final InfoKey<T> key, final T value) {
+
+    return delegate.setAsync(context, subject, key, value).thenApply(result->invalidateAfter(subject, result));
+  }
+
+  @Override
+  public @NotNull ChatMeta meta(@NotNull final Context context, @NotNull final Subject subject, @NotNull final Collection<InfoKey<?>> keys) {
+
+    final CachedMeta entry = entry(context, subject);
+    final ChatMeta cached = resolve(entry, keys);
+    if(cached != null) {
+      return cached;
+    }
+
+    final ChatMeta meta = delegate.meta(context, subject, keys);
+    store(entry, meta, keys);
+    return meta;
+  }
+
+  @Override
+  public @NotNull CompletableFuture<ChatMeta> metaAsync(@NotNull final Context context, @NotNull final Subject subject, @NotNull final Collection<InfoKey<?>> keys) {
+
+    final CachedMeta entry = entry(context, subject);
+    final ChatMeta cached = resolve(entry, keys);
+    if(cached != null) {
+      return CompletableFuture.completedFuture(cached);
+    }
+
+    final List<InfoKey<?>> requested = new ArrayList<>(keys);
+    return delegate.metaAsync(context, subject, requested).thenApply(meta->{
+      store(entry, meta, requested);
+      return meta;
+    });
+  }
+
+  private ChatMeta resolve(final CachedMeta entry, final Collection<InfoKey<?>> requested) {
+
+    final Optional<String> prefix = entry.prefix;
+    final Optional<String> suffix = entry.suffix;
+    if(prefix == null || suffix == null) {
+      return null;
+    }
+
+    final Map<InfoKey<?>, Object> resolved = new HashMap<>();
+    for(final InfoKey<?> key : requested) {
+      final Optional<?> value = entry.value(keys.id(key));
+      if(value == null) {
+        return null;
+      }
+      value.ifPresent(v->resolved.put(key, v));
+    }
+    return new ChatMeta(prefix.orElse(null), suffix.orElse(null), resolved);
+  }
+
+  private void store(final CachedMeta entry, final ChatMeta meta, final Collection<InfoKey<?>> requested) {
+
+    entry.prefix = meta.prefix();
+    entry.suffix = meta.suffix();
+    for(final InfoKey<?> key : requested) {
+      entry.value(keys.id(key), meta.get(key), keys.size());
+    }
+  }
+
+  private boolean invalidateAfter(final Subject subject, final boolean result) {
+
+    invalidate(subject);
+    return result;
+  }
+
+  private CachedMeta entry(final Context context, final Subject subject) {
+
+    final Map<String, CachedMeta> subjects = cache.get(context.asMap());
+    if(subjects != null) {
+      final CachedMeta entry = subjects.get(subject.identifier());
+      if(entry != null) {
+        entry.used = clock.get();
+        return entry;
+      }
+    }
+    return create(context, subject);
+  }
+
+  private CachedMeta create(final Context context, final Subject subject) {
+
+    final Map<String, CachedMeta> subjects = cache.computeIfAbsent(new HashMap<>(context.asMap()), k->new ConcurrentHashMap<>());
+    final CachedMeta entry = subjects.computeIfAbsent(subject.identifier(), k->{
+      size.incrementAndGet();
+      return new CachedMeta(subjects, k, clock.incrementAndGet());
+    });
+    if(size.get() > maximumSize) {
+      evict();
+    }
+    return entry;
+  }
+
+  //drops the least recently read entries down to seven eighths of the maximum, so eviction runs
+  //once per many inserts rather than on every one.
+  private void evict() {
+
+    synchronized(evictLock) {
+      if(size.get() <= maximumSize) {
+        return;
+      }
+
+      final List<CachedMeta> entries = new ArrayList<>(size.get());
+      for(final Map<String, CachedMeta> subjects : cache.values()) {
+        entries.addAll(subjects.values());
+      }
+      entries.sort((a, b)->Long.compare(a.used, b.used));
+
+      final int excess = entries.size() - (maximumSize - maximumSize / 8);
+      for(int i = 0; i < excess && i < entries.size(); i++) {
+        final CachedMeta entry = entries.get(i);
+        if(entry.owner.remove(entry.subject, entry)) {
+          size.decrementAndGet();
+        }
+      }
+    }
+  }
+
+  private static final class CachedMeta {
+
+    private final Map<String, CachedMeta> owner;
+    private final String subject;
+    //the value of the cache's clock when the entry was last read.
+    private volatile long used;
+    //null means the value has not been loaded; an empty optional means the provider has no value.
+    private volatile Optional<String> prefix;
+    private volatile Optional<String> suffix;
+    //indexed by the cache's InfoKeyRegistry ids; grown under the entry's lock and published by
+    //replacing the array.
+    private volatile AtomicReferenceArray<Optional<?>> values = new AtomicReferenceArray<>(0);
+
+    private CachedMeta(final Map<String, CachedMeta> owner, final String subject, final long used) {
+
+      this.owner = owner;
+      this.subject = subject;
+      this.used = used;
+    }
+
+    private Optional<?> value(final int id) {
+
+      final AtomicReferenceArray<Optional<?>> values = this.values;
+      return (id < values.length())? values.get(id) : null;
+    }
+
+    //grows geometrically, but never past the number of keys registered with the cache.
+    private synchronized void value(final int id, final Optional<?> value, final int registered) {
+
+      AtomicReferenceArray<Optional<?>> values = this.values;
+      if(id >= values.length()) {
+        final int length = Math.min(Math.max(id + 1, values.length() << 1), Math.max(id + 1, registered));
+        final AtomicReferenceArray<Optional<?>> grown = new AtomicReferenceArray<>(length);
+        for(int i = 0; i < values.length(); i++) {
+          grown.set(i, values.get(i));
+        }
+        this.values = grown;
+        values = grown;
+      }
+      values.set(id, value);
+    }
+  }
+}
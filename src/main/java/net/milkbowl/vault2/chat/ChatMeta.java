@@ -0,0 +1,168 @@
+package net.milkbowl.vault2.chat;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * An immutable snapshot of a subject's chat metadata within a single context: its prefix, suffix
+ * and the values of a requested set of {@link InfoKey}s.
+ *
+ * A snapshot is typically resolved once per message through
+ * {@link ChatUnlocked#meta(net.milkbowl.vault2.helper.context.Context, net.milkbowl.vault2.helper.subject.Subject, java.util.Collection)}
+ * instead of issuing a separate provider lookup for each value.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public final class ChatMeta {
+
+  private final String prefix;
+  private final String suffix;
+  private final Map<InfoKey<?>, Object> values;
+
+  /**
+   * Constructs a new {@code ChatMeta} snapshot.
+   *
+   * @param prefix the subject's prefix, or null if none is set
+   * @param suffix the subject's suffix, or null if none is set
+   * @param values the resolved info values keyed by their {@link InfoKey}; absent keys have no value
+   */
+  public ChatMeta(@Nullable final String prefix, @Nullable final String suffix, @NotNull final Map<InfoKey<?>, Object> values) {
+
+    this.prefix = prefix;
+    this.suffix = suffix;
+    this.values = (values.isEmpty())? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(values));
+  }
+
+  public Optional<String> prefix() {
+
+    return Optional.ofNullable(prefix);
+  }
+
+  @Nullable
+  public String prefixOrNull() {
+
+    return prefix;
+  }
+
+  public Optional<String> suffix() {
+
+    return Optional.ofNullable(suffix);
+  }
+
+  @Nullable
+  public String suffixOrNull() {
+
+    return suffix;
+  }
+
+  /**
+   * Retrieves the value resolved for the specified key.
+   *
+   * @param <T> the type of the value
+   * @param key the key identifying the value; must not be null
+   * @return an optional containing the value, or an empty optional if the key was not resolved or has no value
+   */
+  @SuppressWarnings("unchecked")
+  public <T> Optional<T> get(@NotNull final InfoKey<T> key) {
+
+    return Optional.ofNullable((T)values.get(key));
+  }
+
+  /**
+   * Retrieves the value resolved for the specified key, or the default value if there is none.
+   *
+   * @param <T> the type of the value
+   * @param key the key identifying the value; must not be null
+   * @param defaultValue the value to return if the key has no value
+   * @return the resolved value, or the default value
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T getOrDefault(@NotNull final InfoKey<T> key, final T defaultValue) {
+
+    final Object value = values.get(key);
+    return (value == null)? defaultValue : (T)value;
+  }
+
+  /**
+   * Retrieves the integer value resolved for the specified key without boxing, or the default value if there is none.
+   *
+   * @param key the key identifying the value; must not be null
+   * @param defaultValue the value to return if the key has no value
+   * @return the resolved value, or the default value
+   */
+  public int getInt(@NotNull final IntInfoKey key, final int defaultValue) {
+
+    final Object value = values.get(key);
+    return (value == null)? defaultValue : ((Number)value).intValue();
+  }
+
+  /**
+   * Retrieves the decimal value resolved for the specified key without boxing, or the default value if there is none.
+   *
+   * @param key the key identifying the value; must not be null
+   * @param defaultValue the value to return if the key has no value
+   * @return the resolved value, or the default value
+   */
+  public double getDouble(@NotNull final DoubleInfoKey key, final double defaultValue) {
+
+    final Object value = values.get(key);
+    return (value == null)? defaultValue : ((Number)value).doubleValue();
+  }
+
+  /**
+   * Retrieves the boolean value resolved for the specified key without boxing, or the default value if there is none.
+   *
+   * @param key the key identifying the value; must not be null
+   * @param defaultValue the value to return if the key has no value
+   * @return the resolved value, or the default value
+   */
+  public boolean getBool(@NotNull final BoolInfoKey key, final boolean defaultValue) {
+
+    final Object value = values.get(key);
+    return (value == null)? defaultValue : (Boolean)value;
+  }
+
+  /**
+   * Determines whether the snapshot holds a value for the specified key.
+   *
+   * @param key the key to check; must not be null
+   * @return true if a value was resolved for the key; false otherwise
+   */
+  public boolean contains(@NotNull final InfoKey<?> key) {
+
+    return values.containsKey(key);
+  }
+
+  /**
+   * Retrieves the resolved info values keyed by their {@link InfoKey}.
+   *
+   * @return an unmodifiable map of the resolved values
+   */
+  @NotNull
+  public Map<InfoKey<?>, Object> values() {
+
+    return values;
+  }
+}
@@ -20,6 +20,9 @@ import net.milkbowl.vault2.helper.context.Context;
 import net.milkbowl.vault2.helper.subject.Subject;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
@@ -262,6 +265,69 @@ public interface ChatUnlocked {
     return value.orElse(defaultValue);
   }
 
+  /**
+   * Retrieves the integer value associated with the specified key for the given subject within the provided context
+   * as a primitive. If no value is found, the provided default value is returned.
+   *
+   * The default implementation delegates to {@link #get(Context, Subject, InfoKey)}, so it still boxes the
+   * value and allocates an {@link Optional}. Only providers that store integer values natively and override
+   * this method avoid that.
+   *
+   * @param context      the context in which the value is being retrieved; must not be null
+   * @param subject      the subject for which the value is being retrieved; must not be null
+   * @param key          the key identifying the value to be retrieved; must not be null
+   * @param defaultValue the default value to return if no value is found
+   * @return the value associated with the provided key if it exists; otherwise, the specified default value
+   * @since 2.21
+   */
+  default int getInt(@NotNull final Context context, @NotNull final Subject subject, @NotNull final IntInfoKey key, final int defaultValue) {
+
+    final Optional<Integer> value = get(context, subject, key);
+    return (value.isPresent())? value.get() : defaultValue;
+  }
+
+  /**
+   * Retrieves the decimal value associated with the specified key for the given subject within the provided context
+   * as a primitive. If no value is found, the provided default value is returned.
+   *
+   * The default implementation delegates to {@link #get(Context, Subject, InfoKey)}, so it still boxes the
+   * value and allocates an {@link Optional}. Only providers that store decimal values natively and override
+   * this method avoid that.
+   *
+   * @param context      the context in which the value is being retrieved; must not be null
+   * @param subject      the subject for which the value is being retrieved; must not be null
+   * @param key          the key identifying the value to be retrieved; must not be null
+   * @param defaultValue the default value to return if no value is found
+   * @return the value associated with the provided key if it exists; otherwise, the specified default value
+   * @since 2.21
+   */
+  default double getDouble(@NotNull final Context context, @NotNull final Subject subject, @NotNull final DoubleInfoKey key, final double defaultValue) {
+
+    final Optional<Double> value = get(context, subject, key);
+    return (value.isPresent())? value.get() : defaultValue;
+  }
+
+  /**
+   * Retrieves the boolean value associated with the specified key for the given subject within the provided context
+   * as a primitive. If no value is found, the provided default value is returned.
+   *
+   * The default implementation delegates to {@link #get(Context, Subject, InfoKey)}, so it still boxes the
+   * value and allocates an {@link Optional}. Only providers that store boolean values natively and override
+   * this method avoid that.
+   *
+   * @param context      the context in which the value is being retrieved; must not be null
+   * @param subject      the subject for which the value is being retrieved; must not be null
+   * @param key          the key identifying the value to be retrieved; must not be null
+   * @param defaultValue the default value to return if no value is found
+   * @return the value associated with the provided key if it exists; otherwise, the specified default value
+   * @since 2.21
+   */
+  default boolean getBool(@NotNull final Context context, @NotNull final Subject subject, @NotNull final BoolInfoKey key, final boolean defaultValue) {
+
+    final Optional<Boolean> value = get(context, subject, key);
+    return (value.isPresent())? value.get() : defaultValue;
+  }
+
   /**
    * Sets the value associated with a specific key for a given subject in the specified context.
    *
@@ -287,4 +353,59 @@ public interface ChatUnlocked {
    * @since 2.18
    */
   <T> CompletableFuture<Boolean> setAsync(final Context context, final Subject subject, final InfoKey<T> key, final T value);
+
+  /**
+   * Retrieves the prefix, suffix and the values of the given keys for the subject in a single call.
+   *
+   * Providers should override this method to resolve everything in one lookup. The default
+   * implementation composes {@link #getPrefix(Context, Subject)}, {@link #getSuffix(Context, Subject)}
+   * and {@link #get(Context, Subject, InfoKey)}.
+   *
+   * @param context the context in which the metadata is being retrieved; must not be null
+   * @param subject the subject whose metadata is to be retrieved; must not be null
+   * @param keys    the info keys to resolve; must not be null
+   * @return an immutable {@link ChatMeta} snapshot of the subject's metadata
+   * @since 2.21
+   */
+  @NotNull
+  default ChatMeta meta(@NotNull final Context context, @NotNull final Subject subject, @NotNull final Collection<InfoKey<?>> keys) {
+
+    final Map<InfoKey<?>, Object> values = new HashMap<>();
+    for(final InfoKey<?> key : keys) {
+      get(context, subject, key).ifPresent(value->values.put(key, value));
+    }
+    return new ChatMeta(getPrefixOrNull(context, subject), getSuffixOrNull(context, subject), values);
+  }
+
+  /**
+   * Asynchronously retrieves the prefix, suffix and the values of the given keys for the subject.
+   *
+   * @param context the context in which the metadata is being retrieved; must not be null
+   * @param subject the subject whose metadata is to be retrieved; must not be null
+   * @param keys    the info keys to resolve; must not be null
+   * @return a {@code CompletableFuture} that completes with an immutable {@link ChatMeta} snapshot
+   * @since 2.21
+   */
+  @NotNull
+  default CompletableFuture<ChatMeta> metaAsync(@NotNull final Context context, @NotNull final Subject subject, @NotNull final Collection<InfoKey<?>> keys) {
+
+    final CompletableFuture<Optional<String>> prefix = getPrefixAsync(context, subject);
+    final CompletableFuture<Optional<String>> suffix = getSuffixAsync(context, subject);
+
+    final Map<InfoKey<?>, CompletableFuture<? extends Optional<?>>> lookups = new HashMap<>();
+    for(final InfoKey<?> key : keys) {
+      lookups.put(key, getAsync(context, subject, key));
+    }
+
+    final CompletableFuture<?>[] all = new CompletableFuture<?>[lookups.size() + 2];
+    lookups.values().toArray(all);
+    all[all.length - 2] = prefix;
+    all[all.length - 1] = suffix;
+
+    return CompletableFuture.allOf(all).thenApply(ignored->{
+      final Map<InfoKey<?>, Object> values = new HashMap<>();
+      lookups.forEach((key, lookup)->lookup.join().ifPresent(value->values.put(key, value)));
+      return new ChatMeta(prefix.join().orElse(null), suffix.join().orElse(null), values);
+    });
+  }
 }
\ No newline at end of file
@@ -20,6 +20,13 @@ package net.milkbowl.vault2.chat;
  * Represents a key structure used to store and organize information.
  * This class supports generic typing to accommodate different data types.
  *
+ * The {@link #intKey(String)}, {@link #doubleKey(String)} and {@link #boolKey(String)} factories return
+ * {@link IntInfoKey}, {@link DoubleInfoKey} and {@link BoolInfoKey} instances, which may be used with the
+ * primitive accessors of {@link ChatUnlocked}.
+ *
+ * Keys are equal when their nodes and classes are equal, so a string key and an {@link IntInfoKey} on the
+ * same node are different keys and never share a cached or resolved value.
+ *
  * @param <T> the type of the value associated with this key
  * @author creatorfromhell
  * @since 2.18
@@ -36,19 +43,39 @@ public class InfoKey<T> {
     return node;
   }
 
+  @Override
+  public boolean equals(final Object o) {
+
+    if(this == o) return true;
+    if(o == null || getClass() != o.getClass()) return false;
+    return node.equals(((InfoKey<?>)o).node);
+  }
+
+  @Override
+  public int hashCode() {
+
+    return 31 * getClass().hashCode() + node.hashCode();
+  }
+
+  @Override
+  public String toString() {
+
+    return "InfoKey{" + node + "}";
+  }
+
   public static InfoKey<String> stringKey(final String node) {
     return new InfoKey<>(node);
   }
 
   public static InfoKey<Boolean> boolKey(final String node) {
-    return new InfoKey<>(node);
+    return new BoolInfoKey(node);
   }
 
   public static InfoKey<Integer> intKey(final String node) {
-    return new InfoKey<>(node);
+    return new IntInfoKey(node);
   }
 
   public static InfoKey<Double> doubleKey(final String node) {
-    return new InfoKey<>(node);
+    return new DoubleInfoKey(node);
   }
 }
\ No newline at end of file
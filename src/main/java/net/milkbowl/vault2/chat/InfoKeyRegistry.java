@@ -0,0 +1,100 @@
+package net.milkbowl.vault2.chat;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns {@link InfoKey}s to dense integer ids, starting at zero and assigned in order of first use.
+ * Providers and caching layers can use these ids to keep per-subject metadata in flat arrays instead
+ * of per-subject hash maps. Keys are interned by {@link InfoKey#equals(Object)}, so keys of different
+ * value types on the same node get different ids.
+ *
+ * Ids are never reused or removed for the lifetime of a registry, so each owner, such as a
+ * {@link CachingChat}, keeps its own registry and releases it with itself.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class InfoKeyRegistry {
+
+  private final Map<InfoKey<?>, Integer> ids = new ConcurrentHashMap<>();
+  private volatile InfoKey<?>[] keys = new InfoKey<?>[16];
+  private volatile int size = 0;
+
+  /**
+   * Retrieves the id of the specified key, assigning a new one if the key is not yet registered.
+   *
+   * @param key the key to resolve; must not be null
+   * @return the dense id of the key
+   */
+  public int id(@NotNull final InfoKey<?> key) {
+
+    final Integer id = ids.get(key);
+    if(id != null) {
+      return id;
+    }
+    return register(key);
+  }
+
+  /**
+   * Retrieves the key registered under the specified id.
+   *
+   * @param id the id to look up
+   * @return the key registered under the id
+   * @throws IndexOutOfBoundsException if no key is registered under the id
+   */
+  @NotNull
+  public InfoKey<?> key(final int id) {
+
+    if(id < 0 || id >= size) {
+      throw new IndexOutOfBoundsException("No info key registered with id " + id);
+    }
+    return keys[id];
+  }
+
+  /**
+   * Retrieves the number of registered keys, which is one greater than the highest assigned id.
+   *
+   * @return the number of registered keys
+   */
+  public int size() {
+
+    return size;
+  }
+
+  private synchronized int register(final InfoKey<?> key) {
+
+    final Integer existing = ids.get(key);
+    if(existing != null) {
+      return existing;
+    }
+
+    final int id = size;
+    if(id == keys.length) {
+      keys = Arrays.copyOf(keys, id << 1);
+    }
+    keys[id] = key;
+    size = id + 1;
+    ids.put(key, id);
+    return id;
+  }
+}
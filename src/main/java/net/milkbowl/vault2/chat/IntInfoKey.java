@@ -0,0 +1,36 @@
+package net.milkbowl.vault2.chat;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * An {@link InfoKey} for integer values that can be read as a primitive through
+ * {@link ChatUnlocked#getInt(net.milkbowl.vault2.helper.context.Context, net.milkbowl.vault2.helper.subject.Subject, IntInfoKey, int)}.
+ * The read avoids boxing only when the provider overrides that method with native storage.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class IntInfoKey extends InfoKey<Integer> {
+
+  public IntInfoKey(final String node) {
+    super(node);
+  }
+
+  public static IntInfoKey of(final String node) {
+    return new IntInfoKey(node);
+  }
+}
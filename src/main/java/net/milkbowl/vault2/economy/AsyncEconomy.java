@@ -15,6 +15,10 @@ package net.milkbowl.vault2.economy;
     along with Vault.  If not, see <http://www.gnu.org/licenses/>.
  */
 
+import net.milkbowl.vault2.economy.async.AsyncTransfer;
+import net.milkbowl.vault2.economy.async.Deadline;
+import net.milkbowl.vault2.economy.async.EconomyTimeoutException;
+import net.milkbowl.vault2.economy.async.TimeoutAsyncEconomy;
 import org.jetbrains.annotations.NotNull;
 
 import java.math.BigDecimal;
@@ -23,6 +27,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * AsyncEconomy
@@ -308,6 +313,11 @@ public interface AsyncEconomy {
    * Asynchronously transfers a specified monetary amount from one user to another within the context of a given plugin.
    * The method ensures atomicity by attempting to revert the withdrawal if the deposit fails.
    *
+   * <p>
+   * The default implementation composes {@link #withdraw} and {@link #deposit} through {@link AsyncTransfer}
+   * without blocking, bounding each stage by {@link AsyncTransfer#DEFAULT_STAGE_TIMEOUT_MILLIS}; providers
+   * with a native atomic transfer should override it.
+   * </p>
    * @param pluginName the name of the plugin initiating the transfer; must not be null
    * @param from the unique identifier (UUID) of the user account from which the amount will be withdrawn; must not be null
    * @param to the unique identifier (UUID) of the user account to which the amount will be deposited; must not be null
@@ -315,10 +325,14 @@ public interface AsyncEconomy {
    * @return a CompletableFuture containing an {@code MultiEconomyResponse} detailing the status of the transfer,
    *         including the final balances, success/failure type, and error messages (if any)
    */
-  CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName,
-                                                   @NotNull final UUID from,
-                                                   @NotNull final UUID to,
-                                                   @NotNull final BigDecimal amount);
+  default CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName,
+                                                           @NotNull final UUID from,
+                                                           @NotNull final UUID to,
+                                                           @NotNull final BigDecimal amount) {
+
+    return AsyncTransfer.transfer(this, pluginName, from, to, amount,
+                                  AsyncTransfer.DEFAULT_STAGE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+  }
 
   /**
    * Asynchronously transfers a specific amount of currency from one account to another within the same world.
@@ -326,6 +340,11 @@ public interface AsyncEconomy {
    * into the target account. If the deposit operation fails, the withdrawn amount is refunded
    * to the source account to ensure consistency.
    *
+   * <p>
+   * The default implementation composes {@link #withdraw} and {@link #deposit} through {@link AsyncTransfer}
+   * without blocking, bounding each stage by {@link AsyncTransfer#DEFAULT_STAGE_TIMEOUT_MILLIS}; providers
+   * with a native atomic transfer should override it.
+   * </p>
    * @param pluginName The name of the plugin initiating the transfer.
    *                   Must not be null.
    * @param from       The unique identifier of the sender's account.
@@ -340,11 +359,15 @@ public interface AsyncEconomy {
    *         including the amount transferred, the resulting balances for both accounts, and
    *         the operation status. If the transfer fails, it contains error details.
    */
-  CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName,
-                                                   @NotNull final UUID from,
-                                                   @NotNull final UUID to,
-                                                   @NotNull final String worldName,
-                                                   @NotNull final BigDecimal amount);
+  default CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName,
+                                                           @NotNull final UUID from,
+                                                           @NotNull final UUID to,
+                                                           @NotNull final String worldName,
+                                                           @NotNull final BigDecimal amount) {
+
+    return AsyncTransfer.transfer(this, pluginName, from, to, worldName, amount,
+                                  AsyncTransfer.DEFAULT_STAGE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+  }
 
   /**
    * Asynchronously transfers a specified amount of currency from one account to another within a specific world.
@@ -352,6 +375,11 @@ public interface AsyncEconomy {
    * the target account. If the deposit fails, the withdrawn amount is returned to the source account
    * to ensure consistency.
    *
+   * <p>
+   * The default implementation composes {@link #withdraw} and {@link #deposit} through {@link AsyncTransfer}
+   * without blocking, bounding each stage by {@link AsyncTransfer#DEFAULT_STAGE_TIMEOUT_MILLIS}; providers
+   * with a native atomic transfer should override it.
+   * </p>
    * @param pluginName the name of the plugin initiating the transfer
    * @param from the unique identifier (UUID) of the source account
    * @param to the unique identifier (UUID) of the target account
@@ -361,12 +389,16 @@ public interface AsyncEconomy {
    * @return a CompletableFuture containing an {@link MultiEconomyResponse} containing information about the result of the transfer,
    *         including success status, balances, and error messages if applicable
    */
-  CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName,
-                                                   @NotNull final UUID from,
-                                                   @NotNull final UUID to,
-                                                   @NotNull final String worldName,
-                                                   @NotNull final String currency,
-                                                   @NotNull final BigDecimal amount);
+  default CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName,
+                                                           @NotNull final UUID from,
+                                                           @NotNull final UUID to,
+                                                           @NotNull final String worldName,
+                                                           @NotNull final String currency,
+                                                           @NotNull final BigDecimal amount) {
+
+    return AsyncTransfer.transfer(this, pluginName, from, to, worldName, currency, amount,
+                                  AsyncTransfer.DEFAULT_STAGE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+  }
 
   /**
    * Determines asynchronously if the specified amount can be withdrawn from the given account.
@@ -556,6 +588,293 @@ public interface AsyncEconomy {
                                              @NotNull String currency,
                                              @NotNull BigDecimal amount);
 
+  /*
+   * Idempotent Mutations
+   */
+
+  /**
+   * Asynchronously deposits the specified amount into an account at most once per transaction id.
+   *
+   * @param pluginName the name of the plugin initiating the operation, must not be null
+   * @param transactionID the caller-supplied id that identifies the operation across retries, must not be null
+   * @param accountID the unique identifier of the account, must not be null
+   * @param amount the amount of currency, must not be null
+   * @return a CompletableFuture that resolves to the result of the original call for the transaction id,
+   *         or a {@code NOT_IMPLEMENTED} response if the provider does not support idempotent mutations
+   * @see Economy#deposit(String, UUID, UUID, BigDecimal)
+   * @since 2.21
+   */
+  @NotNull
+  default CompletableFuture<EconomyResponse> deposit(@NotNull String pluginName,
+                                                     @NotNull UUID transactionID,
+                                                     @NotNull UUID accountID,
+                                                     @NotNull BigDecimal amount) {
+
+    return CompletableFuture.completedFuture(new EconomyResponse(BigDecimal.ZERO, BigDecimal.ZERO, EconomyResponse.ResponseType.NOT_IMPLEMENTED,
+                                                                 "Idempotent deposit is not implemented by this economy provider."));
+  }
+
+  /**
+   * Asynchronously deposits the specified amount into an account in the given world and currency at most once per transaction id.
+   *
+   * @param pluginName the name of the plugin initiating the operation, must not be null
+   * @param transactionID the caller-supplied id that identifies the operation across retries, must not be null
+   * @param accountID the unique identifier of the account, must not be null
+   * @param world the world in which the transaction is taking place, must not be null
+   * @param currency the name of the currency, must not be null
+   * @param amount the amount of currency, must not be null
+   * @return a CompletableFuture that resolves to the result of the original call for the transaction id,
+   *         or a {@code NOT_IMPLEMENTED} response if the provider does not support idempotent mutations
+   * @see Economy#deposit(String, UUID, UUID, String, String, BigDecimal)
+   * @since 2.21
+   */
+  @NotNull
+  default CompletableFuture<EconomyResponse> deposit(@NotNull String pluginName,
+                                                     @NotNull UUID transactionID,
+                                                     @NotNull UUID accountID,
+                                                     @NotNull String world,
+                                                     @NotNull String currency,
+                                                     @NotNull BigDecimal amount) {
+
+    return CompletableFuture.completedFuture(new EconomyResponse(BigDecimal.ZERO, BigDecimal.ZERO, EconomyResponse.ResponseType.NOT_IMPLEMENTED,
+                                                                 "Idempotent deposit is not implemented by this economy provider."));
+  }
+
+  /**
+   * Asynchronously withdraws the specified amount from an account at most once per transaction id.
+   *
+   * @param pluginName the name of the plugin initiating the operation, must not be null
+   * @param transactionID the caller-supplied id that identifies the operation across retries, must not be null
+   * @param accountID the unique identifier of the account, must not be null
+   * @param amount the amount of currency, must not be null
+   * @return a CompletableFuture that resolves to the result of the original call for the transaction id,
+   *         or a {@code NOT_IMPLEMENTED} response if the provider does not support idempotent mutations
+   * @see Economy#withdraw(String, UUID, UUID, BigDecimal)
+   * @since 2.21
+   */
+  @NotNull
+  default CompletableFuture<EconomyResponse> withdraw(@NotNull String pluginName,
+                                                      @NotNull UUID transactionID,
+                                                      @NotNull UUID accountID,
+                                                      @NotNull BigDecimal amount) {
+
+    return CompletableFuture.completedFuture(new EconomyResponse(BigDecimal.ZERO, BigDecimal.ZERO, EconomyResponse.ResponseType.NOT_IMPLEMENTED,
+                                                                 "Idempotent withdraw is not implemented by this economy provider."));
+  }
+
+  /**
+   * Asynchronously withdraws the specified amount from an account in the given world and currency at most once per transaction id.
+   *
+   * @param pluginName the name of the plugin initiating the operation, must not be null
+   * @param transactionID the caller-supplied id that identifies the operation across retries, must not be null
+   * @param accountID the unique identifier of the account, must not be null
+   * @param world the world in which the transaction is taking place, must not be null
+   * @param currency the name of the currency, must not be null
+   * @param amount the amount of currency, must not be null
+   * @return a CompletableFuture that resolves to the result of the original call for the transaction id,
+   *         or a {@code NOT_IMPLEMENTED} response if the provider does not support idempotent mutations
+   * @see Economy#withdraw(String, UUID, UUID, String, String, BigDecimal)
+   * @since 2.21
+   */
+  @NotNull
+  default CompletableFuture<EconomyResponse> withdraw(@NotNull String pluginName,
+                                                      @NotNull UUID transactionID,
+                                                      @NotNull UUID accountID,
+                                                      @NotNull String world,
+                                                      @NotNull String currency,
+                                                      @NotNull BigDecimal amount) {
+
+    return CompletableFuture.completedFuture(new EconomyResponse(BigDecimal.ZERO, BigDecimal.ZERO, EconomyResponse.ResponseType.NOT_IMPLEMENTED,
+                                                                 "Idempotent withdraw is not implemented by this economy provider."));
+  }
+
+  /**
+   * Asynchronously transfers the specified amount between two accounts at most once per transaction id.
+   *
+   * @param pluginName the name of the plugin initiating the operation, must not be null
+   * @param transactionID the caller-supplied id that identifies the operation across retries, must not be null
+   * @param from the unique identifier of the account to withdraw from, must not be null
+   * @param to the unique identifier of the account to deposit into, must not be null
+   * @param amount the amount of currency, must not be null
+   * @return a CompletableFuture that resolves to the result of the original call for the transaction id,
+   *         or a {@code NOT_IMPLEMENTED} response if the provider does not support idempotent mutations
+   * @see Economy#transfer(String, UUID, UUID, UUID, BigDecimal)
+   * @since 2.21
+   */
+  @NotNull
+  default CompletableFuture<MultiEconomyResponse> transfer(@NotNull String pluginName,
+                                                           @NotNull UUID transactionID,
+                                                           @NotNull UUID from,
+                                                           @NotNull UUID to,
+                                                           @NotNull BigDecimal amount) {
+
+    return CompletableFuture.completedFuture(new MultiEconomyResponse(amount, EconomyResponse.ResponseType.NOT_IMPLEMENTED,
+                                                                      "Idempotent transfer is not implemented by this economy provider."));
+  }
+
+  /**
+   * Asynchronously transfers the specified amount between two accounts in the given world and currency at most once per transaction id.
+   *
+   * @param pluginName the name of the plugin initiating the operation, must not be null
+   * @param transactionID the caller-supplied id that identifies the operation across retries, must not be null
+   * @param from the unique identifier of the account to withdraw from, must not be null
+   * @param to the unique identifier of the account to deposit into, must not be null
+   * @param world the world in which the transaction is taking place, must not be null
+   * @param currency the name of the currency, must not be null
+   * @param amount the amount of currency, must not be null
+   * @return a CompletableFuture that resolves to the result of the original call for the transaction id,
+   *         or a {@code NOT_IMPLEMENTED} response if the provider does not support idempotent mutations
+   * @see Economy#transfer(String, UUID, UUID, UUID, String, String, BigDecimal)
+   * @since 2.21
+   */
+  @NotNull
+  default CompletableFuture<MultiEconomyResponse> transfer(@NotNull String pluginName,
+                                                           @NotNull UUID transactionID,
+                                                           @NotNull UUID from,
+                                                           @NotNull UUID to,
+                                                           @NotNull String world,
+                                                           @NotNull String currency,
+                                                           @NotNull BigDecimal amount) {
+
+    return CompletableFuture.completedFuture(new MultiEconomyResponse(amount, EconomyResponse.ResponseType.NOT_IMPLEMENTED,
+                                                                      "Idempotent transfer is not implemented by this economy provider."));
+  }
+
+  /*
+   * Atomic Balance
+   */
+
+  /**
+   * Asynchronously sets the balance of an account in a single atomic operation.
+   *
+   * @param pluginName the name of the plugin initiating the operation, must not be null
+   * @param accountID the unique identifier of the account, must not be null
+   * @param amount the new balance of the account, must not be null
+   * @return a CompletableFuture that resolves to a response whose balance is the balance after the call,
+   *         or a {@code NOT_IMPLEMENTED} response if the provider does not support atomic sets
+   * @see Economy#setBalance(String, UUID, BigDecimal)
+   * @since 2.21
+   */
+  @NotNull
+  default CompletableFuture<EconomyResponse> setBalance(@NotNull String pluginName,
+                                                        @NotNull UUID accountID,
+                                                        @NotNull BigDecimal amount) {
+
+    return CompletableFuture.completedFuture(new EconomyResponse(BigDecimal.ZERO, BigDecimal.ZERO, EconomyResponse.ResponseType.NOT_IMPLEMENTED,
+                                                                 "Atomic set is not implemented by this economy provider."));
+  }
+
+  /**
+   * Asynchronously sets the balance of an account in the given world and currency in a single atomic operation.
+   *
+   * @param pluginName the name of the plugin initiating the operation, must not be null
+   * @param accountID the unique identifier of the account, must not be null
+   * @param world the world in which the balance is set, must not be null
+   * @param currency the name of the currency, must not be null
+   * @param amount the new balance of the account, must not be null
+   * @return a CompletableFuture that resolves to a response whose balance is the balance after the call,
+   *         or a {@code NOT_IMPLEMENTED} response if the provider does not support atomic sets
+   * @see Economy#setBalance(String, UUID, String, String, BigDecimal)
+   * @since 2.21
+   */
+  @NotNull
+  default CompletableFuture<EconomyResponse> setBalance(@NotNull String pluginName,
+                                                        @NotNull UUID accountID,
+                                                        @NotNull String world,
+                                                        @NotNull String currency,
+                                                        @NotNull BigDecimal amount) {
+
+    return CompletableFuture.completedFuture(new EconomyResponse(BigDecimal.ZERO, BigDecimal.ZERO, EconomyResponse.ResponseType.NOT_IMPLEMENTED,
+                                                                 "Atomic set is not implemented by this economy provider."));
+  }
+
+  /**
+   * Asynchronously sets the balance of an account only if it currently equals the expected value.
+   *
+   * @param pluginName the name of the plugin initiating the operation, must not be null
+   * @param accountID the unique identifier of the account, must not be null
+   * @param expected the balance the account must have for the set to happen, must not be null
+   * @param newValue the new balance of the account, must not be null
+   * @return a CompletableFuture that resolves to a response whose balance is the balance after the call,
+   *         a {@code FAILURE} response carrying the current balance if it did not match,
+   *         or a {@code NOT_IMPLEMENTED} response if the provider does not support atomic sets
+   * @see Economy#compareAndSetBalance(String, UUID, BigDecimal, BigDecimal)
+   * @since 2.21
+   */
+  @NotNull
+  default CompletableFuture<EconomyResponse> compareAndSetBalance(@NotNull String pluginName,
+                                                                  @NotNull UUID accountID,
+                                                                  @NotNull BigDecimal expected,
+                                                                  @NotNull BigDecimal newValue) {
+
+    return CompletableFuture.completedFuture(new EconomyResponse(BigDecimal.ZERO, BigDecimal.ZERO, EconomyResponse.ResponseType.NOT_IMPLEMENTED,
+                                                                 "Compare-and-set is not implemented by this economy provider."));
+  }
+
+  /**
+   * Asynchronously sets the balance of an account in the given world and currency only if it currently equals the expected value.
+   *
+   * @param pluginName the name of the plugin initiating the operation, must not be null
+   * @param accountID the unique identifier of the account, must not be null
+   * @param world the world in which the balance is set, must not be null
+   * @param currency the name of the currency, must not be null
+   * @param expected the balance the account must have for the set to happen, must not be null
+   * @param newValue the new balance of the account, must not be null
+   * @return a CompletableFuture that resolves to a response whose balance is the balance after the call,
+   *         a {@code FAILURE} response carrying the current balance if it did not match,
+   *         or a {@code NOT_IMPLEMENTED} response if the provider does not support atomic sets
+   * @see Economy#compareAndSetBalance(String, UUID, String, String, BigDecimal, BigDecimal)
+   * @since 2.21
+   */
+  @NotNull
+  default CompletableFuture<EconomyResponse> compareAndSetBalance(@NotNull String pluginName,
+                                                                  @NotNull UUID accountID,
+                                                                  @NotNull String world,
+                                                                  @NotNull String currency,
+                                                                  @NotNull BigDecimal expected,
+                                                                  @NotNull BigDecimal newValue) {
+
+    return CompletableFuture.completedFuture(new EconomyResponse(BigDecimal.ZERO, BigDecimal.ZERO, EconomyResponse.ResponseType.NOT_IMPLEMENTED,
+                                                                 "Compare-and-set is not implemented by this economy provider."));
+  }
+
+  /*
+   * Timeouts
+   */
+
+  /**
+   * Returns a view of this economy whose futures fail with an {@link EconomyTimeoutException} when
+   * they do not complete within the specified time. Cancelling a future of the view cancels the
+   * future of this economy, and futures of read-only operations are also cancelled on timeout.
+   * Mutations are left running on timeout, since their outcome may still be applied.
+   *
+   * @param timeout the time limit of each operation
+   * @param unit    the unit of the time limit; must not be null
+   * @return the bounded view
+   * @since 2.21
+   */
+  @NotNull
+  default AsyncEconomy withTimeout(final long timeout, @NotNull final TimeUnit unit) {
+
+    return new TimeoutAsyncEconomy(this, timeout, unit);
+  }
+
+  /**
+   * Returns a view of this economy whose operations must all complete by the specified deadline.
+   * Each operation is bounded by the time remaining when it starts, and operations started after the
+   * deadline fail without reaching this economy.
+   *
+   * @param deadline the deadline shared by every operation of the view; must not be null
+   * @return the bounded view
+   * @see #withTimeout(long, TimeUnit)
+   * @since 2.21
+   */
+  @NotNull
+  default AsyncEconomy withDeadline(@NotNull final Deadline deadline) {
+
+    return new TimeoutAsyncEconomy(this, deadline);
+  }
+
   /*
    * Shared Accounts
    */
@@ -0,0 +1,91 @@
+package net.milkbowl.vault2.economy;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Identifies a single balance: an account, the world it is held in and its currency. A null world or
+ * currency stands for the provider's default, matching the {@link Economy} overloads that omit them.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public final class BalanceKey {
+
+  private final UUID account;
+  private final String world;
+  private final String currency;
+  private final int hash;
+
+  public BalanceKey(@NotNull final UUID account, @Nullable final String world, @Nullable final String currency) {
+
+    this.account = account;
+    this.world = world;
+    this.currency = currency;
+    this.hash = 31 * (31 * account.hashCode() + Objects.hashCode(world)) + Objects.hashCode(currency);
+  }
+
+  @NotNull
+  public UUID account() {
+
+    return account;
+  }
+
+  @Nullable
+  public String world() {
+
+    return world;
+  }
+
+  @Nullable
+  public String currency() {
+
+    return currency;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+
+    if(this == o) {
+      return true;
+    }
+    if(!(o instanceof BalanceKey)) {
+      return false;
+    }
+
+    final BalanceKey other = (BalanceKey)o;
+    return hash == other.hash && account.equals(other.account)
+           && Objects.equals(world, other.world) && Objects.equals(currency, other.currency);
+  }
+
+  @Override
+  public int hashCode() {
+
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+
+    return account + "/" + world + "/" + currency;
+  }
+}
@@ -90,6 +90,20 @@ public interface Economy {
     return Optional.empty();
   }
 
+  /**
+   * Indicates whether the provider implements {@link #setBalance(String, UUID, String, String, BigDecimal)}
+   * and {@link #compareAndSetBalance(String, UUID, String, String, BigDecimal, BigDecimal)} as single
+   * atomic operations. When true, the default {@code set} methods route through
+   * {@code setBalance} instead of reading the balance and depositing or withdrawing the difference.
+   *
+   * @return true if atomic balance sets are supported; false otherwise.
+   * @since 2.21
+   */
+  default boolean supportsAtomicSet() {
+
+    return false;
+  }
+
   /*
    * Currency-related methods follow.
    */
@@ -641,6 +655,10 @@ public interface Economy {
    */
   default EconomyResponse set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
 
+    if(supportsAtomicSet()) {
+      return setBalance(pluginName, accountID, amount);
+    }
+
     final BigDecimal balance = balance(pluginName, accountID);
     final int compare = balance.compareTo(amount);
     if(compare > 0) {
@@ -672,6 +690,10 @@ public interface Economy {
    */
   default EconomyResponse set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
 
+    if(supportsAtomicSet()) {
+      return setBalance(pluginName, accountID, worldName, getDefaultCurrency(pluginName), amount);
+    }
+
     final BigDecimal balance = balance(pluginName, accountID, worldName);
     final int compare = balance.compareTo(amount);
     if(compare > 0) {
@@ -707,6 +729,10 @@ public interface Economy {
    */
   default EconomyResponse set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
 
+    if(supportsAtomicSet()) {
+      return setBalance(pluginName, accountID, worldName, currency, amount);
+    }
+
     final BigDecimal balance = balance(pluginName, accountID, worldName, currency);
     final int compare = balance.compareTo(amount);
     if(compare > 0) {
@@ -1165,6 +1191,260 @@ public interface Economy {
   @NotNull
   EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount);
 
+  /*
+   * Idempotent Mutation Methods
+   */
+
+  /**
+   * Deposit an amount to an account at most once per transaction id.
+   * <p>
+   * Repeating a call with the same {@code transactionID}, for example after a timeout left the
+   * outcome unknown, returns the response of the original call instead of depositing again. A
+   * transaction id reused for a different operation, account or amount is refused with a
+   * {@link ResponseType#FAILURE} response.
+   * <br>
+   * If the provider does not support idempotent mutations, this will return a
+   * {@link ResponseType#NOT_IMPLEMENTED} response. Wrap such providers in
+   * {@link net.milkbowl.vault2.economy.idempotency.IdempotentEconomy} to add support.
+   * </p>
+   * @param pluginName    The name of the plugin that is calling the method.
+   * @param transactionID the caller-supplied id that identifies this deposit across retries.
+   * @param accountID     the {@link UUID} associated with the account to deposit to.
+   * @param amount        Amount to deposit.
+   *
+   * @return {@link EconomyResponse} which includes the Economy plugin's {@link ResponseType} as to
+   * whether the transaction was a Success, Failure, Unsupported.
+   *
+   * @since 2.21
+   */
+  @NotNull
+  default EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return new EconomyResponse(BigDecimal.ZERO, BigDecimal.ZERO, ResponseType.NOT_IMPLEMENTED, "Idempotent deposit is not implemented by this economy provider.");
+  }
+
+  /**
+   * Deposit an amount of a currency to an account on a given world at most once per transaction id.
+   * <p>
+   * See {@link #deposit(String, UUID, UUID, BigDecimal)} for the idempotency contract.
+   * </p>
+   * @param pluginName    The name of the plugin that is calling the method.
+   * @param transactionID the caller-supplied id that identifies this deposit across retries.
+   * @param accountID     the {@link UUID} associated with the account to deposit to.
+   * @param worldName     the name of the world to check in.
+   * @param currency      the currency to use.
+   * @param amount        Amount to deposit.
+   *
+   * @return {@link EconomyResponse} which includes the Economy plugin's {@link ResponseType} as to
+   * whether the transaction was a Success, Failure, Unsupported.
+   *
+   * @since 2.21
+   */
+  @NotNull
+  default EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return new EconomyResponse(BigDecimal.ZERO, BigDecimal.ZERO, ResponseType.NOT_IMPLEMENTED, "Idempotent deposit is not implemented by this economy provider.");
+  }
+
+  /**
+   * Withdraw an amount from an account at most once per transaction id.
+   * <p>
+   * See {@link #deposit(String, UUID, UUID, BigDecimal)} for the idempotency contract.
+   * </p>
+   * @param pluginName    The name of the plugin that is calling the method.
+   * @param transactionID the caller-supplied id that identifies this withdrawal across retries.
+   * @param accountID     the {@link UUID} associated with the account to withdraw from.
+   * @param amount        Amount to withdraw.
+   *
+   * @return {@link EconomyResponse} which includes the Economy plugin's {@link ResponseType} as to
+   * whether the transaction was a Success, Failure, Unsupported.
+   *
+   * @since 2.21
+   */
+  @NotNull
+  default EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return new EconomyResponse(BigDecimal.ZERO, BigDecimal.ZERO, ResponseType.NOT_IMPLEMENTED, "Idempotent withdraw is not implemented by this economy provider.");
+  }
+
+  /**
+   * Withdraw an amount of a currency from an account on a given world at most once per transaction id.
+   * <p>
+   * See {@link #deposit(String, UUID, UUID, BigDecimal)} for the idempotency contract.
+   * </p>
+   * @param pluginName    The name of the plugin that is calling the method.
+   * @param transactionID the caller-supplied id that identifies this withdrawal across retries.
+   * @param accountID     the {@link UUID} associated with the account to withdraw from.
+   * @param worldName     the name of the world to check in.
+   * @param currency      the currency to use.
+   * @param amount        Amount to withdraw.
+   *
+   * @return {@link EconomyResponse} which includes the Economy plugin's {@link ResponseType} as to
+   * whether the transaction was a Success, Failure, Unsupported.
+   *
+   * @since 2.21
+   */
+  @NotNull
+  default EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return new EconomyResponse(BigDecimal.ZERO, BigDecimal.ZERO, ResponseType.NOT_IMPLEMENTED, "Idempotent withdraw is not implemented by this economy provider.");
+  }
+
+  /**
+   * Transfer an amount between two accounts at most once per transaction id.
+   * <p>
+   * See {@link #deposit(String, UUID, UUID, BigDecimal)} for the idempotency contract.
+   * </p>
+   * @param pluginName    The name of the plugin that is calling the method.
+   * @param transactionID the caller-supplied id that identifies this transfer across retries.
+   * @param from          the {@link UUID} of the account to withdraw from.
+   * @param to            the {@link UUID} of the account to deposit to.
+   * @param amount        Amount to transfer.
+   *
+   * @return {@link MultiEconomyResponse} which includes the Economy plugin's {@link ResponseType} as to
+   * whether the transaction was a Success, Failure, Unsupported.
+   *
+   * @since 2.21
+   */
+  @NotNull
+  default MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final BigDecimal amount) {
+
+    return new MultiEconomyResponse(amount, ResponseType.NOT_IMPLEMENTED, "Idempotent transfer is not implemented by this economy provider.");
+  }
+
+  /**
+   * Transfer an amount of a currency between two accounts on a given world at most once per transaction id.
+   * <p>
+   * See {@link #deposit(String, UUID, UUID, BigDecimal)} for the idempotency contract.
+   * </p>
+   * @param pluginName    The name of the plugin that is calling the method.
+   * @param transactionID the caller-supplied id that identifies this transfer across retries.
+   * @param from          the {@link UUID} of the account to withdraw from.
+   * @param to            the {@link UUID} of the account to deposit to.
+   * @param worldName     the name of the world to check in.
+   * @param currency      the currency to use.
+   * @param amount        Amount to transfer.
+   *
+   * @return {@link MultiEconomyResponse} which includes the Economy plugin's {@link ResponseType} as to
+   * whether the transaction was a Success, Failure, Unsupported.
+   *
+   * @since 2.21
+   */
+  @NotNull
+  default MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return new MultiEconomyResponse(amount, ResponseType.NOT_IMPLEMENTED, "Idempotent transfer is not implemented by this economy provider.");
+  }
+
+  /*
+   * Atomic Balance Methods
+   */
+
+  /**
+   * Sets the balance of an account in a single atomic operation.
+   * <p>
+   * Unlike the default implementation of {@link #set(String, UUID, BigDecimal)}, which reads the
+   * balance and then deposits or withdraws the difference, this replaces the balance in one step,
+   * so a concurrent deposit or withdrawal cannot be lost in between.
+   * <br>
+   * If the provider does not support atomic sets, this will return a
+   * {@link ResponseType#NOT_IMPLEMENTED} response; see {@link #supportsAtomicSet()}.
+   * </p>
+   * @param pluginName The name of the plugin that is calling the method.
+   * @param accountID  the {@link UUID} associated with the account.
+   * @param amount     the new balance of the account.
+   *
+   * @return {@link EconomyResponse} whose balance is the balance after the call.
+   *
+   * @since 2.21
+   */
+  @NotNull
+  default EconomyResponse setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return new EconomyResponse(BigDecimal.ZERO, BigDecimal.ZERO, ResponseType.NOT_IMPLEMENTED, "Atomic set is not implemented by this economy provider.");
+  }
+
+  /**
+   * Sets the balance of a currency for an account on a given world in a single atomic operation.
+   * <p>
+   * See {@link #setBalance(String, UUID, BigDecimal)} for the atomicity contract.
+   * <br>
+   * If the provider does not support multiple worlds, the provider's default world will be used.
+   * <br>
+   * If the provider does not support multi-currency, the provider's default currency will be
+   * used.
+   * </p>
+   * @param pluginName The name of the plugin that is calling the method.
+   * @param accountID  the {@link UUID} associated with the account.
+   * @param worldName  the name of the world to set the balance in.
+   * @param currency   the currency to use.
+   * @param amount     the new balance of the account.
+   *
+   * @return {@link EconomyResponse} whose balance is the balance after the call.
+   *
+   * @since 2.21
+   */
+  @NotNull
+  default EconomyResponse setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return new EconomyResponse(BigDecimal.ZERO, BigDecimal.ZERO, ResponseType.NOT_IMPLEMENTED, "Atomic set is not implemented by this economy provider.");
+  }
+
+  /**
+   * Sets the balance of an account only if it currently equals an expected value, in a single
+   * atomic operation.
+   * <p>
+   * This is the building block for optimistic read-modify-write: read the balance, compute the new
+   * value, and retry with the returned balance if another change got there first. Balances are
+   * compared with {@link BigDecimal#compareTo(BigDecimal)}, so scale is ignored.
+   * <br>
+   * If the balance does not match, nothing is changed and a {@link ResponseType#FAILURE} response
+   * is returned whose balance is the current balance. If the provider does not support atomic sets,
+   * this will return a {@link ResponseType#NOT_IMPLEMENTED} response.
+   * </p>
+   * @param pluginName The name of the plugin that is calling the method.
+   * @param accountID  the {@link UUID} associated with the account.
+   * @param expected   the balance the account must have for the set to happen.
+   * @param newValue   the new balance of the account.
+   *
+   * @return {@link EconomyResponse} whose balance is the balance after the call.
+   *
+   * @since 2.21
+   */
+  @NotNull
+  default EconomyResponse compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+    return new EconomyResponse(BigDecimal.ZERO, BigDecimal.ZERO, ResponseType.NOT_IMPLEMENTED, "Compare-and-set is not implemented by this economy provider.");
+  }
+
+  /**
+   * Sets the balance of a currency for an account on a given world only if it currently equals an
+   * expected value, in a single atomic operation.
+   * <p>
+   * See {@link #compareAndSetBalance(String, UUID, BigDecimal, BigDecimal)} for the contract.
+   * <br>
+   * If the provider does not support multiple worlds, the provider's default world will be used.
+   * <br>
+   * If the provider does not support multi-currency, the provider's default currency will be
+   * used.
+   * </p>
+   * @param pluginName The name of the plugin that is calling the method.
+   * @param accountID  the {@link UUID} associated with the account.
+   * @param worldName  the name of the world to set the balance in.
+   * @param currency   the currency to use.
+   * @param expected   the balance the account must have for the set to happen.
+   * @param newValue   the new balance of the account.
+   *
+   * @return {@link EconomyResponse} whose balance is the balance after the call.
+   *
+   * @since 2.21
+   */
+  @NotNull
+  default EconomyResponse compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+    return new EconomyResponse(BigDecimal.ZERO, BigDecimal.ZERO, ResponseType.NOT_IMPLEMENTED, "Compare-and-set is not implemented by this economy provider.");
+  }
+
   /*
    * Shared Account Methods
    */
@@ -16,6 +16,9 @@ package net.milkbowl.vault2.economy;
  */
 
 
+import net.milkbowl.vault2.economy.async.Deadline;
+import net.milkbowl.vault2.economy.async.EconomyTimeoutException;
+import net.milkbowl.vault2.economy.async.EconomyTimeouts;
 import org.jetbrains.annotations.NotNull;
 
 import java.math.BigDecimal;
@@ -24,6 +27,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provides a wrapper for the synchronous methods of {@link Economy} and the asynchronous methods of {@link AsyncEconomy}.
@@ -1015,4 +1019,320 @@ public final class EconomyFutures {
             .map(async -> async.updateAccountPermission(pluginName, accountID, uuid, permission, value))
             .orElseGet(() -> CompletableFuture.completedFuture(economy.updateAccountPermission(pluginName, accountID, uuid, permission, value)));
   }
-}
\ No newline at end of file
+
+  /*
+   * Deadline Methods
+   */
+
+  /**
+   * Retrieves the balance of an account, failing with an {@link EconomyTimeoutException} if it does not complete by the deadline.
+   * When the economy is asynchronous the call is bounded through {@link AsyncEconomy#withDeadline(Deadline)};
+   * otherwise it runs synchronously unless the deadline has already passed.
+   *
+   * @param economy    the economy to perform the operation with; must not be null
+   * @param pluginName the name of the plugin performing the operation; must not be null
+   * @param accountID  the unique identifier of the account; must not be null
+   * @param deadline   the deadline the operation must complete by; must not be null
+   * @return a CompletableFuture containing the result of the operation
+   */
+  public static CompletableFuture<BigDecimal> balance(@NotNull final Economy economy,
+                                                      @NotNull final String pluginName,
+                                                      @NotNull final UUID accountID,
+                                                      @NotNull final Deadline deadline) {
+
+    return economy.async()
+            .map(async -> async.withDeadline(deadline).balance(pluginName, accountID))
+            .orElseGet(() -> (deadline.expired())? EconomyTimeouts.timedOut("balance", deadline.budget(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                                                  : CompletableFuture.completedFuture(economy.balance(pluginName, accountID)));
+  }
+
+  /**
+   * Retrieves the balance of an account in a world, failing with an {@link EconomyTimeoutException} if it does not complete by the deadline.
+   * When the economy is asynchronous the call is bounded through {@link AsyncEconomy#withDeadline(Deadline)};
+   * otherwise it runs synchronously unless the deadline has already passed.
+   *
+   * @param economy    the economy to perform the operation with; must not be null
+   * @param pluginName the name of the plugin performing the operation; must not be null
+   * @param accountID  the unique identifier of the account; must not be null
+   * @param world      the name of the world; must not be null
+   * @param deadline   the deadline the operation must complete by; must not be null
+   * @return a CompletableFuture containing the result of the operation
+   */
+  public static CompletableFuture<BigDecimal> balance(@NotNull final Economy economy,
+                                                      @NotNull final String pluginName,
+                                                      @NotNull final UUID accountID,
+                                                      @NotNull final String world,
+                                                      @NotNull final Deadline deadline) {
+
+    return economy.async()
+            .map(async -> async.withDeadline(deadline).balance(pluginName, accountID, world))
+            .orElseGet(() -> (deadline.expired())? EconomyTimeouts.timedOut("balance", deadline.budget(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                                                  : CompletableFuture.completedFuture(economy.balance(pluginName, accountID, world)));
+  }
+
+  /**
+   * Retrieves the balance of an account in a world and currency, failing with an {@link EconomyTimeoutException} if it does not complete by the deadline.
+   * When the economy is asynchronous the call is bounded through {@link AsyncEconomy#withDeadline(Deadline)};
+   * otherwise it runs synchronously unless the deadline has already passed.
+   *
+   * @param economy    the economy to perform the operation with; must not be null
+   * @param pluginName the name of the plugin performing the operation; must not be null
+   * @param accountID  the unique identifier of the account; must not be null
+   * @param world      the name of the world; must not be null
+   * @param currency   the name of the currency; must not be null
+   * @param deadline   the deadline the operation must complete by; must not be null
+   * @return a CompletableFuture containing the result of the operation
+   */
+  public static CompletableFuture<BigDecimal> balance(@NotNull final Economy economy,
+                                                      @NotNull final String pluginName,
+                                                      @NotNull final UUID accountID,
+                                                      @NotNull final String world,
+                                                      @NotNull final String currency,
+                                                      @NotNull final Deadline deadline) {
+
+    return economy.async()
+            .map(async -> async.withDeadline(deadline).balance(pluginName, accountID, world, currency))
+            .orElseGet(() -> (deadline.expired())? EconomyTimeouts.timedOut("balance", deadline.budget(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                                                  : CompletableFuture.completedFuture(economy.balance(pluginName, accountID, world, currency)));
+  }
+
+  /**
+   * Withdraws an amount from an account, failing with an {@link EconomyTimeoutException} if it does not complete by the deadline.
+   * When the economy is asynchronous the call is bounded through {@link AsyncEconomy#withDeadline(Deadline)};
+   * otherwise it runs synchronously unless the deadline has already passed.
+   *
+   * @param economy    the economy to perform the operation with; must not be null
+   * @param pluginName the name of the plugin performing the operation; must not be null
+   * @param accountID  the unique identifier of the account; must not be null
+   * @param amount     the amount; must not be null
+   * @param deadline   the deadline the operation must complete by; must not be null
+   * @return a CompletableFuture containing the result of the operation
+   */
+  public static CompletableFuture<EconomyResponse> withdraw(@NotNull final Economy economy,
+                                                            @NotNull final String pluginName,
+                                                            @NotNull final UUID accountID,
+                                                            @NotNull final BigDecimal amount,
+                                                            @NotNull final Deadline deadline) {
+
+    return economy.async()
+            .map(async -> async.withDeadline(deadline).withdraw(pluginName, accountID, amount))
+            .orElseGet(() -> (deadline.expired())? EconomyTimeouts.timedOut("withdraw", deadline.budget(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                                                  : CompletableFuture.completedFuture(economy.withdraw(pluginName, accountID, amount)));
+  }
+
+  /**
+   * Withdraws an amount from an account in a world, failing with an {@link EconomyTimeoutException} if it does not complete by the deadline.
+   * When the economy is asynchronous the call is bounded through {@link AsyncEconomy#withDeadline(Deadline)};
+   * otherwise it runs synchronously unless the deadline has already passed.
+   *
+   * @param economy    the economy to perform the operation with; must not be null
+   * @param pluginName the name of the plugin performing the operation; must not be null
+   * @param accountID  the unique identifier of the account; must not be null
+   * @param worldName  the name of the world; must not be null
+   * @param amount     the amount; must not be null
+   * @param deadline   the deadline the operation must complete by; must not be null
+   * @return a CompletableFuture containing the result of the operation
+   */
+  public static CompletableFuture<EconomyResponse> withdraw(@NotNull final Economy economy,
+                                                            @NotNull final String pluginName,
+                                                            @NotNull final UUID accountID,
+                                                            @NotNull final String worldName,
+                                                            @NotNull final BigDecimal amount,
+                                                            @NotNull final Deadline deadline) {
+
+    return economy.async()
+            .map(async -> async.withDeadline(deadline).withdraw(pluginName, accountID, worldName, amount))
+            .orElseGet(() -> (deadline.expired())? EconomyTimeouts.timedOut("withdraw", deadline.budget(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                                                  : CompletableFuture.completedFuture(economy.withdraw(pluginName, accountID, worldName, amount)));
+  }
+
+  /**
+   * Withdraws an amount from an account in a world and currency, failing with an {@link EconomyTimeoutException} if it does not complete by the deadline.
+   * When the economy is asynchronous the call is bounded through {@link AsyncEconomy#withDeadline(Deadline)};
+   * otherwise it runs synchronously unless the deadline has already passed.
+   *
+   * @param economy    the economy to perform the operation with; must not be null
+   * @param pluginName the name of the plugin performing the operation; must not be null
+   * @param accountID  the unique identifier of the account; must not be null
+   * @param worldName  the name of the world; must not be null
+   * @param currency   the name of the currency; must not be null
+   * @param amount     the amount; must not be null
+   * @param deadline   the deadline the operation must complete by; must not be null
+   * @return a CompletableFuture containing the result of the operation
+   */
+  public static CompletableFuture<EconomyResponse> withdraw(@NotNull final Economy economy,
+                                                            @NotNull final String pluginName,
+                                                            @NotNull final UUID accountID,
+                                                            @NotNull final String worldName,
+                                                            @NotNull final String currency,
+                                                            @NotNull final BigDecimal amount,
+                                                            @NotNull final Deadline deadline) {
+
+    return economy.async()
+            .map(async -> async.withDeadline(deadline).withdraw(pluginName, accountID, worldName, currency, amount))
+            .orElseGet(() -> (deadline.expired())? EconomyTimeouts.timedOut("withdraw", deadline.budget(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                                                  : CompletableFuture.completedFuture(economy.withdraw(pluginName, accountID, worldName, currency, amount)));
+  }
+
+  /**
+   * Deposits an amount to an account, failing with an {@link EconomyTimeoutException} if it does not complete by the deadline.
+   * When the economy is asynchronous the call is bounded through {@link AsyncEconomy#withDeadline(Deadline)};
+   * otherwise it runs synchronously unless the deadline has already passed.
+   *
+   * @param economy    the economy to perform the operation with; must not be null
+   * @param pluginName the name of the plugin performing the operation; must not be null
+   * @param accountID  the unique identifier of the account; must not be null
+   * @param amount     the amount; must not be null
+   * @param deadline   the deadline the operation must complete by; must not be null
+   * @return a CompletableFuture containing the result of the operation
+   */
+  public static CompletableFuture<EconomyResponse> deposit(@NotNull final Economy economy,
+                                                           @NotNull final String pluginName,
+                                                           @NotNull final UUID accountID,
+                                                           @NotNull final BigDecimal amount,
+                                                           @NotNull final Deadline deadline) {
+
+    return economy.async()
+            .map(async -> async.withDeadline(deadline).deposit(pluginName, accountID, amount))
+            .orElseGet(() -> (deadline.expired())? EconomyTimeouts.timedOut("deposit", deadline.budget(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                                                  : CompletableFuture.completedFuture(economy.deposit(pluginName, accountID, amount)));
+  }
+
+  /**
+   * Deposits an amount to an account in a world, failing with an {@link EconomyTimeoutException} if it does not complete by the deadline.
+   * When the economy is asynchronous the call is bounded through {@link AsyncEconomy#withDeadline(Deadline)};
+   * otherwise it runs synchronously unless the deadline has already passed.
+   *
+   * @param economy    the economy to perform the operation with; must not be null
+   * @param pluginName the name of the plugin performing the operation; must not be null
+   * @param accountID  the unique identifier of the account; must not be null
+   * @param worldName  the name of the world; must not be null
+   * @param amount     the amount; must not be null
+   * @param deadline   the deadline the operation must complete by; must not be null
+   * @return a CompletableFuture containing the result of the operation
+   */
+  public static CompletableFuture<EconomyResponse> deposit(@NotNull final Economy economy,
+                                                           @NotNull final String pluginName,
+                                                           @NotNull final UUID accountID,
+                                                           @NotNull final String worldName,
+                                                           @NotNull final BigDecimal amount,
+                                                           @NotNull final Deadline deadline) {
+
+    return economy.async()
+            .map(async -> async.withDeadline(deadline).deposit(pluginName, accountID, worldName, amount))
+            .orElseGet(() -> (deadline.expired())? EconomyTimeouts.timedOut("deposit", deadline.budget(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                                                  : CompletableFuture.completedFuture(economy.deposit(pluginName, accountID, worldName, amount)));
+  }
+
+  /**
+   * Deposits an amount to an account in a world and currency, failing with an {@link EconomyTimeoutException} if it does not complete by the deadline.
+   * When the economy is asynchronous the call is bounded through {@link AsyncEconomy#withDeadline(Deadline)};
+   * otherwise it runs synchronously unless the deadline has already passed.
+   *
+   * @param economy    the economy to perform the operation with; must not be null
+   * @param pluginName the name of the plugin performing the operation; must not be null
+   * @param accountID  the unique identifier of the account; must not be null
+   * @param worldName  the name of the world; must not be null
+   * @param currency   the name of the currency; must not be null
+   * @param amount     the amount; must not be null
+   * @param deadline   the deadline the operation must complete by; must not be null
+   * @return a CompletableFuture containing the result of the operation
+   */
+  public static CompletableFuture<EconomyResponse> deposit(@NotNull final Economy economy,
+                                                           @NotNull final String pluginName,
+                                                           @NotNull final UUID accountID,
+                                                           @NotNull final String worldName,
+                                                           @NotNull final String currency,
+                                                           @NotNull final BigDecimal amount,
+                                                           @NotNull final Deadline deadline) {
+
+    return economy.async()
+            .map(async -> async.withDeadline(deadline).deposit(pluginName, accountID, worldName, currency, amount))
+            .orElseGet(() -> (deadline.expired())? EconomyTimeouts.timedOut("deposit", deadline.budget(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                                                  : CompletableFuture.completedFuture(economy.deposit(pluginName, accountID, worldName, currency, amount)));
+  }
+
+  /**
+   * Transfers an amount between two accounts, failing with an {@link EconomyTimeoutException} if it does not complete by the deadline.
+   * When the economy is asynchronous the call is bounded through {@link AsyncEconomy#withDeadline(Deadline)};
+   * otherwise it runs synchronously unless the deadline has already passed.
+   *
+   * @param economy    the economy to perform the operation with; must not be null
+   * @param pluginName the name of the plugin performing the operation; must not be null
+   * @param from       the account to withdraw from; must not be null
+   * @param to         the account to deposit to; must not be null
+   * @param amount     the amount; must not be null
+   * @param deadline   the deadline the operation must complete by; must not be null
+   * @return a CompletableFuture containing the result of the operation
+   */
+  public static CompletableFuture<MultiEconomyResponse> transfer(@NotNull final Economy economy,
+                                                                 @NotNull final String pluginName,
+                                                                 @NotNull final UUID from,
+                                                                 @NotNull final UUID to,
+                                                                 @NotNull final BigDecimal amount,
+                                                                 @NotNull final Deadline deadline) {
+
+    return economy.async()
+            .map(async -> async.withDeadline(deadline).transfer(pluginName, from, to, amount))
+            .orElseGet(() -> (deadline.expired())? EconomyTimeouts.timedOut("transfer", deadline.budget(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                                                  : CompletableFuture.completedFuture(economy.transfer(pluginName, from, to, amount)));
+  }
+
+  /**
+   * Transfers an amount between two accounts in a world, failing with an {@link EconomyTimeoutException} if it does not complete by the deadline.
+   * When the economy is asynchronous the call is bounded through {@link AsyncEconomy#withDeadline(Deadline)};
+   * otherwise it runs synchronously unless the deadline has already passed.
+   *
+   * @param economy    the economy to perform the operation with; must not be null
+   * @param pluginName the name of the plugin performing the operation; must not be null
+   * @param from       the account to withdraw from; must not be null
+   * @param to         the account to deposit to; must not be null
+   * @param worldName  the name of the world; must not be null
+   * @param amount     the amount; must not be null
+   * @param deadline   the deadline the operation must complete by; must not be null
+   * @return a CompletableFuture containing the result of the operation
+   */
+  public static CompletableFuture<MultiEconomyResponse> transfer(@NotNull final Economy economy,
+                                                                 @NotNull final String pluginName,
+                                                                 @NotNull final UUID from,
+                                                                 @NotNull final UUID to,
+                                                                 @NotNull final String worldName,
+                                                                 @NotNull final BigDecimal amount,
+                                                                 @NotNull final Deadline deadline) {
+
+    return economy.async()
+            .map(async -> async.withDeadline(deadline).transfer(pluginName, from, to, worldName, amount))
+            .orElseGet(() -> (deadline.expired())? EconomyTimeouts.timedOut("transfer", deadline.budget(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                                                  : CompletableFuture.completedFuture(economy.transfer(pluginName, from, to, worldName, amount)));
+  }
+
+  /**
+   * Transfers an amount between two accounts in a world and currency, failing with an {@link EconomyTimeoutException} if it does not complete by the deadline.
+   * When the economy is asynchronous the call is bounded through {@link AsyncEconomy#withDeadline(Deadline)};
+   * otherwise it runs synchronously unless the deadline has already passed.
+   *
+   * @param economy    the economy to perform the operation with; must not be null
+   * @param pluginName the name of the plugin performing the operation; must not be null
+   * @param from       the account to withdraw from; must not be null
+   * @param to         the account to deposit to; must not be null
+   * @param worldName  the name of the world; must not be null
+   * @param currency   the name of the currency; must not be null
+   * @param amount     the amount; must not be null
+   * @param deadline   the deadline the operation must complete by; must not be null
+   * @return a CompletableFuture containing the result of the operation
+   */
+  public static CompletableFuture<MultiEconomyResponse> transfer(@NotNull final Economy economy,
+                                                                 @NotNull final String pluginName,
+                                                                 @NotNull final UUID from,
+                                                                 @NotNull final UUID to,
+                                                                 @NotNull final String worldName,
+                                                                 @NotNull final String currency,
+                                                                 @NotNull final BigDecimal amount,
+                                                                 @NotNull final Deadline deadline) {
+
+    return economy.async()
+            .map(async -> async.withDeadline(deadline).transfer(pluginName, from, to, worldName, currency, amount))
+            .orElseGet(() -> (deadline.expired())? EconomyTimeouts.timedOut("transfer", deadline.budget(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                                                  : CompletableFuture.completedFuture(economy.transfer(pluginName, from, to, worldName, currency, amount)));
+  }
+}
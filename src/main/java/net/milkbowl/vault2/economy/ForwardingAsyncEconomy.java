@@ -0,0 +1,385 @@
+package net.milkbowl.vault2.economy;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An {@link AsyncEconomy} that forwards every call to a delegate. Decorators extend this class and
+ * override only the operations they change.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public abstract class ForwardingAsyncEconomy implements AsyncEconomy {
+
+  protected final AsyncEconomy async;
+
+  protected ForwardingAsyncEconomy(@NotNull final AsyncEconomy async) {
+
+    this.async = async;
+  }
+
+  @NotNull
+  public AsyncEconomy delegate() {
+
+    return async;
+  }
+
+  @Override
+  public CompletableFuture<Boolean> createAccount(@NotNull final UUID accountID, @NotNull final String name, final boolean player) {
+
+    return async.createAccount(accountID, name, player);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> createAccount(@NotNull final UUID accountID, @NotNull final String name, @NotNull final String worldName, final boolean player) {
+
+    return async.createAccount(accountID, name, worldName, player);
+  }
+
+  @Override
+  public CompletableFuture<Map<UUID, String>> getUUIDNameMap() {
+
+    return async.getUUIDNameMap();
+  }
+
+  @Override
+  public CompletableFuture<Optional<String>> getAccountName(@NotNull final UUID accountID) {
+
+    return async.getAccountName(accountID);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> hasAccount(@NotNull final UUID accountID) {
+
+    return async.hasAccount(accountID);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> hasAccount(@NotNull final UUID accountID, @NotNull final String worldName) {
+
+    return async.hasAccount(accountID, worldName);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> renameAccount(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String name) {
+
+    return async.renameAccount(pluginName, accountID, name);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> deleteAccount(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return async.deleteAccount(pluginName, accountID);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> accountSupportsCurrency(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String currency) {
+
+    return async.accountSupportsCurrency(pluginName, accountID, currency);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> accountSupportsCurrency(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String currency, @NotNull final String world) {
+
+    return async.accountSupportsCurrency(pluginName, accountID, currency, world);
+  }
+
+  @Override
+  public CompletableFuture<BigDecimal> balance(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return async.balance(pluginName, accountID);
+  }
+
+  @Override
+  public CompletableFuture<BigDecimal> balance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world) {
+
+    return async.balance(pluginName, accountID, world);
+  }
+
+  @Override
+  public CompletableFuture<BigDecimal> balance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency) {
+
+    return async.balance(pluginName, accountID, world, currency);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return async.has(pluginName, accountID, amount);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final BigDecimal amount) {
+
+    return async.has(pluginName, accountID, world, amount);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return async.has(pluginName, accountID, world, currency, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return async.set(pluginName, accountID, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final BigDecimal amount) {
+
+    return async.set(pluginName, accountID, world, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return async.set(pluginName, accountID, world, currency, amount);
+  }
+
+  @Override
+  public CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final BigDecimal amount) {
+
+    return async.transfer(pluginName, from, to, amount);
+  }
+
+  @Override
+  public CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return async.transfer(pluginName, from, to, worldName, amount);
+  }
+
+  @Override
+  public CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return async.transfer(pluginName, from, to, worldName, currency, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> canWithdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return async.canWithdraw(pluginName, accountID, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> canWithdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final BigDecimal amount) {
+
+    return async.canWithdraw(pluginName, accountID, world, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> canWithdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return async.canWithdraw(pluginName, accountID, world, currency, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return async.withdraw(pluginName, accountID, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final BigDecimal amount) {
+
+    return async.withdraw(pluginName, accountID, world, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return async.withdraw(pluginName, accountID, world, currency, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> canDeposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return async.canDeposit(pluginName, accountID, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> canDeposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final BigDecimal amount) {
+
+    return async.canDeposit(pluginName, accountID, world, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> canDeposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return async.canDeposit(pluginName, accountID, world, currency, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return async.deposit(pluginName, accountID, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final BigDecimal amount) {
+
+    return async.deposit(pluginName, accountID, world, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return async.deposit(pluginName, accountID, world, currency, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> deposit(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return async.deposit(pluginName, transactionID, accountID, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> deposit(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return async.deposit(pluginName, transactionID, accountID, world, currency, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return async.withdraw(pluginName, transactionID, accountID, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return async.withdraw(pluginName, transactionID, accountID, world, currency, amount);
+  }
+
+  @Override
+  public CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final BigDecimal amount) {
+
+    return async.transfer(pluginName, transactionID, from, to, amount);
+  }
+
+  @Override
+  public CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return async.transfer(pluginName, transactionID, from, to, world, currency, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return async.setBalance(pluginName, accountID, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return async.setBalance(pluginName, accountID, world, currency, amount);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+    return async.compareAndSetBalance(pluginName, accountID, expected, newValue);
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+    return async.compareAndSetBalance(pluginName, accountID, world, currency, expected, newValue);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> createSharedAccount(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String name, @NotNull final UUID owner) {
+
+    return async.createSharedAccount(pluginName, accountID, name, owner);
+  }
+
+  @Override
+  public CompletableFuture<List<UUID>> accountsWithOwnerOf(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return async.accountsWithOwnerOf(pluginName, accountID);
+  }
+
+  @Override
+  public CompletableFuture<List<UUID>> accountsWithMembershipTo(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return async.accountsWithMembershipTo(pluginName, accountID);
+  }
+
+  @Override
+  public CompletableFuture<List<UUID>> accountsWithAccessTo(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final AccountPermission... permissions) {
+
+    return async.accountsWithAccessTo(pluginName, accountID, permissions);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> isAccountOwner(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return async.isAccountOwner(pluginName, accountID, uuid);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> setOwner(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return async.setOwner(pluginName, accountID, uuid);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> isAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return async.isAccountMember(pluginName, accountID, uuid);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> addAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return async.addAccountMember(pluginName, accountID, uuid);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> addAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid, @NotNull final AccountPermission... initialPermissions) {
+
+    return async.addAccountMember(pluginName, accountID, uuid, initialPermissions);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> removeAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return async.removeAccountMember(pluginName, accountID, uuid);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> hasAccountPermission(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid, @NotNull final AccountPermission permission) {
+
+    return async.hasAccountPermission(pluginName, accountID, uuid, permission);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> updateAccountPermission(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid, @NotNull final AccountPermission permission, final boolean value) {
+
+    return async.updateAccountPermission(pluginName, accountID, uuid, permission, value);
+  }
+}
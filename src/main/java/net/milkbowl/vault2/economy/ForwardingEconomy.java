@@ -0,0 +1,557 @@
+package net.milkbowl.vault2.economy;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * An {@link Economy} that forwards every call, including the default methods, to a delegate
+ * provider. Decorators extend this class and override only the operations they change, so the
+ * delegate's own implementations of the default methods are still used for everything else.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+@SuppressWarnings("deprecation")
+public abstract class ForwardingEconomy implements Economy {
+
+  protected final Economy economy;
+
+  protected ForwardingEconomy(@NotNull final Economy economy) {
+
+    this.economy = economy;
+  }
+
+  @NotNull
+  public Economy delegate() {
+
+    return economy;
+  }
+
+  @Override
+  public boolean isEnabled() {
+
+    return economy.isEnabled();
+  }
+
+  @Override
+  public String getName() {
+
+    return economy.getName();
+  }
+
+  @Override
+  public boolean hasSharedAccountSupport() {
+
+    return economy.hasSharedAccountSupport();
+  }
+
+  @Override
+  public boolean hasMultiCurrencySupport() {
+
+    return economy.hasMultiCurrencySupport();
+  }
+
+  @Override
+  public boolean supportsAsync() {
+
+    return economy.supportsAsync();
+  }
+
+  @Override
+  public Optional<AsyncEconomy> async() {
+
+    return economy.async();
+  }
+
+  @Override
+  public boolean supportsAtomicSet() {
+
+    return economy.supportsAtomicSet();
+  }
+
+  @Override
+  public int fractionalDigits(@NotNull final String pluginName) {
+
+    return economy.fractionalDigits(pluginName);
+  }
+
+  @Override
+  public int fractionalDigits(@NotNull final String pluginName, @NotNull final String currency) {
+
+    return economy.fractionalDigits(pluginName, currency);
+  }
+
+  @Deprecated
+  @Override
+  public String format(@NotNull final BigDecimal amount) {
+
+    return economy.format(amount);
+  }
+
+  @Override
+  public String format(@NotNull final String pluginName, @NotNull final BigDecimal amount) {
+
+    return economy.format(pluginName, amount);
+  }
+
+  @Deprecated
+  @Override
+  public String format(@NotNull final BigDecimal amount, @NotNull final String currency) {
+
+    return economy.format(amount, currency);
+  }
+
+  @Override
+  public String format(@NotNull final String pluginName, @NotNull final BigDecimal amount, @NotNull final String currency) {
+
+    return economy.format(pluginName, amount, currency);
+  }
+
+  @Override
+  public boolean hasCurrency(@NotNull final String currency) {
+
+    return economy.hasCurrency(currency);
+  }
+
+  @Override
+  public String getDefaultCurrency(@NotNull final String pluginName) {
+
+    return economy.getDefaultCurrency(pluginName);
+  }
+
+  @Override
+  public String defaultCurrencyNamePlural(@NotNull final String pluginName) {
+
+    return economy.defaultCurrencyNamePlural(pluginName);
+  }
+
+  @Override
+  public String defaultCurrencyNameSingular(@NotNull final String pluginName) {
+
+    return economy.defaultCurrencyNameSingular(pluginName);
+  }
+
+  @Override
+  public Collection<String> currencies() {
+
+    return economy.currencies();
+  }
+
+  @Deprecated
+  @Override
+  public boolean createAccount(@NotNull final UUID accountID, @NotNull final String name) {
+
+    return economy.createAccount(accountID, name);
+  }
+
+  @Override
+  public boolean createAccount(@NotNull final UUID accountID, @NotNull final String name, final boolean player) {
+
+    return economy.createAccount(accountID, name, player);
+  }
+
+  @Deprecated
+  @Override
+  public boolean createAccount(@NotNull final UUID accountID, @NotNull final String name, @NotNull final String worldName) {
+
+    return economy.createAccount(accountID, name, worldName);
+  }
+
+  @Override
+  public boolean createAccount(@NotNull final UUID accountID, @NotNull final String name, @NotNull final String worldName, final boolean player) {
+
+    return economy.createAccount(accountID, name, worldName, player);
+  }
+
+  @Override
+  public Map<UUID, String> getUUIDNameMap() {
+
+    return economy.getUUIDNameMap();
+  }
+
+  @Override
+  public Optional<String> getAccountName(@NotNull final UUID accountID) {
+
+    return economy.getAccountName(accountID);
+  }
+
+  @Override
+  public boolean hasAccount(@NotNull final UUID accountID) {
+
+    return economy.hasAccount(accountID);
+  }
+
+  @Override
+  public boolean hasAccount(@NotNull final UUID accountID, @NotNull final String worldName) {
+
+    return economy.hasAccount(accountID, worldName);
+  }
+
+  @Override
+  public boolean renameAccount(@NotNull final UUID accountID, @NotNull final String name) {
+
+    return economy.renameAccount(accountID, name);
+  }
+
+  @Override
+  public boolean renameAccount(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String name) {
+
+    return economy.renameAccount(pluginName, accountID, name);
+  }
+
+  @Override
+  public boolean deleteAccount(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return economy.deleteAccount(pluginName, accountID);
+  }
+
+  @Override
+  public boolean accountSupportsCurrency(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String currency) {
+
+    return economy.accountSupportsCurrency(pluginName, accountID, currency);
+  }
+
+  @Override
+  public boolean accountSupportsCurrency(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String currency, @NotNull final String world) {
+
+    return economy.accountSupportsCurrency(pluginName, accountID, currency, world);
+  }
+
+  @Deprecated
+  @Override
+  public BigDecimal getBalance(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return economy.getBalance(pluginName, accountID);
+  }
+
+  @Deprecated
+  @Override
+  public BigDecimal getBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world) {
+
+    return economy.getBalance(pluginName, accountID, world);
+  }
+
+  @Deprecated
+  @Override
+  public BigDecimal getBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency) {
+
+    return economy.getBalance(pluginName, accountID, world, currency);
+  }
+
+  @Override
+  public BigDecimal balance(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return economy.balance(pluginName, accountID);
+  }
+
+  @Override
+  public BigDecimal balance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world) {
+
+    return economy.balance(pluginName, accountID, world);
+  }
+
+  @Override
+  public BigDecimal balance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency) {
+
+    return economy.balance(pluginName, accountID, world, currency);
+  }
+
+  @Override
+  public boolean has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return economy.has(pluginName, accountID, amount);
+  }
+
+  @Override
+  public boolean has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return economy.has(pluginName, accountID, worldName, amount);
+  }
+
+  @Override
+  public boolean has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return economy.has(pluginName, accountID, worldName, currency, amount);
+  }
+
+  @Override
+  public EconomyResponse set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return economy.set(pluginName, accountID, amount);
+  }
+
+  @Override
+  public EconomyResponse set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return economy.set(pluginName, accountID, worldName, amount);
+  }
+
+  @Override
+  public EconomyResponse set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return economy.set(pluginName, accountID, worldName, currency, amount);
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final BigDecimal amount) {
+
+    return economy.transfer(pluginName, from, to, amount);
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return economy.transfer(pluginName, from, to, worldName, amount);
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return economy.transfer(pluginName, from, to, worldName, currency, amount);
+  }
+
+  @Override
+  public EconomyResponse canWithdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return economy.canWithdraw(pluginName, accountID, amount);
+  }
+
+  @Override
+  public EconomyResponse canWithdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return economy.canWithdraw(pluginName, accountID, worldName, amount);
+  }
+
+  @Override
+  public EconomyResponse canWithdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return economy.canWithdraw(pluginName, accountID, worldName, currency, amount);
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return economy.withdraw(pluginName, accountID, amount);
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return economy.withdraw(pluginName, accountID, worldName, amount);
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return economy.withdraw(pluginName, accountID, worldName, currency, amount);
+  }
+
+  @Override
+  public EconomyResponse canDeposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return economy.canDeposit(pluginName, accountID, amount);
+  }
+
+  @Override
+  public EconomyResponse canDeposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return economy.canDeposit(pluginName, accountID, worldName, amount);
+  }
+
+  @Override
+  public EconomyResponse canDeposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return economy.canDeposit(pluginName, accountID, worldName, currency, amount);
+  }
+
+  @Override
+  public EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return economy.deposit(pluginName, accountID, amount);
+  }
+
+  @Override
+  public EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return economy.deposit(pluginName, accountID, worldName, amount);
+  }
+
+  @Override
+  public EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return economy.deposit(pluginName, accountID, worldName, currency, amount);
+  }
+
+  @Override
+  public EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return economy.deposit(pluginName, transactionID, accountID, amount);
+  }
+
+  @Override
+  public EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return economy.deposit(pluginName, transactionID, accountID, worldName, currency, amount);
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return economy.withdraw(pluginName, transactionID, accountID, amount);
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return economy.withdraw(pluginName, transactionID, accountID, worldName, currency, amount);
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final BigDecimal amount) {
+
+    return economy.transfer(pluginName, transactionID, from, to, amount);
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return economy.transfer(pluginName, transactionID, from, to, worldName, currency, amount);
+  }
+
+  @Override
+  public EconomyResponse setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return economy.setBalance(pluginName, accountID, amount);
+  }
+
+  @Override
+  public EconomyResponse setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return economy.setBalance(pluginName, accountID, worldName, currency, amount);
+  }
+
+  @Override
+  public EconomyResponse compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+    return economy.compareAndSetBalance(pluginName, accountID, expected, newValue);
+  }
+
+  @Override
+  public EconomyResponse compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+    return economy.compareAndSetBalance(pluginName, accountID, worldName, currency, expected, newValue);
+  }
+
+  @Override
+  public boolean createSharedAccount(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String name, @NotNull final UUID owner) {
+
+    return economy.createSharedAccount(pluginName, accountID, name, owner);
+  }
+
+  @Override
+  public List<String> accountsOwnedBy(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return economy.accountsOwnedBy(pluginName, accountID);
+  }
+
+  @Override
+  public List<UUID> accountsWithOwnerOf(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return economy.accountsWithOwnerOf(pluginName, accountID);
+  }
+
+  @Override
+  public List<String> accountsMemberOf(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return economy.accountsMemberOf(pluginName, accountID);
+  }
+
+  @Override
+  public List<UUID> accountsWithMembershipTo(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return economy.accountsWithMembershipTo(pluginName, accountID);
+  }
+
+  @Deprecated
+  @Override
+  public List<String> accountsAccessTo(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final AccountPermission... permissions) {
+
+    return economy.accountsAccessTo(pluginName, accountID, permissions);
+  }
+
+  @Override
+  public List<UUID> accountsWithAccessTo(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final AccountPermission... permissions) {
+
+    return economy.accountsWithAccessTo(pluginName, accountID, permissions);
+  }
+
+  @Override
+  public boolean isAccountOwner(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return economy.isAccountOwner(pluginName, accountID, uuid);
+  }
+
+  @Override
+  public boolean setOwner(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return economy.setOwner(pluginName, accountID, uuid);
+  }
+
+  @Override
+  public boolean isAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return economy.isAccountMember(pluginName, accountID, uuid);
+  }
+
+  @Override
+  public boolean addAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return economy.addAccountMember(pluginName, accountID, uuid);
+  }
+
+  @Override
+  public boolean addAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid, @NotNull final AccountPermission... initialPermissions) {
+
+    return economy.addAccountMember(pluginName, accountID, uuid, initialPermissions);
+  }
+
+  @Override
+  public boolean removeAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return economy.removeAccountMember(pluginName, accountID, uuid);
+  }
+
+  @Override
+  public boolean hasAccountPermission(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid, @NotNull final AccountPermission permission) {
+
+    return economy.hasAccountPermission(pluginName, accountID, uuid, permission);
+  }
+
+  @Override
+  public boolean updateAccountPermission(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid, @NotNull final AccountPermission permission, final boolean value) {
+
+    return economy.updateAccountPermission(pluginName, accountID, uuid, permission, value);
+  }
+}
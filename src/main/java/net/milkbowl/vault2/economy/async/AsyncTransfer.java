@@ -0,0 +1,398 @@
+package net.milkbowl.vault2.economy.async;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.AsyncEconomy;
+import net.milkbowl.vault2.economy.EconomyResponse;
+import net.milkbowl.vault2.economy.EconomyResponse.ResponseType;
+import net.milkbowl.vault2.economy.MultiEconomyResponse;
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Composes an asynchronous transfer from a withdrawal and a deposit without blocking any thread.
+ *
+ * The withdrawal starts first, and the deposit is chained onto its completion with
+ * {@link CompletableFuture#thenCompose(Function)}. The requested amount is deposited and, if the
+ * deposit fails, refunded to the source account before the transfer completes; the amount echoed
+ * by the withdrawal's response is not used. Every stage is bounded by the stage timeout through
+ * {@link EconomyTimeouts}.
+ *
+ * A stage that times out may still complete later, so late outcomes are reconciled:
+ * <ul>
+ *   <li>a withdrawal that succeeds after timing out is refunded;</li>
+ *   <li>a deposit that times out is refunded only if it later fails, so money is never both
+ *   deposited and refunded.</li>
+ * </ul>
+ * In both cases the transfer completes exceptionally with an {@link EconomyTimeoutException}, and
+ * the late outcome is reported to a {@link LateOutcomeListener} once known and counted in
+ * {@link #lateOutcomes(LateOutcome)}.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public final class AsyncTransfer {
+
+  public static final long DEFAULT_STAGE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+  private static final AtomicLongArray LATE_OUTCOMES = new AtomicLongArray(LateOutcome.values().length);
+
+  private AsyncTransfer() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /**
+   * Retrieves the number of late stages reconciled with an outcome since the class was loaded, across
+   * every transfer.
+   *
+   * @param outcome the outcome to count; must not be null
+   * @return the number of late stages reconciled with the outcome
+   */
+  public static long lateOutcomes(@NotNull final LateOutcome outcome) {
+
+    return LATE_OUTCOMES.get(outcome.ordinal());
+  }
+
+  /**
+   * Transfers an amount between two accounts using the withdraw and deposit methods of an
+   * {@link AsyncEconomy}.
+   * Stages completing after their timeout are only counted in {@link #lateOutcomes(LateOutcome)}.
+   *
+   * @param economy    the economy to transfer with; must not be null
+   * @param pluginName the name of the plugin initiating the transfer; must not be null
+   * @param from       the account to withdraw from; must not be null
+   * @param to         the account to deposit to; must not be null
+   * @param amount     the amount to transfer; must not be null
+   * @param timeout    the time limit of each stage
+   * @param unit       the unit of the time limit; must not be null
+   * @return a future of the transfer's response
+   */
+  @NotNull
+  public static CompletableFuture<MultiEconomyResponse> transfer(@NotNull final AsyncEconomy economy, @NotNull final String pluginName,
+                                                                 @NotNull final UUID from, @NotNull final UUID to,
+                                                                 @NotNull final BigDecimal amount,
+                                                                 final long timeout, @NotNull final TimeUnit unit) {
+
+    return transfer(economy, pluginName, from, to, amount, timeout, unit, LateOutcomeListener.IGNORE);
+  }
+
+  /**
+   * Transfers an amount between two accounts using the withdraw and deposit methods of an
+   * {@link AsyncEconomy}.
+   * Stages completing after their timeout are reported to the listener.
+   *
+   * @param economy    the economy to transfer with; must not be null
+   * @param pluginName the name of the plugin initiating the transfer; must not be null
+   * @param from       the account to withdraw from; must not be null
+   * @param to         the account to deposit to; must not be null
+   * @param amount     the amount to transfer; must not be null
+   * @param timeout    the time limit of each stage
+   * @param unit       the unit of the time limit; must not be null
+   * @param listener   receives the outcomes of stages completing after their timeout; must not be null
+   * @return a future of the transfer's response
+   */
+  @NotNull
+  public static CompletableFuture<MultiEconomyResponse> transfer(@NotNull final AsyncEconomy economy, @NotNull final String pluginName,
+                                                                 @NotNull final UUID from, @NotNull final UUID to,
+                                                                 @NotNull final BigDecimal amount,
+                                                                 final long timeout, @NotNull final TimeUnit unit,
+                                                                 @NotNull final LateOutcomeListener listener) {
+
+    return compose(from, to, amount, timeout, unit, listener,
+                   ()->economy.withdraw(pluginName, from, amount),
+                   value->economy.deposit(pluginName, to, value),
+                   value->economy.deposit(pluginName, from, value));
+  }
+
+  /**
+   * Transfers an amount between two accounts in a world using the withdraw and deposit methods of
+   * an {@link AsyncEconomy}.
+   * Stages completing after their timeout are only counted in {@link #lateOutcomes(LateOutcome)}.
+   *
+   * @param economy    the economy to transfer with; must not be null
+   * @param pluginName the name of the plugin initiating the transfer; must not be null
+   * @param from       the account to withdraw from; must not be null
+   * @param to         the account to deposit to; must not be null
+   * @param worldName  the world of the transfer; must not be null
+   * @param amount     the amount to transfer; must not be null
+   * @param timeout    the time limit of each stage
+   * @param unit       the unit of the time limit; must not be null
+   * @return a future of the transfer's response
+   */
+  @NotNull
+  public static CompletableFuture<MultiEconomyResponse> transfer(@NotNull final AsyncEconomy economy, @NotNull final String pluginName,
+                                                                 @NotNull final UUID from, @NotNull final UUID to,
+                                                                 @NotNull final String worldName, @NotNull final BigDecimal amount,
+                                                                 final long timeout, @NotNull final TimeUnit unit) {
+
+    return transfer(economy, pluginName, from, to, worldName, amount, timeout, unit, LateOutcomeListener.IGNORE);
+  }
+
+  /**
+   * Transfers an amount between two accounts in a world using the withdraw and deposit methods of
+   * an {@link AsyncEconomy}.
+   * Stages completing after their timeout are reported to the listener.
+   *
+   * @param economy    the economy to transfer with; must not be null
+   * @param pluginName the name of the plugin initiating the transfer; must not be null
+   * @param from       the account to withdraw from; must not be null
+   * @param to         the account to deposit to; must not be null
+   * @param worldName  the world of the transfer; must not be null
+   * @param amount     the amount to transfer; must not be null
+   * @param timeout    the time limit of each stage
+   * @param unit       the unit of the time limit; must not be null
+   * @param listener   receives the outcomes of stages completing after their timeout; must not be null
+   * @return a future of the transfer's response
+   */
+  @NotNull
+  public static CompletableFuture<MultiEconomyResponse> transfer(@NotNull final AsyncEconomy economy, @NotNull final String pluginName,
+                                                                 @NotNull final UUID from, @NotNull final UUID to,
+                                                                 @NotNull final String worldName, @NotNull final BigDecimal amount,
+                                                                 final long timeout, @NotNull final TimeUnit unit,
+                                                                 @NotNull final LateOutcomeListener listener) {
+
+    return compose(from, to, amount, timeout, unit, listener,
+                   ()->economy.withdraw(pluginName, from, worldName, amount),
+                   value->economy.deposit(pluginName, to, worldName, value),
+                   value->economy.deposit(pluginName, from, worldName, value));
+  }
+
+  /**
+   * Transfers an amount of a currency between two accounts in a world using the withdraw and
+   * deposit methods of an {@link AsyncEconomy}.
+   * Stages completing after their timeout are only counted in {@link #lateOutcomes(LateOutcome)}.
+   *
+   * @param economy    the economy to transfer with; must not be null
+   * @param pluginName the name of the plugin initiating the transfer; must not be null
+   * @param from       the account to withdraw from; must not be null
+   * @param to         the account to deposit to; must not be null
+   * @param worldName  the world of the transfer; must not be null
+   * @param currency   the currency of the transfer; must not be null
+   * @param amount     the amount to transfer; must not be null
+   * @param timeout    the time limit of each stage
+   * @param unit       the unit of the time limit; must not be null
+   * @return a future of the transfer's response
+   */
+  @NotNull
+  public static CompletableFuture<MultiEconomyResponse> transfer(@NotNull final AsyncEconomy economy, @NotNull final String pluginName,
+                                                                 @NotNull final UUID from, @NotNull final UUID to,
+                                                                 @NotNull final String worldName, @NotNull final String currency,
+                                                                 @NotNull final BigDecimal amount,
+                                                                 final long timeout, @NotNull final TimeUnit unit) {
+
+    return transfer(economy, pluginName, from, to, worldName, currency, amount, timeout, unit, LateOutcomeListener.IGNORE);
+  }
+
+  /**
+   * Transfers an amount of a currency between two accounts in a world using the withdraw and
+   * deposit methods of an {@link AsyncEconomy}.
+   * Stages completing after their timeout are reported to the listener.
+   *
+   * @param economy    the economy to transfer with; must not be null
+   * @param pluginName the name of the plugin initiating the transfer; must not be null
+   * @param from       the account to withdraw from; must not be null
+   * @param to         the account to deposit to; must not be null
+   * @param worldName  the world of the transfer; must not be null
+   * @param currency   the currency of the transfer; must not be null
+   * @param amount     the amount to transfer; must not be null
+   * @param timeout    the time limit of each stage
+   * @param unit       the unit of the time limit; must not be null
+   * @param listener   receives the outcomes of stages completing after their timeout; must not be null
+   * @return a future of the transfer's response
+   */
+  @NotNull
+  public static CompletableFuture<MultiEconomyResponse> transfer(@NotNull final AsyncEconomy economy, @NotNull final String pluginName,
+                                                                 @NotNull final UUID from, @NotNull final UUID to,
+                                                                 @NotNull final String worldName, @NotNull final String currency,
+                                                                 @NotNull final BigDecimal amount,
+                                                                 final long timeout, @NotNull final TimeUnit unit,
+                                                                 @NotNull final LateOutcomeListener listener) {
+
+    return compose(from, to, amount, timeout, unit, listener,
+                   ()->economy.withdraw(pluginName, from, worldName, currency, amount),
+                   value->economy.deposit(pluginName, to, worldName, currency, value),
+                   value->economy.deposit(pluginName, from, worldName, currency, value));
+  }
+
+  /**
+   * Composes a transfer from arbitrary withdraw, deposit and refund stages. Stages completing after
+   * their timeout are only counted in {@link #lateOutcomes(LateOutcome)}.
+   *
+   * @param from     the account withdrawn from; must not be null
+   * @param to       the account deposited to; must not be null
+   * @param amount   the amount to transfer; must not be null
+   * @param timeout  the time limit of each stage
+   * @param unit     the unit of the time limit; must not be null
+   * @param withdraw starts the withdrawal from the source account; must not be null
+   * @param deposit  starts the deposit of the given amount to the target account; must not be null
+   * @param refund   starts the deposit of the given amount back to the source account; must not be null
+   * @return a future of the transfer's response
+   */
+  @NotNull
+  public static CompletableFuture<MultiEconomyResponse> compose(@NotNull final UUID from, @NotNull final UUID to,
+                                                                @NotNull final BigDecimal amount,
+                                                                final long timeout, @NotNull final TimeUnit unit,
+                                                                @NotNull final Supplier<CompletableFuture<EconomyResponse>> withdraw,
+                                                                @NotNull final Function<BigDecimal, CompletableFuture<EconomyResponse>> deposit,
+                                                                @NotNull final Function<BigDecimal, CompletableFuture<EconomyResponse>> refund) {
+
+    return compose(from, to, amount, timeout, unit, LateOutcomeListener.IGNORE, withdraw, deposit, refund);
+  }
+
+  /**
+   * Composes a transfer from arbitrary withdraw, deposit and refund stages, reporting the outcomes
+   * of stages that complete after their timeout.
+   *
+   * @param from     the account withdrawn from; must not be null
+   * @param to       the account deposited to; must not be null
+   * @param amount   the amount to transfer; must not be null
+   * @param timeout  the time limit of each stage
+   * @param unit     the unit of the time limit; must not be null
+   * @param listener receives the outcomes of stages completing after their timeout; must not be null
+   * @param withdraw starts the withdrawal from the source account; must not be null
+   * @param deposit  starts the deposit of the given amount to the target account; must not be null
+   * @param refund   starts the deposit of the given amount back to the source account; must not be null
+   * @return a future of the transfer's response
+   */
+  @NotNull
+  public static CompletableFuture<MultiEconomyResponse> compose(@NotNull final UUID from, @NotNull final UUID to,
+                                                                @NotNull final BigDecimal amount,
+                                                                final long timeout, @NotNull final TimeUnit unit,
+                                                                @NotNull final LateOutcomeListener listener,
+                                                                @NotNull final Supplier<CompletableFuture<EconomyResponse>> withdraw,
+                                                                @NotNull final Function<BigDecimal, CompletableFuture<EconomyResponse>> deposit,
+                                                                @NotNull final Function<BigDecimal, CompletableFuture<EconomyResponse>> refund) {
+
+    final CompletableFuture<EconomyResponse> withdrawal = start(withdraw);
+    return EconomyTimeouts.within(withdrawal, timeout, unit, "Transfer withdrawal").handle((withdrawn, failure)->{
+
+      if(failure != null) {
+        if(EconomyTimeouts.isTimeout(failure)) {
+          withdrawal.whenComplete((late, lateFailure)->{
+            if(lateFailure == null && late.type == ResponseType.SUCCESS) {
+              refundLate(from, to, amount, refund, listener);
+            } else {
+              report(listener, from, to, amount, LateOutcome.WITHDRAWAL_FAILED, late, lateFailure);
+            }
+          });
+        }
+        return AsyncTransfer.<MultiEconomyResponse>failed(failure);
+      }
+
+      if(withdrawn.type != ResponseType.SUCCESS) {
+        return CompletableFuture.completedFuture(new MultiEconomyResponse(amount, withdrawn.type, withdrawn.errorMessage));
+      }
+      return deposit(from, to, amount, withdrawn, timeout, unit, listener, deposit, refund);
+    }).thenCompose(Function.identity());
+  }
+
+  private static CompletableFuture<MultiEconomyResponse> deposit(final UUID from, final UUID to, final BigDecimal amount,
+                                                                 final EconomyResponse withdrawn,
+                                                                 final long timeout, final TimeUnit unit,
+                                                                 final LateOutcomeListener listener,
+                                                                 final Function<BigDecimal, CompletableFuture<EconomyResponse>> deposit,
+                                                                 final Function<BigDecimal, CompletableFuture<EconomyResponse>> refund) {
+
+    final CompletableFuture<EconomyResponse> deposited = start(()->deposit.apply(amount));
+    return EconomyTimeouts.within(deposited, timeout, unit, "Transfer deposit").handle((response, failure)->{
+
+      if(failure != null) {
+        if(EconomyTimeouts.isTimeout(failure)) {
+          deposited.whenComplete((late, lateFailure)->{
+            if(lateFailure != null || late.type != ResponseType.SUCCESS) {
+              refundLate(from, to, amount, refund, listener);
+            } else {
+              report(listener, from, to, amount, LateOutcome.DEPOSITED, late, null);
+            }
+          });
+          return AsyncTransfer.<MultiEconomyResponse>failed(failure);
+        }
+        return refund(amount, timeout, unit, refund).thenCompose(refunded->AsyncTransfer.<MultiEconomyResponse>failed(failure));
+      }
+
+      if(response.type != ResponseType.SUCCESS) {
+        return refund(amount, timeout, unit, refund).thenApply(refunded->{
+          final String message = (refunded)? response.errorMessage
+                                           : response.errorMessage + " The refund to the source account did not complete.";
+          return new MultiEconomyResponse(amount, response.type, message);
+        });
+      }
+
+      final MultiEconomyResponse success = new MultiEconomyResponse(amount, ResponseType.SUCCESS, "");
+      success.addBalance(from, withdrawn.balance);
+      success.addBalance(to, response.balance);
+      return CompletableFuture.completedFuture(success);
+    }).thenCompose(Function.identity());
+  }
+
+  /**
+   * Refunds the source account, completing with whether the refund is known to have succeeded.
+   */
+  private static CompletableFuture<Boolean> refund(final BigDecimal amount, final long timeout, final TimeUnit unit,
+                                                   final Function<BigDecimal, CompletableFuture<EconomyResponse>> refund) {
+
+    return EconomyTimeouts.within(start(()->refund.apply(amount)), timeout, unit, "Transfer refund")
+            .handle((response, failure)->failure == null && response.type == ResponseType.SUCCESS);
+  }
+
+  /**
+   * Refunds the source account after a late stage, reporting whether the refund succeeded. The
+   * refund is not bounded by the stage timeout, since nothing waits for it.
+   */
+  private static void refundLate(final UUID from, final UUID to, final BigDecimal amount,
+                                 final Function<BigDecimal, CompletableFuture<EconomyResponse>> refund,
+                                 final LateOutcomeListener listener) {
+
+    start(()->refund.apply(amount)).whenComplete((response, failure)->{
+      final boolean refunded = failure == null && response.type == ResponseType.SUCCESS;
+      report(listener, from, to, amount, (refunded)? LateOutcome.REFUNDED : LateOutcome.REFUND_FAILED, response, failure);
+    });
+  }
+
+  private static void report(final LateOutcomeListener listener, final UUID from, final UUID to, final BigDecimal amount,
+                             final LateOutcome outcome, final EconomyResponse response, final Throwable failure) {
+
+    LATE_OUTCOMES.incrementAndGet(outcome.ordinal());
+    listener.reconciled(from, to, amount, outcome, response, failure);
+  }
+
+  /**
+   * Starts a stage, turning a synchronous throw into a failed future.
+   */
+  private static CompletableFuture<EconomyResponse> start(final Supplier<CompletableFuture<EconomyResponse>> stage) {
+
+    try {
+      return stage.get();
+    } catch(final RuntimeException e) {
+      return failed(e);
+    }
+  }
+
+  private static <T> CompletableFuture<T> failed(final Throwable failure) {
+
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(failure);
+    return future;
+  }
+}
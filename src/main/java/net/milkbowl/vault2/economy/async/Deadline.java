@@ -0,0 +1,112 @@
+package net.milkbowl.vault2.economy.async;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which a group of asynchronous economy operations must complete, for callers
+ * that run several operations under one time budget. Each operation bounded by the deadline gets
+ * whatever time remains when it starts, and operations started after it has passed fail at once
+ * without reaching the provider.
+ *
+ * Deadlines are measured with {@link System#nanoTime()} and are immutable.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public final class Deadline {
+
+  private final long start;
+  private final long budgetNanos;
+
+  private Deadline(final long start, final long budgetNanos) {
+
+    this.start = start;
+    this.budgetNanos = budgetNanos;
+  }
+
+  /**
+   * Creates a deadline the specified time from now.
+   *
+   * @param timeout the time until the deadline
+   * @param unit    the unit of the time; must not be null
+   * @return the deadline
+   */
+  @NotNull
+  public static Deadline after(final long timeout, @NotNull final TimeUnit unit) {
+
+    return new Deadline(System.nanoTime(), Math.max(0, unit.toNanos(timeout)));
+  }
+
+  /**
+   * Creates a deadline the specified duration from now.
+   *
+   * @param timeout the time until the deadline; must not be null
+   * @return the deadline
+   */
+  @NotNull
+  public static Deadline after(@NotNull final Duration timeout) {
+
+    return after(toNanos(timeout), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Retrieves the time left until the deadline.
+   *
+   * @param unit the unit to express the time in; must not be null
+   * @return the remaining time, or zero if the deadline has passed
+   */
+  public long remaining(@NotNull final TimeUnit unit) {
+
+    return unit.convert(Math.max(0, budgetNanos - (System.nanoTime() - start)), TimeUnit.NANOSECONDS);
+  }
+
+  public boolean expired() {
+
+    return budgetNanos - (System.nanoTime() - start) <= 0;
+  }
+
+  /**
+   * Retrieves the total time the deadline was created with.
+   *
+   * @param unit the unit to express the time in; must not be null
+   * @return the budget
+   */
+  public long budget(@NotNull final TimeUnit unit) {
+
+    return unit.convert(budgetNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public String toString() {
+
+    return "Deadline{remaining=" + remaining(TimeUnit.MILLISECONDS) + "ms}";
+  }
+
+  static long toNanos(final Duration duration) {
+
+    try {
+      return duration.toNanos();
+    } catch(final ArithmeticException e) {
+      return (duration.isNegative())? 0 : Long.MAX_VALUE;
+    }
+  }
+}
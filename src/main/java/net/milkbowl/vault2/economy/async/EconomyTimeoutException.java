@@ -0,0 +1,71 @@
+package net.milkbowl.vault2.economy.async;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Signals that an asynchronous economy operation did not complete within its time limit. Futures
+ * bounded by {@link EconomyTimeouts} complete exceptionally with this exception.
+ *
+ * A timeout says nothing about the outcome of the operation itself: the provider may still
+ * complete it afterwards.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class EconomyTimeoutException extends TimeoutException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String operation;
+  private final long timeoutNanos;
+
+  /**
+   * Constructs a new {@code EconomyTimeoutException}.
+   *
+   * @param operation the name of the operation that timed out; must not be null
+   * @param timeout   the time limit that elapsed
+   * @param unit      the unit of the time limit; must not be null
+   */
+  public EconomyTimeoutException(@NotNull final String operation, final long timeout, @NotNull final TimeUnit unit) {
+
+    super(operation + " did not complete within " + unit.toMillis(timeout) + "ms");
+    this.operation = operation;
+    this.timeoutNanos = unit.toNanos(timeout);
+  }
+
+  @NotNull
+  public String operation() {
+
+    return operation;
+  }
+
+  /**
+   * Retrieves the time limit that elapsed.
+   *
+   * @param unit the unit to express the time limit in; must not be null
+   * @return the time limit
+   */
+  public long timeout(@NotNull final TimeUnit unit) {
+
+    return unit.convert(timeoutNanos, TimeUnit.NANOSECONDS);
+  }
+}
@@ -0,0 +1,244 @@
+package net.milkbowl.vault2.economy.async;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the time callers wait on asynchronous economy operations.
+ *
+ * Timers run on one shared daemon thread and are cancelled and removed as soon as the operation
+ * completes, so bounding a future costs a single queue entry for the life of the operation. The
+ * timer thread only hands a timeout over: a future that times out completes on a small shared pool
+ * of daemon threads, or on an executor the caller supplies, so its dependent stages can never stall
+ * the timers of every other bounded future. The shared pool has at most one thread per processor,
+ * started on demand and stopped when idle, and queues further timeouts; callers whose dependent
+ * stages block should supply their own executor.
+ *
+ * Cancellation flows towards the provider: cancelling a bounded future cancels the provider's
+ * future, and callers may choose to cancel it on timeout too. Whether the provider then stops its
+ * work depends on whether it observes the cancellation of the futures it returns.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public final class EconomyTimeouts {
+
+  private EconomyTimeouts() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /**
+   * Returns a future that completes like the specified future, or exceptionally with an
+   * {@link EconomyTimeoutException} if it has not completed within the timeout. The specified
+   * future is left running on timeout, so the caller can still observe its eventual outcome;
+   * cancelling the returned future cancels the specified future as well.
+   *
+   * @param <T>       the type of the result
+   * @param future    the future to bound; must not be null
+   * @param timeout   the time limit
+   * @param unit      the unit of the time limit; must not be null
+   * @param operation the name of the operation, used in the timeout's message; must not be null
+   * @return the bounded future, or the specified future if it is already complete
+   */
+  @NotNull
+  public static <T> CompletableFuture<T> within(@NotNull final CompletableFuture<T> future, final long timeout,
+                                                @NotNull final TimeUnit unit, @NotNull final String operation) {
+
+    return within(future, timeout, unit, operation, false);
+  }
+
+  /**
+   * Returns a future that completes like the specified future, or exceptionally with an
+   * {@link EconomyTimeoutException} if it has not completed within the timeout. Cancelling the
+   * returned future cancels the specified future as well.
+   *
+   * @param <T>             the type of the result
+   * @param future          the future to bound; must not be null
+   * @param timeout         the time limit
+   * @param unit            the unit of the time limit; must not be null
+   * @param operation       the name of the operation, used in the timeout's message; must not be null
+   * @param cancelOnTimeout true to also cancel the specified future when the timeout elapses, letting
+   *                        a provider that observes cancellation abandon the work
+   * @return the bounded future, or the specified future if it is already complete
+   */
+  @NotNull
+  public static <T> CompletableFuture<T> within(@NotNull final CompletableFuture<T> future, final long timeout,
+                                                @NotNull final TimeUnit unit, @NotNull final String operation,
+                                                final boolean cancelOnTimeout) {
+
+    return within(future, timeout, unit, operation, cancelOnTimeout, Timer.COMPLETER);
+  }
+
+  /**
+   * Returns a future that completes like the specified future, or exceptionally with an
+   * {@link EconomyTimeoutException} on the specified executor if it has not completed within the
+   * timeout. Cancelling the returned future cancels the specified future as well.
+   *
+   * @param <T>             the type of the result
+   * @param future          the future to bound; must not be null
+   * @param timeout         the time limit
+   * @param unit            the unit of the time limit; must not be null
+   * @param operation       the name of the operation, used in the timeout's message; must not be null
+   * @param cancelOnTimeout true to also cancel the specified future when the timeout elapses
+   * @param executor        the executor that completes the returned future on timeout, and so runs
+   *                        its dependent stages; must not be null
+   * @return the bounded future, or the specified future if it is already complete
+   */
+  @NotNull
+  public static <T> CompletableFuture<T> within(@NotNull final CompletableFuture<T> future, final long timeout,
+                                                @NotNull final TimeUnit unit, @NotNull final String operation,
+                                                final boolean cancelOnTimeout, @NotNull final Executor executor) {
+
+    if(future.isDone()) {
+      return future;
+    }
+
+    final CompletableFuture<T> bounded = new CompletableFuture<>();
+    final ScheduledFuture<?> timer = Timer.EXECUTOR.schedule(()->executor.execute(()->{
+      if(bounded.completeExceptionally(new EconomyTimeoutException(operation, timeout, unit)) && cancelOnTimeout) {
+        future.cancel(false);
+      }
+    }), timeout, unit);
+
+    future.whenComplete((result, failure)->{
+      timer.cancel(false);
+      if(failure != null) {
+        bounded.completeExceptionally(failure);
+      } else {
+        bounded.complete(result);
+      }
+    });
+
+    bounded.whenComplete((result, failure)->{
+      if(bounded.isCancelled()) {
+        timer.cancel(false);
+        future.cancel(false);
+      }
+    });
+    return bounded;
+  }
+
+  /**
+   * Bounds a future by the time remaining until a deadline, failing it at once if the deadline has
+   * already passed.
+   *
+   * @param <T>             the type of the result
+   * @param future          the future to bound; must not be null
+   * @param deadline        the deadline; must not be null
+   * @param operation       the name of the operation, used in the timeout's message; must not be null
+   * @param cancelOnTimeout true to also cancel the specified future when the deadline passes
+   * @return the bounded future
+   * @see #within(CompletableFuture, long, TimeUnit, String, boolean)
+   */
+  @NotNull
+  public static <T> CompletableFuture<T> within(@NotNull final CompletableFuture<T> future, @NotNull final Deadline deadline,
+                                                @NotNull final String operation, final boolean cancelOnTimeout) {
+
+    final long remaining = deadline.remaining(TimeUnit.NANOSECONDS);
+    if(remaining > 0 || future.isDone()) {
+      return within(future, remaining, TimeUnit.NANOSECONDS, operation, cancelOnTimeout);
+    }
+
+    if(cancelOnTimeout) {
+      future.cancel(false);
+    }
+    return timedOut(operation, deadline.budget(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Creates a future that has already failed with an {@link EconomyTimeoutException}, for operations
+   * whose deadline passed before they could start.
+   *
+   * @param <T>       the type of the result
+   * @param operation the name of the operation; must not be null
+   * @param timeout   the time limit that elapsed
+   * @param unit      the unit of the time limit; must not be null
+   * @return the failed future
+   */
+  @NotNull
+  public static <T> CompletableFuture<T> timedOut(@NotNull final String operation, final long timeout, @NotNull final TimeUnit unit) {
+
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(new EconomyTimeoutException(operation, timeout, unit));
+    return future;
+  }
+
+  /**
+   * Determines whether a failure, possibly wrapped by a dependent stage, is a timeout.
+   *
+   * @param failure the failure to check
+   * @return true if the failure is or wraps an {@link EconomyTimeoutException}
+   */
+  public static boolean isTimeout(final Throwable failure) {
+
+    Throwable cause = failure;
+    while(cause != null) {
+
+      if(cause instanceof EconomyTimeoutException) {
+        return true;
+      }
+      cause = cause.getCause();
+    }
+    return false;
+  }
+
+  /**
+   * Holds the timer thread and the pool that completes timed-out futures, started on first use.
+   */
+  static final class Timer {
+
+    static final int COMPLETER_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static final ScheduledThreadPoolExecutor EXECUTOR = create();
+    private static final ExecutorService COMPLETER = completer();
+
+    private static ScheduledThreadPoolExecutor create() {
+
+      final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable->{
+        final Thread thread = new Thread(runnable, "vault-economy-timeouts");
+        thread.setDaemon(true);
+        return thread;
+      });
+      executor.setRemoveOnCancelPolicy(true);
+      return executor;
+    }
+
+    private static ExecutorService completer() {
+
+      final AtomicInteger threads = new AtomicInteger();
+      final ThreadPoolExecutor executor = new ThreadPoolExecutor(COMPLETER_THREADS, COMPLETER_THREADS, 60, TimeUnit.SECONDS,
+                                                                 new LinkedBlockingQueue<>(), runnable->{
+        final Thread thread = new Thread(runnable, "vault-economy-timeout-" + threads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+      executor.allowCoreThreadTimeOut(true);
+      return executor;
+    }
+  }
+}
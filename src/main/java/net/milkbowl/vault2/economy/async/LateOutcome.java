@@ -0,0 +1,48 @@
+package net.milkbowl.vault2.economy.async;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * How {@link AsyncTransfer} reconciled a stage that completed after its timeout had already failed
+ * the transfer.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public enum LateOutcome {
+
+  /**
+   * The withdrawal failed late, so nothing moved.
+   */
+  WITHDRAWAL_FAILED,
+
+  /**
+   * The deposit succeeded late, so the transfer took place although it was reported as timed out.
+   */
+  DEPOSITED,
+
+  /**
+   * A late withdrawal or a late failed deposit was refunded to the source account.
+   */
+  REFUNDED,
+
+  /**
+   * The refund of a late withdrawal or a late failed deposit failed, so the amount has left the
+   * source account without reaching the target and must be reconciled by hand.
+   */
+  REFUND_FAILED
+}
@@ -0,0 +1,56 @@
+package net.milkbowl.vault2.economy.async;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.EconomyResponse;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Receives the late outcomes of transfers composed by {@link AsyncTransfer}, which the future of a
+ * timed-out transfer can no longer report.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+@FunctionalInterface
+public interface LateOutcomeListener {
+
+  /**
+   * A listener that ignores every outcome; they are still counted by
+   * {@link AsyncTransfer#lateOutcomes(LateOutcome)}.
+   */
+  LateOutcomeListener IGNORE = (from, to, amount, outcome, response, failure)->{};
+
+  /**
+   * Called once a late stage of a transfer, and its refund if one was needed, has completed. It is
+   * called from whichever thread completed that stage.
+   *
+   * @param from     the account withdrawn from
+   * @param to       the account deposited to
+   * @param amount   the amount of the transfer
+   * @param outcome  how the late stage was reconciled
+   * @param response the response of the refund if one was made, otherwise of the late stage, or
+   *                 null if it threw
+   * @param failure  the exception the refund or late stage threw, or null
+   */
+  void reconciled(@NotNull UUID from, @NotNull UUID to, @NotNull BigDecimal amount, @NotNull LateOutcome outcome,
+                  @Nullable EconomyResponse response, @Nullable Throwable failure);
+}
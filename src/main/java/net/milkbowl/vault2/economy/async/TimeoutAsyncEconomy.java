@@ -0,0 +1,494 @@
+package net.milkbowl.vault2.economy.async;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.AccountPermission;
+import net.milkbowl.vault2.economy.AsyncEconomy;
+import net.milkbowl.vault2.economy.EconomyResponse;
+import net.milkbowl.vault2.economy.ForwardingAsyncEconomy;
+import net.milkbowl.vault2.economy.MultiEconomyResponse;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * An {@link AsyncEconomy} view whose futures fail with an {@link EconomyTimeoutException} when the
+ * delegate does not complete them in time, created by {@link AsyncEconomy#withTimeout(long, TimeUnit)}
+ * and {@link AsyncEconomy#withDeadline(Deadline)}.
+ *
+ * Every operation is bounded either by a fixed timeout or by the time remaining until a shared
+ * deadline. Cancelling a future of the view cancels the delegate's future. On timeout, futures of
+ * read-only operations are cancelled as well, while futures of mutations are left running because
+ * the delegate may still apply them; callers that must know the outcome of a timed-out mutation
+ * should check the balance or retry with a transaction id.
+ *
+ * Transfers without a transaction id are composed with {@link AsyncTransfer} from this view's own
+ * withdraw and deposit, so the deadline reaches every stage. Refunds of a failed deposit are bounded
+ * by the deadline's whole budget rather than the time left, since they must still reach the delegate.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class TimeoutAsyncEconomy extends ForwardingAsyncEconomy {
+
+  private final long timeoutNanos;
+  private final Deadline deadline;
+
+  /**
+   * Constructs a new {@code TimeoutAsyncEconomy} that bounds each operation by a fixed timeout.
+   *
+   * @param async   the economy to bound; must not be null
+   * @param timeout the time limit of each operation; must be positive
+   * @param unit    the unit of the time limit; must not be null
+   */
+  public TimeoutAsyncEconomy(@NotNull final AsyncEconomy async, final long timeout, @NotNull final TimeUnit unit) {
+
+    super(async);
+    if(timeout <= 0) {
+      throw new IllegalArgumentException("Timeout must be positive, was " + timeout);
+    }
+
+    this.timeoutNanos = unit.toNanos(timeout);
+    this.deadline = null;
+  }
+
+  /**
+   * Constructs a new {@code TimeoutAsyncEconomy} that bounds every operation by a shared deadline.
+   *
+   * @param async    the economy to bound; must not be null
+   * @param deadline the deadline; must not be null
+   */
+  public TimeoutAsyncEconomy(@NotNull final AsyncEconomy async, @NotNull final Deadline deadline) {
+
+    super(async);
+    this.timeoutNanos = 0;
+    this.deadline = deadline;
+  }
+
+  /**
+   * Retrieves the deadline of this view.
+   *
+   * @return the deadline, or null if each operation is bounded by a fixed timeout instead
+   */
+  @Nullable
+  public Deadline deadline() {
+
+    return deadline;
+  }
+
+  @Override
+  public CompletableFuture<Boolean> createAccount(@NotNull final UUID accountID, @NotNull final String name, final boolean player) {
+
+    return mutate("createAccount", ()->async.createAccount(accountID, name, player));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> createAccount(@NotNull final UUID accountID, @NotNull final String name, @NotNull final String worldName, final boolean player) {
+
+    return mutate("createAccount", ()->async.createAccount(accountID, name, worldName, player));
+  }
+
+  @Override
+  public CompletableFuture<Map<UUID, String>> getUUIDNameMap() {
+
+    return read("getUUIDNameMap", ()->async.getUUIDNameMap());
+  }
+
+  @Override
+  public CompletableFuture<Optional<String>> getAccountName(@NotNull final UUID accountID) {
+
+    return read("getAccountName", ()->async.getAccountName(accountID));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> hasAccount(@NotNull final UUID accountID) {
+
+    return read("hasAccount", ()->async.hasAccount(accountID));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> hasAccount(@NotNull final UUID accountID, @NotNull final String worldName) {
+
+    return read("hasAccount", ()->async.hasAccount(accountID, worldName));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> renameAccount(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String name) {
+
+    return mutate("renameAccount", ()->async.renameAccount(pluginName, accountID, name));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> deleteAccount(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return mutate("deleteAccount", ()->async.deleteAccount(pluginName, accountID));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> accountSupportsCurrency(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String currency) {
+
+    return read("accountSupportsCurrency", ()->async.accountSupportsCurrency(pluginName, accountID, currency));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> accountSupportsCurrency(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String currency, @NotNull final String world) {
+
+    return read("accountSupportsCurrency", ()->async.accountSupportsCurrency(pluginName, accountID, currency, world));
+  }
+
+  @Override
+  public CompletableFuture<BigDecimal> balance(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return read("balance", ()->async.balance(pluginName, accountID));
+  }
+
+  @Override
+  public CompletableFuture<BigDecimal> balance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world) {
+
+    return read("balance", ()->async.balance(pluginName, accountID, world));
+  }
+
+  @Override
+  public CompletableFuture<BigDecimal> balance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency) {
+
+    return read("balance", ()->async.balance(pluginName, accountID, world, currency));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return read("has", ()->async.has(pluginName, accountID, amount));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final BigDecimal amount) {
+
+    return read("has", ()->async.has(pluginName, accountID, world, amount));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return read("has", ()->async.has(pluginName, accountID, world, currency, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return mutate("set", ()->async.set(pluginName, accountID, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final BigDecimal amount) {
+
+    return mutate("set", ()->async.set(pluginName, accountID, world, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return mutate("set", ()->async.set(pluginName, accountID, world, currency, amount));
+  }
+
+  @Override
+  public CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final BigDecimal amount) {
+
+    return transfer(from, to, amount,
+                    ()->withdraw(pluginName, from, amount),
+                    value->deposit(pluginName, to, value),
+                    value->refund(()->async.deposit(pluginName, from, value)));
+  }
+
+  @Override
+  public CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return transfer(from, to, amount,
+                    ()->withdraw(pluginName, from, worldName, amount),
+                    value->deposit(pluginName, to, worldName, value),
+                    value->refund(()->async.deposit(pluginName, from, worldName, value)));
+  }
+
+  @Override
+  public CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return transfer(from, to, amount,
+                    ()->withdraw(pluginName, from, worldName, currency, amount),
+                    value->deposit(pluginName, to, worldName, currency, value),
+                    value->refund(()->async.deposit(pluginName, from, worldName, currency, value)));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> canWithdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return read("canWithdraw", ()->async.canWithdraw(pluginName, accountID, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> canWithdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final BigDecimal amount) {
+
+    return read("canWithdraw", ()->async.canWithdraw(pluginName, accountID, world, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> canWithdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return read("canWithdraw", ()->async.canWithdraw(pluginName, accountID, world, currency, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return mutate("withdraw", ()->async.withdraw(pluginName, accountID, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final BigDecimal amount) {
+
+    return mutate("withdraw", ()->async.withdraw(pluginName, accountID, world, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return mutate("withdraw", ()->async.withdraw(pluginName, accountID, world, currency, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> canDeposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return read("canDeposit", ()->async.canDeposit(pluginName, accountID, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> canDeposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final BigDecimal amount) {
+
+    return read("canDeposit", ()->async.canDeposit(pluginName, accountID, world, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> canDeposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return read("canDeposit", ()->async.canDeposit(pluginName, accountID, world, currency, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return mutate("deposit", ()->async.deposit(pluginName, accountID, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final BigDecimal amount) {
+
+    return mutate("deposit", ()->async.deposit(pluginName, accountID, world, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return mutate("deposit", ()->async.deposit(pluginName, accountID, world, currency, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> deposit(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return mutate("deposit", ()->async.deposit(pluginName, transactionID, accountID, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> deposit(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return mutate("deposit", ()->async.deposit(pluginName, transactionID, accountID, world, currency, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return mutate("withdraw", ()->async.withdraw(pluginName, transactionID, accountID, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return mutate("withdraw", ()->async.withdraw(pluginName, transactionID, accountID, world, currency, amount));
+  }
+
+  @Override
+  public CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final BigDecimal amount) {
+
+    return mutate("transfer", ()->async.transfer(pluginName, transactionID, from, to, amount));
+  }
+
+  @Override
+  public CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return mutate("transfer", ()->async.transfer(pluginName, transactionID, from, to, world, currency, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return mutate("setBalance", ()->async.setBalance(pluginName, accountID, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return mutate("setBalance", ()->async.setBalance(pluginName, accountID, world, currency, amount));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+    return mutate("compareAndSetBalance", ()->async.compareAndSetBalance(pluginName, accountID, expected, newValue));
+  }
+
+  @Override
+  public CompletableFuture<EconomyResponse> compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+    return mutate("compareAndSetBalance", ()->async.compareAndSetBalance(pluginName, accountID, world, currency, expected, newValue));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> createSharedAccount(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String name, @NotNull final UUID owner) {
+
+    return mutate("createSharedAccount", ()->async.createSharedAccount(pluginName, accountID, name, owner));
+  }
+
+  @Override
+  public CompletableFuture<List<UUID>> accountsWithOwnerOf(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return read("accountsWithOwnerOf", ()->async.accountsWithOwnerOf(pluginName, accountID));
+  }
+
+  @Override
+  public CompletableFuture<List<UUID>> accountsWithMembershipTo(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return read("accountsWithMembershipTo", ()->async.accountsWithMembershipTo(pluginName, accountID));
+  }
+
+  @Override
+  public CompletableFuture<List<UUID>> accountsWithAccessTo(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final AccountPermission... permissions) {
+
+    return read("accountsWithAccessTo", ()->async.accountsWithAccessTo(pluginName, accountID, permissions));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> isAccountOwner(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return read("isAccountOwner", ()->async.isAccountOwner(pluginName, accountID, uuid));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> setOwner(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return mutate("setOwner", ()->async.setOwner(pluginName, accountID, uuid));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> isAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return read("isAccountMember", ()->async.isAccountMember(pluginName, accountID, uuid));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> addAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return mutate("addAccountMember", ()->async.addAccountMember(pluginName, accountID, uuid));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> addAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid, @NotNull final AccountPermission... initialPermissions) {
+
+    return mutate("addAccountMember", ()->async.addAccountMember(pluginName, accountID, uuid, initialPermissions));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> removeAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return mutate("removeAccountMember", ()->async.removeAccountMember(pluginName, accountID, uuid));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> hasAccountPermission(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid, @NotNull final AccountPermission permission) {
+
+    return read("hasAccountPermission", ()->async.hasAccountPermission(pluginName, accountID, uuid, permission));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> updateAccountPermission(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid, @NotNull final AccountPermission permission, final boolean value) {
+
+    return mutate("updateAccountPermission", ()->async.updateAccountPermission(pluginName, accountID, uuid, permission, value));
+  }
+
+  private <T> CompletableFuture<T> read(final String operation, final Supplier<CompletableFuture<T>> call) {
+
+    return bound(operation, call, true);
+  }
+
+  private <T> CompletableFuture<T> mutate(final String operation, final Supplier<CompletableFuture<T>> call) {
+
+    return bound(operation, call, false);
+  }
+
+  /**
+   * Composes a transfer from this view's bounded stages, so each stage of the transfer gets only the
+   * time left until the deadline instead of the delegate's own stage timeout.
+   */
+  private CompletableFuture<MultiEconomyResponse> transfer(final UUID from, final UUID to, final BigDecimal amount,
+                                                           final Supplier<CompletableFuture<EconomyResponse>> withdraw,
+                                                           final Function<BigDecimal, CompletableFuture<EconomyResponse>> deposit,
+                                                           final Function<BigDecimal, CompletableFuture<EconomyResponse>> refund) {
+
+    final long stage = (deadline == null)? timeoutNanos : deadline.remaining(TimeUnit.NANOSECONDS);
+    if(stage <= 0) {
+      return EconomyTimeouts.timedOut("transfer", deadline.budget(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+    return AsyncTransfer.compose(from, to, amount, stage, TimeUnit.NANOSECONDS, withdraw, deposit, refund);
+  }
+
+  /**
+   * Bounds a refund by the fixed timeout, or by the deadline's whole budget, so money already
+   * withdrawn is handed back to the delegate even once the deadline has passed.
+   */
+  private CompletableFuture<EconomyResponse> refund(final Supplier<CompletableFuture<EconomyResponse>> call) {
+
+    final long timeout = (deadline == null)? timeoutNanos : deadline.budget(TimeUnit.NANOSECONDS);
+    return EconomyTimeouts.within(call.get(), timeout, TimeUnit.NANOSECONDS, "deposit", false);
+  }
+
+  private <T> CompletableFuture<T> bound(final String operation, final Supplier<CompletableFuture<T>> call, final boolean cancelOnTimeout) {
+
+    if(deadline == null) {
+      return EconomyTimeouts.within(call.get(), timeoutNanos, TimeUnit.NANOSECONDS, operation, cancelOnTimeout);
+    }
+
+    if(deadline.expired()) {
+      return EconomyTimeouts.timedOut(operation, deadline.budget(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+    return EconomyTimeouts.within(call.get(), deadline, operation, cancelOnTimeout);
+  }
+}
@@ -0,0 +1,176 @@
+package net.milkbowl.vault2.economy.feed;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * An immutable notification that the balance of an account changed. Events are published into an
+ * {@link EconomyChangeFeed} after the change has been applied by the provider.
+ *
+ * A null world or currency means the change was made through an overload that does not specify
+ * one, and therefore applies to the provider's default world or currency.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public final class BalanceChanged {
+
+  private final UUID account;
+  private final String world;
+  private final String currency;
+  private final BigDecimal oldBalance;
+  private final BigDecimal newBalance;
+  private final String pluginName;
+  private final long time;
+  private final int changes;
+
+  /**
+   * Constructs a new {@code BalanceChanged} event stamped with the current time.
+   *
+   * @param account    the account whose balance changed; must not be null
+   * @param world      the world of the balance, or null for the default world
+   * @param currency   the currency of the balance, or null for the default currency
+   * @param oldBalance the balance before the change; must not be null
+   * @param newBalance the balance after the change; must not be null
+   * @param pluginName the name of the plugin that made the change; must not be null
+   */
+  public BalanceChanged(@NotNull final UUID account, @Nullable final String world, @Nullable final String currency,
+                        @NotNull final BigDecimal oldBalance, @NotNull final BigDecimal newBalance,
+                        @NotNull final String pluginName) {
+
+    this(account, world, currency, oldBalance, newBalance, pluginName, System.currentTimeMillis());
+  }
+
+  /**
+   * Constructs a new {@code BalanceChanged} event.
+   *
+   * @param account    the account whose balance changed; must not be null
+   * @param world      the world of the balance, or null for the default world
+   * @param currency   the currency of the balance, or null for the default currency
+   * @param oldBalance the balance before the change; must not be null
+   * @param newBalance the balance after the change; must not be null
+   * @param pluginName the name of the plugin that made the change; must not be null
+   * @param time       the time of the change, in milliseconds since the epoch
+   */
+  public BalanceChanged(@NotNull final UUID account, @Nullable final String world, @Nullable final String currency,
+                        @NotNull final BigDecimal oldBalance, @NotNull final BigDecimal newBalance,
+                        @NotNull final String pluginName, final long time) {
+
+    this(account, world, currency, oldBalance, newBalance, pluginName, time, 1);
+  }
+
+  /**
+   * Constructs a new {@code BalanceChanged} event that summarizes one or more changes, as emitted
+   * by a {@link BalanceCoalescer}.
+   *
+   * @param account    the account whose balance changed; must not be null
+   * @param world      the world of the balance, or null for the default world
+   * @param currency   the currency of the balance, or null for the default currency
+   * @param oldBalance the balance before the first summarized change; must not be null
+   * @param newBalance the balance after the last summarized change; must not be null
+   * @param pluginName the name of the plugin that made the last change; must not be null
+   * @param time       the time of the last change, in milliseconds since the epoch
+   * @param changes    the number of changes summarized by the event
+   */
+  public BalanceChanged(@NotNull final UUID account, @Nullable final String world, @Nullable final String currency,
+                        @NotNull final BigDecimal oldBalance, @NotNull final BigDecimal newBalance,
+                        @NotNull final String pluginName, final long time, final int changes) {
+
+    this.account = account;
+    this.world = world;
+    this.currency = currency;
+    this.oldBalance = oldBalance;
+    this.newBalance = newBalance;
+    this.pluginName = pluginName;
+    this.time = time;
+    this.changes = changes;
+  }
+
+  @NotNull
+  public UUID account() {
+
+    return account;
+  }
+
+  @Nullable
+  public String world() {
+
+    return world;
+  }
+
+  @Nullable
+  public String currency() {
+
+    return currency;
+  }
+
+  @NotNull
+  public BigDecimal oldBalance() {
+
+    return oldBalance;
+  }
+
+  @NotNull
+  public BigDecimal newBalance() {
+
+    return newBalance;
+  }
+
+  /**
+   * Retrieves the signed difference between the new and the old balance.
+   *
+   * @return the new balance minus the old balance
+   */
+  @NotNull
+  public BigDecimal delta() {
+
+    return newBalance.subtract(oldBalance);
+  }
+
+  @NotNull
+  public String pluginName() {
+
+    return pluginName;
+  }
+
+  public long time() {
+
+    return time;
+  }
+
+  /**
+   * Retrieves the number of changes this event summarizes, which is one unless it was coalesced.
+   *
+   * @return the number of summarized changes
+   */
+  public int changes() {
+
+    return changes;
+  }
+
+  @Override
+  public String toString() {
+
+    return "BalanceChanged{account=" + account + ", world=" + world + ", currency=" + currency
+           + ", old=" + oldBalance + ", new=" + newBalance + ", plugin=" + pluginName + ", changes=" + changes + "}";
+  }
+}
@@ -0,0 +1,154 @@
+package net.milkbowl.vault2.economy.feed;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.BalanceKey;
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Collapses every change to the same {@link BalanceKey} between two flushes into a single
+ * {@link BalanceChanged}, whose old balance is the balance before the first change, whose new
+ * balance is the balance after the last one and whose {@link BalanceChanged#changes()} is the number
+ * of changes absorbed. Subscribers then do work proportional to the number of distinct balances
+ * that changed rather than to the number of mutations.
+ *
+ * A coalescer is itself a listener: subscribe it to an {@link EconomyChangeFeed} and call
+ * {@link #flush()} once per window, for example every server tick, or let
+ * {@link EconomyChangeFeed#subscribeCoalesced(Consumer, java.util.concurrent.ScheduledExecutorService, long, java.util.concurrent.TimeUnit)}
+ * schedule it. Balances whose changes cancel out within a window are not emitted.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class BalanceCoalescer implements Consumer<BalanceChanged> {
+
+  private final Map<BalanceKey, Pending> pending = new ConcurrentHashMap<>();
+  private final Consumer<BalanceChanged> downstream;
+
+  private final LongAdder absorbed = new LongAdder();
+  private final LongAdder emitted = new LongAdder();
+
+  /**
+   * Constructs a new {@code BalanceCoalescer}.
+   *
+   * @param downstream the listener that receives the coalesced events on {@link #flush()}; must not be null
+   */
+  public BalanceCoalescer(@NotNull final Consumer<BalanceChanged> downstream) {
+
+    this.downstream = downstream;
+  }
+
+  @Override
+  public void accept(@NotNull final BalanceChanged event) {
+
+    absorbed.increment();
+    pending.compute(new BalanceKey(event.account(), event.world(), event.currency()),
+                    (key, current)->(current == null)? new Pending(event) : current.merge(event));
+  }
+
+  /**
+   * Emits one coalesced event per balance changed since the previous flush. Changes accepted while a
+   * flush is running are either included in it or kept for the next one, never lost.
+   *
+   * @return the number of events emitted
+   */
+  public int flush() {
+
+    int count = 0;
+    for(final BalanceKey key : pending.keySet()) {
+
+      final Pending window = pending.remove(key);
+      if(window == null || window.oldBalance.compareTo(window.newBalance) == 0) {
+        continue;
+      }
+
+      downstream.accept(new BalanceChanged(key.account(), key.world(), key.currency(), window.oldBalance,
+                                           window.newBalance, window.pluginName, window.time, window.changes));
+      count++;
+    }
+
+    emitted.add(count);
+    return count;
+  }
+
+  /**
+   * Retrieves the number of balances with changes waiting for the next flush.
+   *
+   * @return the number of pending balances
+   */
+  public int pending() {
+
+    return pending.size();
+  }
+
+  /**
+   * Retrieves the number of events accepted by this coalescer.
+   *
+   * @return the number of absorbed events
+   */
+  public long absorbed() {
+
+    return absorbed.sum();
+  }
+
+  /**
+   * Retrieves the number of coalesced events passed downstream.
+   *
+   * @return the number of emitted events
+   */
+  public long emitted() {
+
+    return emitted.sum();
+  }
+
+  /**
+   * The changes to one balance within the current window. Only mutated inside
+   * {@link ConcurrentHashMap#compute}, which serializes access per key.
+   */
+  private static final class Pending {
+
+    private final BigDecimal oldBalance;
+    private BigDecimal newBalance;
+    private String pluginName;
+    private long time;
+    private int changes;
+
+    Pending(final BalanceChanged event) {
+
+      this.oldBalance = event.oldBalance();
+      this.newBalance = event.newBalance();
+      this.pluginName = event.pluginName();
+      this.time = event.time();
+      this.changes = event.changes();
+    }
+
+    Pending merge(final BalanceChanged event) {
+
+      newBalance = event.newBalance();
+      pluginName = event.pluginName();
+      time = event.time();
+      changes += event.changes();
+      return this;
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package net.milkbowl.vault2.economy.feed;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free multi-producer multi-consumer ring of events.
+ *
+ * Every slot carries a sequence number that tells producers and consumers whose turn it is. A
+ * producer claims a position by advancing the tail with a single CAS, writes the event and then
+ * publishes the slot by moving its sequence forward; consumers do the mirror image on the head.
+ * Neither side ever waits on the other, and a full or empty ring is detected without locking.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+final class BalanceRing {
+
+  private final int mask;
+  private final AtomicLongArray sequences;
+  private final AtomicReferenceArray<BalanceChanged> slots;
+
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong tail = new AtomicLong();
+
+  BalanceRing(final int capacity) {
+
+    if(capacity < 2) {
+      throw new IllegalArgumentException("Capacity must be at least 2, was " + capacity);
+    }
+
+    final int size = (Integer.bitCount(capacity) == 1)? capacity : Integer.highestOneBit(capacity - 1) << 1;
+    this.mask = size - 1;
+    this.sequences = new AtomicLongArray(size);
+    this.slots = new AtomicReferenceArray<>(size);
+    for(int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  int capacity() {
+
+    return mask + 1;
+  }
+
+  boolean offer(final BalanceChanged event) {
+
+    long position = tail.get();
+    while(true) {
+
+      final int index = (int)position & mask;
+      final long difference = sequences.get(index) - position;
+
+      if(difference == 0) {
+        if(tail.compareAndSet(position, position + 1)) {
+          slots.lazySet(index, event);
+          sequences.set(index, position + 1);
+          return true;
+        }
+        position = tail.get();
+      } else if(difference < 0) {
+        return false;
+      } else {
+        position = tail.get();
+      }
+    }
+  }
+
+  BalanceChanged poll() {
+
+    long position = head.get();
+    while(true) {
+
+      final int index = (int)position & mask;
+      final long difference = sequences.get(index) - (position + 1);
+
+      if(difference == 0) {
+        if(head.compareAndSet(position, position + 1)) {
+          final BalanceChanged event = slots.get(index);
+          slots.lazySet(index, null);
+          sequences.set(index, position + mask + 1);
+          return event;
+        }
+        position = head.get();
+      } else if(difference < 0) {
+        return null;
+      } else {
+        position = head.get();
+      }
+    }
+  }
+
+  int size() {
+
+    final long size = tail.get() - head.get();
+    return (size < 0)? 0 : (int)Math.min(size, mask + 1);
+  }
+
+  boolean isEmpty() {
+
+    return tail.get() == head.get();
+  }
+}
@@ -0,0 +1,403 @@
+package net.milkbowl.vault2.economy.feed;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Pushes {@link BalanceChanged} events from providers to interested plugins, replacing balance
+ * polling by scoreboards, leaderboards and chat bridges.
+ *
+ * Providers, or a {@link PublishingEconomy} wrapped around one, call {@link #publish(BalanceChanged)}
+ * after every applied change. Publishing places the event into a bounded lock-free ring and returns.
+ * Buffered events are drained in batches either by the dispatcher executor supplied at construction,
+ * or, for a feed without a dispatcher, by whoever calls {@link #drain()} (typically once per server
+ * tick). Each batch is then handed to every subscription on that subscription's own executor.
+ *
+ * Drains run one at a time, so every subscription is handed batches in publication order. The one
+ * case in which publishing runs listener code is {@link OverflowPolicy#BLOCK} with a full buffer: a
+ * feed without a dispatcher, or a publisher that is itself delivering this feed's events, drains on
+ * the publishing thread, invoking listeners subscribed without an executor there. Feeds that must
+ * never run listeners on the publisher should use BLOCK only with a dispatcher and subscribe
+ * listeners on their own executors.
+ *
+ * When nothing is subscribed, {@link #publish(BalanceChanged)} discards the event immediately and
+ * publishers can skip building events altogether by checking {@link #hasSubscribers()}.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class EconomyChangeFeed {
+
+  public static final int DEFAULT_CAPACITY = 8192;
+  public static final int DEFAULT_BATCH_SIZE = 256;
+
+  private static final long BLOCK_PARK_NANOS = 50_000L;
+
+  private final BalanceRing ring;
+  private final OverflowPolicy policy;
+  private final Executor dispatcher;
+  private final int batchSize;
+
+  private final List<FeedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+  private final AtomicBoolean scheduled = new AtomicBoolean(false);
+  //serializes drains so concurrent drainers cannot hand a subscription a later batch first.
+  private final ReentrantLock draining = new ReentrantLock();
+  //set while a thread drains this feed or runs one of its listeners; the dispatcher may be waiting
+  //on that thread, so a BLOCK publish from it drains inline instead of waiting.
+  private final ThreadLocal<Boolean> delivering = new ThreadLocal<>();
+  private volatile ThresholdIndex thresholds = null;
+
+  private final LongAdder published = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+
+  /**
+   * Constructs a new {@code EconomyChangeFeed} without a dispatcher; buffered events are delivered
+   * whenever {@link #drain()} is called.
+   *
+   * @param capacity the maximum number of buffered events, rounded up to a power of two
+   * @param policy   the policy applied when the buffer is full; must not be null
+   */
+  public EconomyChangeFeed(final int capacity, @NotNull final OverflowPolicy policy) {
+
+    this(capacity, policy, null, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Constructs a new {@code EconomyChangeFeed}.
+   *
+   * @param capacity   the maximum number of buffered events, rounded up to a power of two
+   * @param policy     the policy applied when the buffer is full; must not be null
+   * @param dispatcher the executor that drains the buffer after events are published, or null to
+   *                   drain only through {@link #drain()}
+   */
+  public EconomyChangeFeed(final int capacity, @NotNull final OverflowPolicy policy, @Nullable final Executor dispatcher) {
+
+    this(capacity, policy, dispatcher, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Constructs a new {@code EconomyChangeFeed}.
+   *
+   * @param capacity   the maximum number of buffered events, rounded up to a power of two
+   * @param policy     the policy applied when the buffer is full; must not be null
+   * @param dispatcher the executor that drains the buffer after events are published, or null to
+   *                   drain only through {@link #drain()}
+   * @param batchSize  the maximum number of events handed to a subscription in one task
+   */
+  public EconomyChangeFeed(final int capacity, @NotNull final OverflowPolicy policy,
+                           @Nullable final Executor dispatcher, final int batchSize) {
+
+    if(batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be positive, was " + batchSize);
+    }
+
+    this.ring = new BalanceRing(capacity);
+    this.policy = policy;
+    this.dispatcher = dispatcher;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Registers a listener whose events are delivered on the thread that drains the feed.
+   *
+   * @param listener the listener to register; must not be null
+   * @return the subscription, which can be cancelled
+   */
+  @NotNull
+  public FeedSubscription subscribe(@NotNull final Consumer<BalanceChanged> listener) {
+
+    return subscribe(listener, Runnable::run);
+  }
+
+  /**
+   * Registers a listener whose events are delivered on the specified executor. Use an executor that
+   * runs tasks in submission order to receive events in publication order.
+   *
+   * @param listener the listener to register; must not be null
+   * @param executor the executor the listener is invoked on; must not be null
+   * @return the subscription, which can be cancelled
+   */
+  @NotNull
+  public FeedSubscription subscribe(@NotNull final Consumer<BalanceChanged> listener, @NotNull final Executor executor) {
+
+    final FeedSubscription subscription = new FeedSubscription(this, listener, executor);
+    subscriptions.add(subscription);
+    return subscription;
+  }
+
+  /**
+   * Registers a listener that receives changes coalesced per {@link net.milkbowl.vault2.economy.BalanceKey}
+   * over a fixed window, as described by {@link BalanceCoalescer}. The listener is invoked on the
+   * scheduler, once per changed balance per window; cancelling the subscription stops the schedule.
+   *
+   * @param listener  the listener to register; must not be null
+   * @param scheduler the scheduler that flushes each window; must not be null
+   * @param window    the length of a window
+   * @param unit      the unit of the window; must not be null
+   * @return the subscription, which can be cancelled
+   */
+  @NotNull
+  public FeedSubscription subscribeCoalesced(@NotNull final Consumer<BalanceChanged> listener,
+                                             @NotNull final ScheduledExecutorService scheduler,
+                                             final long window, @NotNull final TimeUnit unit) {
+
+    final BalanceCoalescer coalescer = new BalanceCoalescer(listener);
+    final FeedSubscription subscription = subscribe(coalescer);
+    final ScheduledFuture<?> flushes = scheduler.scheduleAtFixedRate(coalescer::flush, window, window, unit);
+    subscription.onCancel(()->flushes.cancel(false));
+    return subscription;
+  }
+
+  /**
+   * Registers a listener that is notified when a balance crosses the specified threshold. All
+   * threshold listeners of a feed share one {@link ThresholdIndex}, subscribed on first use and
+   * invoked on the thread that drains the feed.
+   *
+   * @param account   the account to watch, or null to watch every account
+   * @param currency  the currency to watch, or null for the default currency
+   * @param threshold the balance to watch for; must not be null
+   * @param direction the crossings to report; must not be null
+   * @param listener  the listener to notify; must not be null
+   * @return the threshold subscription, which can be cancelled
+   */
+  @NotNull
+  public ThresholdSubscription subscribeThreshold(@Nullable final UUID account, @Nullable final String currency,
+                                                  @NotNull final BigDecimal threshold, @NotNull final ThresholdDirection direction,
+                                                  @NotNull final ThresholdListener listener) {
+
+    ThresholdIndex index = thresholds;
+    if(index == null) {
+      synchronized(this) {
+        index = thresholds;
+        if(index == null) {
+          index = new ThresholdIndex();
+          subscribe(index);
+          thresholds = index;
+        }
+      }
+    }
+    return index.add(account, currency, threshold, direction, listener);
+  }
+
+  void unsubscribe(final FeedSubscription subscription) {
+
+    subscriptions.remove(subscription);
+  }
+
+  /**
+   * Determines whether any listener is subscribed. Publishers can check this before building an event.
+   *
+   * @return true if at least one subscription is registered; false otherwise
+   */
+  public boolean hasSubscribers() {
+
+    return !subscriptions.isEmpty();
+  }
+
+  /**
+   * Publishes an event, applying the feed's {@link OverflowPolicy} if the buffer is full.
+   *
+   * @param event the event to publish; must not be null
+   * @return true if the event was buffered; false if it was discarded
+   */
+  public boolean publish(@NotNull final BalanceChanged event) {
+
+    if(subscriptions.isEmpty()) {
+      return false;
+    }
+
+    if(!ring.offer(event) && !overflow(event)) {
+      dropped.increment();
+      return false;
+    }
+
+    published.increment();
+    schedule();
+    return true;
+  }
+
+  private boolean overflow(final BalanceChanged event) {
+
+    switch(policy) {
+      case DROP_OLDEST:
+        do {
+          if(ring.poll() != null) {
+            dropped.increment();
+          }
+        } while(!ring.offer(event));
+        return true;
+
+      case BLOCK:
+        do {
+          if(dispatcher == null) {
+            drain();
+          } else if(delivering.get() != null) {
+            //the thread holding the drain lock may be waiting on this one, so never wait for it.
+            if(draining.tryLock()) {
+              try {
+                drain();
+              } finally {
+                draining.unlock();
+              }
+            } else {
+              LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            }
+          } else {
+            schedule();
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+          }
+        } while(!ring.offer(event));
+        return true;
+
+      default:
+        return false;
+    }
+  }
+
+  private void schedule() {
+
+    if(dispatcher != null && scheduled.compareAndSet(false, true)) {
+      dispatcher.execute(this::dispatch);
+    }
+  }
+
+  private void dispatch() {
+
+    do {
+      try {
+        drain();
+      } finally {
+        scheduled.set(false);
+      }
+    } while(!ring.isEmpty() && scheduled.compareAndSet(false, true));
+  }
+
+  /**
+   * Delivers every buffered event to the current subscriptions. Feeds without a dispatcher rely on
+   * this being called regularly; feeds with one may call it to flush early. A drain waits for any
+   * drain already running on another thread to finish first.
+   *
+   * @return the number of events drained
+   */
+  public int drain() {
+
+    draining.lock();
+    final boolean nested = enter();
+    try {
+      int drained = 0;
+      while(true) {
+
+        final List<BalanceChanged> batch = new ArrayList<>(Math.min(batchSize, Math.max(1, ring.size())));
+        BalanceChanged event;
+        while(batch.size() < batchSize && (event = ring.poll()) != null) {
+          batch.add(event);
+        }
+
+        if(batch.isEmpty()) {
+          return drained;
+        }
+
+        drained += batch.size();
+        for(final FeedSubscription subscription : subscriptions) {
+          subscription.deliver(batch);
+        }
+      }
+    } finally {
+      exit(nested);
+      draining.unlock();
+    }
+  }
+
+  /**
+   * Marks the current thread as delivering events of this feed.
+   *
+   * @return true if the thread was already marked
+   */
+  boolean enter() {
+
+    if(delivering.get() != null) {
+      return true;
+    }
+    delivering.set(Boolean.TRUE);
+    return false;
+  }
+
+  void exit(final boolean nested) {
+
+    if(!nested) {
+      delivering.remove();
+    }
+  }
+
+  public int capacity() {
+
+    return ring.capacity();
+  }
+
+  /**
+   * Retrieves the approximate number of buffered events.
+   *
+   * @return the number of events waiting to be drained
+   */
+  public int size() {
+
+    return ring.size();
+  }
+
+  /**
+   * Retrieves the number of events accepted into the buffer.
+   *
+   * @return the number of published events
+   */
+  public long published() {
+
+    return published.sum();
+  }
+
+  /**
+   * Retrieves the number of events discarded by the {@link OverflowPolicy}.
+   *
+   * @return the number of dropped events
+   */
+  public long dropped() {
+
+    return dropped.sum();
+  }
+
+  @NotNull
+  public OverflowPolicy policy() {
+
+    return policy;
+  }
+}
@@ -0,0 +1,156 @@
+package net.milkbowl.vault2.economy.feed;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A listener registered with an {@link EconomyChangeFeed}, together with the executor its events
+ * are delivered on.
+ *
+ * Each drained batch is handed to the executor as a single task, so a listener receives events in
+ * publication order as long as its executor runs tasks in submission order. An exception thrown by
+ * the listener is counted in {@link #failures()} and does not stop delivery of the rest of the batch.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public final class FeedSubscription {
+
+  private final EconomyChangeFeed feed;
+  private final Consumer<BalanceChanged> listener;
+  private final Executor executor;
+
+  private final LongAdder delivered = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private volatile boolean cancelled = false;
+  private volatile Runnable onCancel = null;
+
+  FeedSubscription(final EconomyChangeFeed feed, final Consumer<BalanceChanged> listener, final Executor executor) {
+
+    this.feed = feed;
+    this.listener = listener;
+    this.executor = executor;
+  }
+
+  /**
+   * Stops delivery to this subscription. Events already handed to the executor are skipped.
+   */
+  public void cancel() {
+
+    cancelled = true;
+    feed.unsubscribe(this);
+
+    final Runnable hook = onCancel;
+    if(hook != null) {
+      hook.run();
+    }
+  }
+
+  public boolean isCancelled() {
+
+    return cancelled;
+  }
+
+  @NotNull
+  public Consumer<BalanceChanged> listener() {
+
+    return listener;
+  }
+
+  @NotNull
+  public Executor executor() {
+
+    return executor;
+  }
+
+  /**
+   * Retrieves the number of events passed to the listener.
+   *
+   * @return the number of delivered events
+   */
+  public long delivered() {
+
+    return delivered.sum();
+  }
+
+  /**
+   * Retrieves the number of events for which the listener threw an exception.
+   *
+   * @return the number of failed deliveries
+   */
+  public long failures() {
+
+    return failures.sum();
+  }
+
+  /**
+   * Retrieves the number of events lost because the executor rejected their batch.
+   *
+   * @return the number of rejected events
+   */
+  public long rejected() {
+
+    return rejected.sum();
+  }
+
+  void onCancel(final Runnable hook) {
+
+    this.onCancel = hook;
+  }
+
+  void deliver(final List<BalanceChanged> batch) {
+
+    if(cancelled) {
+      return;
+    }
+
+    try {
+      executor.execute(()->run(batch));
+    } catch(final RejectedExecutionException e) {
+      rejected.add(batch.size());
+    }
+  }
+
+  private void run(final List<BalanceChanged> batch) {
+
+    final boolean nested = feed.enter();
+    try {
+      for(final BalanceChanged event : batch) {
+        if(cancelled) {
+          return;
+        }
+
+        try {
+          listener.accept(event);
+          delivered.increment();
+        } catch(final RuntimeException e) {
+          failures.increment();
+        }
+      }
+    } finally {
+      feed.exit(nested);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package net.milkbowl.vault2.economy.feed;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Determines what an {@link EconomyChangeFeed} does with an event published while its buffer is full.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public enum OverflowPolicy {
+
+  /**
+   * The published event is discarded and the publisher continues immediately.
+   */
+  DROP_NEWEST,
+
+  /**
+   * The oldest buffered events are discarded until the published event fits.
+   */
+  DROP_OLDEST,
+
+  /**
+   * The publisher waits until the feed has drained enough events for the published event to fit.
+   * A feed without a dispatcher drains on the publishing thread instead of waiting, so listeners
+   * subscribed without an executor then run on the publisher. A publisher that is itself draining
+   * the feed or running one of its listeners also drains inline when no other drain is running,
+   * since the drain it would wait for may be queued behind it.
+   */
+  BLOCK
+}
@@ -0,0 +1,473 @@
+package net.milkbowl.vault2.economy.feed;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.AsyncEconomy;
+import net.milkbowl.vault2.economy.Economy;
+import net.milkbowl.vault2.economy.EconomyResponse;
+import net.milkbowl.vault2.economy.EconomyResponse.ResponseType;
+import net.milkbowl.vault2.economy.ForwardingAsyncEconomy;
+import net.milkbowl.vault2.economy.ForwardingEconomy;
+import net.milkbowl.vault2.economy.MultiEconomyResponse;
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Wraps an {@link Economy} that does not publish change events itself and publishes a
+ * {@link BalanceChanged} event into an {@link EconomyChangeFeed} for every successful deposit,
+ * withdrawal, set, compare-and-set and transfer, including the transaction-id overloads and those
+ * made through {@link #async()}. A retry the provider answers with the remembered response of an
+ * earlier transaction is indistinguishable from a new one and is published again.
+ *
+ * Old balances are derived from the provider's response, or from the expected balance of a
+ * compare-and-set, so deposits, withdrawals, compare-and-sets and transfers cost no extra provider
+ * calls. A set reads the balance first, but only while the feed has subscribers. Changes that leave
+ * the balance unchanged are not published.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class PublishingEconomy extends ForwardingEconomy {
+
+  private final EconomyChangeFeed feed;
+  private volatile PublishingAsyncEconomy asyncView;
+
+  /**
+   * Constructs a new {@code PublishingEconomy}.
+   *
+   * @param economy the provider to delegate to; must not be null
+   * @param feed    the feed events are published into; must not be null
+   */
+  public PublishingEconomy(@NotNull final Economy economy, @NotNull final EconomyChangeFeed feed) {
+
+    super(economy);
+    this.feed = feed;
+  }
+
+  @NotNull
+  public EconomyChangeFeed feed() {
+
+    return feed;
+  }
+
+  @Override
+  public Optional<AsyncEconomy> async() {
+
+    final Optional<AsyncEconomy> delegateAsync = economy.async();
+    if(!delegateAsync.isPresent()) {
+      return delegateAsync;
+    }
+
+    PublishingAsyncEconomy view = asyncView;
+    if(view == null || view.delegate() != delegateAsync.get()) {
+      view = new PublishingAsyncEconomy(delegateAsync.get());
+      asyncView = view;
+    }
+    return Optional.of(view);
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return withdrawn(pluginName, accountID, null, null, economy.withdraw(pluginName, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return withdrawn(pluginName, accountID, worldName, null, economy.withdraw(pluginName, accountID, worldName, amount));
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return withdrawn(pluginName, accountID, worldName, currency, economy.withdraw(pluginName, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return deposited(pluginName, accountID, null, null, economy.deposit(pluginName, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return deposited(pluginName, accountID, worldName, null, economy.deposit(pluginName, accountID, worldName, amount));
+  }
+
+  @Override
+  public EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return deposited(pluginName, accountID, worldName, currency, economy.deposit(pluginName, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    if(!feed.hasSubscribers()) {
+      return economy.set(pluginName, accountID, amount);
+    }
+
+    final BigDecimal old = economy.balance(pluginName, accountID);
+    return changed(pluginName, accountID, null, null, old, economy.set(pluginName, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    if(!feed.hasSubscribers()) {
+      return economy.set(pluginName, accountID, worldName, amount);
+    }
+
+    final BigDecimal old = economy.balance(pluginName, accountID, worldName);
+    return changed(pluginName, accountID, worldName, null, old, economy.set(pluginName, accountID, worldName, amount));
+  }
+
+  @Override
+  public EconomyResponse set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    if(!feed.hasSubscribers()) {
+      return economy.set(pluginName, accountID, worldName, currency, amount);
+    }
+
+    final BigDecimal old = economy.balance(pluginName, accountID, worldName, currency);
+    return changed(pluginName, accountID, worldName, currency, old, economy.set(pluginName, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    if(!feed.hasSubscribers()) {
+      return economy.setBalance(pluginName, accountID, amount);
+    }
+
+    final BigDecimal old = economy.balance(pluginName, accountID);
+    return changed(pluginName, accountID, null, null, old, economy.setBalance(pluginName, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    if(!feed.hasSubscribers()) {
+      return economy.setBalance(pluginName, accountID, worldName, currency, amount);
+    }
+
+    final BigDecimal old = economy.balance(pluginName, accountID, worldName, currency);
+    return changed(pluginName, accountID, worldName, currency, old, economy.setBalance(pluginName, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+    return changed(pluginName, accountID, null, null, expected, economy.compareAndSetBalance(pluginName, accountID, expected, newValue));
+  }
+
+  @Override
+  public EconomyResponse compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+    return changed(pluginName, accountID, worldName, currency, expected, economy.compareAndSetBalance(pluginName, accountID, worldName, currency, expected, newValue));
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final BigDecimal amount) {
+
+    return transferred(pluginName, from, to, null, null, economy.transfer(pluginName, from, to, amount));
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return transferred(pluginName, from, to, worldName, null, economy.transfer(pluginName, from, to, worldName, amount));
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return transferred(pluginName, from, to, worldName, currency, economy.transfer(pluginName, from, to, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return deposited(pluginName, accountID, null, null, economy.deposit(pluginName, transactionID, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return deposited(pluginName, accountID, worldName, currency, economy.deposit(pluginName, transactionID, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return withdrawn(pluginName, accountID, null, null, economy.withdraw(pluginName, transactionID, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return withdrawn(pluginName, accountID, worldName, currency, economy.withdraw(pluginName, transactionID, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final BigDecimal amount) {
+
+    return transferred(pluginName, from, to, null, null, economy.transfer(pluginName, transactionID, from, to, amount));
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return transferred(pluginName, from, to, worldName, currency, economy.transfer(pluginName, transactionID, from, to, worldName, currency, amount));
+  }
+
+  private EconomyResponse withdrawn(final String pluginName, final UUID account, final String world,
+                                    final String currency, final EconomyResponse response) {
+
+    if(response.type == ResponseType.SUCCESS && feed.hasSubscribers()) {
+      publish(pluginName, account, world, currency, response.balance.add(response.amount), response.balance);
+    }
+    return response;
+  }
+
+  private EconomyResponse deposited(final String pluginName, final UUID account, final String world,
+                                    final String currency, final EconomyResponse response) {
+
+    if(response.type == ResponseType.SUCCESS && feed.hasSubscribers()) {
+      publish(pluginName, account, world, currency, response.balance.subtract(response.amount), response.balance);
+    }
+    return response;
+  }
+
+  private EconomyResponse changed(final String pluginName, final UUID account, final String world,
+                                  final String currency, final BigDecimal old, final EconomyResponse response) {
+
+    if(response.type == ResponseType.SUCCESS && feed.hasSubscribers()) {
+      publish(pluginName, account, world, currency, old, response.balance);
+    }
+    return response;
+  }
+
+  private MultiEconomyResponse transferred(final String pluginName, final UUID from, final UUID to, final String world,
+                                           final String currency, final MultiEconomyResponse response) {
+
+    if(response.type == ResponseType.SUCCESS && feed.hasSubscribers()) {
+      response.balance(from).ifPresent(balance->publish(pluginName, from, world, currency, balance.add(response.amount), balance));
+      response.balance(to).ifPresent(balance->publish(pluginName, to, world, currency, balance.subtract(response.amount), balance));
+    }
+    return response;
+  }
+
+  private void publish(final String pluginName, final UUID account, final String world, final String currency,
+                       final BigDecimal old, final BigDecimal current) {
+
+    if(old.compareTo(current) != 0) {
+      feed.publish(new BalanceChanged(account, world, currency, old, current, pluginName));
+    }
+  }
+
+  /**
+   * The asynchronous view of a {@link PublishingEconomy}, publishing once each future completes.
+   */
+  private class PublishingAsyncEconomy extends ForwardingAsyncEconomy {
+
+    PublishingAsyncEconomy(final AsyncEconomy async) {
+
+      super(async);
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+      return async.withdraw(pluginName, accountID, amount)
+              .thenApply(response->withdrawn(pluginName, accountID, null, null, response));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+      return async.withdraw(pluginName, accountID, worldName, amount)
+              .thenApply(response->withdrawn(pluginName, accountID, worldName, null, response));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+      return async.withdraw(pluginName, accountID, worldName, currency, amount)
+              .thenApply(response->withdrawn(pluginName, accountID, worldName, currency, response));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+      return async.deposit(pluginName, accountID, amount)
+              .thenApply(response->deposited(pluginName, accountID, null, null, response));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+      return async.deposit(pluginName, accountID, worldName, amount)
+              .thenApply(response->deposited(pluginName, accountID, worldName, null, response));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+      return async.deposit(pluginName, accountID, worldName, currency, amount)
+              .thenApply(response->deposited(pluginName, accountID, worldName, currency, response));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+      if(!feed.hasSubscribers()) {
+        return async.set(pluginName, accountID, amount);
+      }
+      return async.balance(pluginName, accountID)
+              .thenCompose(old->async.set(pluginName, accountID, amount)
+                      .thenApply(response->changed(pluginName, accountID, null, null, old, response)));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final BigDecimal amount) {
+
+      if(!feed.hasSubscribers()) {
+        return async.set(pluginName, accountID, world, amount);
+      }
+      return async.balance(pluginName, accountID, world)
+              .thenCompose(old->async.set(pluginName, accountID, world, amount)
+                      .thenApply(response->changed(pluginName, accountID, world, null, old, response)));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+      if(!feed.hasSubscribers()) {
+        return async.set(pluginName, accountID, world, currency, amount);
+      }
+      return async.balance(pluginName, accountID, world, currency)
+              .thenCompose(old->async.set(pluginName, accountID, world, currency, amount)
+                      .thenApply(response->changed(pluginName, accountID, world, currency, old, response)));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+      if(!feed.hasSubscribers()) {
+        return async.setBalance(pluginName, accountID, amount);
+      }
+      return async.balance(pluginName, accountID)
+              .thenCompose(old->async.setBalance(pluginName, accountID, amount)
+                      .thenApply(response->changed(pluginName, accountID, null, null, old, response)));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+      if(!feed.hasSubscribers()) {
+        return async.setBalance(pluginName, accountID, world, currency, amount);
+      }
+      return async.balance(pluginName, accountID, world, currency)
+              .thenCompose(old->async.setBalance(pluginName, accountID, world, currency, amount)
+                      .thenApply(response->changed(pluginName, accountID, world, currency, old, response)));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+      return async.compareAndSetBalance(pluginName, accountID, expected, newValue)
+              .thenApply(response->changed(pluginName, accountID, null, null, expected, response));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+      return async.compareAndSetBalance(pluginName, accountID, world, currency, expected, newValue)
+              .thenApply(response->changed(pluginName, accountID, world, currency, expected, response));
+    }
+
+    @Override
+    public CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final BigDecimal amount) {
+
+      return async.transfer(pluginName, from, to, amount)
+              .thenApply(response->transferred(pluginName, from, to, null, null, response));
+    }
+
+    @Override
+    public CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+      return async.transfer(pluginName, from, to, worldName, amount)
+              .thenApply(response->transferred(pluginName, from, to, worldName, null, response));
+    }
+
+    @Override
+    public CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+      return async.transfer(pluginName, from, to, worldName, currency, amount)
+              .thenApply(response->transferred(pluginName, from, to, worldName, currency, response));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> deposit(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+      return async.deposit(pluginName, transactionID, accountID, amount)
+              .thenApply(response->deposited(pluginName, accountID, null, null, response));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> deposit(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+      return async.deposit(pluginName, transactionID, accountID, world, currency, amount)
+              .thenApply(response->deposited(pluginName, accountID, world, currency, response));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+      return async.withdraw(pluginName, transactionID, accountID, amount)
+              .thenApply(response->withdrawn(pluginName, accountID, null, null, response));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+      return async.withdraw(pluginName, transactionID, accountID, world, currency, amount)
+              .thenApply(response->withdrawn(pluginName, accountID, world, currency, response));
+    }
+
+    @Override
+    public CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final BigDecimal amount) {
+
+      return async.transfer(pluginName, transactionID, from, to, amount)
+              .thenApply(response->transferred(pluginName, from, to, null, null, response));
+    }
+
+    @Override
+    public CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+      return async.transfer(pluginName, transactionID, from, to, world, currency, amount)
+              .thenApply(response->transferred(pluginName, from, to, world, currency, response));
+    }
+  }
+}
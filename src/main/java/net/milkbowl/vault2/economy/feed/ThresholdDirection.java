@@ -0,0 +1,48 @@
+package net.milkbowl.vault2.economy.feed;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The direction in which a balance crosses a threshold. A balance crosses upward when it moves from
+ * below the threshold to at or above it, and downward when it moves from at or above it to below it.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public enum ThresholdDirection {
+
+  UPWARD,
+  DOWNWARD,
+
+  /**
+   * Matches crossings in either direction; never reported as the direction of a crossing itself.
+   */
+  EITHER;
+
+  /**
+   * Determines whether a subscription for this direction is interested in the specified crossing.
+   *
+   * @param crossed the direction of the crossing; must not be null
+   * @return true if this direction is {@link #EITHER} or equal to the crossing; false otherwise
+   */
+  public boolean matches(@NotNull final ThresholdDirection crossed) {
+
+    return this == EITHER || this == crossed;
+  }
+}
@@ -0,0 +1,189 @@
+package net.milkbowl.vault2.economy.feed;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.helper.collections.ConcurrentUUIDObjectMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Matches balance changes against registered thresholds. Thresholds are kept in one sorted map per
+ * currency, so a change only visits the thresholds that lie between its old and new balance, and
+ * each of those finds its subscribers for the changed account with a single hash lookup. The cost
+ * of a change is independent of the number of accounts and thresholds that it does not cross.
+ *
+ * The index is a feed listener and is normally created by
+ * {@link EconomyChangeFeed#subscribeThreshold(UUID, String, BigDecimal, ThresholdDirection, ThresholdListener)}.
+ * Currencies are compared exactly as published, with a null currency standing for the provider's default.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class ThresholdIndex implements Consumer<BalanceChanged> {
+
+  private static final String DEFAULT_CURRENCY = "";
+
+  private final Map<String, NavigableMap<BigDecimal, Node>> currencies = new ConcurrentHashMap<>();
+
+  /**
+   * Registers a listener for a threshold.
+   *
+   * @param account   the account to watch, or null to watch every account
+   * @param currency  the currency to watch, or null for the default currency
+   * @param threshold the balance to watch for; must not be null
+   * @param direction the crossings to report; must not be null
+   * @param listener  the listener to notify; must not be null
+   * @return the subscription, which can be cancelled
+   */
+  @NotNull
+  public synchronized ThresholdSubscription add(@Nullable final UUID account, @Nullable final String currency,
+                                                @NotNull final BigDecimal threshold, @NotNull final ThresholdDirection direction,
+                                                @NotNull final ThresholdListener listener) {
+
+    final ThresholdSubscription subscription = new ThresholdSubscription(this, account, currency, threshold, direction, listener);
+    currencies.computeIfAbsent(key(currency), k->new ConcurrentSkipListMap<>())
+            .computeIfAbsent(threshold, t->new Node())
+            .add(subscription);
+    return subscription;
+  }
+
+  synchronized void remove(final ThresholdSubscription subscription) {
+
+    final NavigableMap<BigDecimal, Node> thresholds = currencies.get(key(subscription.currency()));
+    if(thresholds == null) {
+      return;
+    }
+
+    final Node node = thresholds.get(subscription.threshold());
+    if(node != null && node.remove(subscription) && node.isEmpty()) {
+      thresholds.remove(subscription.threshold());
+      if(thresholds.isEmpty()) {
+        currencies.remove(key(subscription.currency()));
+      }
+    }
+  }
+
+  @Override
+  public void accept(@NotNull final BalanceChanged event) {
+
+    final NavigableMap<BigDecimal, Node> thresholds = currencies.get(key(event.currency()));
+    if(thresholds == null) {
+      return;
+    }
+
+    final int sign = event.newBalance().compareTo(event.oldBalance());
+    if(sign == 0) {
+      return;
+    }
+
+    //a balance crosses every threshold t with min < t <= max, reported in the order they were passed
+    if(sign > 0) {
+      fire(thresholds.subMap(event.oldBalance(), false, event.newBalance(), true), event, ThresholdDirection.UPWARD);
+    } else {
+      fire(thresholds.subMap(event.newBalance(), false, event.oldBalance(), true).descendingMap(), event, ThresholdDirection.DOWNWARD);
+    }
+  }
+
+  private void fire(final NavigableMap<BigDecimal, Node> crossed, final BalanceChanged event, final ThresholdDirection direction) {
+
+    for(final Node node : crossed.values()) {
+      node.fire(event, direction);
+    }
+  }
+
+  /**
+   * Retrieves the number of distinct thresholds registered across all currencies.
+   *
+   * @return the number of thresholds
+   */
+  public int size() {
+
+    int size = 0;
+    for(final NavigableMap<BigDecimal, Node> thresholds : currencies.values()) {
+      size += thresholds.size();
+    }
+    return size;
+  }
+
+  private static String key(final String currency) {
+
+    return (currency == null)? DEFAULT_CURRENCY : currency;
+  }
+
+  /**
+   * The subscriptions registered for a single threshold, split by watched account.
+   */
+  private static final class Node {
+
+    private final ConcurrentUUIDObjectMap<List<ThresholdSubscription>> accounts = new ConcurrentUUIDObjectMap<>(1, 2);
+    private final List<ThresholdSubscription> any = new CopyOnWriteArrayList<>();
+
+    void add(final ThresholdSubscription subscription) {
+
+      if(subscription.account() == null) {
+        any.add(subscription);
+        return;
+      }
+      accounts.computeIfAbsent(subscription.account(), a->new CopyOnWriteArrayList<>()).add(subscription);
+    }
+
+    boolean remove(final ThresholdSubscription subscription) {
+
+      if(subscription.account() == null) {
+        return any.remove(subscription);
+      }
+
+      final List<ThresholdSubscription> subscriptions = accounts.get(subscription.account());
+      if(subscriptions == null || !subscriptions.remove(subscription)) {
+        return false;
+      }
+      if(subscriptions.isEmpty()) {
+        accounts.remove(subscription.account(), subscriptions);
+      }
+      return true;
+    }
+
+    boolean isEmpty() {
+
+      return any.isEmpty() && accounts.isEmpty();
+    }
+
+    void fire(final BalanceChanged event, final ThresholdDirection direction) {
+
+      final List<ThresholdSubscription> subscriptions = accounts.get(event.account());
+      if(subscriptions != null) {
+        for(final ThresholdSubscription subscription : subscriptions) {
+          subscription.fire(event, direction);
+        }
+      }
+
+      for(final ThresholdSubscription subscription : any) {
+        subscription.fire(event, direction);
+      }
+    }
+  }
+}
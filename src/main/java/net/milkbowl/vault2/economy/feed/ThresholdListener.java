@@ -0,0 +1,42 @@
+package net.milkbowl.vault2.economy.feed;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+
+/**
+ * Receives notice that a balance crossed a threshold registered through
+ * {@link EconomyChangeFeed#subscribeThreshold(java.util.UUID, String, BigDecimal, ThresholdDirection, ThresholdListener)}.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+@FunctionalInterface
+public interface ThresholdListener {
+
+  /**
+   * Called once for each registered threshold a balance change crossed.
+   *
+   * @param event     the change that crossed the threshold
+   * @param threshold the threshold that was crossed
+   * @param direction the direction of the crossing, either {@link ThresholdDirection#UPWARD} or
+   *                  {@link ThresholdDirection#DOWNWARD}
+   */
+  void crossed(@NotNull BalanceChanged event, @NotNull BigDecimal threshold, @NotNull ThresholdDirection direction);
+}
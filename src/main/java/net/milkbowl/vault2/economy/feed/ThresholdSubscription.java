@@ -0,0 +1,120 @@
+package net.milkbowl.vault2.economy.feed;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ThresholdListener} registered with a {@link ThresholdIndex} for one threshold.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public final class ThresholdSubscription {
+
+  private final ThresholdIndex index;
+  private final UUID account;
+  private final String currency;
+  private final BigDecimal threshold;
+  private final ThresholdDirection direction;
+  private final ThresholdListener listener;
+
+  private final LongAdder failures = new LongAdder();
+  private volatile boolean cancelled = false;
+
+  ThresholdSubscription(final ThresholdIndex index, final UUID account, final String currency, final BigDecimal threshold,
+                        final ThresholdDirection direction, final ThresholdListener listener) {
+
+    this.index = index;
+    this.account = account;
+    this.currency = currency;
+    this.threshold = threshold;
+    this.direction = direction;
+    this.listener = listener;
+  }
+
+  /**
+   * Removes this subscription from its index.
+   */
+  public void cancel() {
+
+    cancelled = true;
+    index.remove(this);
+  }
+
+  public boolean isCancelled() {
+
+    return cancelled;
+  }
+
+  /**
+   * Retrieves the account this subscription watches.
+   *
+   * @return the account, or null if every account is watched
+   */
+  @Nullable
+  public UUID account() {
+
+    return account;
+  }
+
+  @Nullable
+  public String currency() {
+
+    return currency;
+  }
+
+  @NotNull
+  public BigDecimal threshold() {
+
+    return threshold;
+  }
+
+  @NotNull
+  public ThresholdDirection direction() {
+
+    return direction;
+  }
+
+  /**
+   * Retrieves the number of crossings for which the listener threw an exception.
+   *
+   * @return the number of failed notifications
+   */
+  public long failures() {
+
+    return failures.sum();
+  }
+
+  void fire(final BalanceChanged event, final ThresholdDirection crossed) {
+
+    if(cancelled || !direction.matches(crossed)) {
+      return;
+    }
+
+    try {
+      listener.crossed(event, threshold, crossed);
+    } catch(final RuntimeException e) {
+      failures.increment();
+    }
+  }
+}
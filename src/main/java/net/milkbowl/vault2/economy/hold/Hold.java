@@ -0,0 +1,135 @@
+package net.milkbowl.vault2.economy.hold;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.BalanceKey;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * An outstanding reservation of part of an account's balance, placed by
+ * {@link HoldingEconomy#hold(String, UUID, String, String, BigDecimal, long, java.util.concurrent.TimeUnit)}.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public final class Hold {
+
+  private final HoldId id;
+  private final BalanceKey key;
+  private final BalanceKey pool;
+  private final BigDecimal amount;
+  private final String pluginName;
+  private final long expiresAt;
+
+  final long deadlineNanos;
+  long deadlineTick;
+  volatile boolean active = true;
+
+  Hold(final HoldId id, final BalanceKey key, final BalanceKey pool, final BigDecimal amount, final String pluginName,
+       final long expiresAt, final long deadlineNanos) {
+
+    this.id = id;
+    this.key = key;
+    this.pool = pool;
+    this.amount = amount;
+    this.pluginName = pluginName;
+    this.expiresAt = expiresAt;
+    this.deadlineNanos = deadlineNanos;
+  }
+
+  @NotNull
+  public HoldId id() {
+
+    return id;
+  }
+
+  @NotNull
+  public UUID account() {
+
+    return key.account();
+  }
+
+  /**
+   * Retrieves the world of the held balance.
+   *
+   * @return the world, or null if the hold was placed on the default balance
+   */
+  @Nullable
+  public String world() {
+
+    return key.world();
+  }
+
+  /**
+   * Retrieves the currency of the held balance.
+   *
+   * @return the currency, or null if the hold was placed on the default balance
+   */
+  @Nullable
+  public String currency() {
+
+    return key.currency();
+  }
+
+  @NotNull
+  public BigDecimal amount() {
+
+    return amount;
+  }
+
+  /**
+   * Retrieves the name of the plugin that placed the hold, on whose behalf it is captured.
+   *
+   * @return the plugin name
+   */
+  @NotNull
+  public String pluginName() {
+
+    return pluginName;
+  }
+
+  /**
+   * Retrieves the time the hold expires unless captured or released first.
+   *
+   * @return the expiry time, in milliseconds since the epoch
+   */
+  public long expiresAt() {
+
+    return expiresAt;
+  }
+
+  BalanceKey key() {
+
+    return key;
+  }
+
+  //the account and currency whose available balance the hold reduces, in every world.
+  BalanceKey pool() {
+
+    return pool;
+  }
+
+  @Override
+  public String toString() {
+
+    return id + "[" + key + " " + amount.toPlainString() + "]";
+  }
+}
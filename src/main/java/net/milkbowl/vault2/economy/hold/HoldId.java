@@ -0,0 +1,60 @@
+package net.milkbowl.vault2.economy.hold;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Identifies a hold placed by a {@link HoldingEconomy}. Ids are unique within one
+ * {@code HoldingEconomy} instance.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public final class HoldId {
+
+  private final long value;
+
+  HoldId(final long value) {
+
+    this.value = value;
+  }
+
+  public long value() {
+
+    return value;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+
+    return this == o || (o instanceof HoldId && ((HoldId)o).value == value);
+  }
+
+  @Override
+  public int hashCode() {
+
+    return Long.hashCode(value);
+  }
+
+  @NotNull
+  @Override
+  public String toString() {
+
+    return "hold-" + value;
+  }
+}
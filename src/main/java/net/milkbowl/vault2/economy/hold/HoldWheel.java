@@ -0,0 +1,108 @@
+package net.milkbowl.vault2.economy.hold;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A hashed timing wheel that schedules hold expiry in constant time. Each slot covers one tick and
+ * holds every hold whose deadline tick maps onto it, regardless of how many rotations away the
+ * deadline is; advancing the wheel visits only the slots for the ticks that passed, and never more
+ * than one full rotation.
+ *
+ * Holds that are captured or released are not removed eagerly; they are dropped when their slot is
+ * next visited.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+final class HoldWheel {
+
+  private final List<Hold>[] slots;
+  private final int mask;
+  private final long tickNanos;
+  private final long start;
+
+  private long tick = 0;
+  private volatile long nextTick;
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  HoldWheel(final long tickNanos, final int slots, final long start) {
+
+    final int size = (Integer.bitCount(slots) == 1)? slots : Integer.highestOneBit(slots - 1) << 1;
+    this.slots = (List<Hold>[])new List[size];
+    for(int i = 0; i < size; i++) {
+      this.slots[i] = new ArrayList<>();
+    }
+
+    this.mask = size - 1;
+    this.tickNanos = tickNanos;
+    this.start = start;
+    this.nextTick = start + tickNanos;
+  }
+
+  synchronized void schedule(final Hold hold) {
+
+    long deadline = (hold.deadlineNanos - start + tickNanos - 1) / tickNanos;
+    if(deadline <= tick) {
+      deadline = tick + 1;
+    }
+
+    hold.deadlineTick = deadline;
+    slots[(int)(deadline & mask)].add(hold);
+  }
+
+  boolean due(final long now) {
+
+    return now - nextTick >= 0;
+  }
+
+  synchronized List<Hold> advance(final long now) {
+
+    final long target = (now - start) / tickNanos;
+    if(target <= tick) {
+      return Collections.emptyList();
+    }
+
+    final List<Hold> expired = new ArrayList<>();
+    for(long t = Math.max(tick + 1, target - mask); t <= target; t++) {
+
+      final List<Hold> slot = slots[(int)(t & mask)];
+      int kept = 0;
+      for(int i = 0; i < slot.size(); i++) {
+
+        final Hold hold = slot.get(i);
+        if(!hold.active) {
+          continue;
+        }
+
+        if(hold.deadlineTick <= target) {
+          expired.add(hold);
+        } else {
+          slot.set(kept++, hold);
+        }
+      }
+      slot.subList(kept, slot.size()).clear();
+    }
+
+    tick = target;
+    nextTick = start + (target + 1) * tickNanos;
+    return expired;
+  }
+}
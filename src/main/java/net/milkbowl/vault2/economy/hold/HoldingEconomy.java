@@ -0,0 +1,694 @@
+package net.milkbowl.vault2.economy.hold;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.AsyncEconomy;
+import net.milkbowl.vault2.economy.BalanceKey;
+import net.milkbowl.vault2.economy.Economy;
+import net.milkbowl.vault2.economy.EconomyResponse;
+import net.milkbowl.vault2.economy.EconomyResponse.ResponseType;
+import net.milkbowl.vault2.economy.ForwardingEconomy;
+import net.milkbowl.vault2.economy.MultiEconomyResponse;
+import net.milkbowl.vault2.economy.lock.AccountLock;
+import net.milkbowl.vault2.economy.lock.AccountLockManager;
+import net.milkbowl.vault2.economy.lock.LockMode;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Adds authorize/capture/release reservations to an {@link Economy}, so a purchase flow can set
+ * funds aside when it starts and take them when it completes, without racing other withdrawals
+ * and without holding a lock for the duration of the flow.
+ *
+ * <pre>{@code
+ * HoldId hold = economy.hold("Shop", buyer, world, currency, price, 2, TimeUnit.MINUTES);
+ * if(hold == null) {
+ *   //not enough available funds
+ * }
+ * //... later, once the player confirms
+ * economy.capture(hold);
+ * }</pre>
+ *
+ * A hold does not move money; it reduces the account's available balance, which is its balance less
+ * every outstanding hold. Withdrawals, transfers, {@code has} and {@code canWithdraw} checks made
+ * through this decorator are measured against the available balance, and sets, compare-and-sets and
+ * account deletion are refused when they would leave less than the held amount, so no overload can
+ * spend held funds. Holds that are neither captured nor released expire after their time to live,
+ * tracked on a hashed timing wheel that is advanced by every call and by {@link #expire()}.
+ *
+ * Holds are pooled per account and currency, with overloads that omit the currency using the
+ * provider's default currency. The Economy API cannot tell whether worlds share a balance, so a hold
+ * reduces the available balance of its currency in every world; on a provider that keeps separate
+ * balances per world this is stricter than necessary, never looser.
+ *
+ * Holds are serialized with spending under per-account locks, which an asynchronous call cannot
+ * take, so this decorator offers no {@link #async()} view. Changes made directly on the delegate are
+ * not checked; a capture then fails if the funds are gone.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class HoldingEconomy extends ForwardingEconomy {
+
+  public static final long DEFAULT_TICK_MILLIS = 100;
+  public static final int DEFAULT_WHEEL_SLOTS = 512;
+
+  private final Map<HoldId, Hold> holds = new ConcurrentHashMap<>();
+  //keyed by the hold pool: the account and currency, without a world.
+  private final Map<BalanceKey, BigDecimal> held = new ConcurrentHashMap<>();
+  private final AtomicLong ids = new AtomicLong();
+  private final AccountLockManager locks;
+  private final HoldWheel wheel;
+
+  private final LongAdder placed = new LongAdder();
+  private final LongAdder refused = new LongAdder();
+  private final LongAdder captured = new LongAdder();
+  private final LongAdder released = new LongAdder();
+  private final LongAdder expired = new LongAdder();
+
+  public HoldingEconomy(@NotNull final Economy economy) {
+
+    this(economy, new AccountLockManager(), DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SLOTS);
+  }
+
+  /**
+   * Constructs a new {@code HoldingEconomy}.
+   *
+   * @param economy the provider to delegate to; must not be null
+   * @param locks   the locks that serialize holds with withdrawals per account; must not be null
+   * @param tick    the resolution of hold expiry
+   * @param unit    the unit of the tick; must not be null
+   * @param slots   the number of slots on the timing wheel, rounded up to a power of two
+   */
+  public HoldingEconomy(@NotNull final Economy economy, @NotNull final AccountLockManager locks,
+                        final long tick, @NotNull final TimeUnit unit, final int slots) {
+
+    super(economy);
+
+    if(tick <= 0 || slots < 1) {
+      throw new IllegalArgumentException("Tick and slot count must be positive, were " + tick + " and " + slots);
+    }
+
+    this.locks = locks;
+    this.wheel = new HoldWheel(unit.toNanos(tick), slots, System.nanoTime());
+  }
+
+  /**
+   * Places a hold on the default balance of an account.
+   *
+   * @param pluginName the name of the plugin placing the hold; must not be null
+   * @param accountID  the account to hold funds on; must not be null
+   * @param amount     the amount to hold; must be positive
+   * @param ttl        how long the hold lasts unless captured or released first
+   * @param unit       the unit of the time to live; must not be null
+   * @return the id of the hold, or null if the account's available balance is less than the amount
+   */
+  @Nullable
+  public HoldId hold(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount,
+                     final long ttl, @NotNull final TimeUnit unit) {
+
+    return hold(pluginName, new BalanceKey(accountID, null, null), amount, ttl, unit);
+  }
+
+  /**
+   * Places a hold on the balance of a currency for an account on a given world.
+   *
+   * @param pluginName the name of the plugin placing the hold; must not be null
+   * @param accountID  the account to hold funds on; must not be null
+   * @param worldName  the world of the balance; must not be null
+   * @param currency   the currency of the balance; must not be null
+   * @param amount     the amount to hold; must be positive
+   * @param ttl        how long the hold lasts unless captured or released first
+   * @param unit       the unit of the time to live; must not be null
+   * @return the id of the hold, or null if the account's available balance is less than the amount
+   */
+  @Nullable
+  public HoldId hold(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName,
+                     @NotNull final String currency, @NotNull final BigDecimal amount, final long ttl,
+                     @NotNull final TimeUnit unit) {
+
+    return hold(pluginName, new BalanceKey(accountID, worldName, currency), amount, ttl, unit);
+  }
+
+  /**
+   * Captures the full amount of a hold, withdrawing it from the account on behalf of the plugin
+   * that placed the hold.
+   *
+   * @param holdID the hold to capture; must not be null
+   * @return the response of the withdrawal, or a {@link ResponseType#FAILURE} response if the hold
+   *         no longer exists
+   */
+  @NotNull
+  public EconomyResponse capture(@NotNull final HoldId holdID) {
+
+    final Hold hold = holds.get(holdID);
+    return capture(holdID, (hold == null)? BigDecimal.ZERO : hold.amount());
+  }
+
+  /**
+   * Captures part of a hold, withdrawing that amount from the account on behalf of the plugin that
+   * placed the hold and releasing the rest, as when an auction settles below the bidder's maximum.
+   *
+   * The hold is finished either way; if the withdrawal fails, for example because the funds were
+   * spent around this decorator, it is not reinstated.
+   *
+   * @param holdID the hold to capture; must not be null
+   * @param amount the amount to withdraw; must not exceed the held amount
+   * @return the response of the withdrawal, or a {@link ResponseType#FAILURE} response if the hold
+   *         no longer exists or holds less than the amount
+   */
+  @NotNull
+  public EconomyResponse capture(@NotNull final HoldId holdID, @NotNull final BigDecimal amount) {
+
+    expire();
+
+    final Hold hold = holds.get(holdID);
+    if(hold == null) {
+      return new EconomyResponse(amount, BigDecimal.ZERO, ResponseType.FAILURE, "Hold " + holdID + " does not exist or has already finished.");
+    }
+
+    if(amount.signum() < 0 || amount.compareTo(hold.amount()) > 0) {
+      return new EconomyResponse(amount, BigDecimal.ZERO, ResponseType.FAILURE, "Capture amount must be between zero and the held amount of " + hold.amount().toPlainString() + ".");
+    }
+
+    try(final AccountLock ignored = locks.lock(LockMode.WRITE, hold.account())) {
+
+      if(!finish(hold)) {
+        return new EconomyResponse(amount, BigDecimal.ZERO, ResponseType.FAILURE, "Hold " + holdID + " does not exist or has already finished.");
+      }
+
+      captured.increment();
+      if(amount.signum() == 0) {
+        return new EconomyResponse(amount, balance(hold.pluginName(), hold.key()), ResponseType.SUCCESS, "");
+      }
+      return withdrawKey(hold.pluginName(), hold.key(), amount);
+    }
+  }
+
+  /**
+   * Releases a hold without withdrawing anything, returning its amount to the available balance.
+   *
+   * @param holdID the hold to release; must not be null
+   * @return true if the hold was outstanding; false if it had already finished
+   */
+  public boolean release(@NotNull final HoldId holdID) {
+
+    final Hold hold = holds.get(holdID);
+    if(hold == null) {
+      return false;
+    }
+
+    try(final AccountLock ignored = locks.lock(LockMode.WRITE, hold.account())) {
+
+      if(!finish(hold)) {
+        return false;
+      }
+    }
+
+    released.increment();
+    return true;
+  }
+
+  /**
+   * Retrieves an outstanding hold.
+   *
+   * @param holdID the hold to look up; must not be null
+   * @return the hold, or empty if it has been captured, released or has expired
+   */
+  @NotNull
+  public Optional<Hold> find(@NotNull final HoldId holdID) {
+
+    return Optional.ofNullable(holds.get(holdID));
+  }
+
+  /**
+   * Retrieves the total of the outstanding holds on the default currency of an account.
+   *
+   * @param pluginName the name of the plugin calling the method; must not be null
+   * @param accountID  the account to check; must not be null
+   * @return the held amount
+   */
+  @NotNull
+  public BigDecimal held(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return held(pluginName, new BalanceKey(accountID, null, null));
+  }
+
+  /**
+   * Retrieves the total of the outstanding holds on a currency of an account, which apply on every
+   * world.
+   *
+   * @param pluginName the name of the plugin calling the method; must not be null
+   * @param accountID  the account to check; must not be null
+   * @param currency   the currency of the balance; must not be null
+   * @return the held amount
+   */
+  @NotNull
+  public BigDecimal held(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String currency) {
+
+    return held(pluginName, new BalanceKey(accountID, null, currency));
+  }
+
+  /**
+   * Retrieves the default balance of an account less its outstanding holds.
+   *
+   * @param pluginName the name of the plugin calling the method; must not be null
+   * @param accountID  the account to check; must not be null
+   * @return the available balance
+   */
+  @NotNull
+  public BigDecimal available(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    expire();
+    return available(pluginName, new BalanceKey(accountID, null, null));
+  }
+
+  /**
+   * Retrieves the balance of a currency for an account on a given world less its outstanding holds.
+   *
+   * @param pluginName the name of the plugin calling the method; must not be null
+   * @param accountID  the account to check; must not be null
+   * @param worldName  the world of the balance; must not be null
+   * @param currency   the currency of the balance; must not be null
+   * @return the available balance
+   */
+  @NotNull
+  public BigDecimal available(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName,
+                              @NotNull final String currency) {
+
+    expire();
+    return available(pluginName, new BalanceKey(accountID, worldName, currency));
+  }
+
+  /**
+   * Expires every hold whose time to live has passed. This runs as part of every call, so it only
+   * needs to be scheduled when expired holds must be freed while the decorator is idle.
+   *
+   * @return the number of holds expired by this call
+   */
+  public int expire() {
+
+    final long now = System.nanoTime();
+    if(!wheel.due(now)) {
+      return 0;
+    }
+
+    int count = 0;
+    for(final Hold hold : wheel.advance(now)) {
+      try(final AccountLock ignored = locks.lock(LockMode.WRITE, hold.account())) {
+        if(finish(hold)) {
+          count++;
+        }
+      }
+    }
+
+    expired.add(count);
+    return count;
+  }
+
+  /**
+   * Retrieves the number of outstanding holds.
+   *
+   * @return the number of holds
+   */
+  public int outstanding() {
+
+    return holds.size();
+  }
+
+  public long placed() {
+
+    return placed.sum();
+  }
+
+  /**
+   * Retrieves the number of holds refused for lack of available funds.
+   *
+   * @return the number of refused holds
+   */
+  public long refused() {
+
+    return refused.sum();
+  }
+
+  public long captured() {
+
+    return captured.sum();
+  }
+
+  public long released() {
+
+    return released.sum();
+  }
+
+  public long expired() {
+
+    return expired.sum();
+  }
+
+  @Override
+  public boolean supportsAsync() {
+
+    return false;
+  }
+
+  @Override
+  public Optional<AsyncEconomy> async() {
+
+    return Optional.empty();
+  }
+
+  @Override
+  public boolean deleteAccount(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    expire();
+    try(final AccountLock ignored = locks.lock(LockMode.WRITE, accountID)) {
+
+      for(final BalanceKey pool : held.keySet()) {
+        if(pool.account().equals(accountID)) {
+          return false;
+        }
+      }
+      return economy.deleteAccount(pluginName, accountID);
+    }
+  }
+
+  @Override
+  public boolean has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return has(pluginName, new BalanceKey(accountID, null, null), amount, ()->economy.has(pluginName, accountID, amount));
+  }
+
+  @Override
+  public boolean has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return has(pluginName, new BalanceKey(accountID, worldName, null), amount, ()->economy.has(pluginName, accountID, worldName, amount));
+  }
+
+  @Override
+  public boolean has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return has(pluginName, new BalanceKey(accountID, worldName, currency), amount, ()->economy.has(pluginName, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse canWithdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return checked(pluginName, new BalanceKey(accountID, null, null), amount, ()->economy.canWithdraw(pluginName, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse canWithdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return checked(pluginName, new BalanceKey(accountID, worldName, null), amount, ()->economy.canWithdraw(pluginName, accountID, worldName, amount));
+  }
+
+  @Override
+  public EconomyResponse canWithdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return checked(pluginName, new BalanceKey(accountID, worldName, currency), amount, ()->economy.canWithdraw(pluginName, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return guarded(pluginName, new BalanceKey(accountID, null, null), amount, ()->economy.withdraw(pluginName, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return guarded(pluginName, new BalanceKey(accountID, worldName, null), amount, ()->economy.withdraw(pluginName, accountID, worldName, amount));
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return guarded(pluginName, new BalanceKey(accountID, worldName, currency), amount, ()->economy.withdraw(pluginName, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return guarded(pluginName, new BalanceKey(accountID, null, null), amount, ()->economy.withdraw(pluginName, transactionID, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return guarded(pluginName, new BalanceKey(accountID, worldName, currency), amount, ()->economy.withdraw(pluginName, transactionID, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final BigDecimal amount) {
+
+    return guardedTransfer(pluginName, new BalanceKey(from, null, null), amount, ()->economy.transfer(pluginName, from, to, amount));
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return guardedTransfer(pluginName, new BalanceKey(from, worldName, null), amount, ()->economy.transfer(pluginName, from, to, worldName, amount));
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return guardedTransfer(pluginName, new BalanceKey(from, worldName, currency), amount, ()->economy.transfer(pluginName, from, to, worldName, currency, amount));
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final BigDecimal amount) {
+
+    return guardedTransfer(pluginName, new BalanceKey(from, null, null), amount, ()->economy.transfer(pluginName, transactionID, from, to, amount));
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return guardedTransfer(pluginName, new BalanceKey(from, worldName, currency), amount, ()->economy.transfer(pluginName, transactionID, from, to, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return guardedSet(pluginName, new BalanceKey(accountID, null, null), amount, ()->economy.set(pluginName, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return guardedSet(pluginName, new BalanceKey(accountID, worldName, null), amount, ()->economy.set(pluginName, accountID, worldName, amount));
+  }
+
+  @Override
+  public EconomyResponse set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return guardedSet(pluginName, new BalanceKey(accountID, worldName, currency), amount, ()->economy.set(pluginName, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return guardedSet(pluginName, new BalanceKey(accountID, null, null), amount, ()->economy.setBalance(pluginName, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return guardedSet(pluginName, new BalanceKey(accountID, worldName, currency), amount, ()->economy.setBalance(pluginName, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+    return guardedSet(pluginName, new BalanceKey(accountID, null, null), newValue, ()->economy.compareAndSetBalance(pluginName, accountID, expected, newValue));
+  }
+
+  @Override
+  public EconomyResponse compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+    return guardedSet(pluginName, new BalanceKey(accountID, worldName, currency), newValue, ()->economy.compareAndSetBalance(pluginName, accountID, worldName, currency, expected, newValue));
+  }
+
+  private HoldId hold(final String pluginName, final BalanceKey key, final BigDecimal amount, final long ttl, final TimeUnit unit) {
+
+    if(amount.signum() <= 0) {
+      throw new IllegalArgumentException("Hold amount must be positive, was " + amount.toPlainString());
+    }
+
+    expire();
+
+    final Hold hold;
+    try(final AccountLock ignored = locks.lock(LockMode.WRITE, key.account())) {
+
+      if(available(pluginName, key).compareTo(amount) < 0) {
+        refused.increment();
+        return null;
+      }
+
+      hold = new Hold(new HoldId(ids.incrementAndGet()), key, pool(pluginName, key), amount, pluginName,
+                      System.currentTimeMillis() + unit.toMillis(ttl), System.nanoTime() + unit.toNanos(ttl));
+      holds.put(hold.id(), hold);
+      held.merge(hold.pool(), amount, BigDecimal::add);
+    }
+
+    wheel.schedule(hold);
+    placed.increment();
+    return hold.id();
+  }
+
+  private boolean has(final String pluginName, final BalanceKey key, final BigDecimal amount, final Supplier<Boolean> delegate) {
+
+    expire();
+    final BigDecimal onHold = held(pluginName, key);
+    return (onHold.signum() == 0)? delegate.get() : balance(pluginName, key).subtract(onHold).compareTo(amount) >= 0;
+  }
+
+  private EconomyResponse checked(final String pluginName, final BalanceKey key, final BigDecimal amount,
+                                  final Supplier<EconomyResponse> delegate) {
+
+    expire();
+    final BigDecimal onHold = held(pluginName, key);
+    if(onHold.signum() != 0) {
+
+      final BigDecimal balance = balance(pluginName, key);
+      if(balance.subtract(onHold).compareTo(amount) < 0) {
+        return new EconomyResponse(amount, balance, ResponseType.FAILURE, insufficient(onHold));
+      }
+    }
+    return delegate.get();
+  }
+
+  private EconomyResponse guarded(final String pluginName, final BalanceKey key, final BigDecimal amount,
+                                  final Supplier<EconomyResponse> operation) {
+
+    expire();
+    try(final AccountLock ignored = locks.lock(LockMode.WRITE, key.account())) {
+
+      final BigDecimal onHold = held(pluginName, key);
+      if(onHold.signum() != 0) {
+
+        final BigDecimal balance = balance(pluginName, key);
+        if(balance.subtract(onHold).compareTo(amount) < 0) {
+          return new EconomyResponse(amount, balance, ResponseType.FAILURE, insufficient(onHold));
+        }
+      }
+      return operation.get();
+    }
+  }
+
+  private MultiEconomyResponse guardedTransfer(final String pluginName, final BalanceKey key, final BigDecimal amount,
+                                               final Supplier<MultiEconomyResponse> operation) {
+
+    expire();
+    try(final AccountLock ignored = locks.lock(LockMode.WRITE, key.account())) {
+
+      final BigDecimal onHold = held(pluginName, key);
+      if(onHold.signum() != 0 && balance(pluginName, key).subtract(onHold).compareTo(amount) < 0) {
+        return new MultiEconomyResponse(amount, ResponseType.FAILURE, insufficient(onHold));
+      }
+      return operation.get();
+    }
+  }
+
+  private EconomyResponse guardedSet(final String pluginName, final BalanceKey key, final BigDecimal amount,
+                                     final Supplier<EconomyResponse> operation) {
+
+    expire();
+    try(final AccountLock ignored = locks.lock(LockMode.WRITE, key.account())) {
+
+      final BigDecimal onHold = held(pluginName, key);
+      if(amount.compareTo(onHold) < 0) {
+        return new EconomyResponse(amount, balance(pluginName, key), ResponseType.FAILURE,
+                                   "The balance cannot be set below the " + onHold.toPlainString() + " on hold.");
+      }
+      return operation.get();
+    }
+  }
+
+  private boolean finish(final Hold hold) {
+
+    if(!holds.remove(hold.id(), hold)) {
+      return false;
+    }
+
+    hold.active = false;
+    held.computeIfPresent(hold.pool(), (key, total)->{
+      final BigDecimal remaining = total.subtract(hold.amount());
+      return (remaining.signum() == 0)? null : remaining;
+    });
+    return true;
+  }
+
+  /**
+   * Maps a balance to the pool its holds are tracked in: the account and the currency, with the
+   * provider's default currency standing in for an omitted one, and without a world.
+   */
+  private BalanceKey pool(final String pluginName, final BalanceKey key) {
+
+    final String currency = (key.currency() == null)? economy.getDefaultCurrency(pluginName) : key.currency();
+    return new BalanceKey(key.account(), null, currency);
+  }
+
+  private BigDecimal held(final String pluginName, final BalanceKey key) {
+
+    if(held.isEmpty()) {
+      return BigDecimal.ZERO;
+    }
+    return held.getOrDefault(pool(pluginName, key), BigDecimal.ZERO);
+  }
+
+  private BigDecimal available(final String pluginName, final BalanceKey key) {
+
+    return balance(pluginName, key).subtract(held(pluginName, key));
+  }
+
+  private BigDecimal balance(final String pluginName, final BalanceKey key) {
+
+    if(key.world() == null) {
+      return economy.balance(pluginName, key.account());
+    }
+    if(key.currency() == null) {
+      return economy.balance(pluginName, key.account(), key.world());
+    }
+    return economy.balance(pluginName, key.account(), key.world(), key.currency());
+  }
+
+  private EconomyResponse withdrawKey(final String pluginName, final BalanceKey key, final BigDecimal amount) {
+
+    if(key.world() == null) {
+      return economy.withdraw(pluginName, key.account(), amount);
+    }
+    return economy.withdraw(pluginName, key.account(), key.world(), key.currency(), amount);
+  }
+
+  private static String insufficient(final BigDecimal onHold) {
+
+    return "Insufficient available funds; " + onHold.toPlainString() + " of the balance is on hold.";
+  }
+}
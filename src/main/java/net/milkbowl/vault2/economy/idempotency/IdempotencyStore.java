@@ -0,0 +1,254 @@
+package net.milkbowl.vault2.economy.idempotency;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the outcome of operations by transaction id for a bounded time, so that repeating an
+ * operation with the same id returns the original outcome instead of running it again.
+ *
+ * The first call for an id records a pending result before the operation runs, so concurrent
+ * duplicates wait for that result rather than racing it. Completed results are kept for the
+ * retention window, counted from completion, and evicted oldest first once the store holds more than
+ * its maximum number of entries. Pending results are never evicted or expired, so the store may
+ * briefly exceed its maximum by the number of operations in flight. An operation that throws or
+ * completes exceptionally has an unknown outcome and is forgotten, so the next call with its id runs
+ * again.
+ *
+ * Every caller receives its own future dependent on the remembered result, so a caller that cancels
+ * or completes its future does not change the outcome seen by the operation's other callers.
+ *
+ * Each id is bound to a fingerprint of the operation it was first used for; reusing an id with a
+ * different fingerprint yields the caller's conflict result instead of the original one.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class IdempotencyStore {
+
+  public static final int DEFAULT_MAX_ENTRIES = 100_000;
+  public static final long DEFAULT_RETENTION_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+  private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+  private final Queue<Marker> order = new ConcurrentLinkedQueue<>();
+  private final int maxEntries;
+  private final long retentionNanos;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder conflicts = new LongAdder();
+
+  public IdempotencyStore() {
+
+    this(DEFAULT_MAX_ENTRIES, DEFAULT_RETENTION_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Constructs a new {@code IdempotencyStore}.
+   *
+   * @param maxEntries the maximum number of remembered transaction ids
+   * @param retention  how long an outcome is remembered; should exceed the longest retry horizon of callers
+   * @param unit       the unit of the retention; must not be null
+   */
+  public IdempotencyStore(final int maxEntries, final long retention, @NotNull final TimeUnit unit) {
+
+    if(maxEntries < 1) {
+      throw new IllegalArgumentException("Maximum entries must be positive, was " + maxEntries);
+    }
+
+    this.maxEntries = maxEntries;
+    this.retentionNanos = unit.toNanos(retention);
+  }
+
+  /**
+   * Runs an operation unless its transaction id has been seen within the retention window.
+   *
+   * @param <T>           the type of the operation's result
+   * @param transactionID the caller-supplied transaction id; must not be null
+   * @param fingerprint   a value identifying the operation and its arguments, compared with
+   *                      {@link Object#equals(Object)}; must not be null
+   * @param operation     starts the operation; called at most once per remembered id; must not be null
+   * @param conflict      supplies the result for an id reused with a different fingerprint; must not be null
+   * @return the result of the operation, the remembered result of an earlier call with the same id,
+   *         or the conflict result
+   */
+  @NotNull
+  @SuppressWarnings("unchecked")
+  public <T> CompletableFuture<T> execute(@NotNull final UUID transactionID, @NotNull final Object fingerprint,
+                                          @NotNull final Supplier<CompletableFuture<T>> operation,
+                                          @NotNull final Supplier<T> conflict) {
+
+    final long now = System.nanoTime();
+    final Entry fresh = new Entry(fingerprint);
+
+    while(true) {
+
+      final Entry existing = entries.putIfAbsent(transactionID, fresh);
+      if(existing == null) {
+        break;
+      }
+
+      if(existing.expired(now, retentionNanos)) {
+        if(entries.replace(transactionID, existing, fresh)) {
+          break;
+        }
+        continue;
+      }
+
+      if(!existing.fingerprint.equals(fingerprint)) {
+        conflicts.increment();
+        return CompletableFuture.completedFuture(conflict.get());
+      }
+
+      hits.increment();
+      return (CompletableFuture<T>)existing.result.thenApply(Function.identity());
+    }
+
+    misses.increment();
+    evict(now);
+
+    final CompletableFuture<T> started;
+    try {
+      started = operation.get();
+    } catch(final RuntimeException | Error e) {
+      entries.remove(transactionID, fresh);
+      fresh.result.completeExceptionally(e);
+      throw e;
+    }
+
+    started.whenComplete((result, failure)->{
+      if(failure != null) {
+        entries.remove(transactionID, fresh);
+        fresh.result.completeExceptionally(failure);
+      } else {
+        final long completed = System.nanoTime();
+        fresh.completed = completed;
+        fresh.result.complete(result);
+        order.add(new Marker(transactionID, fresh));
+        evict(completed);
+      }
+    });
+    return (CompletableFuture<T>)fresh.result.thenApply(Function.identity());
+  }
+
+  /**
+   * Forgets the outcome recorded for the specified transaction id.
+   *
+   * @param transactionID the transaction id to forget; must not be null
+   */
+  public void forget(@NotNull final UUID transactionID) {
+
+    entries.remove(transactionID);
+  }
+
+  /**
+   * Retrieves the number of remembered transaction ids, including expired ones not yet evicted.
+   *
+   * @return the number of entries
+   */
+  public int size() {
+
+    return entries.size();
+  }
+
+  /**
+   * Retrieves the number of calls answered with a remembered result.
+   *
+   * @return the number of deduplicated calls
+   */
+  public long hits() {
+
+    return hits.sum();
+  }
+
+  /**
+   * Retrieves the number of calls that ran their operation.
+   *
+   * @return the number of executed calls
+   */
+  public long misses() {
+
+    return misses.sum();
+  }
+
+  /**
+   * Retrieves the number of calls that reused a transaction id for a different operation.
+   *
+   * @return the number of conflicting calls
+   */
+  public long conflicts() {
+
+    return conflicts.sum();
+  }
+
+  private void evict(final long now) {
+
+    Marker marker;
+    while((marker = order.peek()) != null) {
+
+      if(entries.size() <= maxEntries && !marker.entry.expired(now, retentionNanos)) {
+        return;
+      }
+
+      if(order.remove(marker)) {
+        entries.remove(marker.id, marker.entry);
+      }
+    }
+  }
+
+  private static final class Entry {
+
+    private final Object fingerprint;
+    private final CompletableFuture<Object> result = new CompletableFuture<>();
+    //written before the result completes, so it is visible once the result is done.
+    private volatile long completed;
+
+    Entry(final Object fingerprint) {
+
+      this.fingerprint = fingerprint;
+    }
+
+    boolean expired(final long now, final long retentionNanos) {
+
+      return result.isDone() && now - completed > retentionNanos;
+    }
+  }
+
+  private static final class Marker {
+
+    private final UUID id;
+    private final Entry entry;
+
+    Marker(final UUID id, final Entry entry) {
+
+      this.id = id;
+      this.entry = entry;
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package net.milkbowl.vault2.economy.idempotency;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.AsyncEconomy;
+import net.milkbowl.vault2.economy.Economy;
+import net.milkbowl.vault2.economy.EconomyResponse;
+import net.milkbowl.vault2.economy.EconomyResponse.ResponseType;
+import net.milkbowl.vault2.economy.ForwardingAsyncEconomy;
+import net.milkbowl.vault2.economy.ForwardingEconomy;
+import net.milkbowl.vault2.economy.MultiEconomyResponse;
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Adds the transaction-id overloads of {@link Economy} and {@link AsyncEconomy} to a provider that
+ * does not implement them, by running each mutation through an {@link IdempotencyStore}.
+ *
+ * The synchronous and asynchronous views share one store, so a deposit retried through
+ * {@link #async()} after a synchronous attempt is still only applied once. The guarantee holds for
+ * retries that reach this decorator within the store's retention window; it does not survive a
+ * restart, for which a provider must implement the overloads against its own storage.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class IdempotentEconomy extends ForwardingEconomy {
+
+  private final IdempotencyStore store;
+  private volatile IdempotentAsyncEconomy asyncView;
+
+  public IdempotentEconomy(@NotNull final Economy economy) {
+
+    this(economy, new IdempotencyStore());
+  }
+
+  /**
+   * Constructs a new {@code IdempotentEconomy}.
+   *
+   * @param economy the provider to delegate to; must not be null
+   * @param store   the store that remembers outcomes by transaction id; must not be null
+   */
+  public IdempotentEconomy(@NotNull final Economy economy, @NotNull final IdempotencyStore store) {
+
+    super(economy);
+    this.store = store;
+  }
+
+  @NotNull
+  public IdempotencyStore store() {
+
+    return store;
+  }
+
+  @Override
+  public Optional<AsyncEconomy> async() {
+
+    final Optional<AsyncEconomy> delegateAsync = economy.async();
+    if(!delegateAsync.isPresent()) {
+      return delegateAsync;
+    }
+
+    IdempotentAsyncEconomy view = asyncView;
+    if(view == null || view.delegate() != delegateAsync.get()) {
+      view = new IdempotentAsyncEconomy(delegateAsync.get());
+      asyncView = view;
+    }
+    return Optional.of(view);
+  }
+
+  @Override
+  public EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return once(transactionID, fingerprint("deposit", accountID, null, null, amount), amount,
+                ()->economy.deposit(pluginName, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return once(transactionID, fingerprint("deposit", accountID, worldName, currency, amount), amount,
+                ()->economy.deposit(pluginName, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return once(transactionID, fingerprint("withdraw", accountID, null, null, amount), amount,
+                ()->economy.withdraw(pluginName, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return once(transactionID, fingerprint("withdraw", accountID, worldName, currency, amount), amount,
+                ()->economy.withdraw(pluginName, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final BigDecimal amount) {
+
+    return store.execute(transactionID, fingerprint("transfer", from, to, null, null, amount),
+                         ()->CompletableFuture.completedFuture(economy.transfer(pluginName, from, to, amount)),
+                         ()->transferConflict(amount)).join();
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return store.execute(transactionID, fingerprint("transfer", from, to, worldName, currency, amount),
+                         ()->CompletableFuture.completedFuture(economy.transfer(pluginName, from, to, worldName, currency, amount)),
+                         ()->transferConflict(amount)).join();
+  }
+
+  private EconomyResponse once(final UUID transactionID, final Object fingerprint, final BigDecimal amount,
+                               final Supplier<EconomyResponse> operation) {
+
+    return store.execute(transactionID, fingerprint, ()->CompletableFuture.completedFuture(operation.get()),
+                         ()->conflict(amount)).join();
+  }
+
+  private static Object fingerprint(final String operation, final UUID account, final String world, final String currency,
+                                    final BigDecimal amount) {
+
+    return Arrays.asList(operation, account, world, currency, amount.stripTrailingZeros());
+  }
+
+  private static Object fingerprint(final String operation, final UUID from, final UUID to, final String world,
+                                    final String currency, final BigDecimal amount) {
+
+    return Arrays.asList(operation, from, to, world, currency, amount.stripTrailingZeros());
+  }
+
+  private static EconomyResponse conflict(final BigDecimal amount) {
+
+    return new EconomyResponse(amount, BigDecimal.ZERO, ResponseType.FAILURE, "Transaction id was already used for a different operation.");
+  }
+
+  private static MultiEconomyResponse transferConflict(final BigDecimal amount) {
+
+    return new MultiEconomyResponse(amount, ResponseType.FAILURE, "Transaction id was already used for a different operation.");
+  }
+
+  /**
+   * The asynchronous view of an {@link IdempotentEconomy}, sharing its store.
+   */
+  private class IdempotentAsyncEconomy extends ForwardingAsyncEconomy {
+
+    IdempotentAsyncEconomy(final AsyncEconomy async) {
+
+      super(async);
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> deposit(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+      return store.execute(transactionID, fingerprint("deposit", accountID, null, null, amount),
+                           ()->async.deposit(pluginName, accountID, amount), ()->conflict(amount));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> deposit(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+      return store.execute(transactionID, fingerprint("deposit", accountID, world, currency, amount),
+                           ()->async.deposit(pluginName, accountID, world, currency, amount), ()->conflict(amount));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+      return store.execute(transactionID, fingerprint("withdraw", accountID, null, null, amount),
+                           ()->async.withdraw(pluginName, accountID, amount), ()->conflict(amount));
+    }
+
+    @Override
+    public CompletableFuture<EconomyResponse> withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+      return store.execute(transactionID, fingerprint("withdraw", accountID, world, currency, amount),
+                           ()->async.withdraw(pluginName, accountID, world, currency, amount), ()->conflict(amount));
+    }
+
+    @Override
+    public CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final BigDecimal amount) {
+
+      return store.execute(transactionID, fingerprint("transfer", from, to, null, null, amount),
+                           ()->async.transfer(pluginName, from, to, amount), ()->transferConflict(amount));
+    }
+
+    @Override
+    public CompletableFuture<MultiEconomyResponse> transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String world, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+      return store.execute(transactionID, fingerprint("transfer", from, to, world, currency, amount),
+                           ()->async.transfer(pluginName, from, to, world, currency, amount), ()->transferConflict(amount));
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package net.milkbowl.vault2.economy.lock;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.concurrent.locks.Lock;
+
+/**
+ * The locks held for one acquisition by an {@link AccountLockManager}. Closing the handle releases
+ * them in reverse order of acquisition; it must be closed by the thread that acquired it, normally
+ * with try-with-resources.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public final class AccountLock implements AutoCloseable {
+
+  private final Lock[] locks;
+  private final int count;
+  private boolean released = false;
+
+  AccountLock(final Lock[] locks, final int count) {
+
+    this.locks = locks;
+    this.count = count;
+  }
+
+  /**
+   * Retrieves the number of distinct stripes held, which may be fewer than the number of accounts
+   * when accounts share a stripe.
+   *
+   * @return the number of held stripes
+   */
+  public int stripes() {
+
+    return count;
+  }
+
+  /**
+   * Releases the held locks. Calling this more than once has no further effect.
+   */
+  @Override
+  public void close() {
+
+    if(released) {
+      return;
+    }
+
+    released = true;
+    for(int i = count - 1; i >= 0; i--) {
+      locks[i].unlock();
+    }
+  }
+}
@@ -0,0 +1,307 @@
+package net.milkbowl.vault2.economy.lock;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.helper.collections.UUIDHash;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Locks one or more accounts for providers that implement atomic transfers and other multi-account
+ * operations.
+ *
+ * Accounts map onto a fixed array of read-write lock stripes. Every acquisition sorts the stripes it
+ * needs and takes them in ascending order, so all callers agree on one global order and opposing
+ * transfers, such as A to B racing B to A, cannot deadlock. Ordering by stripe rather than by UUID
+ * keeps that guarantee when two accounts share a stripe, which is then taken only once.
+ *
+ * Stripes are reentrant, but a thread must not acquire more accounts while it already holds an
+ * {@link AccountLock} unless it is certain the new stripes sort after the held ones; acquire every
+ * account an operation needs in a single call instead.
+ *
+ * <pre>{@code
+ * try(AccountLock lock = locks.lock(LockMode.WRITE, from, to)) {
+ *   //move the money
+ * }
+ * }</pre>
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class AccountLockManager {
+
+  public static final int DEFAULT_STRIPES = 1024;
+
+  private final ReentrantReadWriteLock[] stripes;
+  private final int mask;
+
+  private final LongAdder acquisitions = new LongAdder();
+  private final LongAdder contended = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+  private final LongAdder waitNanos = new LongAdder();
+
+  public AccountLockManager() {
+
+    this(DEFAULT_STRIPES, false);
+  }
+
+  /**
+   * Constructs a new {@code AccountLockManager}.
+   *
+   * @param stripes the number of lock stripes, rounded up to a power of two
+   * @param fair    true to grant each stripe to waiting threads in arrival order
+   */
+  public AccountLockManager(final int stripes, final boolean fair) {
+
+    if(stripes < 1) {
+      throw new IllegalArgumentException("Stripe count must be positive, was " + stripes);
+    }
+
+    final int size = (Integer.bitCount(stripes) == 1)? stripes : Integer.highestOneBit(stripes - 1) << 1;
+    this.stripes = new ReentrantReadWriteLock[size];
+    this.mask = size - 1;
+    for(int i = 0; i < size; i++) {
+      this.stripes[i] = new ReentrantReadWriteLock(fair);
+    }
+  }
+
+  /**
+   * Locks the specified accounts, waiting as long as necessary.
+   *
+   * @param mode     the mode to lock the accounts in; must not be null
+   * @param accounts the accounts to lock; must not be null
+   * @return the handle that releases the locks
+   */
+  @NotNull
+  public AccountLock lock(@NotNull final LockMode mode, @NotNull final UUID... accounts) {
+
+    final int[] indices = indices(accounts);
+    final Lock[] locks = new Lock[indices.length];
+
+    for(int i = 0; i < indices.length; i++) {
+
+      final Lock lock = lock(indices[i], mode);
+      if(!lock.tryLock()) {
+        contended.increment();
+
+        final long start = System.nanoTime();
+        lock.lock();
+        waitNanos.add(System.nanoTime() - start);
+      }
+      locks[i] = lock;
+    }
+
+    acquisitions.increment();
+    return new AccountLock(locks, indices.length);
+  }
+
+  /**
+   * Locks the specified accounts, giving up if they cannot all be locked within the timeout. Locks
+   * taken before giving up are released again.
+   *
+   * @param mode     the mode to lock the accounts in; must not be null
+   * @param timeout  the maximum time to wait for all accounts
+   * @param unit     the unit of the timeout; must not be null
+   * @param accounts the accounts to lock; must not be null
+   * @return the handle that releases the locks, or null if the timeout elapsed
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  @Nullable
+  public AccountLock tryLock(@NotNull final LockMode mode, final long timeout, @NotNull final TimeUnit unit,
+                             @NotNull final UUID... accounts) throws InterruptedException {
+
+    final int[] indices = indices(accounts);
+    final Lock[] locks = new Lock[indices.length];
+    final long start = System.nanoTime();
+    final long deadline = start + unit.toNanos(timeout);
+    boolean waited = false;
+
+    for(int i = 0; i < indices.length; i++) {
+
+      final Lock lock = lock(indices[i], mode);
+      if(!lock.tryLock()) {
+
+        if(!waited) {
+          contended.increment();
+          waited = true;
+        }
+
+        boolean acquired = false;
+        try {
+          acquired = lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } finally {
+          if(!acquired) {
+            release(locks, i);
+            waitNanos.add(System.nanoTime() - start);
+          }
+        }
+
+        if(!acquired) {
+          timeouts.increment();
+          return null;
+        }
+      }
+      locks[i] = lock;
+    }
+
+    if(waited) {
+      waitNanos.add(System.nanoTime() - start);
+    }
+    acquisitions.increment();
+    return new AccountLock(locks, indices.length);
+  }
+
+  /**
+   * Runs an action while holding the specified accounts.
+   *
+   * @param <T>      the type of the action's result
+   * @param mode     the mode to lock the accounts in; must not be null
+   * @param action   the action to run; must not be null
+   * @param accounts the accounts to lock; must not be null
+   * @return the result of the action
+   */
+  public <T> T withLock(@NotNull final LockMode mode, @NotNull final Supplier<T> action, @NotNull final UUID... accounts) {
+
+    try(final AccountLock ignored = lock(mode, accounts)) {
+      return action.get();
+    }
+  }
+
+  /**
+   * Determines whether the stripe of the specified account is write-locked by any thread.
+   *
+   * @param account the account to check; must not be null
+   * @return true if the account's stripe is write-locked; false otherwise
+   */
+  public boolean isWriteLocked(@NotNull final UUID account) {
+
+    return stripes[stripe(account)].isWriteLocked();
+  }
+
+  public int stripes() {
+
+    return stripes.length;
+  }
+
+  /**
+   * Retrieves the number of successful acquisitions.
+   *
+   * @return the number of acquisitions
+   */
+  public long acquisitions() {
+
+    return acquisitions.sum();
+  }
+
+  /**
+   * Retrieves the number of acquisitions that found at least one stripe held and had to wait.
+   *
+   * @return the number of contended acquisitions
+   */
+  public long contended() {
+
+    return contended.sum();
+  }
+
+  /**
+   * Retrieves the number of {@link #tryLock(LockMode, long, TimeUnit, UUID...)} calls that gave up.
+   *
+   * @return the number of timeouts
+   */
+  public long timeouts() {
+
+    return timeouts.sum();
+  }
+
+  /**
+   * Retrieves the total time spent waiting for held stripes.
+   *
+   * @return the total wait time in nanoseconds
+   */
+  public long waitNanos() {
+
+    return waitNanos.sum();
+  }
+
+  /**
+   * Retrieves the fraction of acquisitions that had to wait.
+   *
+   * @return the contention ratio, between zero and one
+   */
+  public double contentionRatio() {
+
+    final long attempts = acquisitions.sum() + timeouts.sum();
+    return (attempts == 0)? 0 : contended.sum() / (double)attempts;
+  }
+
+  /**
+   * Resets every contention metric to zero.
+   */
+  public void resetMetrics() {
+
+    acquisitions.reset();
+    contended.reset();
+    timeouts.reset();
+    waitNanos.reset();
+  }
+
+  private Lock lock(final int index, final LockMode mode) {
+
+    return (mode == LockMode.READ)? stripes[index].readLock() : stripes[index].writeLock();
+  }
+
+  private int[] indices(final UUID[] accounts) {
+
+    final int[] indices = new int[accounts.length];
+    for(int i = 0; i < accounts.length; i++) {
+      indices[i] = stripe(accounts[i]);
+    }
+
+    if(indices.length < 2) {
+      return indices;
+    }
+
+    Arrays.sort(indices);
+    int distinct = 1;
+    for(int i = 1; i < indices.length; i++) {
+      if(indices[i] != indices[distinct - 1]) {
+        indices[distinct++] = indices[i];
+      }
+    }
+    return (distinct == indices.length)? indices : Arrays.copyOf(indices, distinct);
+  }
+
+  private int stripe(final UUID account) {
+
+    return (int)UUIDHash.hash(account) & mask;
+  }
+
+  private static void release(final Lock[] locks, final int count) {
+
+    for(int i = count - 1; i >= 0; i--) {
+      locks[i].unlock();
+    }
+  }
+}
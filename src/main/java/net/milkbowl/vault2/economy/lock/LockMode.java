@@ -0,0 +1,36 @@
+package net.milkbowl.vault2.economy.lock;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * The mode in which an {@link AccountLockManager} locks accounts.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public enum LockMode {
+
+  /**
+   * Shared access for balance reads; any number of readers may hold an account at once.
+   */
+  READ,
+
+  /**
+   * Exclusive access for mutations; excludes every other reader and writer of the account.
+   */
+  WRITE
+}
@@ -0,0 +1,530 @@
+package net.milkbowl.vault2.economy.mapped;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.helper.collections.UUIDHash;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32;
+
+/**
+ * The memory-mapped account table of a {@link MappedEconomy}: a file-resident open-addressing hash
+ * table of fixed-size records keyed by the two longs of the account UUID.
+ *
+ * The file is mapped privately in chunks on first access, so opening it costs the same regardless
+ * of the number of accounts, and lookups fault in only the pages they probe. Writes land in private
+ * copies of their pages and never reach the file on their own, because an insert or delete shifts
+ * records across pages and a file holding only some of them could not be repaired. Instead
+ * {@link #force()} publishes the dirty pages and the header as a unit: they are first written to a
+ * checksummed shadow file next to the table and forced, then copied into the table and forced, and
+ * the shadow is emptied. Opening the table copies an intact shadow in again and discards a torn
+ * one, so the file always holds exactly one published state. The table grows by rehashing into a
+ * new file of twice the capacity and atomically replacing the old one.
+ *
+ * Record layout, in longs: state (used and player flags), UUID most significant bits, UUID least
+ * significant bits, name pointer, then one fixed-point balance per currency slot.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+final class AccountTable implements Closeable {
+
+  static final long USED = 1;
+  static final long PLAYER = 2;
+
+  static final int STATE = 0;
+  static final int MSB = 8;
+  static final int LSB = 16;
+  static final int NAME = 24;
+  static final int SLOTS = 32;
+
+  private static final int MAGIC = 0x5655454D;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 4096;
+  private static final int PAGE_SIZE = 4096;
+  private static final long CHUNK_BYTES = 64L << 20;
+  private static final long SHADOW_END = -1;
+  private static final double LOAD_FACTOR = 0.7;
+
+  private final Path path;
+  private final Path shadow;
+  private final int slots;
+  private final int scale;
+  private final int recordSize;
+  private final long recordsPerChunk;
+  private final int pagesPerChunk;
+
+  private FileChannel channel;
+  private MappedByteBuffer header;
+  private AtomicReferenceArray<MappedByteBuffer> chunks;
+  private AtomicIntegerArray dirty; //one flag per page, chunk by chunk
+  private long capacity;
+  private long size;
+
+  AccountTable(final Path path, final int slots, final int scale, final long initialCapacity) throws IOException {
+
+    this.path = path;
+    this.shadow = path.resolveSibling(path.getFileName() + ".shadow");
+    this.slots = slots;
+    this.scale = scale;
+    this.recordSize = SLOTS + 8 * slots;
+    this.recordsPerChunk = Math.max(1, CHUNK_BYTES / recordSize);
+    this.pagesPerChunk = (int)((recordsPerChunk * recordSize + PAGE_SIZE - 1) / PAGE_SIZE);
+
+    recover();
+    final boolean fresh = !Files.exists(path) || Files.size(path) == 0;
+    if(fresh) {
+      capacity = Math.max(16, Long.highestOneBit(Math.max(1, initialCapacity) - 1) << 1);
+      create();
+    }
+    open(path);
+
+    if(!fresh) {
+      if(header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+        throw new IOException(path + " is not a version " + VERSION + " account table");
+      }
+      if(header.getInt(8) != slots || header.getInt(12) != scale) {
+        throw new IOException(path + " was created with " + header.getInt(8) + " currencies and " + header.getInt(12)
+                              + " fractional digits, not " + slots + " and " + scale);
+      }
+      capacity = header.getLong(16);
+      size = header.getLong(24);
+    }
+    chunks();
+  }
+
+  long capacity() {
+
+    return capacity;
+  }
+
+  long size() {
+
+    return size;
+  }
+
+  int recordSize() {
+
+    return recordSize;
+  }
+
+  /**
+   * Finds the record of an account.
+   *
+   * @return the index of the record, or -1 if the account is absent
+   */
+  long find(final long msb, final long lsb) throws IOException {
+
+    final long mask = capacity - 1;
+    long index = UUIDHash.hash(msb, lsb) & mask;
+    for(long probes = 0; probes < capacity; probes++) {
+
+      if((getLong(index, STATE) & USED) == 0) {
+        return -1;
+      }
+      if(getLong(index, MSB) == msb && getLong(index, LSB) == lsb) {
+        return index;
+      }
+      index = (index + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Tells whether the table must {@link #grow()} before the next insert.
+   */
+  boolean full() {
+
+    return size + 1 > capacity * LOAD_FACTOR;
+  }
+
+  /**
+   * Inserts a record for an absent account with zero balances. The caller must hold exclusive
+   * access to the table and grow it first if it is {@link #full()}.
+   *
+   * @return the index of the new record
+   */
+  long insert(final long msb, final long lsb, final boolean player, final long name) throws IOException {
+
+    if(full()) {
+      throw new IllegalStateException("The account table must grow before another insert");
+    }
+
+    final long index = place(msb, lsb);
+    putLong(index, NAME, name);
+    for(int slot = 0; slot < slots; slot++) {
+      putLong(index, SLOTS + 8 * slot, 0);
+    }
+    putLong(index, STATE, USED | ((player)? PLAYER : 0));
+    header.putLong(24, ++size);
+    return index;
+  }
+
+  /**
+   * Deletes a record by shifting later records of its probe run back into the gap. The caller must
+   * hold exclusive access to the table.
+   */
+  void delete(final long index) throws IOException {
+
+    final long mask = capacity - 1;
+    long hole = index;
+    long next = index;
+    while(true) {
+
+      next = (next + 1) & mask;
+      if((getLong(next, STATE) & USED) == 0) {
+        break;
+      }
+
+      final long home = UUIDHash.hash(getLong(next, MSB), getLong(next, LSB)) & mask;
+      final boolean movable = (hole <= next)? (home <= hole || home > next) : (home <= hole && home > next);
+      if(movable) {
+        for(int offset = 0; offset < recordSize; offset += 8) {
+          putLong(hole, offset, getLong(next, offset));
+        }
+        hole = next;
+      }
+    }
+
+    putLong(hole, STATE, 0);
+    header.putLong(24, --size);
+  }
+
+  long getLong(final long index, final int offset) throws IOException {
+
+    final long chunk = index / recordsPerChunk;
+    return chunk((int)chunk).getLong((int)((index - chunk * recordsPerChunk) * recordSize) + offset);
+  }
+
+  void putLong(final long index, final int offset, final long value) throws IOException {
+
+    final int chunk = (int)(index / recordsPerChunk);
+    final int position = (int)((index - chunk * recordsPerChunk) * recordSize) + offset;
+    chunk(chunk).putLong(position, value);
+    dirty.set(chunk * pagesPerChunk + position / PAGE_SIZE, 1);
+  }
+
+  /**
+   * Publishes every dirty page and the header to the file through the shadow file, then remaps
+   * the chunks written so their private copies can be released. The caller must hold exclusive
+   * access to the table.
+   *
+   * @return the number of pages written
+   */
+  int force() throws IOException {
+
+    final int[] pages = new int[dirty.length()];
+    int written = 0;
+    for(int page = 0; page < dirty.length(); page++) {
+
+      if(dirty.compareAndSet(page, 1, 0)) {
+        pages[written++] = page;
+      }
+    }
+    if(written == 0) {
+      return 0;
+    }
+
+    final CRC32 crc = new CRC32();
+    try(final FileChannel log = FileChannel.open(shadow, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                 StandardOpenOption.TRUNCATE_EXISTING)) {
+
+      append(log, crc, 0, header());
+      for(int i = 0; i < written; i++) {
+        append(log, crc, offset(pages[i]), page(pages[i]));
+      }
+
+      final ByteBuffer end = ByteBuffer.allocate(16).putLong(SHADOW_END);
+      crc.update(end.array(), 0, 8);
+      end.putLong(crc.getValue());
+      end.flip();
+      write(log, end);
+      log.force(true);
+    }
+
+    write(channel, header(), 0);
+    for(int i = 0; i < written; i++) {
+      write(channel, page(pages[i]), offset(pages[i]));
+    }
+    channel.force(true);
+    empty(shadow);
+
+    for(int i = 0; i < written; i++) {
+      chunks.set(pages[i] / pagesPerChunk, null);
+    }
+    return written;
+  }
+
+  @Override
+  public void close() throws IOException {
+
+    force();
+    channel.close();
+  }
+
+  /**
+   * Rehashes the table into a new file of twice the capacity and atomically replaces the file with
+   * it, which publishes every change made so far. The caller must hold exclusive access to the table
+   * and make the data the records point to durable first.
+   */
+  void grow() throws IOException {
+
+    final Path grown = path.resolveSibling(path.getFileName() + ".grow");
+    final Path staged = grown.resolveSibling(grown.getFileName() + ".shadow");
+    Files.deleteIfExists(grown);
+    Files.deleteIfExists(staged);
+    try(final AccountTable target = new AccountTable(grown, slots, scale, capacity * 2)) {
+
+      for(long index = 0; index < capacity; index++) {
+
+        final long state = getLong(index, STATE);
+        if((state & USED) == 0) {
+          continue;
+        }
+
+        final long moved = target.place(getLong(index, MSB), getLong(index, LSB));
+        for(int offset = NAME; offset < recordSize; offset += 8) {
+          target.putLong(moved, offset, getLong(index, offset));
+        }
+        target.putLong(moved, STATE, state);
+      }
+      target.size = size;
+      target.header.putLong(24, size);
+    }
+    Files.deleteIfExists(staged);
+
+    channel.close();
+    Files.move(grown, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    open(path);
+    capacity = header.getLong(16);
+    chunks();
+  }
+
+  private long place(final long msb, final long lsb) throws IOException {
+
+    final long mask = capacity - 1;
+    long index = UUIDHash.hash(msb, lsb) & mask;
+    while((getLong(index, STATE) & USED) != 0) {
+      index = (index + 1) & mask;
+    }
+
+    putLong(index, MSB, msb);
+    putLong(index, LSB, lsb);
+    return index;
+  }
+
+  private void open(final Path file) throws IOException {
+
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    header = channel.map(FileChannel.MapMode.PRIVATE, 0, HEADER_SIZE);
+  }
+
+  /**
+   * Writes the header of a new table of the chosen capacity and sizes the file for its records.
+   */
+  private void create() throws IOException {
+
+    try(final FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+
+      final ByteBuffer fresh = ByteBuffer.allocate(HEADER_SIZE);
+      fresh.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, slots).putInt(12, scale);
+      fresh.putLong(16, capacity).putLong(24, 0);
+      write(file, ByteBuffer.allocate(1), HEADER_SIZE + capacity * recordSize - 1);
+      write(file, fresh, 0);
+      file.force(true);
+    }
+  }
+
+  /**
+   * Copies the pages of an intact shadow file left by an interrupted {@link #force()} into the
+   * table, and empties the shadow. A torn shadow is emptied without being applied, leaving the
+   * table as it was before that force began.
+   */
+  private void recover() throws IOException {
+
+    if(!Files.exists(shadow) || Files.size(shadow) == 0) {
+      return;
+    }
+
+    try(final FileChannel log = FileChannel.open(shadow, StandardOpenOption.READ)) {
+
+      if(intact(log)) {
+        try(final FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+
+          final ByteBuffer entry = ByteBuffer.allocate(12);
+          long position = 0;
+          while(true) {
+
+            entry.clear();
+            read(log, entry, position);
+            entry.flip();
+            final long offset = entry.getLong();
+            if(offset == SHADOW_END) {
+              break;
+            }
+
+            final ByteBuffer page = ByteBuffer.allocate(entry.getInt());
+            read(log, page, position + 12);
+            page.flip();
+            write(file, page, offset);
+            position += 12 + page.capacity();
+          }
+          file.force(true);
+        }
+      }
+    }
+    empty(shadow);
+  }
+
+  /**
+   * Tells whether a shadow file was written completely, by comparing its trailing checksum with
+   * the checksum of everything before it.
+   */
+  private static boolean intact(final FileChannel log) throws IOException {
+
+    final long size = log.size();
+    if(size < 16) {
+      return false;
+    }
+
+    final CRC32 crc = new CRC32();
+    final ByteBuffer block = ByteBuffer.allocate(64 * 1024);
+    for(long position = 0; position < size - 8; position += block.limit()) {
+
+      block.clear();
+      block.limit((int)Math.min(block.capacity(), size - 8 - position));
+      read(log, block, position);
+      block.flip();
+      crc.update(block);
+    }
+
+    final ByteBuffer trailer = ByteBuffer.allocate(16);
+    read(log, trailer, size - 16);
+    trailer.flip();
+    return trailer.getLong() == SHADOW_END && trailer.getLong() == crc.getValue();
+  }
+
+  private static void empty(final Path file) throws IOException {
+
+    try(final FileChannel log = FileChannel.open(file, StandardOpenOption.WRITE)) {
+
+      log.truncate(0);
+      log.force(true);
+    }
+  }
+
+  /**
+   * Appends a shadow entry, the file offset and length of a page followed by its bytes.
+   */
+  private static void append(final FileChannel log, final CRC32 crc, final long offset, final ByteBuffer page) throws IOException {
+
+    final ByteBuffer entry = ByteBuffer.allocate(12).putLong(offset).putInt(page.remaining());
+    entry.flip();
+    crc.update(entry.array(), 0, 12);
+    crc.update(page.duplicate());
+    write(log, entry);
+    write(log, page);
+  }
+
+  private static void write(final FileChannel file, final ByteBuffer buffer) throws IOException {
+
+    while(buffer.hasRemaining()) {
+      file.write(buffer);
+    }
+  }
+
+  private static void write(final FileChannel file, final ByteBuffer buffer, final long position) throws IOException {
+
+    long at = position;
+    while(buffer.hasRemaining()) {
+      at += file.write(buffer, at);
+    }
+  }
+
+  private static void read(final FileChannel file, final ByteBuffer buffer, final long position) throws IOException {
+
+    long at = position;
+    while(buffer.hasRemaining()) {
+
+      final int read = file.read(buffer, at);
+      if(read < 0) {
+        throw new IOException("Unexpected end of " + file);
+      }
+      at += read;
+    }
+  }
+
+  private ByteBuffer header() {
+
+    final ByteBuffer bytes = header.duplicate();
+    bytes.clear();
+    return bytes;
+  }
+
+  /**
+   * Views a dirty page in its chunk; the last page of a chunk may be shorter.
+   */
+  private ByteBuffer page(final int page) {
+
+    final ByteBuffer bytes = chunks.get(page / pagesPerChunk).duplicate();
+    final int start = (page % pagesPerChunk) * PAGE_SIZE;
+    bytes.limit(Math.min(bytes.capacity(), start + PAGE_SIZE));
+    bytes.position(start);
+    return bytes;
+  }
+
+  private long offset(final int page) {
+
+    return HEADER_SIZE + (page / pagesPerChunk) * recordsPerChunk * recordSize + (long)(page % pagesPerChunk) * PAGE_SIZE;
+  }
+
+  private void chunks() {
+
+    final int count = (int)((capacity + recordsPerChunk - 1) / recordsPerChunk);
+    chunks = new AtomicReferenceArray<>(count);
+    dirty = new AtomicIntegerArray(count * pagesPerChunk);
+  }
+  private MappedByteBuffer chunk(final int index) throws IOException {
+
+    final MappedByteBuffer mapped = chunks.get(index);
+    if(mapped != null) {
+      return mapped;
+    }
+
+    synchronized(this) {
+
+      MappedByteBuffer chunk = chunks.get(index);
+      if(chunk == null) {
+        final long first = index * recordsPerChunk;
+        final long records = Math.min(recordsPerChunk, capacity - first);
+        chunk = channel.map(FileChannel.MapMode.PRIVATE, HEADER_SIZE + first * recordSize, records * recordSize);
+        chunks.set(index, chunk);
+      }
+      return chunk;
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package net.milkbowl.vault2.economy.mapped;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The write-ahead journal of a {@link MappedEconomy}. Every change is appended here before it is
+ * applied to the mapped account table, as an absolute value rather than a delta, so replaying the
+ * journal over a table that already holds some of the changes is harmless.
+ *
+ * Each entry is framed by its length and a CRC32 of its body; replay stops at the first torn or
+ * corrupt entry and truncates the journal there.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+final class Journal implements Closeable {
+
+  private static final byte BALANCE = 1;
+  private static final byte CREATE = 2;
+  private static final byte RENAME = 3;
+  private static final byte DELETE = 4;
+
+  private final FileChannel channel;
+
+  Journal(final Path path) throws IOException {
+
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.channel.position(channel.size());
+  }
+
+  void balance(final long msb, final long lsb, final int slot, final long units) throws IOException {
+
+    final ByteBuffer body = body(BALANCE, msb, lsb, 12);
+    body.putInt(slot).putLong(units);
+    append(body);
+  }
+
+  /**
+   * Journals the creation of an account whose name was appended to the name segment at the
+   * pointer. The name itself is journaled too, so it can be appended again if the segment lost it.
+   */
+  void create(final long msb, final long lsb, final boolean player, final long pointer, final String name) throws IOException {
+
+    final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    final ByteBuffer body = body(CREATE, msb, lsb, 13 + bytes.length);
+    body.put((byte)((player)? 1 : 0)).putLong(pointer).putInt(bytes.length).put(bytes);
+    append(body);
+  }
+
+  void rename(final long msb, final long lsb, final long pointer, final String name) throws IOException {
+
+    final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    final ByteBuffer body = body(RENAME, msb, lsb, 12 + bytes.length);
+    body.putLong(pointer).putInt(bytes.length).put(bytes);
+    append(body);
+  }
+
+  void delete(final long msb, final long lsb) throws IOException {
+
+    append(body(DELETE, msb, lsb, 0));
+  }
+
+  /**
+   * Replays every intact entry in order and truncates any torn tail.
+   *
+   * @return the number of entries replayed
+   */
+  synchronized int replay(final Visitor visitor) throws IOException {
+
+    final long size = channel.size();
+    final ByteBuffer frame = ByteBuffer.allocate(8);
+    long position = 0;
+    int entries = 0;
+
+    while(position + 8 <= size) {
+
+      frame.clear();
+      read(frame, position);
+      frame.flip();
+      final int length = frame.getInt();
+      final int crc = frame.getInt();
+      if(length < 17 || position + 8 + length > size) {
+        break;
+      }
+
+      final ByteBuffer body = ByteBuffer.allocate(length);
+      read(body, position + 8);
+      if(crc(body.array()) != crc) {
+        break;
+      }
+
+      body.flip();
+      final byte type = body.get();
+      final long msb = body.getLong();
+      final long lsb = body.getLong();
+      switch(type) {
+        case BALANCE:
+          visitor.balance(msb, lsb, body.getInt(), body.getLong());
+          break;
+        case CREATE:
+          final boolean player = body.get() == 1;
+          visitor.create(msb, lsb, player, body.getLong(), string(body));
+          break;
+        case RENAME:
+          visitor.rename(msb, lsb, body.getLong(), string(body));
+          break;
+        case DELETE:
+          visitor.delete(msb, lsb);
+          break;
+        default:
+          throw new IOException("Unknown journal entry type " + type + " at " + position);
+      }
+
+      position += 8 + length;
+      entries++;
+    }
+
+    channel.truncate(position);
+    channel.position(position);
+    return entries;
+  }
+
+  /**
+   * Forces every appended entry to the storage device.
+   */
+  void force() throws IOException {
+
+    channel.force(false);
+  }
+
+  /**
+   * Discards every entry, once the changes they describe are durable in the account table.
+   */
+  synchronized void reset() throws IOException {
+
+    channel.truncate(0);
+    channel.position(0);
+    channel.force(true);
+  }
+
+  long size() throws IOException {
+
+    return channel.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+
+    channel.close();
+  }
+
+  private synchronized void append(final ByteBuffer body) throws IOException {
+
+    final ByteBuffer frame = ByteBuffer.allocate(8 + body.capacity());
+    frame.putInt(body.capacity()).putInt(crc(body.array())).put(body.array());
+    frame.flip();
+    while(frame.hasRemaining()) {
+      channel.write(frame);
+    }
+  }
+
+  private void read(final ByteBuffer buffer, final long position) throws IOException {
+
+    long offset = position;
+    while(buffer.hasRemaining()) {
+
+      final int read = channel.read(buffer, offset);
+      if(read < 0) {
+        throw new IOException("Unexpected end of journal at " + offset);
+      }
+      offset += read;
+    }
+  }
+
+  private static ByteBuffer body(final byte type, final long msb, final long lsb, final int payload) {
+
+    return ByteBuffer.allocate(17 + payload).put(type).putLong(msb).putLong(lsb);
+  }
+
+  private static String string(final ByteBuffer body) {
+
+    final byte[] bytes = new byte[body.getInt()];
+    body.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static int crc(final byte[] bytes) {
+
+    final CRC32 crc = new CRC32();
+    crc.update(bytes, 0, bytes.length);
+    return (int)crc.getValue();
+  }
+
+  /**
+   * Receives replayed journal entries.
+   */
+  interface Visitor {
+
+    void balance(long msb, long lsb, int slot, long units) throws IOException;
+
+    void create(long msb, long lsb, boolean player, long pointer, String name) throws IOException;
+
+    void rename(long msb, long lsb, long pointer, String name) throws IOException;
+
+    void delete(long msb, long lsb) throws IOException;
+  }
+}
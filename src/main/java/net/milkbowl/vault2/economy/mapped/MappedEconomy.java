@@ -0,0 +1,746 @@
+package net.milkbowl.vault2.economy.mapped;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.AccountPermission;
+import net.milkbowl.vault2.economy.Economy;
+import net.milkbowl.vault2.economy.EconomyResponse;
+import net.milkbowl.vault2.economy.EconomyResponse.ResponseType;
+import net.milkbowl.vault2.economy.lock.AccountLock;
+import net.milkbowl.vault2.economy.lock.AccountLockManager;
+import net.milkbowl.vault2.economy.lock.LockMode;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A file-backed reference {@link Economy} that keeps accounts in a memory-mapped table, for
+ * servers whose YAML or JSON economy files take minutes to load and are rewritten whole on save,
+ * and as a fast local provider for integration tests.
+ *
+ * A data directory holds three files:
+ * <ul>
+ *   <li>{@code accounts.dat}, an open-addressing hash table of fixed-size account records mapped
+ *   privately into memory in chunks on first access, so opening it takes the same time for ten
+ *   accounts or ten million, and changed only by checkpoints;</li>
+ *   <li>{@code names.dat}, an append-only segment holding account names, read on demand;</li>
+ *   <li>{@code journal.log}, a write-ahead journal every change is appended to before it is applied
+ *   to the table.</li>
+ * </ul>
+ *
+ * Changes reach the journal in the operating system's page cache immediately, so they survive a
+ * crash of the server process; the table pages they change stay private to the process until the
+ * next checkpoint. {@link #sync()} forces the journal to the storage device, making every change so
+ * far durable against power loss with one sequential write. {@link #checkpoint()} publishes the
+ * table pages changed since the last checkpoint through {@code accounts.dat.shadow}, so the table
+ * file moves from one checkpoint to the next as a unit even if power fails midway, and then empties
+ * the journal. On open, an interrupted publication is completed or discarded, the journal is
+ * replayed over the last checkpoint, and the result is checkpointed. Growing the table also
+ * publishes it.
+ *
+ * Every account holds one balance per configured currency, stored as a fixed-point long with the
+ * configured number of fractional digits. Worlds are not distinguished; the world-specific methods
+ * use the single balance. Shared accounts are not supported. Growing the table replaces
+ * {@code accounts.dat}, which requires a platform that allows replacing a mapped file; on Windows,
+ * size the initial capacity for the expected number of accounts.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class MappedEconomy implements Economy, Closeable {
+
+  public static final long DEFAULT_CAPACITY = 1024;
+
+  private final List<String> currencies;
+  private final int scale;
+  private final AccountTable table;
+  private final NameSegment names;
+  private final Journal journal;
+  private final ReentrantReadWriteLock structure = new ReentrantReadWriteLock();
+  private final AccountLockManager locks = new AccountLockManager();
+  private volatile boolean enabled = true;
+
+  public MappedEconomy(@NotNull final Path directory, @NotNull final List<String> currencies, final int fractionalDigits) throws IOException {
+
+    this(directory, currencies, fractionalDigits, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Opens or creates a {@code MappedEconomy}.
+   *
+   * @param directory        the data directory, created if missing; must not be null
+   * @param currencies       the currencies every account holds, the first being the default; must
+   *                         not be empty and must match the currencies the directory was created with
+   * @param fractionalDigits the number of fractional digits balances are kept with; must match the
+   *                         digits the directory was created with
+   * @param initialCapacity  the number of account records to size a new table for
+   * @throws IOException if the files cannot be opened or were created with different settings
+   */
+  public MappedEconomy(@NotNull final Path directory, @NotNull final List<String> currencies, final int fractionalDigits,
+                       final long initialCapacity) throws IOException {
+
+    if(currencies.isEmpty() || fractionalDigits < 0) {
+      throw new IllegalArgumentException("At least one currency and non-negative fractional digits are required");
+    }
+
+    this.currencies = Collections.unmodifiableList(new ArrayList<>(currencies));
+    this.scale = fractionalDigits;
+
+    Files.createDirectories(directory);
+    this.table = new AccountTable(directory.resolve("accounts.dat"), currencies.size(), fractionalDigits, initialCapacity);
+    this.names = new NameSegment(directory.resolve("names.dat"));
+    this.journal = new Journal(directory.resolve("journal.log"));
+
+    if(journal.replay(new Replay()) > 0) {
+      checkpoint();
+    }
+  }
+
+  /**
+   * Forces every change made so far to the storage device by forcing the journal.
+   *
+   * @throws IOException if the journal cannot be forced
+   */
+  public void sync() throws IOException {
+
+    journal.force();
+  }
+
+  /**
+   * Publishes every table page changed since the last checkpoint to the file and empties the
+   * journal. Changes wait for the checkpoint to finish.
+   *
+   * @return the number of table pages written
+   * @throws IOException if the files cannot be forced
+   */
+  public int checkpoint() throws IOException {
+
+    structure.writeLock().lock();
+    try {
+      names.force();
+      final int written = table.force();
+      journal.reset();
+      return written;
+    } finally {
+      structure.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Retrieves the number of accounts.
+   *
+   * @return the number of accounts
+   */
+  public long size() {
+
+    return table.size();
+  }
+
+  /**
+   * Checkpoints and closes the files. The provider reports itself disabled afterwards.
+   *
+   * @throws IOException if the files cannot be forced or closed
+   */
+  @Override
+  public void close() throws IOException {
+
+    enabled = false;
+    checkpoint();
+
+    structure.writeLock().lock();
+    try {
+      journal.close();
+      names.close();
+      table.close();
+    } finally {
+      structure.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean isEnabled() {
+
+    return enabled;
+  }
+
+  @Override
+  public @NotNull String getName() {
+
+    return "MappedEconomy";
+  }
+
+  @Override
+  public boolean hasSharedAccountSupport() {
+
+    return false;
+  }
+
+  @Override
+  public boolean hasMultiCurrencySupport() {
+
+    return currencies.size() > 1;
+  }
+
+  @Override
+  public boolean supportsAtomicSet() {
+
+    return true;
+  }
+
+  @Override
+  public int fractionalDigits(@NotNull final String pluginName) {
+
+    return scale;
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public @NotNull String format(@NotNull final BigDecimal amount) {
+
+    return format(getName(), amount, currencies.get(0));
+  }
+
+  @Override
+  public @NotNull String format(@NotNull final String pluginName, @NotNull final BigDecimal amount) {
+
+    return format(pluginName, amount, currencies.get(0));
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public @NotNull String format(@NotNull final BigDecimal amount, @NotNull final String currency) {
+
+    return format(getName(), amount, currency);
+  }
+
+  @Override
+  public @NotNull String format(@NotNull final String pluginName, @NotNull final BigDecimal amount, @NotNull final String currency) {
+
+    return amount.setScale(scale, RoundingMode.HALF_EVEN).toPlainString() + " " + currency;
+  }
+
+  @Override
+  public boolean hasCurrency(@NotNull final String currency) {
+
+    return currencies.contains(currency);
+  }
+
+  @Override
+  public @NotNull String getDefaultCurrency(@NotNull final String pluginName) {
+
+    return currencies.get(0);
+  }
+
+  @Override
+  public @NotNull String defaultCurrencyNamePlural(@NotNull final String pluginName) {
+
+    return currencies.get(0);
+  }
+
+  @Override
+  public @NotNull String defaultCurrencyNameSingular(@NotNull final String pluginName) {
+
+    return currencies.get(0);
+  }
+
+  @Override
+  public @NotNull Collection<String> currencies() {
+
+    return currencies;
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public boolean createAccount(@NotNull final UUID accountID, @NotNull final String name) {
+
+    return createAccount(accountID, name, true);
+  }
+
+  @Override
+  public boolean createAccount(@NotNull final UUID accountID, @NotNull final String name, final boolean player) {
+
+    structure.writeLock().lock();
+    try {
+      final long msb = accountID.getMostSignificantBits();
+      final long lsb = accountID.getLeastSignificantBits();
+      if(table.find(msb, lsb) >= 0) {
+        return false;
+      }
+
+      if(table.full()) {
+        names.force();
+        table.grow();
+        journal.reset();
+      }
+
+      final long pointer = names.append(name);
+      journal.create(msb, lsb, player, pointer, name);
+      table.insert(msb, lsb, player, pointer);
+      return true;
+    } catch(final IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      structure.writeLock().unlock();
+    }
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public boolean createAccount(@NotNull final UUID accountID, @NotNull final String name, @NotNull final String worldName) {
+
+    return createAccount(accountID, name, true);
+  }
+
+  @Override
+  public boolean createAccount(@NotNull final UUID accountID, @NotNull final String name, @NotNull final String worldName, final boolean player) {
+
+    return createAccount(accountID, name, player);
+  }
+
+  @Override
+  public @NotNull Map<UUID, String> getUUIDNameMap() {
+
+    final Map<UUID, String> map = new HashMap<>();
+    structure.readLock().lock();
+    try {
+      for(long index = 0; index < table.capacity(); index++) {
+
+        if((table.getLong(index, AccountTable.STATE) & AccountTable.USED) != 0) {
+          map.put(new UUID(table.getLong(index, AccountTable.MSB), table.getLong(index, AccountTable.LSB)),
+                  names.read(table.getLong(index, AccountTable.NAME)));
+        }
+      }
+      return map;
+    } catch(final IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      structure.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Optional<String> getAccountName(@NotNull final UUID accountID) {
+
+    structure.readLock().lock();
+    try {
+      final long index = index(accountID);
+      return (index < 0)? Optional.empty() : Optional.of(names.read(table.getLong(index, AccountTable.NAME)));
+    } catch(final IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      structure.readLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean hasAccount(@NotNull final UUID accountID) {
+
+    structure.readLock().lock();
+    try {
+      return index(accountID) >= 0;
+    } catch(final IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      structure.readLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean hasAccount(@NotNull final UUID accountID, @NotNull final String worldName) {
+
+    return hasAccount(accountID);
+  }
+
+  @Override
+  public boolean renameAccount(@NotNull final UUID accountID, @NotNull final String name) {
+
+    structure.readLock().lock();
+    try(final AccountLock ignored = locks.lock(LockMode.WRITE, accountID)) {
+
+      final long index = index(accountID);
+      if(index < 0) {
+        return false;
+      }
+
+      final long pointer = names.append(name);
+      journal.rename(accountID.getMostSignificantBits(), accountID.getLeastSignificantBits(), pointer, name);
+      table.putLong(index, AccountTable.NAME, pointer);
+      return true;
+    } catch(final IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      structure.readLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean renameAccount(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String name) {
+
+    return renameAccount(accountID, name);
+  }
+
+  @Override
+  public boolean deleteAccount(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    structure.writeLock().lock();
+    try {
+      final long index = index(accountID);
+      if(index < 0) {
+        return false;
+      }
+
+      journal.delete(accountID.getMostSignificantBits(), accountID.getLeastSignificantBits());
+      table.delete(index);
+      return true;
+    } catch(final IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      structure.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean accountSupportsCurrency(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String currency) {
+
+    return hasCurrency(currency) && hasAccount(accountID);
+  }
+
+  @Override
+  public boolean accountSupportsCurrency(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String currency, @NotNull final String world) {
+
+    return accountSupportsCurrency(pluginName, accountID, currency);
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public @NotNull BigDecimal getBalance(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return balanceOf(accountID, currencies.get(0));
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public @NotNull BigDecimal getBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world) {
+
+    return balanceOf(accountID, currencies.get(0));
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public @NotNull BigDecimal getBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency) {
+
+    return balanceOf(accountID, currency);
+  }
+
+  @Override
+  public boolean has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return balanceOf(accountID, currencies.get(0)).compareTo(amount) >= 0;
+  }
+
+  @Override
+  public boolean has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return balanceOf(accountID, currencies.get(0)).compareTo(amount) >= 0;
+  }
+
+  @Override
+  public boolean has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return balanceOf(accountID, currency).compareTo(amount) >= 0;
+  }
+
+  @Override
+  public @NotNull EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return withdraw(pluginName, accountID, "", currencies.get(0), amount);
+  }
+
+  @Override
+  public @NotNull EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return withdraw(pluginName, accountID, worldName, currencies.get(0), amount);
+  }
+
+  @Override
+  public @NotNull EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    if(amount.signum() < 0) {
+      return new EconomyResponse(amount, BigDecimal.ZERO, ResponseType.FAILURE, "Cannot withdraw negative amounts.");
+    }
+
+    return update(accountID, currency, amount, (index, slot, current, units)->{
+      if(current < units) {
+        return new EconomyResponse(amount, BigDecimal.valueOf(current, scale), ResponseType.FAILURE, "Insufficient funds.");
+      }
+      return write(accountID, index, slot, amount, current - units);
+    });
+  }
+
+  @Override
+  public @NotNull EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return deposit(pluginName, accountID, "", currencies.get(0), amount);
+  }
+
+  @Override
+  public @NotNull EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return deposit(pluginName, accountID, worldName, currencies.get(0), amount);
+  }
+
+  @Override
+  public @NotNull EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    if(amount.signum() < 0) {
+      return new EconomyResponse(amount, BigDecimal.ZERO, ResponseType.FAILURE, "Cannot deposit negative amounts.");
+    }
+
+    return update(accountID, currency, amount, (index, slot, current, units)->{
+      if(current > Long.MAX_VALUE - units) {
+        return new EconomyResponse(amount, BigDecimal.valueOf(current, scale), ResponseType.FAILURE, "Balance would overflow.");
+      }
+      return write(accountID, index, slot, amount, current + units);
+    });
+  }
+
+  @Override
+  public @NotNull EconomyResponse setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return setBalance(pluginName, accountID, "", currencies.get(0), amount);
+  }
+
+  @Override
+  public @NotNull EconomyResponse setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    if(amount.signum() < 0) {
+      return new EconomyResponse(amount, BigDecimal.ZERO, ResponseType.FAILURE, "Cannot set negative balances.");
+    }
+
+    return update(accountID, currency, amount, (index, slot, current, units)->write(accountID, index, slot, amount, units));
+  }
+
+  @Override
+  public @NotNull EconomyResponse compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+    return compareAndSetBalance(pluginName, accountID, "", currencies.get(0), expected, newValue);
+  }
+
+  @Override
+  public @NotNull EconomyResponse compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+    if(newValue.signum() < 0) {
+      return new EconomyResponse(newValue, BigDecimal.ZERO, ResponseType.FAILURE, "Cannot set negative balances.");
+    }
+
+    return update(accountID, currency, newValue, (index, slot, current, units)->{
+      final BigDecimal balance = BigDecimal.valueOf(current, scale);
+      if(balance.compareTo(expected) != 0) {
+        return new EconomyResponse(newValue, balance, ResponseType.FAILURE, "Balance does not match the expected value.");
+      }
+      return write(accountID, index, slot, newValue, units);
+    });
+  }
+
+  @Override
+  public boolean createSharedAccount(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String name, @NotNull final UUID owner) {
+
+    return false;
+  }
+
+  @Override
+  public boolean isAccountOwner(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return false;
+  }
+
+  @Override
+  public boolean setOwner(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return false;
+  }
+
+  @Override
+  public boolean isAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return false;
+  }
+
+  @Override
+  public boolean addAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return false;
+  }
+
+  @Override
+  public boolean addAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid, @NotNull final AccountPermission... initialPermissions) {
+
+    return false;
+  }
+
+  @Override
+  public boolean removeAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return false;
+  }
+
+  @Override
+  public boolean hasAccountPermission(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid, @NotNull final AccountPermission permission) {
+
+    return false;
+  }
+
+  @Override
+  public boolean updateAccountPermission(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid, @NotNull final AccountPermission permission, final boolean value) {
+
+    return false;
+  }
+
+  private BigDecimal balanceOf(final UUID accountID, final String currency) {
+
+    final int slot = currencies.indexOf(currency);
+    if(slot < 0) {
+      return BigDecimal.ZERO;
+    }
+
+    structure.readLock().lock();
+    try {
+      final long index = index(accountID);
+      return (index < 0)? BigDecimal.ZERO : BigDecimal.valueOf(table.getLong(index, AccountTable.SLOTS + 8 * slot), scale);
+    } catch(final IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      structure.readLock().unlock();
+    }
+  }
+
+  private EconomyResponse update(final UUID accountID, final String currency, final BigDecimal amount, final Update update) {
+
+    final int slot = currencies.indexOf(currency);
+    if(slot < 0) {
+      return new EconomyResponse(amount, BigDecimal.ZERO, ResponseType.FAILURE, "Currency " + currency + " does not exist.");
+    }
+
+    final long units;
+    try {
+      units = amount.setScale(scale).unscaledValue().longValueExact();
+    } catch(final ArithmeticException e) {
+      return new EconomyResponse(amount, BigDecimal.ZERO, ResponseType.FAILURE, "Amount must have at most " + scale + " fractional digits.");
+    }
+
+    structure.readLock().lock();
+    try(final AccountLock ignored = locks.lock(LockMode.WRITE, accountID)) {
+
+      final long index = index(accountID);
+      if(index < 0) {
+        return new EconomyResponse(amount, BigDecimal.ZERO, ResponseType.FAILURE, "Account does not exist.");
+      }
+      return update.apply(index, slot, table.getLong(index, AccountTable.SLOTS + 8 * slot), units);
+    } catch(final IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      structure.readLock().unlock();
+    }
+  }
+
+  private EconomyResponse write(final UUID accountID, final long index, final int slot, final BigDecimal amount,
+                                final long units) throws IOException {
+
+    journal.balance(accountID.getMostSignificantBits(), accountID.getLeastSignificantBits(), slot, units);
+    table.putLong(index, AccountTable.SLOTS + 8 * slot, units);
+    return new EconomyResponse(amount, BigDecimal.valueOf(units, scale), ResponseType.SUCCESS, "");
+  }
+
+  private long index(final UUID accountID) throws IOException {
+
+    return table.find(accountID.getMostSignificantBits(), accountID.getLeastSignificantBits());
+  }
+
+  @FunctionalInterface
+  private interface Update {
+
+    EconomyResponse apply(long index, int slot, long current, long units) throws IOException;
+  }
+
+  /**
+   * Applies replayed journal entries to the table.
+   */
+  private final class Replay implements Journal.Visitor {
+
+    @Override
+    public void balance(final long msb, final long lsb, final int slot, final long units) throws IOException {
+
+      final long index = table.find(msb, lsb);
+      if(index >= 0 && slot < currencies.size()) {
+        table.putLong(index, AccountTable.SLOTS + 8 * slot, units);
+      }
+    }
+
+    @Override
+    public void create(final long msb, final long lsb, final boolean player, final long pointer, final String name) throws IOException {
+
+      if(table.find(msb, lsb) < 0) {
+        if(table.full()) {
+          names.force();
+          table.grow();
+        }
+        table.insert(msb, lsb, player, name(pointer, name));
+      }
+    }
+
+    @Override
+    public void rename(final long msb, final long lsb, final long pointer, final String name) throws IOException {
+
+      final long index = table.find(msb, lsb);
+      if(index >= 0) {
+        table.putLong(index, AccountTable.NAME, name(pointer, name));
+      }
+    }
+
+    @Override
+    public void delete(final long msb, final long lsb) throws IOException {
+
+      final long index = table.find(msb, lsb);
+      if(index >= 0) {
+        table.delete(index);
+      }
+    }
+
+    /**
+     * Reuses the journaled name pointer, appending the name again only if the segment lost it.
+     */
+    private long name(final long pointer, final String name) throws IOException {
+
+      return (names.holds(pointer, name))? pointer : names.append(name);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package net.milkbowl.vault2.economy.mapped;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The append-only segment that holds account names for a {@link MappedEconomy}, so that the
+ * fixed-size account records only need an offset and a length. A rename appends the new name; the
+ * old bytes are left behind.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+final class NameSegment implements Closeable {
+
+  private final FileChannel channel;
+  private long end;
+
+  NameSegment(final Path path) throws IOException {
+
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.end = channel.size();
+  }
+
+  /**
+   * Appends a name.
+   *
+   * @return the offset of the name in the upper 40 bits and its encoded length in the lower 24
+   */
+  synchronized long append(final String name) throws IOException {
+
+    final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    if(bytes.length >= 1 << 24) {
+      throw new IllegalArgumentException("Account name is too long: " + bytes.length + " bytes");
+    }
+
+    final long offset = end;
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while(buffer.hasRemaining()) {
+      end += channel.write(buffer, end);
+    }
+    return (offset << 24) | bytes.length;
+  }
+
+  /**
+   * Determines whether the segment holds a name at the pointer, as it does unless the append was
+   * lost before reaching the storage device.
+   */
+  synchronized boolean holds(final long pointer, final String name) throws IOException {
+
+    final int length = (int)(pointer & 0xFFFFFF);
+    if((pointer >>> 24) + length > end || length != name.getBytes(StandardCharsets.UTF_8).length) {
+      return false;
+    }
+    return read(pointer).equals(name);
+  }
+
+  String read(final long pointer) throws IOException {
+
+    final ByteBuffer buffer = ByteBuffer.allocate((int)(pointer & 0xFFFFFF));
+    long offset = pointer >>> 24;
+    while(buffer.hasRemaining()) {
+
+      final int read = channel.read(buffer, offset);
+      if(read < 0) {
+        throw new IOException("Name segment ends before offset " + offset);
+      }
+      offset += read;
+    }
+    return new String(buffer.array(), StandardCharsets.UTF_8);
+  }
+
+  void force() throws IOException {
+
+    channel.force(false);
+  }
+
+  @Override
+  public void close() throws IOException {
+
+    channel.close();
+  }
+}
@@ -0,0 +1,603 @@
+package net.milkbowl.vault2.economy.migrate;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.AccountPermission;
+import net.milkbowl.vault2.economy.Economy;
+import net.milkbowl.vault2.economy.EconomyResponse;
+import net.milkbowl.vault2.economy.EconomyResponse.ResponseType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Copies every account of a source {@link Economy} into a target {@link Economy}, for use when a
+ * server switches economy providers.
+ *
+ * A run reads the source's accounts from {@link Economy#getUUIDNameMap()} and, when both providers
+ * support shared accounts, rebuilds the shared-account access lists through
+ * {@link Economy#accountsWithAccessTo(String, UUID, AccountPermission...)}. It then creates each
+ * account in the target and copies its balance for every configured world and every currency in
+ * {@link Economy#currencies()}, creating shared accounts with their owner and members once all
+ * regular accounts exist. Accounts are processed in fixed-size batches on a bounded pool of worker
+ * threads.
+ *
+ * When a checkpoint file is configured, the id of every migrated account is appended to it as its
+ * batch completes, and a later run with the same file skips those accounts, so an interrupted
+ * migration resumes where it stopped. Writes are idempotent, so a batch that was only partially
+ * recorded is safely repeated. The checkpoint's header records the worlds and currencies of the run
+ * that created it, and a run with a different setup refuses to resume from it, since the accounts it
+ * lists were only copied for the recorded worlds and currencies.
+ *
+ * The Economy API cannot enumerate worlds, so the worlds to copy are configured through
+ * {@link #worlds(Collection)}. A null entry stands for the default world and covers only the default
+ * currency, through the overloads without a world; every named world covers every currency. A source
+ * with multiple currencies therefore needs at least one named world, and a run without one fails
+ * before copying anything rather than silently leaving the other currencies behind.
+ *
+ * Regular accounts are created in the target as player accounts; shared accounts are created through
+ * {@link Economy#createSharedAccount(String, UUID, String, UUID)}.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class EconomyMigrator {
+
+  public static final int DEFAULT_BATCH_SIZE = 500;
+
+  private static final String CHECKPOINT_HEADER = "# VaultUnlocked economy migration checkpoint";
+  private static final String SETUP_HEADER = "# setup: ";
+  private static final String DEFAULT_WORLD = "*";
+
+  private final Economy source;
+  private final Economy target;
+  private final String pluginName;
+
+  private final List<String> worlds = new ArrayList<>(Collections.singletonList(null));
+  private int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors());
+  private int batchSize = DEFAULT_BATCH_SIZE;
+  private Path checkpoint = null;
+  private boolean verify = true;
+  private Consumer<MigrationProgress> progress = p->{};
+
+  /**
+   * Constructs a new {@code EconomyMigrator}.
+   *
+   * @param source     the economy to read from; must not be null
+   * @param target     the economy to write to; must not be null
+   * @param pluginName the plugin name passed to both providers; must not be null
+   */
+  public EconomyMigrator(@NotNull final Economy source, @NotNull final Economy target, @NotNull final String pluginName) {
+
+    this.source = source;
+    this.target = target;
+    this.pluginName = pluginName;
+  }
+
+  /**
+   * Sets the worlds whose balances are copied; a null entry stands for the default world. Defaults
+   * to the default world only, which copies only the default currency, so a source with multiple
+   * currencies must be given at least one named world.
+   *
+   * @param worlds the worlds to copy; must not be null
+   * @return this migrator
+   */
+  @NotNull
+  public EconomyMigrator worlds(@NotNull final Collection<String> worlds) {
+
+    this.worlds.clear();
+    this.worlds.addAll(worlds);
+    return this;
+  }
+
+  /**
+   * Sets the number of worker threads. Defaults to the number of available processors.
+   *
+   * @param parallelism the number of batches processed at once
+   * @return this migrator
+   */
+  @NotNull
+  public EconomyMigrator parallelism(final int parallelism) {
+
+    if(parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be positive, was " + parallelism);
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /**
+   * Sets the number of accounts per batch. Defaults to {@link #DEFAULT_BATCH_SIZE}.
+   *
+   * @param batchSize the number of accounts processed and checkpointed together
+   * @return this migrator
+   */
+  @NotNull
+  public EconomyMigrator batchSize(final int batchSize) {
+
+    if(batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be positive, was " + batchSize);
+    }
+    this.batchSize = batchSize;
+    return this;
+  }
+
+  /**
+   * Sets the checkpoint file that records migrated accounts, or null to disable checkpointing.
+   *
+   * @param checkpoint the checkpoint file, created if it does not exist
+   * @return this migrator
+   */
+  @NotNull
+  public EconomyMigrator checkpoint(@Nullable final Path checkpoint) {
+
+    this.checkpoint = checkpoint;
+    return this;
+  }
+
+  /**
+   * Sets whether the run finishes by comparing every balance of the source and the target. Enabled by default.
+   *
+   * @param verify true to verify the migration
+   * @return this migrator
+   */
+  @NotNull
+  public EconomyMigrator verify(final boolean verify) {
+
+    this.verify = verify;
+    return this;
+  }
+
+  /**
+   * Sets the listener that receives progress after every batch. It is called from worker threads.
+   *
+   * @param progress the progress listener; must not be null
+   * @return this migrator
+   */
+  @NotNull
+  public EconomyMigrator progress(@NotNull final Consumer<MigrationProgress> progress) {
+
+    this.progress = progress;
+    return this;
+  }
+
+  /**
+   * Runs the migration, blocking until it is complete.
+   *
+   * @return the report of the run
+   * @throws IOException if the checkpoint file cannot be read or written
+   * @throws IllegalStateException if the source supports multiple currencies but no named world is
+   *                               configured, or if the checkpoint was written for other worlds or currencies
+   */
+  @NotNull
+  public MigrationReport migrate() throws IOException {
+
+    if(source.hasMultiCurrencySupport() && worlds.stream().allMatch(world->world == null)) {
+      throw new IllegalStateException("The source supports multiple currencies, but only the default world is configured, "
+                                      + "which covers the default currency alone; configure the worlds to copy");
+    }
+
+    final long started = System.currentTimeMillis();
+    final List<String> currencies = currencies();
+    final String setup = setup(currencies);
+    final Set<UUID> completed = readCheckpoint(setup);
+    final Map<UUID, String> names = new HashMap<>(source.getUUIDNameMap());
+
+    final List<UUID> accounts = new ArrayList<>(names.keySet());
+    Collections.sort(accounts);
+
+    final AtomicInteger threads = new AtomicInteger();
+    final ExecutorService pool = Executors.newFixedThreadPool(parallelism, runnable->{
+      final Thread thread = new Thread(runnable, "vault-migrator-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    try(final Writer writer = openCheckpoint(setup)) {
+
+      final Map<UUID, String> failures = new ConcurrentHashMap<>();
+      final Map<UUID, Map<UUID, Set<AccountPermission>>> shared = (source.hasSharedAccountSupport() && target.hasSharedAccountSupport())?
+              discover(pool, accounts, failures) : Collections.emptyMap();
+
+      final List<UUID> regular = new ArrayList<>(accounts.size());
+      for(final UUID account : accounts) {
+        if(!shared.containsKey(account)) {
+          regular.add(account);
+        }
+      }
+
+      final List<UUID> sharedAccounts = new ArrayList<>(shared.keySet());
+      Collections.sort(sharedAccounts);
+
+      final LongAdder balances = new LongAdder();
+      final AtomicInteger migrated = new AtomicInteger();
+      final int skipped = countCompleted(regular, completed) + countCompleted(sharedAccounts, completed);
+
+      run(pool, MigrationProgress.Phase.ACCOUNTS, regular, completed, writer, failures, migrated, account->{
+
+        final String name = names.get(account);
+        if(!target.hasAccount(account) && !target.createAccount(account, (name == null)? account.toString() : name, true)) {
+          throw new IllegalStateException("Target refused to create the account");
+        }
+        balances.add(copyBalances(account, currencies));
+      });
+
+      run(pool, MigrationProgress.Phase.SHARED_ACCOUNTS, sharedAccounts, completed, writer, failures, migrated, account->{
+
+        copyShared(account, names.get(account), shared.get(account));
+        balances.add(copyBalances(account, currencies));
+      });
+
+      final List<UUID> all = new ArrayList<>(regular);
+      all.addAll(sharedAccounts);
+
+      final List<UUID> mismatches = Collections.synchronizedList(new ArrayList<>());
+      final Map<String, BigDecimal> sourceTotals = new ConcurrentHashMap<>();
+      final Map<String, BigDecimal> targetTotals = new ConcurrentHashMap<>();
+      if(verify) {
+        run(pool, MigrationProgress.Phase.VERIFICATION, all, Collections.emptySet(), null, failures, null,
+            account->verify(account, currencies, sourceTotals, targetTotals, mismatches));
+        Collections.sort(mismatches);
+      }
+
+      return new MigrationReport(all.size(), migrated.get(), skipped, balances.sum(), failures, verify, mismatches,
+                                 sourceTotals, targetTotals, System.currentTimeMillis() - started);
+    } catch(final UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private List<String> currencies() {
+
+    if(!source.hasMultiCurrencySupport()) {
+      return Collections.singletonList(source.getDefaultCurrency(pluginName));
+    }
+    return new ArrayList<>(source.currencies());
+  }
+
+  /**
+   * Rebuilds the access list of every shared account from the permissions each account holds.
+   */
+  private Map<UUID, Map<UUID, Set<AccountPermission>>> discover(final ExecutorService pool, final List<UUID> accounts,
+                                                                final Map<UUID, String> failures) {
+
+    final Map<UUID, Map<UUID, Set<AccountPermission>>> shared = new ConcurrentHashMap<>();
+    run(pool, MigrationProgress.Phase.DISCOVERY, accounts, Collections.emptySet(), null, failures, null, account->{
+
+      for(final AccountPermission permission : AccountPermission.values()) {
+        for(final UUID sharedAccount : source.accountsWithAccessTo(pluginName, account, permission)) {
+          shared.computeIfAbsent(sharedAccount, s->new ConcurrentHashMap<>())
+                  .merge(account, EnumSet.of(permission), (a, b)->{
+                    final Set<AccountPermission> merged = EnumSet.copyOf(a);
+                    merged.addAll(b);
+                    return merged;
+                  });
+        }
+      }
+    });
+    return shared;
+  }
+
+  private void copyShared(final UUID account, final String name, final Map<UUID, Set<AccountPermission>> access) {
+
+    UUID owner = null;
+    for(final Map.Entry<UUID, Set<AccountPermission>> entry : access.entrySet()) {
+      if(entry.getValue().contains(AccountPermission.OWNER)) {
+        owner = entry.getKey();
+        break;
+      }
+    }
+
+    if(owner == null) {
+      throw new IllegalStateException("Shared account has no owner in the source");
+    }
+
+    if(!target.hasAccount(account) && !target.createSharedAccount(pluginName, account, (name == null)? account.toString() : name, owner)) {
+      throw new IllegalStateException("Target refused to create the shared account");
+    }
+
+    for(final Map.Entry<UUID, Set<AccountPermission>> entry : access.entrySet()) {
+
+      final UUID member = entry.getKey();
+      if(member.equals(owner)) {
+        continue;
+      }
+
+      final Set<AccountPermission> permissions = EnumSet.copyOf(entry.getValue());
+      permissions.remove(AccountPermission.OWNER);
+
+      if(!target.isAccountMember(pluginName, account, member)) {
+        if(!target.addAccountMember(pluginName, account, member, permissions.toArray(new AccountPermission[0]))) {
+          throw new IllegalStateException("Target refused to add member " + member);
+        }
+        continue;
+      }
+
+      for(final AccountPermission permission : permissions) {
+        target.updateAccountPermission(pluginName, account, member, permission, true);
+      }
+    }
+  }
+
+  private int copyBalances(final UUID account, final List<String> currencies) {
+
+    int copied = 0;
+    for(final String world : worlds) {
+
+      if(world == null) {
+        check(target.set(pluginName, account, source.balance(pluginName, account)));
+        copied++;
+        continue;
+      }
+
+      for(final String currency : currencies) {
+        check(target.set(pluginName, account, world, currency, source.balance(pluginName, account, world, currency)));
+        copied++;
+      }
+    }
+    return copied;
+  }
+
+  private static void check(final EconomyResponse response) {
+
+    if(response.type != ResponseType.SUCCESS) {
+      throw new IllegalStateException("Target rejected balance: " + response.errorMessage);
+    }
+  }
+
+  private void verify(final UUID account, final List<String> currencies, final Map<String, BigDecimal> sourceTotals,
+                      final Map<String, BigDecimal> targetTotals, final List<UUID> mismatches) {
+
+    boolean matches = true;
+    for(final String world : worlds) {
+
+      if(world == null) {
+        matches &= compare(DEFAULT_WORLD + "/" + source.getDefaultCurrency(pluginName), source.balance(pluginName, account),
+                           target.balance(pluginName, account), sourceTotals, targetTotals);
+        continue;
+      }
+
+      for(final String currency : currencies) {
+        matches &= compare(world + "/" + currency, source.balance(pluginName, account, world, currency),
+                           target.balance(pluginName, account, world, currency), sourceTotals, targetTotals);
+      }
+    }
+
+    if(!matches) {
+      mismatches.add(account);
+    }
+  }
+
+  private static boolean compare(final String key, final BigDecimal sourceBalance, final BigDecimal targetBalance,
+                                 final Map<String, BigDecimal> sourceTotals, final Map<String, BigDecimal> targetTotals) {
+
+    sourceTotals.merge(key, sourceBalance, BigDecimal::add);
+    targetTotals.merge(key, targetBalance, BigDecimal::add);
+    return sourceBalance.compareTo(targetBalance) == 0;
+  }
+
+  /**
+   * Processes the accounts in batches on the pool and waits for all of them. A failing account is
+   * recorded and does not stop its batch; only the accounts that succeeded are checkpointed.
+   */
+  private void run(final ExecutorService pool, final MigrationProgress.Phase phase, final List<UUID> accounts,
+                   final Set<UUID> completed, final Writer writer, final Map<UUID, String> failures,
+                   final AtomicInteger migrated, final Consumer<UUID> operation) {
+
+    final long started = System.currentTimeMillis();
+    final AtomicLong done = new AtomicLong(countCompleted(accounts, completed));
+    final List<Future<?>> batches = new ArrayList<>();
+
+    List<UUID> batch = new ArrayList<>(batchSize);
+    for(final UUID account : accounts) {
+
+      if(completed.contains(account)) {
+        continue;
+      }
+
+      batch.add(account);
+      if(batch.size() == batchSize) {
+        batches.add(submit(pool, phase, batch, writer, failures, migrated, operation, done, accounts.size(), started));
+        batch = new ArrayList<>(batchSize);
+      }
+    }
+
+    if(!batch.isEmpty()) {
+      batches.add(submit(pool, phase, batch, writer, failures, migrated, operation, done, accounts.size(), started));
+    }
+
+    for(final Future<?> future : batches) {
+      try {
+        future.get();
+      } catch(final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Migration interrupted", e);
+      } catch(final ExecutionException e) {
+        if(e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException)e.getCause();
+        }
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+  }
+
+  private Future<?> submit(final ExecutorService pool, final MigrationProgress.Phase phase, final List<UUID> batch,
+                           final Writer writer, final Map<UUID, String> failures, final AtomicInteger migrated,
+                           final Consumer<UUID> operation, final AtomicLong done, final long total, final long started) {
+
+    return pool.submit(()->{
+
+      final List<UUID> succeeded = new ArrayList<>(batch.size());
+      for(final UUID account : batch) {
+        try {
+          operation.accept(account);
+          succeeded.add(account);
+        } catch(final RuntimeException e) {
+          failures.put(account, phase + ": " + e.getMessage());
+        }
+      }
+
+      if(migrated != null) {
+        migrated.addAndGet(succeeded.size());
+      }
+      if(writer != null) {
+        record(writer, succeeded);
+      }
+      progress.accept(new MigrationProgress(phase, done.addAndGet(batch.size()), total, System.currentTimeMillis() - started));
+    });
+  }
+
+  private static int countCompleted(final List<UUID> accounts, final Set<UUID> completed) {
+
+    if(completed.isEmpty()) {
+      return 0;
+    }
+
+    int count = 0;
+    for(final UUID account : accounts) {
+      if(completed.contains(account)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Describes the worlds and currencies of this run, independent of the order they were configured in.
+   */
+  private String setup(final List<String> currencies) {
+
+    final Set<String> worldNames = new TreeSet<>();
+    for(final String world : worlds) {
+      worldNames.add((world == null)? DEFAULT_WORLD : world);
+    }
+    return "worlds=" + String.join(",", worldNames) + " currencies=" + String.join(",", new TreeSet<>(currencies));
+  }
+
+  private Set<UUID> readCheckpoint(final String setup) throws IOException {
+
+    if(checkpoint == null || !Files.exists(checkpoint)) {
+      return Collections.emptySet();
+    }
+
+    final Set<UUID> completed = new HashSet<>();
+    String recorded = null;
+    try(final BufferedReader reader = Files.newBufferedReader(checkpoint, StandardCharsets.UTF_8)) {
+
+      String line;
+      while((line = reader.readLine()) != null) {
+
+        line = line.trim();
+        if(line.startsWith(SETUP_HEADER)) {
+          recorded = line.substring(SETUP_HEADER.length());
+          continue;
+        }
+        if(line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+
+        try {
+          completed.add(UUID.fromString(line));
+        } catch(final IllegalArgumentException ignore) {
+          //a line torn by an interrupted write; its account is migrated again
+        }
+      }
+    }
+
+    if((recorded == null)? !completed.isEmpty() : !setup.equals(recorded)) {
+      throw new IllegalStateException("The checkpoint " + checkpoint + " was written for "
+                                      + ((recorded == null)? "an unrecorded setup" : recorded)
+                                      + ", but this run copies " + setup + "; use a new checkpoint file");
+    }
+    return completed;
+  }
+
+  private Writer openCheckpoint(final String setup) throws IOException {
+
+    if(checkpoint == null) {
+      return null;
+    }
+
+    final boolean fresh = !Files.exists(checkpoint) || Files.size(checkpoint) == 0;
+    final BufferedWriter writer = Files.newBufferedWriter(checkpoint, StandardCharsets.UTF_8,
+                                                          StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    if(fresh) {
+      writer.write(CHECKPOINT_HEADER + ": " + source.getName() + " -> " + target.getName());
+      writer.newLine();
+      writer.write(SETUP_HEADER + setup);
+      writer.newLine();
+    } else {
+      //start on a fresh line in case the previous run was cut off mid-line
+      writer.newLine();
+    }
+    writer.flush();
+    return writer;
+  }
+
+  private static void record(final Writer writer, final List<UUID> accounts) {
+
+    if(accounts.isEmpty()) {
+      return;
+    }
+
+    final StringBuilder lines = new StringBuilder(accounts.size() * 37);
+    for(final UUID account : accounts) {
+      lines.append(account).append('\n');
+    }
+
+    synchronized(writer) {
+      try {
+        writer.write(lines.toString());
+        writer.flush();
+      } catch(final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
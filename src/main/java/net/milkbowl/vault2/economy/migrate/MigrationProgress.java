@@ -0,0 +1,119 @@
+package net.milkbowl.vault2.economy.migrate;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A progress report passed to the listener of an {@link EconomyMigrator} after every completed batch.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public final class MigrationProgress {
+
+  /**
+   * The phases of a migration, in the order they run.
+   */
+  public enum Phase {
+
+    /**
+     * Reading the shared-account access lists of the source.
+     */
+    DISCOVERY,
+
+    /**
+     * Creating regular accounts in the target and copying their balances.
+     */
+    ACCOUNTS,
+
+    /**
+     * Creating shared accounts with their owners and members and copying their balances.
+     */
+    SHARED_ACCOUNTS,
+
+    /**
+     * Comparing the balances of the source and the target.
+     */
+    VERIFICATION
+  }
+
+  private final Phase phase;
+  private final long completed;
+  private final long total;
+  private final long elapsedMillis;
+
+  public MigrationProgress(@NotNull final Phase phase, final long completed, final long total, final long elapsedMillis) {
+
+    this.phase = phase;
+    this.completed = completed;
+    this.total = total;
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  @NotNull
+  public Phase phase() {
+
+    return phase;
+  }
+
+  /**
+   * Retrieves the number of accounts processed in the current phase.
+   *
+   * @return the number of processed accounts
+   */
+  public long completed() {
+
+    return completed;
+  }
+
+  /**
+   * Retrieves the number of accounts the current phase will process.
+   *
+   * @return the number of accounts in the phase
+   */
+  public long total() {
+
+    return total;
+  }
+
+  /**
+   * Retrieves the time since the current phase started.
+   *
+   * @return the elapsed time in milliseconds
+   */
+  public long elapsedMillis() {
+
+    return elapsedMillis;
+  }
+
+  /**
+   * Retrieves the average throughput of the current phase so far.
+   *
+   * @return the number of accounts processed per second
+   */
+  public double accountsPerSecond() {
+
+    return (elapsedMillis == 0)? 0 : completed * 1000D / elapsedMillis;
+  }
+
+  @Override
+  public String toString() {
+
+    return phase + ": " + completed + "/" + total + " accounts (" + String.format("%.1f", accountsPerSecond()) + "/s)";
+  }
+}
@@ -0,0 +1,193 @@
+package net.milkbowl.vault2.economy.migrate;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * The outcome of an {@link EconomyMigrator#migrate()} run.
+ *
+ * Totals are keyed by {@code world/currency}, where the default world of the no-world overloads is
+ * written as {@code *}. They are only collected when verification is enabled.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public final class MigrationReport {
+
+  private final int accounts;
+  private final int migrated;
+  private final int skipped;
+  private final long balances;
+  private final Map<UUID, String> failures;
+  private final boolean verified;
+  private final List<UUID> mismatches;
+  private final Map<String, BigDecimal> sourceTotals;
+  private final Map<String, BigDecimal> targetTotals;
+  private final long elapsedMillis;
+
+  MigrationReport(final int accounts, final int migrated, final int skipped, final long balances,
+                  final Map<UUID, String> failures, final boolean verified, final List<UUID> mismatches,
+                  final Map<String, BigDecimal> sourceTotals, final Map<String, BigDecimal> targetTotals,
+                  final long elapsedMillis) {
+
+    this.accounts = accounts;
+    this.migrated = migrated;
+    this.skipped = skipped;
+    this.balances = balances;
+    this.failures = Collections.unmodifiableMap(failures);
+    this.verified = verified;
+    this.mismatches = Collections.unmodifiableList(mismatches);
+    this.sourceTotals = Collections.unmodifiableMap(new TreeMap<>(sourceTotals));
+    this.targetTotals = Collections.unmodifiableMap(new TreeMap<>(targetTotals));
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  /**
+   * Retrieves the number of source accounts, regular and shared, considered by the run.
+   *
+   * @return the number of accounts
+   */
+  public int accounts() {
+
+    return accounts;
+  }
+
+  /**
+   * Retrieves the number of accounts copied by this run.
+   *
+   * @return the number of migrated accounts
+   */
+  public int migrated() {
+
+    return migrated;
+  }
+
+  /**
+   * Retrieves the number of accounts skipped because the checkpoint recorded them as migrated.
+   *
+   * @return the number of skipped accounts
+   */
+  public int skipped() {
+
+    return skipped;
+  }
+
+  /**
+   * Retrieves the number of balances, one per account, world and currency, written to the target.
+   *
+   * @return the number of copied balances
+   */
+  public long balances() {
+
+    return balances;
+  }
+
+  /**
+   * Retrieves the accounts that could not be migrated, with the reason for each.
+   *
+   * @return an unmodifiable map of failed accounts
+   */
+  @NotNull
+  public Map<UUID, String> failures() {
+
+    return failures;
+  }
+
+  public boolean verified() {
+
+    return verified;
+  }
+
+  /**
+   * Retrieves the accounts whose balances differ between the source and the target after the run.
+   *
+   * @return an unmodifiable list of mismatched accounts; empty if verification was disabled
+   */
+  @NotNull
+  public List<UUID> mismatches() {
+
+    return mismatches;
+  }
+
+  @NotNull
+  public Map<String, BigDecimal> sourceTotals() {
+
+    return sourceTotals;
+  }
+
+  @NotNull
+  public Map<String, BigDecimal> targetTotals() {
+
+    return targetTotals;
+  }
+
+  public long elapsedMillis() {
+
+    return elapsedMillis;
+  }
+
+  /**
+   * Retrieves the average number of accounts migrated per second over the whole run.
+   *
+   * @return the migration throughput
+   */
+  public double accountsPerSecond() {
+
+    return (elapsedMillis == 0)? 0 : migrated * 1000D / elapsedMillis;
+  }
+
+  /**
+   * Determines whether the run migrated every account and, if verified, left matching balances and totals.
+   *
+   * @return true if the migration is complete and consistent; false otherwise
+   */
+  public boolean isSuccessful() {
+
+    return failures.isEmpty() && (!verified || (mismatches.isEmpty() && totalsMatch()));
+  }
+
+  private boolean totalsMatch() {
+
+    if(!sourceTotals.keySet().equals(targetTotals.keySet())) {
+      return false;
+    }
+
+    for(final Map.Entry<String, BigDecimal> entry : sourceTotals.entrySet()) {
+      if(entry.getValue().compareTo(targetTotals.get(entry.getKey())) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+
+    return "Migrated " + migrated + "/" + accounts + " accounts (" + skipped + " skipped, " + failures.size()
+           + " failed, " + balances + " balances) in " + elapsedMillis + "ms at "
+           + String.format("%.1f", accountsPerSecond()) + " accounts/s"
+           + ((verified)? "; " + mismatches.size() + " mismatched, totals " + ((totalsMatch())? "match" : "differ") : "");
+  }
+}
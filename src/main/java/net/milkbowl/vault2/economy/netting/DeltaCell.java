@@ -0,0 +1,269 @@
+package net.milkbowl.vault2.economy.netting;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.BalanceKey;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * The pending, not yet settled change of one balance, striped across cells so that threads
+ * accumulating into the same hot balance rarely contend on one compare-and-set.
+ *
+ * A cell is retired once a settlement finds it idle: every stripe is swapped for a sentinel, after
+ * which no accumulation can land and accumulators move on to a fresh cell. Settlement, retirement
+ * and checked withdrawals hold the cell's monitor; accumulation does not, so an accumulator that
+ * finds a sentinel takes the monitor to learn whether the retirement completed or was rolled back.
+ *
+ * The known balance and the in-flight delta only change under the monitor, inside a window marked
+ * by an odd {@code version}. Readers retry until they see the same even version before and after
+ * reading both, so a read never counts a settled delta twice or misses one being drained, and never
+ * waits on a settlement's provider call.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+final class DeltaCell {
+
+  private static final BigDecimal RETIRED = new BigDecimal(0);
+
+  private final BalanceKey key;
+  private final AtomicReferenceArray<BigDecimal> stripes;
+  private final int mask;
+
+  /**
+   * The delegate's balance as of the last settlement or load, or null until first needed.
+   */
+  private volatile BigDecimal base;
+
+  /**
+   * The delta drained from the stripes and being written to the delegate. It stays in flight under
+   * the same transaction id until the delegate settles or refuses it.
+   */
+  private volatile BigDecimal inFlight = BigDecimal.ZERO;
+  private volatile UUID transaction = null;
+
+  //odd while base or inFlight is being changed; only written under the monitor.
+  private volatile int version = 0;
+
+  private volatile boolean dead = false;
+
+  DeltaCell(final BalanceKey key, final int stripes) {
+
+    this.key = key;
+    this.stripes = new AtomicReferenceArray<>(stripes);
+    this.mask = stripes - 1;
+    for(int i = 0; i < stripes; i++) {
+      this.stripes.set(i, BigDecimal.ZERO);
+    }
+  }
+
+  /**
+   * The exact balance this cell nets; other overloads of the same account and currency bypass it.
+   */
+  BalanceKey key() {
+
+    return key;
+  }
+
+  /**
+   * Accumulates a signed delta.
+   *
+   * @return false if the cell is being or has been retired and the delta did not land
+   */
+  boolean add(final BigDecimal delta) {
+
+    final int index = (int)Thread.currentThread().getId() & mask;
+    while(true) {
+
+      final BigDecimal current = stripes.get(index);
+      if(current == RETIRED) {
+        return false;
+      }
+      if(stripes.compareAndSet(index, current, current.add(delta))) {
+        return true;
+      }
+    }
+  }
+
+  BigDecimal pending() {
+
+    while(true) {
+
+      final int before = version;
+      if((before & 1) == 0) {
+        final BigDecimal pending = sum(inFlight);
+        if(version == before) {
+          return pending;
+        }
+      }
+      Thread.yield();
+    }
+  }
+
+  BigDecimal balance(final Supplier<BigDecimal> loader) {
+
+    while(true) {
+
+      final int before = version;
+      if((before & 1) == 0) {
+        final BigDecimal known = base;
+        final BigDecimal pending = sum(inFlight);
+        if(version == before) {
+          return (known == null)? load(loader).add(pending()) : known.add(pending);
+        }
+      }
+      Thread.yield();
+    }
+  }
+
+  private BigDecimal load(final Supplier<BigDecimal> loader) {
+
+    synchronized(this) {
+      BigDecimal known = base;
+      if(known == null) {
+        known = loader.get();
+        base = known;
+      }
+      return known;
+    }
+  }
+
+  private BigDecimal sum(final BigDecimal inFlight) {
+
+    BigDecimal sum = inFlight;
+    for(int i = 0; i < stripes.length(); i++) {
+
+      final BigDecimal stripe = stripes.get(i);
+      if(stripe != RETIRED) {
+        sum = sum.add(stripe);
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * The delta being written to the delegate, nonzero only while a settlement is running or its
+   * outcome is unknown.
+   */
+  BigDecimal inFlight() {
+
+    return inFlight;
+  }
+
+  /**
+   * The transaction id the in-flight delta is written under, or null if nothing is in flight.
+   */
+  UUID transaction() {
+
+    return transaction;
+  }
+
+  /**
+   * Moves every stripe into a new in-flight delta with a fresh transaction id; called under the
+   * monitor, and only when nothing is in flight.
+   */
+  BigDecimal drain() {
+
+    version++;
+    try {
+      BigDecimal drained = BigDecimal.ZERO;
+      for(int i = 0; i < stripes.length(); i++) {
+
+        final BigDecimal stripe = stripes.getAndSet(i, BigDecimal.ZERO);
+        if(stripe.signum() != 0) {
+          drained = drained.add(stripe);
+          inFlight = inFlight.add(stripe);
+        }
+      }
+
+      if(drained.signum() != 0) {
+        transaction = UUID.randomUUID();
+      }
+      return drained;
+    } finally {
+      version++;
+    }
+  }
+
+  /**
+   * Completes a settlement the delegate applied; called under the monitor.
+   *
+   * @param balance the delegate's balance after the settlement
+   */
+  void settled(final BigDecimal balance) {
+
+    version++;
+    base = balance;
+    inFlight = BigDecimal.ZERO;
+    transaction = null;
+    version++;
+  }
+
+  /**
+   * Drops the in-flight delta, which the delegate refused or which cannot be retried safely, and
+   * reloads the balance before it is next read; called under the monitor.
+   */
+  void discard() {
+
+    version++;
+    inFlight = BigDecimal.ZERO;
+    transaction = null;
+    base = null;
+    version++;
+  }
+
+  /**
+   * Replaces the known balance, or forgets it so the next read reloads it.
+   */
+  void rebase(final BigDecimal balance) {
+
+    version++;
+    base = balance;
+    version++;
+  }
+
+  /**
+   * Retires the cell if no delta has accumulated; called under the monitor.
+   *
+   * @return true if the cell was retired
+   */
+  boolean retire() {
+
+    for(int i = 0; i < stripes.length(); i++) {
+
+      final BigDecimal stripe = stripes.get(i);
+      if(stripe.signum() != 0 || !stripes.compareAndSet(i, stripe, RETIRED)) {
+        for(int j = 0; j < i; j++) {
+          stripes.set(j, BigDecimal.ZERO);
+        }
+        return false;
+      }
+    }
+
+    dead = true;
+    return true;
+  }
+
+  boolean dead() {
+
+    return dead;
+  }
+}
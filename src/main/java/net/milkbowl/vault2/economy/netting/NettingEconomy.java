@@ -0,0 +1,818 @@
+package net.milkbowl.vault2.economy.netting;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.AsyncEconomy;
+import net.milkbowl.vault2.economy.BalanceKey;
+import net.milkbowl.vault2.economy.Economy;
+import net.milkbowl.vault2.economy.EconomyResponse;
+import net.milkbowl.vault2.economy.EconomyResponse.ResponseType;
+import net.milkbowl.vault2.economy.ForwardingEconomy;
+import net.milkbowl.vault2.economy.MultiEconomyResponse;
+import net.milkbowl.vault2.economy.idempotency.IdempotencyStore;
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Nets high-frequency deposits and withdrawals, such as per-kill payouts or per-second AFK pay,
+ * into one signed delta per balance and writes only the net amount to the delegate when
+ * {@link #settle()} runs, typically once per tick or interval.
+ *
+ * Deposits are accumulated without any provider call once a balance has pending activity.
+ * Withdrawals are checked against the delegate's last known balance plus the pending delta and then
+ * accumulated as well. Transfers are a netted withdrawal and deposit, and the transaction-id
+ * overloads are netted too, with their ids remembered in an {@link IdempotencyStore} because the
+ * delegate never sees them. Balance reads and {@code has} checks include pending deltas.
+ *
+ * Each account and currency has at most one netted balance, with overloads that omit the currency
+ * using the provider's default currency. The balance is netted for the overload shape that first
+ * touched it; since the Economy API cannot tell whether worlds share a balance, calls of another
+ * shape, as well as sets and compare-and-sets, settle the pending delta and go straight to the
+ * delegate while holding off netted withdrawals, so no pair of overloads can overdraw together.
+ *
+ * Balances idle for a full settlement are dropped from the layer, so it holds state only for
+ * accounts with recent activity. Changes made directly on the delegate become visible at the next
+ * settlement of the balance, and a netted withdrawal checked before then may be refused when it
+ * settles; a refused delta is dropped and reported to the {@link #unsettled(BiConsumer)} listener.
+ * This layer offers no {@link #async()} view, since asynchronous calls would bypass the pending
+ * deltas. Call {@link #settle()} once more on shutdown; unsettled deltas are lost with the process.
+ *
+ * Each settlement is written under a fresh transaction id through the delegate's idempotent
+ * overloads. A settlement that throws has an unknown outcome and is retried under the same id and
+ * amount before anything newer is drained, so a delegate that honours transaction ids applies it at
+ * most once. A delegate that does not implement them is written through the plain overloads, and a
+ * settlement to it that throws is dropped and reported instead of retried, since a retry could apply
+ * it twice.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class NettingEconomy extends ForwardingEconomy {
+
+  public static final int DEFAULT_STRIPES = Math.min(8, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+  private static final String CONFLICT = "Transaction id was already used for a different operation.";
+
+  //keyed by account and currency, without a world; each cell records the exact balance it nets.
+  private final Map<BalanceKey, DeltaCell> cells = new ConcurrentHashMap<>();
+  private final String pluginName;
+  private final int stripes;
+  private final IdempotencyStore store;
+
+  private volatile BiConsumer<BalanceKey, BigDecimal> unsettled = (key, delta)->{};
+
+  private final LongAdder absorbed = new LongAdder();
+  private final LongAdder settlements = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+
+  public NettingEconomy(@NotNull final Economy economy, @NotNull final String pluginName) {
+
+    this(economy, pluginName, DEFAULT_STRIPES);
+  }
+
+  public NettingEconomy(@NotNull final Economy economy, @NotNull final String pluginName, final int stripes) {
+
+    this(economy, pluginName, stripes, new IdempotencyStore());
+  }
+
+  /**
+   * Constructs a new {@code NettingEconomy}.
+   *
+   * @param economy    the provider to delegate to; must not be null
+   * @param pluginName the plugin name reported to the delegate for settlements; must not be null
+   * @param stripes    the number of accumulator stripes per balance, rounded up to a power of two
+   * @param store      the store that remembers netted operations by transaction id; must not be null
+   */
+  public NettingEconomy(@NotNull final Economy economy, @NotNull final String pluginName, final int stripes,
+                        @NotNull final IdempotencyStore store) {
+
+    super(economy);
+
+    if(stripes < 1) {
+      throw new IllegalArgumentException("Stripe count must be positive, was " + stripes);
+    }
+
+    this.pluginName = pluginName;
+    this.stripes = (Integer.bitCount(stripes) == 1)? stripes : Integer.highestOneBit(stripes - 1) << 1;
+    this.store = store;
+  }
+
+  /**
+   * Sets the listener told about each delta the delegate refused to settle, such as a netted
+   * withdrawal that changes made around this layer left uncovered. The listener receives the
+   * balance and the dropped signed delta, and runs on the settling thread.
+   *
+   * @param listener the listener; must not be null
+   * @return this layer
+   */
+  @NotNull
+  public NettingEconomy unsettled(@NotNull final BiConsumer<BalanceKey, BigDecimal> listener) {
+
+    this.unsettled = listener;
+    return this;
+  }
+
+  /**
+   * Writes the net pending delta of every balance to the delegate, one deposit or withdrawal per
+   * balance that changed. A settlement that throws stays pending under its transaction id for the
+   * next call; one the delegate refuses is dropped and reported.
+   *
+   * @return the number of balances written
+   */
+  public int settle() {
+
+    int written = 0;
+    for(final Map.Entry<BalanceKey, DeltaCell> entry : cells.entrySet()) {
+
+      final DeltaCell cell = entry.getValue();
+      synchronized(cell) {
+        if(settle(entry.getKey(), cell)) {
+          written++;
+        }
+      }
+    }
+    return written;
+  }
+
+  /**
+   * Settles every balance at a fixed rate on the specified scheduler.
+   *
+   * @param scheduler the scheduler to run settlements on; must not be null
+   * @param interval  the time between settlements
+   * @param unit      the unit of the interval; must not be null
+   * @return the scheduled settlement, which can be cancelled to stop it
+   */
+  @NotNull
+  public ScheduledFuture<?> settleEvery(@NotNull final ScheduledExecutorService scheduler, final long interval,
+                                        @NotNull final TimeUnit unit) {
+
+    return scheduler.scheduleAtFixedRate(this::settle, interval, interval, unit);
+  }
+
+  /**
+   * Retrieves the unsettled delta of the default currency of an account.
+   *
+   * @param accountID the account to check; must not be null
+   * @return the pending delta, positive for a net deposit
+   */
+  @NotNull
+  public BigDecimal pending(@NotNull final UUID accountID) {
+
+    return pending(new BalanceKey(accountID, null, null));
+  }
+
+  /**
+   * Retrieves the unsettled delta of a currency for an account.
+   *
+   * @param accountID the account to check; must not be null
+   * @param currency  the currency of the balance; must not be null
+   * @return the pending delta, positive for a net deposit
+   */
+  @NotNull
+  public BigDecimal pending(@NotNull final UUID accountID, @NotNull final String currency) {
+
+    return pending(new BalanceKey(accountID, null, currency));
+  }
+
+  /**
+   * Retrieves the number of balances with recent activity held by this layer.
+   *
+   * @return the number of tracked balances
+   */
+  public int tracked() {
+
+    return cells.size();
+  }
+
+  /**
+   * Retrieves the number of deposits and withdrawals absorbed without a provider write.
+   *
+   * @return the number of absorbed operations
+   */
+  public long absorbed() {
+
+    return absorbed.sum();
+  }
+
+  /**
+   * Retrieves the number of net deposits and withdrawals written to the delegate.
+   *
+   * @return the number of settlements
+   */
+  public long settlements() {
+
+    return settlements.sum();
+  }
+
+  /**
+   * Retrieves the number of settlements that threw. Those written with a transaction id were kept
+   * pending for a retry; the others were dropped and reported.
+   *
+   * @return the number of failed settlements
+   */
+  public long failures() {
+
+    return failures.sum();
+  }
+
+  /**
+   * Retrieves the number of settlements the delegate refused, which were dropped and reported.
+   *
+   * @return the number of dropped settlements
+   */
+  public long dropped() {
+
+    return dropped.sum();
+  }
+
+  @Override
+  public boolean supportsAsync() {
+
+    return false;
+  }
+
+  @Override
+  public Optional<AsyncEconomy> async() {
+
+    return Optional.empty();
+  }
+
+  @Override
+  public BigDecimal balance(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return balance(new BalanceKey(accountID, null, null), ()->economy.balance(pluginName, accountID));
+  }
+
+  @Override
+  public BigDecimal balance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world) {
+
+    return balance(new BalanceKey(accountID, world, null), ()->economy.balance(pluginName, accountID, world));
+  }
+
+  @Override
+  public BigDecimal balance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency) {
+
+    return balance(new BalanceKey(accountID, world, currency), ()->economy.balance(pluginName, accountID, world, currency));
+  }
+
+  @Override
+  public boolean has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return has(new BalanceKey(accountID, null, null), amount, ()->economy.has(pluginName, accountID, amount));
+  }
+
+  @Override
+  public boolean has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return has(new BalanceKey(accountID, worldName, null), amount, ()->economy.has(pluginName, accountID, worldName, amount));
+  }
+
+  @Override
+  public boolean has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return has(new BalanceKey(accountID, worldName, currency), amount, ()->economy.has(pluginName, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return deposit(new BalanceKey(accountID, null, null), amount, ()->economy.deposit(pluginName, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return deposit(new BalanceKey(accountID, worldName, null), amount, ()->economy.deposit(pluginName, accountID, worldName, amount));
+  }
+
+  @Override
+  public EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return deposit(new BalanceKey(accountID, worldName, currency), amount, ()->economy.deposit(pluginName, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return once(transactionID, fingerprint("deposit", accountID, null, null, null, amount), amount,
+                ()->deposit(pluginName, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return once(transactionID, fingerprint("deposit", accountID, null, worldName, currency, amount), amount,
+                ()->deposit(pluginName, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return withdraw(new BalanceKey(accountID, null, null), amount, ()->economy.withdraw(pluginName, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return withdraw(new BalanceKey(accountID, worldName, null), amount, ()->economy.withdraw(pluginName, accountID, worldName, amount));
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return withdraw(new BalanceKey(accountID, worldName, currency), amount, ()->economy.withdraw(pluginName, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return once(transactionID, fingerprint("withdraw", accountID, null, null, null, amount), amount,
+                ()->withdraw(pluginName, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return once(transactionID, fingerprint("withdraw", accountID, null, worldName, currency, amount), amount,
+                ()->withdraw(pluginName, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final BigDecimal amount) {
+
+    return transfer(new BalanceKey(from, null, null), new BalanceKey(to, null, null), amount,
+                    ()->economy.transfer(pluginName, from, to, amount));
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return transfer(new BalanceKey(from, worldName, null), new BalanceKey(to, worldName, null), amount,
+                    ()->economy.transfer(pluginName, from, to, worldName, amount));
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return transfer(new BalanceKey(from, worldName, currency), new BalanceKey(to, worldName, currency), amount,
+                    ()->economy.transfer(pluginName, from, to, worldName, currency, amount));
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final BigDecimal amount) {
+
+    return store.execute(transactionID, fingerprint("transfer", from, to, null, null, amount),
+                         ()->CompletableFuture.completedFuture(transfer(pluginName, from, to, amount)),
+                         ()->new MultiEconomyResponse(amount, ResponseType.FAILURE, CONFLICT)).join();
+  }
+
+  @Override
+  public MultiEconomyResponse transfer(@NotNull final String pluginName, @NotNull final UUID transactionID, @NotNull final UUID from, @NotNull final UUID to, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return store.execute(transactionID, fingerprint("transfer", from, to, worldName, currency, amount),
+                         ()->CompletableFuture.completedFuture(transfer(pluginName, from, to, worldName, currency, amount)),
+                         ()->new MultiEconomyResponse(amount, ResponseType.FAILURE, CONFLICT)).join();
+  }
+
+  @Override
+  public EconomyResponse set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return bypass(new BalanceKey(accountID, null, null), ()->economy.set(pluginName, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return bypass(new BalanceKey(accountID, worldName, null), ()->economy.set(pluginName, accountID, worldName, amount));
+  }
+
+  @Override
+  public EconomyResponse set(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return bypass(new BalanceKey(accountID, worldName, currency), ()->economy.set(pluginName, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return bypass(new BalanceKey(accountID, null, null), ()->economy.setBalance(pluginName, accountID, amount));
+  }
+
+  @Override
+  public EconomyResponse setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return bypass(new BalanceKey(accountID, worldName, currency), ()->economy.setBalance(pluginName, accountID, worldName, currency, amount));
+  }
+
+  @Override
+  public EconomyResponse compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+    return bypass(new BalanceKey(accountID, null, null), ()->economy.compareAndSetBalance(pluginName, accountID, expected, newValue));
+  }
+
+  @Override
+  public EconomyResponse compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+    return bypass(new BalanceKey(accountID, worldName, currency), ()->economy.compareAndSetBalance(pluginName, accountID, worldName, currency, expected, newValue));
+  }
+
+  private BigDecimal balance(final BalanceKey key, final Supplier<BigDecimal> delegate) {
+
+    final DeltaCell cell = cells.get(pool(key));
+    return (cell == null || !cell.key().equals(key))? delegate.get() : cell.balance(()->load(key));
+  }
+
+  private boolean has(final BalanceKey key, final BigDecimal amount, final Supplier<Boolean> delegate) {
+
+    final DeltaCell cell = cells.get(pool(key));
+    return (cell == null || !cell.key().equals(key))? delegate.get() : cell.balance(()->load(key)).compareTo(amount) >= 0;
+  }
+
+  private BigDecimal pending(final BalanceKey key) {
+
+    final DeltaCell cell = cells.get(pool(key));
+    return (cell == null)? BigDecimal.ZERO : cell.pending();
+  }
+
+  private EconomyResponse deposit(final BalanceKey key, final BigDecimal amount, final Supplier<EconomyResponse> direct) {
+
+    final BalanceKey pool = pool(key);
+    if(amount.signum() <= 0 || (!cells.containsKey(pool) && !exists(key))) {
+      return direct.get();
+    }
+
+    final DeltaCell cell = accumulate(pool, key, amount);
+    if(cell == null) {
+      return bypass(key, direct);
+    }
+    return new EconomyResponse(amount, cell.balance(()->load(key)), ResponseType.SUCCESS, "");
+  }
+
+  private EconomyResponse withdraw(final BalanceKey key, final BigDecimal amount, final Supplier<EconomyResponse> direct) {
+
+    if(amount.signum() <= 0) {
+      return direct.get();
+    }
+
+    final BalanceKey pool = pool(key);
+    while(true) {
+
+      final DeltaCell cell = cells.computeIfAbsent(pool, k->new DeltaCell(key, stripes));
+      synchronized(cell) {
+
+        if(cell.dead()) {
+          continue;
+        }
+
+        if(!cell.key().equals(key)) {
+          return bypass(pool, cell, direct);
+        }
+        return withdraw(cell, key, amount);
+      }
+    }
+  }
+
+  /**
+   * Checks and accumulates a netted withdrawal; called under the monitor of a cell netting the key.
+   */
+  private EconomyResponse withdraw(final DeltaCell cell, final BalanceKey key, final BigDecimal amount) {
+
+    final BigDecimal balance = cell.balance(()->load(key));
+    if(balance.compareTo(amount) < 0) {
+      return new EconomyResponse(amount, balance, ResponseType.FAILURE, "Insufficient funds.");
+    }
+
+    cell.add(amount.negate());
+    absorbed.increment();
+    return new EconomyResponse(amount, balance.subtract(amount), ResponseType.SUCCESS, "");
+  }
+
+  private MultiEconomyResponse transfer(final BalanceKey from, final BalanceKey to, final BigDecimal amount,
+                                        final Supplier<MultiEconomyResponse> direct) {
+
+    final BalanceKey toPool = pool(to);
+    final DeltaCell target = cells.get(toPool);
+    if(amount.signum() <= 0) {
+      return direct.get();
+    }
+
+    if((target == null && !exists(to)) || (target != null && !target.key().equals(to))) {
+      return bypassTransfer(from, to, direct);
+    }
+
+    final BalanceKey fromPool = pool(from);
+    final EconomyResponse withdrawn;
+    while(true) {
+
+      final DeltaCell cell = cells.computeIfAbsent(fromPool, k->new DeltaCell(from, stripes));
+      synchronized(cell) {
+
+        if(cell.dead()) {
+          continue;
+        }
+
+        if(!cell.key().equals(from)) {
+          final MultiEconomyResponse response = bypass(fromPool, cell, direct);
+          forget(to);
+          return response;
+        }
+        withdrawn = withdraw(cell, from, amount);
+      }
+      break;
+    }
+
+    if(withdrawn.type != ResponseType.SUCCESS) {
+      final MultiEconomyResponse response = new MultiEconomyResponse(amount, ResponseType.FAILURE, withdrawn.errorMessage);
+      response.addBalance(from.account(), withdrawn.balance);
+      return response;
+    }
+
+    final MultiEconomyResponse response = new MultiEconomyResponse(amount, ResponseType.SUCCESS, "");
+    response.addBalance(from.account(), withdrawn.balance);
+
+    final DeltaCell cell = accumulate(toPool, to, amount);
+    if(cell != null) {
+      response.addBalance(to.account(), cell.balance(()->load(to)));
+      return response;
+    }
+
+    //the receiving balance started being netted for another shape since the check above
+    final EconomyResponse deposited = bypass(to, ()->write(to, amount));
+    if(deposited.type != ResponseType.SUCCESS) {
+      accumulate(fromPool, from, amount);
+      final MultiEconomyResponse failed = new MultiEconomyResponse(amount, ResponseType.FAILURE, deposited.errorMessage);
+      failed.addBalance(from.account(), balance(from, ()->load(from)));
+      return failed;
+    }
+    response.addBalance(to.account(), deposited.balance);
+    return response;
+  }
+
+  private MultiEconomyResponse bypassTransfer(final BalanceKey from, final BalanceKey to, final Supplier<MultiEconomyResponse> direct) {
+
+    final MultiEconomyResponse response = bypass(from, direct);
+    forget(to);
+    return response;
+  }
+
+  /**
+   * Runs an operation on the delegate with the balance's pending delta settled first and netted
+   * withdrawals held off until it completes, then reloads the balance.
+   */
+  private <T> T bypass(final BalanceKey key, final Supplier<T> operation) {
+
+    final BalanceKey pool = pool(key);
+    while(true) {
+
+      final DeltaCell cell = cells.computeIfAbsent(pool, k->new DeltaCell(key, stripes));
+      synchronized(cell) {
+
+        if(!cell.dead()) {
+          return bypass(pool, cell, operation);
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs an operation on the delegate; called under the monitor of the balance's live cell.
+   */
+  private <T> T bypass(final BalanceKey pool, final DeltaCell cell, final Supplier<T> operation) {
+
+    flush(cell);
+    try {
+      return operation.get();
+    } finally {
+      cell.rebase(null);
+    }
+  }
+
+  /**
+   * Forgets the known balance of a key changed on the delegate, so its next read reloads it.
+   */
+  private void forget(final BalanceKey key) {
+
+    final DeltaCell cell = cells.get(pool(key));
+    if(cell != null) {
+      synchronized(cell) {
+        cell.rebase(null);
+      }
+    }
+  }
+
+  /**
+   * Accumulates a delta into the cell netting the key.
+   *
+   * @return the cell, or null if the balance is being netted for another shape of key
+   */
+  private DeltaCell accumulate(final BalanceKey pool, final BalanceKey key, final BigDecimal delta) {
+
+    while(true) {
+
+      final DeltaCell cell = cells.computeIfAbsent(pool, k->new DeltaCell(key, stripes));
+      if(!cell.key().equals(key)) {
+        return null;
+      }
+
+      if(cell.add(delta)) {
+        absorbed.increment();
+        return cell;
+      }
+
+      //a sentinel is only final once the retirement holding the monitor completes
+      synchronized(cell) {
+        if(cell.dead()) {
+          cells.remove(pool, cell);
+        }
+      }
+    }
+  }
+
+  private boolean settle(final BalanceKey pool, final DeltaCell cell) {
+
+    if(cell.dead()) {
+      return false;
+    }
+
+    if(cell.inFlight().signum() == 0 && cell.retire()) {
+      cells.remove(pool, cell);
+      return false;
+    }
+    return flush(cell);
+  }
+
+  /**
+   * Retries a settlement with an unknown outcome, then writes the pending delta unless that retry
+   * is still unresolved; called under the monitor.
+   *
+   * @return true if anything was written to the delegate
+   */
+  private boolean flush(final DeltaCell cell) {
+
+    boolean written = false;
+    if(cell.inFlight().signum() != 0) {
+      written = commit(cell);
+      if(cell.inFlight().signum() != 0) {
+        return written;
+      }
+    }
+
+    if(cell.drain().signum() != 0) {
+      written = commit(cell) || written;
+    }
+    return written;
+  }
+
+  /**
+   * Writes the in-flight delta to the delegate under its transaction id; called under the monitor.
+   */
+  private boolean commit(final DeltaCell cell) {
+
+    final BalanceKey key = cell.key();
+    final BigDecimal delta = cell.inFlight();
+
+    EconomyResponse response;
+    try {
+      response = (delta.signum() > 0)? write(key, cell.transaction(), delta) : withdrawKey(key, cell.transaction(), delta.negate());
+    } catch(final RuntimeException e) {
+      //the outcome is unknown; the delta stays in flight and is retried under the same id
+      failures.increment();
+      return false;
+    }
+
+    if(response.type == ResponseType.NOT_IMPLEMENTED) {
+      try {
+        response = (delta.signum() > 0)? write(key, delta) : withdrawKey(key, delta.negate());
+      } catch(final RuntimeException e) {
+        failures.increment();
+        drop(cell, delta);
+        return false;
+      }
+    }
+
+    if(response.type != ResponseType.SUCCESS) {
+      drop(cell, delta);
+      return false;
+    }
+
+    cell.settled(response.balance);
+    settlements.increment();
+    return true;
+  }
+
+  private void drop(final DeltaCell cell, final BigDecimal delta) {
+
+    cell.discard();
+    dropped.increment();
+    unsettled.accept(cell.key(), delta);
+  }
+
+  /**
+   * Maps a balance to the key its cell is tracked under: the account and the currency, with the
+   * provider's default currency standing in for an omitted one, and without a world.
+   */
+  private BalanceKey pool(final BalanceKey key) {
+
+    return new BalanceKey(key.account(), null, currency(key));
+  }
+
+  private EconomyResponse write(final BalanceKey key, final BigDecimal amount) {
+
+    if(key.world() == null) {
+      return economy.deposit(pluginName, key.account(), amount);
+    }
+    if(key.currency() == null) {
+      return economy.deposit(pluginName, key.account(), key.world(), amount);
+    }
+    return economy.deposit(pluginName, key.account(), key.world(), key.currency(), amount);
+  }
+
+  private EconomyResponse withdrawKey(final BalanceKey key, final BigDecimal amount) {
+
+    if(key.world() == null) {
+      return economy.withdraw(pluginName, key.account(), amount);
+    }
+    if(key.currency() == null) {
+      return economy.withdraw(pluginName, key.account(), key.world(), amount);
+    }
+    return economy.withdraw(pluginName, key.account(), key.world(), key.currency(), amount);
+  }
+
+  private EconomyResponse write(final BalanceKey key, final UUID transactionID, final BigDecimal amount) {
+
+    if(key.world() == null) {
+      return economy.deposit(pluginName, transactionID, key.account(), amount);
+    }
+    return economy.deposit(pluginName, transactionID, key.account(), key.world(), currency(key), amount);
+  }
+
+  private EconomyResponse withdrawKey(final BalanceKey key, final UUID transactionID, final BigDecimal amount) {
+
+    if(key.world() == null) {
+      return economy.withdraw(pluginName, transactionID, key.account(), amount);
+    }
+    return economy.withdraw(pluginName, transactionID, key.account(), key.world(), currency(key), amount);
+  }
+
+  private String currency(final BalanceKey key) {
+
+    return (key.currency() == null)? economy.getDefaultCurrency(pluginName) : key.currency();
+  }
+
+  private BigDecimal load(final BalanceKey key) {
+
+    if(key.world() == null) {
+      return economy.balance(pluginName, key.account());
+    }
+    if(key.currency() == null) {
+      return economy.balance(pluginName, key.account(), key.world());
+    }
+    return economy.balance(pluginName, key.account(), key.world(), key.currency());
+  }
+
+  private boolean exists(final BalanceKey key) {
+
+    return (key.world() == null)? economy.hasAccount(key.account()) : economy.hasAccount(key.account(), key.world());
+  }
+
+  private EconomyResponse once(final UUID transactionID, final Object fingerprint, final BigDecimal amount,
+                               final Supplier<EconomyResponse> operation) {
+
+    return store.execute(transactionID, fingerprint, ()->CompletableFuture.completedFuture(operation.get()),
+                         ()->new EconomyResponse(amount, BigDecimal.ZERO, ResponseType.FAILURE, CONFLICT)).join();
+  }
+
+  private static Object fingerprint(final String operation, final UUID from, final UUID to, final String world,
+                                    final String currency, final BigDecimal amount) {
+
+    return Arrays.asList(operation, from, to, world, currency, amount.stripTrailingZeros());
+  }
+}
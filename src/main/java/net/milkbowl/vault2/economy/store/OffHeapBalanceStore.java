@@ -0,0 +1,556 @@
+package net.milkbowl.vault2.economy.store;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.helper.collections.UUIDHash;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Stores account balances outside the Java heap, for providers with millions of accounts where
+ * {@code UUID} keys, map nodes and {@code BigDecimal} values would cost gigabytes of heap and long
+ * collection pauses.
+ *
+ * Each account is one fixed-size record in an open-addressing table held in direct memory: the two
+ * longs of its UUID, followed by one fixed-point long per currency slot with a fixed number of
+ * fractional digits. A provider maps its currencies onto slots and implements {@link
+ * net.milkbowl.vault2.economy.Economy} over the store, converting at the boundary.
+ *
+ * The table is split into segments, each with its own buffer and {@link StampedLock}. Reads are
+ * optimistic and take no lock unless they race a write; writes lock one segment. A segment grows
+ * independently by rehashing into a buffer twice its size, so a resize blocks only the writers of
+ * that segment rather than the whole store. Removal shifts later records back instead of leaving
+ * tombstones, so probe lengths do not degrade over time.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class OffHeapBalanceStore {
+
+  public static final int DEFAULT_SEGMENTS = 64;
+
+  private static final int HEADER = 24;
+  private static final long USED = 1L;
+  private static final float LOAD_FACTOR = 0.7f;
+
+  private final Segment[] segments;
+  private final int segmentMask;
+  private final int slots;
+  private final int scale;
+  private final int recordSize;
+
+  /**
+   * Constructs a new {@code OffHeapBalanceStore}.
+   *
+   * @param slots            the number of currency slots per account
+   * @param fractionalDigits the number of fractional digits every balance is stored with
+   */
+  public OffHeapBalanceStore(final int slots, final int fractionalDigits) {
+
+    this(slots, fractionalDigits, 1024, DEFAULT_SEGMENTS);
+  }
+
+  /**
+   * Constructs a new {@code OffHeapBalanceStore}.
+   *
+   * @param slots            the number of currency slots per account
+   * @param fractionalDigits the number of fractional digits every balance is stored with
+   * @param expectedAccounts the number of accounts to size the table for initially
+   * @param segments         the number of independently locked segments, rounded up to a power of two
+   */
+  public OffHeapBalanceStore(final int slots, final int fractionalDigits, final int expectedAccounts, final int segments) {
+
+    if(slots < 1 || fractionalDigits < 0 || expectedAccounts < 0 || segments < 1) {
+      throw new IllegalArgumentException("Slots and segments must be positive and digits and expected accounts non-negative");
+    }
+
+    final int count = (Integer.bitCount(segments) == 1)? segments : Integer.highestOneBit(segments - 1) << 1;
+    this.slots = slots;
+    this.scale = fractionalDigits;
+    this.recordSize = HEADER + 8 * slots;
+    this.segments = new Segment[count];
+    this.segmentMask = count - 1;
+
+    final int perSegment = (int)Math.ceil(expectedAccounts / (double)count / LOAD_FACTOR);
+    final int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, perSegment) - 1) << 1);
+    for(int i = 0; i < count; i++) {
+      this.segments[i] = new Segment(ByteBuffer.allocateDirect(capacity * recordSize));
+    }
+  }
+
+  /**
+   * Determines whether the store holds a record for the specified account.
+   *
+   * @param account the account to check; must not be null
+   * @return true if the account exists; false otherwise
+   */
+  public boolean contains(@NotNull final UUID account) {
+
+    final long msb = account.getMostSignificantBits();
+    final long lsb = account.getLeastSignificantBits();
+    final long hash = UUIDHash.hash(msb, lsb);
+    final Segment segment = segment(hash);
+
+    final long stamp = segment.tryOptimisticRead();
+    final boolean found = find(segment.table, msb, lsb, hash) >= 0;
+    if(segment.validate(stamp)) {
+      return found;
+    }
+
+    final long read = segment.readLock();
+    try {
+      return find(segment.table, msb, lsb, hash) >= 0;
+    } finally {
+      segment.unlockRead(read);
+    }
+  }
+
+  /**
+   * Creates a record with zero balances for the specified account, if none exists.
+   *
+   * @param account the account to create; must not be null
+   * @return true if the record was created; false if it already existed
+   */
+  public boolean create(@NotNull final UUID account) {
+
+    final long msb = account.getMostSignificantBits();
+    final long lsb = account.getLeastSignificantBits();
+    final long hash = UUIDHash.hash(msb, lsb);
+    final Segment segment = segment(hash);
+
+    final long stamp = segment.writeLock();
+    try {
+      if(find(segment.table, msb, lsb, hash) >= 0) {
+        return false;
+      }
+      insert(segment, msb, lsb, hash);
+      return true;
+    } finally {
+      segment.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes the record of the specified account.
+   *
+   * @param account the account to remove; must not be null
+   * @return true if the record existed; false otherwise
+   */
+  public boolean remove(@NotNull final UUID account) {
+
+    final long msb = account.getMostSignificantBits();
+    final long lsb = account.getLeastSignificantBits();
+    final long hash = UUIDHash.hash(msb, lsb);
+    final Segment segment = segment(hash);
+
+    final long stamp = segment.writeLock();
+    try {
+      final int index = find(segment.table, msb, lsb, hash);
+      if(index < 0) {
+        return false;
+      }
+      delete(segment, index);
+      return true;
+    } finally {
+      segment.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Retrieves a balance in fixed-point units of {@code 10^-fractionalDigits}.
+   *
+   * @param account the account to read; must not be null
+   * @param slot    the currency slot to read
+   * @return the balance in units, or zero if the account does not exist
+   */
+  public long units(@NotNull final UUID account, final int slot) {
+
+    final int offset = offset(slot);
+    final long msb = account.getMostSignificantBits();
+    final long lsb = account.getLeastSignificantBits();
+    final long hash = UUIDHash.hash(msb, lsb);
+    final Segment segment = segment(hash);
+
+    final long stamp = segment.tryOptimisticRead();
+    ByteBuffer table = segment.table;
+    int index = find(table, msb, lsb, hash);
+    long value = (index < 0)? 0 : table.getLong(index * recordSize + offset);
+    if(segment.validate(stamp)) {
+      return value;
+    }
+
+    final long read = segment.readLock();
+    try {
+      table = segment.table;
+      index = find(table, msb, lsb, hash);
+      return (index < 0)? 0 : table.getLong(index * recordSize + offset);
+    } finally {
+      segment.unlockRead(read);
+    }
+  }
+
+  /**
+   * Retrieves a balance.
+   *
+   * @param account the account to read; must not be null
+   * @param slot    the currency slot to read
+   * @return the balance, or zero if the account does not exist
+   */
+  @NotNull
+  public BigDecimal balance(@NotNull final UUID account, final int slot) {
+
+    return BigDecimal.valueOf(units(account, slot), scale);
+  }
+
+  /**
+   * Sets a balance, creating the account's record if needed.
+   *
+   * @param account the account to update; must not be null
+   * @param slot    the currency slot to update
+   * @param amount  the new balance; must fit the store's fractional digits
+   */
+  public void set(@NotNull final UUID account, final int slot, @NotNull final BigDecimal amount) {
+
+    final long units = toUnits(amount);
+    update(account, slot, true, current->units);
+  }
+
+  /**
+   * Sets a balance only if it currently equals an expected value.
+   *
+   * @param account  the account to update; must not be null
+   * @param slot     the currency slot to update
+   * @param expected the balance the account must have; must not be null
+   * @param value    the new balance; must fit the store's fractional digits
+   * @return true if the balance was set; false if it did not match or the account does not exist
+   */
+  public boolean compareAndSet(@NotNull final UUID account, final int slot, @NotNull final BigDecimal expected,
+                               @NotNull final BigDecimal value) {
+
+    final long units = toUnits(value);
+    final boolean[] swapped = new boolean[1];
+    update(account, slot, false, current->{
+      if(BigDecimal.valueOf(current, scale).compareTo(expected) != 0) {
+        return current;
+      }
+      swapped[0] = true;
+      return units;
+    });
+    return swapped[0];
+  }
+
+  /**
+   * Adds to a balance, creating the account's record if needed.
+   *
+   * @param account the account to update; must not be null
+   * @param slot    the currency slot to update
+   * @param amount  the amount to add; must be non-negative and fit the store's fractional digits
+   * @return the balance after the deposit
+   * @throws ArithmeticException if the balance would overflow
+   */
+  @NotNull
+  public BigDecimal deposit(@NotNull final UUID account, final int slot, @NotNull final BigDecimal amount) {
+
+    final long units = toUnits(nonNegative(amount));
+    return BigDecimal.valueOf(update(account, slot, true, current->Math.addExact(current, units)), scale);
+  }
+
+  /**
+   * Subtracts from a balance if the account holds at least the amount.
+   *
+   * @param account the account to update; must not be null
+   * @param slot    the currency slot to update
+   * @param amount  the amount to subtract; must be non-negative and fit the store's fractional digits
+   * @return the balance after the withdrawal, or null if the account does not exist or holds less
+   *         than the amount
+   */
+  @Nullable
+  public BigDecimal withdraw(@NotNull final UUID account, final int slot, @NotNull final BigDecimal amount) {
+
+    final long units = toUnits(nonNegative(amount));
+    final boolean[] withdrawn = new boolean[1];
+    final long balance = update(account, slot, false, current->{
+      if(current < units) {
+        return current;
+      }
+      withdrawn[0] = true;
+      return current - units;
+    });
+    return (withdrawn[0])? BigDecimal.valueOf(balance, scale) : null;
+  }
+
+  /**
+   * Visits every account in the store. Each segment is read-locked while it is visited, so the
+   * action must not write to the store.
+   *
+   * @param action the action to run per account; must not be null
+   */
+  public void forEach(@NotNull final Consumer<UUID> action) {
+
+    for(final Segment segment : segments) {
+
+      final long stamp = segment.readLock();
+      try {
+        final ByteBuffer table = segment.table;
+        final int capacity = table.capacity() / recordSize;
+        for(int i = 0; i < capacity; i++) {
+
+          final int base = i * recordSize;
+          if(table.getLong(base) == USED) {
+            action.accept(new UUID(table.getLong(base + 8), table.getLong(base + 16)));
+          }
+        }
+      } finally {
+        segment.unlockRead(stamp);
+      }
+    }
+  }
+
+  /**
+   * Retrieves the number of accounts in the store.
+   *
+   * @return the number of accounts
+   */
+  public int size() {
+
+    int size = 0;
+    for(final Segment segment : segments) {
+      size += segment.size;
+    }
+    return size;
+  }
+
+  /**
+   * Retrieves the direct memory currently reserved by the table.
+   *
+   * @return the reserved memory in bytes
+   */
+  public long memoryBytes() {
+
+    long bytes = 0;
+    for(final Segment segment : segments) {
+      bytes += segment.table.capacity();
+    }
+    return bytes;
+  }
+
+  public int slots() {
+
+    return slots;
+  }
+
+  public int fractionalDigits() {
+
+    return scale;
+  }
+
+  /**
+   * Applies an update to one slot under the segment's write lock.
+   *
+   * @return the value of the slot after the update, or zero if the account does not exist and was
+   *         not created
+   */
+  private long update(final UUID account, final int slot, final boolean create, final UnitsOperator operator) {
+
+    final int offset = offset(slot);
+    final long msb = account.getMostSignificantBits();
+    final long lsb = account.getLeastSignificantBits();
+    final long hash = UUIDHash.hash(msb, lsb);
+    final Segment segment = segment(hash);
+
+    final long stamp = segment.writeLock();
+    try {
+      int index = find(segment.table, msb, lsb, hash);
+      if(index < 0) {
+        if(!create) {
+          return 0;
+        }
+        index = insert(segment, msb, lsb, hash);
+      }
+
+      final int position = index * recordSize + offset;
+      final long updated = operator.apply(segment.table.getLong(position));
+      segment.table.putLong(position, updated);
+      return updated;
+    } finally {
+      segment.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Finds the record of a key.
+   *
+   * @return the index of the record, or a negative value if the key is absent
+   */
+  private int find(final ByteBuffer table, final long msb, final long lsb, final long hash) {
+
+    final int capacity = table.capacity() / recordSize;
+    final int mask = capacity - 1;
+    int index = (int)hash & mask;
+    for(int probes = 0; probes < capacity; probes++) {
+
+      final int base = index * recordSize;
+      if(table.getLong(base) != USED) {
+        return -1;
+      }
+      if(table.getLong(base + 8) == msb && table.getLong(base + 16) == lsb) {
+        return index;
+      }
+      index = (index + 1) & mask;
+    }
+    return -1;
+  }
+
+  private int insert(final Segment segment, final long msb, final long lsb, final long hash) {
+
+    if(segment.size + 1 > (segment.table.capacity() / recordSize) * LOAD_FACTOR) {
+      grow(segment);
+    }
+
+    final int index = place(segment.table, msb, lsb, hash);
+    segment.size++;
+    return index;
+  }
+
+  private int place(final ByteBuffer table, final long msb, final long lsb, final long hash) {
+
+    final int mask = table.capacity() / recordSize - 1;
+    int index = (int)hash & mask;
+    while(table.getLong(index * recordSize) == USED) {
+      index = (index + 1) & mask;
+    }
+
+    final int base = index * recordSize;
+    table.putLong(base + 8, msb);
+    table.putLong(base + 16, lsb);
+    for(int slot = 0; slot < slots; slot++) {
+      table.putLong(base + HEADER + 8 * slot, 0);
+    }
+    table.putLong(base, USED);
+    return index;
+  }
+
+  private void grow(final Segment segment) {
+
+    final ByteBuffer old = segment.table;
+    final int capacity = old.capacity() / recordSize;
+    if((long)capacity * 2 * recordSize > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Segment cannot grow past " + capacity + " records; use more segments");
+    }
+
+    final ByteBuffer table = ByteBuffer.allocateDirect(capacity * 2 * recordSize);
+
+    for(int i = 0; i < capacity; i++) {
+
+      final int base = i * recordSize;
+      if(old.getLong(base) != USED) {
+        continue;
+      }
+
+      final long msb = old.getLong(base + 8);
+      final long lsb = old.getLong(base + 16);
+      final int target = place(table, msb, lsb, UUIDHash.hash(msb, lsb)) * recordSize;
+      for(int slot = 0; slot < slots; slot++) {
+        table.putLong(target + HEADER + 8 * slot, old.getLong(base + HEADER + 8 * slot));
+      }
+    }
+    segment.table = table;
+  }
+
+  private void delete(final Segment segment, final int index) {
+
+    final ByteBuffer table = segment.table;
+    final int mask = table.capacity() / recordSize - 1;
+
+    int hole = index;
+    int next = index;
+    while(true) {
+
+      next = (next + 1) & mask;
+      final int base = next * recordSize;
+      if(table.getLong(base) != USED) {
+        break;
+      }
+
+      final int home = (int)UUIDHash.hash(table.getLong(base + 8), table.getLong(base + 16)) & mask;
+      final boolean movable = (hole <= next)? (home <= hole || home > next) : (home <= hole && home > next);
+      if(movable) {
+        for(int offset = 0; offset < recordSize; offset += 8) {
+          table.putLong(hole * recordSize + offset, table.getLong(base + offset));
+        }
+        hole = next;
+      }
+    }
+
+    table.putLong(hole * recordSize, 0);
+    segment.size--;
+  }
+
+  private Segment segment(final long hash) {
+
+    return segments[(int)(hash >>> 32) & segmentMask];
+  }
+
+  private int offset(final int slot) {
+
+    if(slot < 0 || slot >= slots) {
+      throw new IndexOutOfBoundsException("Slot " + slot + " is outside 0-" + (slots - 1));
+    }
+    return HEADER + 8 * slot;
+  }
+
+  private long toUnits(final BigDecimal amount) {
+
+    try {
+      return amount.setScale(scale).unscaledValue().longValueExact();
+    } catch(final ArithmeticException e) {
+      throw new IllegalArgumentException("Amount " + amount.toPlainString() + " does not fit " + scale + " fractional digits in a long", e);
+    }
+  }
+
+  private static BigDecimal nonNegative(final BigDecimal amount) {
+
+    if(amount.signum() < 0) {
+      throw new IllegalArgumentException("Amount must not be negative, was " + amount.toPlainString());
+    }
+    return amount;
+  }
+
+  @FunctionalInterface
+  private interface UnitsOperator {
+
+    long apply(long current);
+  }
+
+  @SuppressWarnings("serial")
+  private static final class Segment extends StampedLock {
+
+    private volatile ByteBuffer table;
+    private volatile int size = 0;
+
+    Segment(final ByteBuffer table) {
+
+      this.table = table;
+    }
+  }
+}
@@ -0,0 +1,510 @@
+package net.milkbowl.vault2.economy.store;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.AccountPermission;
+import net.milkbowl.vault2.economy.Economy;
+import net.milkbowl.vault2.economy.EconomyResponse;
+import net.milkbowl.vault2.economy.EconomyResponse.ResponseType;
+import net.milkbowl.vault2.economy.lock.AccountLock;
+import net.milkbowl.vault2.economy.lock.AccountLockManager;
+import net.milkbowl.vault2.economy.lock.LockMode;
+import net.milkbowl.vault2.helper.collections.ConcurrentUUIDObjectMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * An in-memory {@link Economy} over an {@link OffHeapBalanceStore}, for servers that keep millions
+ * of accounts loaded and for providers that want the store without writing the adapter themselves.
+ *
+ * Every account holds one balance per configured currency in the store, with the configured
+ * currencies mapped onto its slots in order; account names are kept on the heap. Worlds are not
+ * distinguished; the world-specific methods use the single balance. Shared accounts are not
+ * supported. Nothing is persisted, so a provider loads accounts on enable, for example by
+ * {@link net.milkbowl.vault2.economy.migrate.EconomyMigrator migrating} from its storage, and saves
+ * them on disable.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class OffHeapEconomy implements Economy {
+
+  private final List<String> currencies;
+  private final OffHeapBalanceStore store;
+  private final ConcurrentUUIDObjectMap<String> names = new ConcurrentUUIDObjectMap<>();
+  private final AccountLockManager locks = new AccountLockManager();
+
+  public OffHeapEconomy(@NotNull final List<String> currencies, final int fractionalDigits) {
+
+    this(currencies, new OffHeapBalanceStore(currencies.size(), fractionalDigits));
+  }
+
+  /**
+   * Constructs a new {@code OffHeapEconomy}.
+   *
+   * @param currencies the currencies every account holds, the first being the default; must not be
+   *                   empty and must not outnumber the store's slots
+   * @param store      the empty store to keep balances in; must not be null
+   */
+  public OffHeapEconomy(@NotNull final List<String> currencies, @NotNull final OffHeapBalanceStore store) {
+
+    if(currencies.isEmpty() || currencies.size() > store.slots()) {
+      throw new IllegalArgumentException("Between one and " + store.slots() + " currencies are required, were " + currencies.size());
+    }
+
+    this.currencies = Collections.unmodifiableList(new ArrayList<>(currencies));
+    this.store = store;
+  }
+
+  @NotNull
+  public OffHeapBalanceStore store() {
+
+    return store;
+  }
+
+  @Override
+  public boolean isEnabled() {
+
+    return true;
+  }
+
+  @Override
+  public @NotNull String getName() {
+
+    return "OffHeapEconomy";
+  }
+
+  @Override
+  public boolean hasSharedAccountSupport() {
+
+    return false;
+  }
+
+  @Override
+  public boolean hasMultiCurrencySupport() {
+
+    return currencies.size() > 1;
+  }
+
+  @Override
+  public boolean supportsAtomicSet() {
+
+    return true;
+  }
+
+  @Override
+  public int fractionalDigits(@NotNull final String pluginName) {
+
+    return store.fractionalDigits();
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public @NotNull String format(@NotNull final BigDecimal amount) {
+
+    return format(getName(), amount, currencies.get(0));
+  }
+
+  @Override
+  public @NotNull String format(@NotNull final String pluginName, @NotNull final BigDecimal amount) {
+
+    return format(pluginName, amount, currencies.get(0));
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public @NotNull String format(@NotNull final BigDecimal amount, @NotNull final String currency) {
+
+    return format(getName(), amount, currency);
+  }
+
+  @Override
+  public @NotNull String format(@NotNull final String pluginName, @NotNull final BigDecimal amount, @NotNull final String currency) {
+
+    return amount.setScale(store.fractionalDigits(), RoundingMode.HALF_EVEN).toPlainString() + " " + currency;
+  }
+
+  @Override
+  public boolean hasCurrency(@NotNull final String currency) {
+
+    return currencies.contains(currency);
+  }
+
+  @Override
+  public @NotNull String getDefaultCurrency(@NotNull final String pluginName) {
+
+    return currencies.get(0);
+  }
+
+  @Override
+  public @NotNull String defaultCurrencyNamePlural(@NotNull final String pluginName) {
+
+    return currencies.get(0);
+  }
+
+  @Override
+  public @NotNull String defaultCurrencyNameSingular(@NotNull final String pluginName) {
+
+    return currencies.get(0);
+  }
+
+  @Override
+  public @NotNull Collection<String> currencies() {
+
+    return currencies;
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public boolean createAccount(@NotNull final UUID accountID, @NotNull final String name) {
+
+    return createAccount(accountID, name, true);
+  }
+
+  @Override
+  public boolean createAccount(@NotNull final UUID accountID, @NotNull final String name, final boolean player) {
+
+    try(final AccountLock ignored = locks.lock(LockMode.WRITE, accountID)) {
+
+      if(!store.create(accountID)) {
+        return false;
+      }
+      names.put(accountID, name);
+      return true;
+    }
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public boolean createAccount(@NotNull final UUID accountID, @NotNull final String name, @NotNull final String worldName) {
+
+    return createAccount(accountID, name, true);
+  }
+
+  @Override
+  public boolean createAccount(@NotNull final UUID accountID, @NotNull final String name, @NotNull final String worldName, final boolean player) {
+
+    return createAccount(accountID, name, player);
+  }
+
+  @Override
+  public @NotNull Map<UUID, String> getUUIDNameMap() {
+
+    final Map<UUID, String> map = new HashMap<>();
+    names.forEach(map::put);
+    return map;
+  }
+
+  @Override
+  public Optional<String> getAccountName(@NotNull final UUID accountID) {
+
+    return Optional.ofNullable(names.get(accountID));
+  }
+
+  @Override
+  public boolean hasAccount(@NotNull final UUID accountID) {
+
+    return store.contains(accountID);
+  }
+
+  @Override
+  public boolean hasAccount(@NotNull final UUID accountID, @NotNull final String worldName) {
+
+    return hasAccount(accountID);
+  }
+
+  @Override
+  public boolean renameAccount(@NotNull final UUID accountID, @NotNull final String name) {
+
+    try(final AccountLock ignored = locks.lock(LockMode.WRITE, accountID)) {
+
+      if(!store.contains(accountID)) {
+        return false;
+      }
+      names.put(accountID, name);
+      return true;
+    }
+  }
+
+  @Override
+  public boolean renameAccount(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String name) {
+
+    return renameAccount(accountID, name);
+  }
+
+  @Override
+  public boolean deleteAccount(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    try(final AccountLock ignored = locks.lock(LockMode.WRITE, accountID)) {
+
+      if(!store.remove(accountID)) {
+        return false;
+      }
+      names.remove(accountID);
+      return true;
+    }
+  }
+
+  @Override
+  public boolean accountSupportsCurrency(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String currency) {
+
+    return hasCurrency(currency) && hasAccount(accountID);
+  }
+
+  @Override
+  public boolean accountSupportsCurrency(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String currency, @NotNull final String world) {
+
+    return accountSupportsCurrency(pluginName, accountID, currency);
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public @NotNull BigDecimal getBalance(@NotNull final String pluginName, @NotNull final UUID accountID) {
+
+    return balanceOf(accountID, currencies.get(0));
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public @NotNull BigDecimal getBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world) {
+
+    return balanceOf(accountID, currencies.get(0));
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public @NotNull BigDecimal getBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String world, @NotNull final String currency) {
+
+    return balanceOf(accountID, currency);
+  }
+
+  @Override
+  public boolean has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return balanceOf(accountID, currencies.get(0)).compareTo(amount) >= 0;
+  }
+
+  @Override
+  public boolean has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return balanceOf(accountID, currencies.get(0)).compareTo(amount) >= 0;
+  }
+
+  @Override
+  public boolean has(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    return balanceOf(accountID, currency).compareTo(amount) >= 0;
+  }
+
+  @Override
+  public @NotNull EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return withdraw(pluginName, accountID, "", currencies.get(0), amount);
+  }
+
+  @Override
+  public @NotNull EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return withdraw(pluginName, accountID, worldName, currencies.get(0), amount);
+  }
+
+  @Override
+  public @NotNull EconomyResponse withdraw(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    if(amount.signum() < 0) {
+      return new EconomyResponse(amount, BigDecimal.ZERO, ResponseType.FAILURE, "Cannot withdraw negative amounts.");
+    }
+
+    return update(accountID, currency, amount, slot->{
+      final BigDecimal balance = store.withdraw(accountID, slot, amount);
+      if(balance == null) {
+        return new EconomyResponse(amount, store.balance(accountID, slot), ResponseType.FAILURE, "Insufficient funds.");
+      }
+      return new EconomyResponse(amount, balance, ResponseType.SUCCESS, "");
+    });
+  }
+
+  @Override
+  public @NotNull EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return deposit(pluginName, accountID, "", currencies.get(0), amount);
+  }
+
+  @Override
+  public @NotNull EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final BigDecimal amount) {
+
+    return deposit(pluginName, accountID, worldName, currencies.get(0), amount);
+  }
+
+  @Override
+  public @NotNull EconomyResponse deposit(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    if(amount.signum() < 0) {
+      return new EconomyResponse(amount, BigDecimal.ZERO, ResponseType.FAILURE, "Cannot deposit negative amounts.");
+    }
+
+    return update(accountID, currency, amount, slot->{
+      try {
+        return new EconomyResponse(amount, store.deposit(accountID, slot, amount), ResponseType.SUCCESS, "");
+      } catch(final ArithmeticException e) {
+        return new EconomyResponse(amount, store.balance(accountID, slot), ResponseType.FAILURE, "Balance would overflow.");
+      }
+    });
+  }
+
+  @Override
+  public @NotNull EconomyResponse setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal amount) {
+
+    return setBalance(pluginName, accountID, "", currencies.get(0), amount);
+  }
+
+  @Override
+  public @NotNull EconomyResponse setBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal amount) {
+
+    if(amount.signum() < 0) {
+      return new EconomyResponse(amount, BigDecimal.ZERO, ResponseType.FAILURE, "Cannot set negative balances.");
+    }
+
+    return update(accountID, currency, amount, slot->{
+      store.set(accountID, slot, amount);
+      return new EconomyResponse(amount, store.balance(accountID, slot), ResponseType.SUCCESS, "");
+    });
+  }
+
+  @Override
+  public @NotNull EconomyResponse compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+    return compareAndSetBalance(pluginName, accountID, "", currencies.get(0), expected, newValue);
+  }
+
+  @Override
+  public @NotNull EconomyResponse compareAndSetBalance(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String worldName, @NotNull final String currency, @NotNull final BigDecimal expected, @NotNull final BigDecimal newValue) {
+
+    if(newValue.signum() < 0) {
+      return new EconomyResponse(newValue, BigDecimal.ZERO, ResponseType.FAILURE, "Cannot set negative balances.");
+    }
+
+    return update(accountID, currency, newValue, slot->{
+      if(!store.compareAndSet(accountID, slot, expected, newValue)) {
+        return new EconomyResponse(newValue, store.balance(accountID, slot), ResponseType.FAILURE, "Balance does not match the expected value.");
+      }
+      return new EconomyResponse(newValue, store.balance(accountID, slot), ResponseType.SUCCESS, "");
+    });
+  }
+
+  @Override
+  public boolean createSharedAccount(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final String name, @NotNull final UUID owner) {
+
+    return false;
+  }
+
+  @Override
+  public boolean isAccountOwner(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return false;
+  }
+
+  @Override
+  public boolean setOwner(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return false;
+  }
+
+  @Override
+  public boolean isAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return false;
+  }
+
+  @Override
+  public boolean addAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return false;
+  }
+
+  @Override
+  public boolean addAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid, @NotNull final AccountPermission... initialPermissions) {
+
+    return false;
+  }
+
+  @Override
+  public boolean removeAccountMember(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid) {
+
+    return false;
+  }
+
+  @Override
+  public boolean hasAccountPermission(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid, @NotNull final AccountPermission permission) {
+
+    return false;
+  }
+
+  @Override
+  public boolean updateAccountPermission(@NotNull final String pluginName, @NotNull final UUID accountID, @NotNull final UUID uuid, @NotNull final AccountPermission permission, final boolean value) {
+
+    return false;
+  }
+
+  private BigDecimal balanceOf(final UUID accountID, final String currency) {
+
+    final int slot = currencies.indexOf(currency);
+    return (slot < 0)? BigDecimal.ZERO : store.balance(accountID, slot);
+  }
+
+  /**
+   * Runs an update of one balance while the account is locked against creation and deletion, so
+   * the store never re-creates the record of an account deleted concurrently.
+   */
+  private EconomyResponse update(final UUID accountID, final String currency, final BigDecimal amount, final Update update) {
+
+    final int slot = currencies.indexOf(currency);
+    if(slot < 0) {
+      return new EconomyResponse(amount, BigDecimal.ZERO, ResponseType.FAILURE, "Currency " + currency + " does not exist.");
+    }
+
+    if(amount.stripTrailingZeros().scale() > store.fractionalDigits()) {
+      return new EconomyResponse(amount, BigDecimal.ZERO, ResponseType.FAILURE, "Amount must have at most " + store.fractionalDigits() + " fractional digits.");
+    }
+
+    try(final AccountLock ignored = locks.lock(LockMode.WRITE, accountID)) {
+
+      if(!store.contains(accountID)) {
+        return new EconomyResponse(amount, BigDecimal.ZERO, ResponseType.FAILURE, "Account does not exist.");
+      }
+      return update.apply(slot);
+    } catch(final IllegalArgumentException e) {
+      return new EconomyResponse(amount, BigDecimal.ZERO, ResponseType.FAILURE, e.getMessage());
+    }
+  }
+
+  @FunctionalInterface
+  private interface Update {
+
+    EconomyResponse apply(int slot);
+  }
+}
@@ -0,0 +1,288 @@
+package net.milkbowl.vault2.helper.collections;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A thread-safe {@link UUIDObjectMap}, split into independently locked segments chosen by key hash.
+ *
+ * Lookups first read their segment optimistically, without writing to any shared memory, and retry
+ * under the segment's read lock only if a writer intervened. Writers lock a single segment, so
+ * writes to different segments never contend. Null values are not permitted.
+ *
+ * {@link #size()} and {@link #forEach(BiConsumer)} visit segments one at a time and are therefore
+ * not atomic snapshots of the whole map.
+ *
+ * @param <V> the type of the values
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class ConcurrentUUIDObjectMap<V> {
+
+  public static final int DEFAULT_SEGMENTS = 16;
+
+  private final Segment<V>[] segments;
+  private final int segmentMask;
+
+  public ConcurrentUUIDObjectMap() {
+
+    this(DEFAULT_SEGMENTS, UUIDObjectMap.DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs a new {@code ConcurrentUUIDObjectMap}.
+   *
+   * @param segments the number of segments, rounded up to a power of two
+   * @param expected the number of entries to size each segment for without growing
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public ConcurrentUUIDObjectMap(final int segments, final int expected) {
+
+    if(segments < 1) {
+      throw new IllegalArgumentException("Segment count must be positive, was " + segments);
+    }
+
+    final int count = (Integer.bitCount(segments) == 1)? segments : Integer.highestOneBit(segments - 1) << 1;
+    this.segments = new Segment[count];
+    this.segmentMask = count - 1;
+    for(int i = 0; i < count; i++) {
+      this.segments[i] = new Segment<>(expected);
+    }
+  }
+
+  @Nullable
+  public V get(@NotNull final UUID key) {
+
+    return get(key.getMostSignificantBits(), key.getLeastSignificantBits());
+  }
+
+  /**
+   * Retrieves the value mapped to the key with the specified bits.
+   *
+   * @param msb the most significant bits of the key
+   * @param lsb the least significant bits of the key
+   * @return the value, or null if the key is absent
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public V get(final long msb, final long lsb) {
+
+    final Segment<V> segment = segment(msb, lsb);
+    final long stamp = segment.tryOptimisticRead();
+    final Object[] values = segment.map.values;
+    final int index = UUIDObjectMap.find(segment.map.keys, values, msb, lsb);
+    final Object value = (index < 0)? null : values[index];
+    if(segment.validate(stamp)) {
+      return (V)value;
+    }
+
+    final long read = segment.readLock();
+    try {
+      return segment.map.get(msb, lsb);
+    } finally {
+      segment.unlockRead(read);
+    }
+  }
+
+  public boolean containsKey(@NotNull final UUID key) {
+
+    return get(key) != null;
+  }
+
+  /**
+   * Maps the key to a value.
+   *
+   * @param key   the key; must not be null
+   * @param value the value; must not be null
+   * @return the previous value, or null if the key was absent
+   */
+  @Nullable
+  public V put(@NotNull final UUID key, @NotNull final V value) {
+
+    final Segment<V> segment = segment(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    final long stamp = segment.writeLock();
+    try {
+      return segment.map.put(key, value);
+    } finally {
+      segment.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Maps the key to a value unless it is already present.
+   *
+   * @param key   the key; must not be null
+   * @param value the value; must not be null
+   * @return the existing value, or null if the value was added
+   */
+  @Nullable
+  public V putIfAbsent(@NotNull final UUID key, @NotNull final V value) {
+
+    final Segment<V> segment = segment(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    final long stamp = segment.writeLock();
+    try {
+      return segment.map.putIfAbsent(key, value);
+    } finally {
+      segment.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Retrieves the value mapped to the key, computing and adding it if the key is absent. The
+   * function runs while the key's segment is locked, so it must be short and must not access this
+   * map.
+   *
+   * @param key      the key; must not be null
+   * @param function computes the value for an absent key; must not return null
+   * @return the existing or computed value
+   */
+  @NotNull
+  public V computeIfAbsent(@NotNull final UUID key, @NotNull final Function<? super UUID, ? extends V> function) {
+
+    final V existing = get(key);
+    if(existing != null) {
+      return existing;
+    }
+
+    final Segment<V> segment = segment(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    final long stamp = segment.writeLock();
+    try {
+      return segment.map.computeIfAbsent(key, function);
+    } finally {
+      segment.unlockWrite(stamp);
+    }
+  }
+
+  @Nullable
+  public V remove(@NotNull final UUID key) {
+
+    final Segment<V> segment = segment(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    final long stamp = segment.writeLock();
+    try {
+      return segment.map.remove(key);
+    } finally {
+      segment.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes the key only if it is mapped to the specified value.
+   *
+   * @param key   the key; must not be null
+   * @param value the expected value
+   * @return true if the entry was removed
+   */
+  public boolean remove(@NotNull final UUID key, @Nullable final Object value) {
+
+    final Segment<V> segment = segment(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    final long stamp = segment.writeLock();
+    try {
+      return segment.map.remove(key, value);
+    } finally {
+      segment.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Calls the action for every entry, holding each segment's read lock while visiting it. The
+   * action must not modify the map.
+   *
+   * @param action the action to call with each key and value; must not be null
+   */
+  public void forEach(@NotNull final BiConsumer<? super UUID, ? super V> action) {
+
+    for(final Segment<V> segment : segments) {
+
+      final long stamp = segment.readLock();
+      try {
+        segment.map.forEach(action);
+      } finally {
+        segment.unlockRead(stamp);
+      }
+    }
+  }
+
+  public int size() {
+
+    int size = 0;
+    for(final Segment<V> segment : segments) {
+
+      final long stamp = segment.readLock();
+      try {
+        size += segment.map.size();
+      } finally {
+        segment.unlockRead(stamp);
+      }
+    }
+    return size;
+  }
+
+  public boolean isEmpty() {
+
+    for(final Segment<V> segment : segments) {
+
+      final long stamp = segment.readLock();
+      try {
+        if(!segment.map.isEmpty()) {
+          return false;
+        }
+      } finally {
+        segment.unlockRead(stamp);
+      }
+    }
+    return true;
+  }
+
+  public void clear() {
+
+    for(final Segment<V> segment : segments) {
+
+      final long stamp = segment.writeLock();
+      try {
+        segment.map.clear();
+      } finally {
+        segment.unlockWrite(stamp);
+      }
+    }
+  }
+
+  private Segment<V> segment(final long msb, final long lsb) {
+
+    return segments[(int)(UUIDHash.hash(msb, lsb) >>> 32) & segmentMask];
+  }
+
+  /**
+   * One independently locked part of the map.
+   */
+  @SuppressWarnings("serial")
+  private static final class Segment<V> extends StampedLock {
+
+    private final UUIDObjectMap<V> map;
+
+    Segment(final int expected) {
+
+      this.map = new UUIDObjectMap<>(expected);
+    }
+  }
+}
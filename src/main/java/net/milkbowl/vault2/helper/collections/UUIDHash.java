@@ -0,0 +1,69 @@
+package net.milkbowl.vault2.helper.collections;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * Hashes {@link UUID} keys for the open-addressing tables, lock stripes and segments in this
+ * library. The two halves of the key are folded together and run through the MurmurHash3 64-bit
+ * finalizer, which spreads every input bit across the whole result, so both the low bits used to
+ * index a table and the high bits used to pick a segment are well distributed, even for version 3
+ * UUIDs whose bits differ only slightly.
+ *
+ * The result of a given key never changes, so it may be used to lay out data that is persisted.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public final class UUIDHash {
+
+  private UUIDHash() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /**
+   * Hashes a key.
+   *
+   * @param key the key to hash; must not be null
+   * @return the mixed 64-bit hash
+   */
+  public static long hash(@NotNull final UUID key) {
+
+    return hash(key.getMostSignificantBits(), key.getLeastSignificantBits());
+  }
+
+  /**
+   * Hashes a key given as its most and least significant bits.
+   *
+   * @param msb the most significant bits of the key
+   * @param lsb the least significant bits of the key
+   * @return the mixed 64-bit hash
+   */
+  public static long hash(final long msb, final long lsb) {
+
+    long hash = msb ^ lsb;
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
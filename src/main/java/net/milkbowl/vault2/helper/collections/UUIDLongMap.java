@@ -0,0 +1,297 @@
+package net.milkbowl.vault2.helper.collections;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * A map from {@link UUID} to primitive {@code long} values, for balances in fixed-point units,
+ * counters and timestamps. Each entry occupies three adjacent longs of one flat array, the two key
+ * halves followed by the value, so a lookup reads the key and value from the same cache line and
+ * no {@code UUID}, node or boxed {@code Long} is allocated. Collisions are resolved by linear
+ * probing with backward-shift removal.
+ *
+ * Lookups of absent keys return the map's missing value, zero unless specified otherwise; use
+ * {@link #containsKey(UUID)} where zero is a meaningful value.
+ *
+ * This class is not thread-safe.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class UUIDLongMap {
+
+  private long[] entries;
+  private boolean[] used;
+  private int size = 0;
+  private final long missing;
+
+  public UUIDLongMap() {
+
+    this(UUIDObjectMap.DEFAULT_CAPACITY, 0);
+  }
+
+  /**
+   * Constructs a new {@code UUIDLongMap}.
+   *
+   * @param expected the number of entries to size the map for without growing
+   * @param missing  the value returned for absent keys
+   */
+  public UUIDLongMap(final int expected, final long missing) {
+
+    if(expected < 0) {
+      throw new IllegalArgumentException("Expected size must not be negative, was " + expected);
+    }
+
+    final int capacity = UUIDObjectMap.capacity(expected);
+    if(capacity > 1 << 29) {
+      throw new IllegalArgumentException("Expected size " + expected + " is too large");
+    }
+    this.entries = new long[capacity * 3];
+    this.used = new boolean[capacity];
+    this.missing = missing;
+  }
+
+  public long get(@NotNull final UUID key) {
+
+    return get(key.getMostSignificantBits(), key.getLeastSignificantBits());
+  }
+
+  /**
+   * Retrieves the value mapped to the key with the specified bits.
+   *
+   * @param msb the most significant bits of the key
+   * @param lsb the least significant bits of the key
+   * @return the value, or the missing value if the key is absent
+   */
+  public long get(final long msb, final long lsb) {
+
+    final int index = find(msb, lsb);
+    return (index < 0)? missing : entries[3 * index + 2];
+  }
+
+  public boolean containsKey(@NotNull final UUID key) {
+
+    return find(key.getMostSignificantBits(), key.getLeastSignificantBits()) >= 0;
+  }
+
+  public long put(@NotNull final UUID key, final long value) {
+
+    return put(key.getMostSignificantBits(), key.getLeastSignificantBits(), value);
+  }
+
+  /**
+   * Maps the key with the specified bits to a value.
+   *
+   * @param msb   the most significant bits of the key
+   * @param lsb   the least significant bits of the key
+   * @param value the value
+   * @return the previous value, or the missing value if the key was absent
+   */
+  public long put(final long msb, final long lsb, final long value) {
+
+    final int index = find(msb, lsb);
+    if(index >= 0) {
+      final long previous = entries[3 * index + 2];
+      entries[3 * index + 2] = value;
+      return previous;
+    }
+
+    insert(msb, lsb, value);
+    return missing;
+  }
+
+  /**
+   * Adds a delta to the value mapped to the key, mapping an absent key to the missing value plus the
+   * delta.
+   *
+   * @param key   the key; must not be null
+   * @param delta the amount to add
+   * @return the value after the addition
+   * @throws ArithmeticException if the addition overflows
+   */
+  public long addTo(@NotNull final UUID key, final long delta) {
+
+    final long msb = key.getMostSignificantBits();
+    final long lsb = key.getLeastSignificantBits();
+    final int index = find(msb, lsb);
+    if(index >= 0) {
+      entries[3 * index + 2] = Math.addExact(entries[3 * index + 2], delta);
+      return entries[3 * index + 2];
+    }
+
+    final long value = Math.addExact(missing, delta);
+    insert(msb, lsb, value);
+    return value;
+  }
+
+  public long remove(@NotNull final UUID key) {
+
+    return remove(key.getMostSignificantBits(), key.getLeastSignificantBits());
+  }
+
+  /**
+   * Removes the key with the specified bits.
+   *
+   * @param msb the most significant bits of the key
+   * @param lsb the least significant bits of the key
+   * @return the removed value, or the missing value if the key was absent
+   */
+  public long remove(final long msb, final long lsb) {
+
+    final int index = find(msb, lsb);
+    if(index < 0) {
+      return missing;
+    }
+
+    final long previous = entries[3 * index + 2];
+    delete(index);
+    return previous;
+  }
+
+  /**
+   * Calls the action for every entry, in no particular order. The action must not modify the map.
+   *
+   * @param action the action to call with each key and value; must not be null
+   */
+  public void forEach(@NotNull final EntryConsumer action) {
+
+    for(int i = 0; i < used.length; i++) {
+
+      if(used[i]) {
+        action.accept(new UUID(entries[3 * i], entries[3 * i + 1]), entries[3 * i + 2]);
+      }
+    }
+  }
+
+  public long missingValue() {
+
+    return missing;
+  }
+
+  public int size() {
+
+    return size;
+  }
+
+  public boolean isEmpty() {
+
+    return size == 0;
+  }
+
+  public void clear() {
+
+    Arrays.fill(used, false);
+    size = 0;
+  }
+
+  private int find(final long msb, final long lsb) {
+
+    final int mask = used.length - 1;
+    int index = (int)UUIDHash.hash(msb, lsb) & mask;
+    while(used[index]) {
+
+      if(entries[3 * index] == msb && entries[3 * index + 1] == lsb) {
+        return index;
+      }
+      index = (index + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void insert(final long msb, final long lsb, final long value) {
+
+    if(size + 1 > used.length * UUIDObjectMap.LOAD_FACTOR) {
+      grow();
+    }
+
+    place(entries, used, msb, lsb, value);
+    size++;
+  }
+
+  private static void place(final long[] entries, final boolean[] used, final long msb, final long lsb, final long value) {
+
+    final int mask = used.length - 1;
+    int index = (int)UUIDHash.hash(msb, lsb) & mask;
+    while(used[index]) {
+      index = (index + 1) & mask;
+    }
+
+    entries[3 * index] = msb;
+    entries[3 * index + 1] = lsb;
+    entries[3 * index + 2] = value;
+    used[index] = true;
+  }
+
+  private void grow() {
+
+    if(used.length == 1 << 29) {
+      throw new IllegalStateException("UUIDLongMap cannot grow past " + used.length + " slots");
+    }
+
+    final long[] grownEntries = new long[entries.length * 2];
+    final boolean[] grownUsed = new boolean[used.length * 2];
+    for(int i = 0; i < used.length; i++) {
+
+      if(used[i]) {
+        place(grownEntries, grownUsed, entries[3 * i], entries[3 * i + 1], entries[3 * i + 2]);
+      }
+    }
+
+    entries = grownEntries;
+    used = grownUsed;
+  }
+
+  /**
+   * Empties a slot, shifting back later entries of the probe run so that no lookup passes a gap
+   * before reaching its key.
+   */
+  private void delete(final int slot) {
+
+    final int mask = used.length - 1;
+    int gap = slot;
+    int index = slot;
+    while(true) {
+
+      index = (index + 1) & mask;
+      if(!used[index]) {
+        break;
+      }
+
+      final int home = (int)UUIDHash.hash(entries[3 * index], entries[3 * index + 1]) & mask;
+      if(((index - home) & mask) >= ((index - gap) & mask)) {
+        System.arraycopy(entries, 3 * index, entries, 3 * gap, 3);
+        gap = index;
+      }
+    }
+
+    used[gap] = false;
+    size--;
+  }
+
+  /**
+   * Receives the entries of a {@link UUIDLongMap}.
+   */
+  @FunctionalInterface
+  public interface EntryConsumer {
+
+    void accept(@NotNull UUID key, long value);
+  }
+}
@@ -0,0 +1,369 @@
+package net.milkbowl.vault2.helper.collections;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A map from {@link UUID} to non-null values that stores each key as two longs in a flat array,
+ * avoiding the {@code UUID} objects and per-entry nodes of a {@link java.util.HashMap}. Collisions
+ * are resolved by linear probing, so a lookup usually reads one or two adjacent cache lines, and
+ * removal shifts later entries back instead of leaving tombstones.
+ *
+ * Keys may be passed either as a {@code UUID} or as its most and least significant bits, letting
+ * callers that already hold the bits skip allocating a {@code UUID}. Null values are not permitted;
+ * a null result always means the key is absent.
+ *
+ * This class is not thread-safe; see {@link ConcurrentUUIDObjectMap} for a concurrent variant.
+ *
+ * @param <V> the type of the values
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class UUIDObjectMap<V> {
+
+  public static final int DEFAULT_CAPACITY = 16;
+
+  static final float LOAD_FACTOR = 0.7f;
+
+  /**
+   * The keys, two longs per slot: the most significant bits followed by the least significant bits.
+   */
+  long[] keys;
+
+  /**
+   * The values, one per slot; null marks an empty slot.
+   */
+  Object[] values;
+
+  private int size = 0;
+
+  public UUIDObjectMap() {
+
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs a new {@code UUIDObjectMap}.
+   *
+   * @param expected the number of entries to size the map for without growing
+   */
+  public UUIDObjectMap(final int expected) {
+
+    if(expected < 0) {
+      throw new IllegalArgumentException("Expected size must not be negative, was " + expected);
+    }
+
+    final int capacity = capacity(expected);
+    this.keys = new long[capacity * 2];
+    this.values = new Object[capacity];
+  }
+
+  @Nullable
+  public V get(@NotNull final UUID key) {
+
+    return get(key.getMostSignificantBits(), key.getLeastSignificantBits());
+  }
+
+  /**
+   * Retrieves the value mapped to the key with the specified bits.
+   *
+   * @param msb the most significant bits of the key
+   * @param lsb the least significant bits of the key
+   * @return the value, or null if the key is absent
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public V get(final long msb, final long lsb) {
+
+    final int index = find(keys, values, msb, lsb);
+    return (index < 0)? null : (V)values[index];
+  }
+
+  public boolean containsKey(@NotNull final UUID key) {
+
+    return find(keys, values, key.getMostSignificantBits(), key.getLeastSignificantBits()) >= 0;
+  }
+
+  @Nullable
+  public V put(@NotNull final UUID key, @NotNull final V value) {
+
+    return put(key.getMostSignificantBits(), key.getLeastSignificantBits(), value);
+  }
+
+  /**
+   * Maps the key with the specified bits to a value.
+   *
+   * @param msb   the most significant bits of the key
+   * @param lsb   the least significant bits of the key
+   * @param value the value; must not be null
+   * @return the previous value, or null if the key was absent
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public V put(final long msb, final long lsb, @NotNull final V value) {
+
+    if(value == null) {
+      throw new IllegalArgumentException("UUIDObjectMap does not permit null values");
+    }
+
+    final int index = find(keys, values, msb, lsb);
+    if(index >= 0) {
+      final V previous = (V)values[index];
+      values[index] = value;
+      return previous;
+    }
+
+    insert(msb, lsb, value);
+    return null;
+  }
+
+  /**
+   * Maps the key to a value unless it is already present.
+   *
+   * @param key   the key; must not be null
+   * @param value the value; must not be null
+   * @return the existing value, or null if the value was added
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public V putIfAbsent(@NotNull final UUID key, @NotNull final V value) {
+
+    final int index = find(keys, values, key.getMostSignificantBits(), key.getLeastSignificantBits());
+    if(index >= 0) {
+      return (V)values[index];
+    }
+
+    put(key.getMostSignificantBits(), key.getLeastSignificantBits(), value);
+    return null;
+  }
+
+  /**
+   * Retrieves the value mapped to the key, computing and adding it if the key is absent.
+   *
+   * @param key      the key; must not be null
+   * @param function computes the value for an absent key; must not return null
+   * @return the existing or computed value
+   */
+  @NotNull
+  @SuppressWarnings("unchecked")
+  public V computeIfAbsent(@NotNull final UUID key, @NotNull final Function<? super UUID, ? extends V> function) {
+
+    final long msb = key.getMostSignificantBits();
+    final long lsb = key.getLeastSignificantBits();
+    final int index = find(keys, values, msb, lsb);
+    if(index >= 0) {
+      return (V)values[index];
+    }
+
+    final V value = function.apply(key);
+    put(msb, lsb, value);
+    return value;
+  }
+
+  @Nullable
+  public V remove(@NotNull final UUID key) {
+
+    return remove(key.getMostSignificantBits(), key.getLeastSignificantBits());
+  }
+
+  /**
+   * Removes the key with the specified bits.
+   *
+   * @param msb the most significant bits of the key
+   * @param lsb the least significant bits of the key
+   * @return the removed value, or null if the key was absent
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public V remove(final long msb, final long lsb) {
+
+    final int index = find(keys, values, msb, lsb);
+    if(index < 0) {
+      return null;
+    }
+
+    final V previous = (V)values[index];
+    delete(index);
+    return previous;
+  }
+
+  /**
+   * Removes the key only if it is mapped to the specified value, compared by identity or
+   * {@link Object#equals(Object)}.
+   *
+   * @param key   the key; must not be null
+   * @param value the expected value
+   * @return true if the entry was removed
+   */
+  public boolean remove(@NotNull final UUID key, @Nullable final Object value) {
+
+    final int index = find(keys, values, key.getMostSignificantBits(), key.getLeastSignificantBits());
+    if(index < 0 || (values[index] != value && !values[index].equals(value))) {
+      return false;
+    }
+
+    delete(index);
+    return true;
+  }
+
+  /**
+   * Calls the action for every entry, in no particular order. The action must not modify the map.
+   *
+   * @param action the action to call with each key and value; must not be null
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(@NotNull final BiConsumer<? super UUID, ? super V> action) {
+
+    for(int i = 0; i < values.length; i++) {
+
+      if(values[i] != null) {
+        action.accept(new UUID(keys[2 * i], keys[2 * i + 1]), (V)values[i]);
+      }
+    }
+  }
+
+  public int size() {
+
+    return size;
+  }
+
+  public boolean isEmpty() {
+
+    return size == 0;
+  }
+
+  public void clear() {
+
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  /**
+   * Finds the slot of a key. Safe to call on arrays read without synchronization: the probe is
+   * bounded and never indexes outside either array, though the result is then only meaningful if
+   * the read is validated afterwards.
+   *
+   * @return the slot index, or -1 if the key is absent
+   */
+  static int find(final long[] keys, final Object[] values, final long msb, final long lsb) {
+
+    final int capacity = Math.min(values.length, keys.length >> 1);
+    final int mask = capacity - 1;
+    int index = (int)UUIDHash.hash(msb, lsb) & mask;
+    for(int probes = 0; probes < capacity; probes++) {
+
+      if(values[index] == null) {
+        return -1;
+      }
+      if(keys[2 * index] == msb && keys[2 * index + 1] == lsb) {
+        return index;
+      }
+      index = (index + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Rounds the capacity needed for the expected number of entries up to a power of two.
+   */
+  static int capacity(final int expected) {
+
+    final int needed = Math.max(2, (int)Math.ceil(expected / (double)LOAD_FACTOR));
+    if(needed > 1 << 30) {
+      throw new IllegalArgumentException("Expected size " + expected + " is too large");
+    }
+    return (Integer.bitCount(needed) == 1)? needed : Integer.highestOneBit(needed - 1) << 1;
+  }
+
+  private void insert(final long msb, final long lsb, final Object value) {
+
+    if(size + 1 > values.length * LOAD_FACTOR) {
+      grow();
+    }
+
+    place(keys, values, msb, lsb, value);
+    size++;
+  }
+
+  private static void place(final long[] keys, final Object[] values, final long msb, final long lsb, final Object value) {
+
+    final int mask = values.length - 1;
+    int index = (int)UUIDHash.hash(msb, lsb) & mask;
+    while(values[index] != null) {
+      index = (index + 1) & mask;
+    }
+
+    keys[2 * index] = msb;
+    keys[2 * index + 1] = lsb;
+    values[index] = value;
+  }
+
+  private void grow() {
+
+    if(values.length == 1 << 30) {
+      throw new IllegalStateException("UUIDObjectMap cannot grow past " + values.length + " slots");
+    }
+
+    final long[] grownKeys = new long[keys.length * 2];
+    final Object[] grownValues = new Object[values.length * 2];
+    for(int i = 0; i < values.length; i++) {
+
+      if(values[i] != null) {
+        place(grownKeys, grownValues, keys[2 * i], keys[2 * i + 1], values[i]);
+      }
+    }
+
+    keys = grownKeys;
+    values = grownValues;
+  }
+
+  /**
+   * Empties a slot, shifting back later entries of the probe run so that no lookup passes a gap
+   * before reaching its key.
+   */
+  private void delete(final int slot) {
+
+    final int mask = values.length - 1;
+    int gap = slot;
+    int index = slot;
+    while(true) {
+
+      index = (index + 1) & mask;
+      if(values[index] == null) {
+        break;
+      }
+
+      final int home = (int)UUIDHash.hash(keys[2 * index], keys[2 * index + 1]) & mask;
+      if(((index - home) & mask) >= ((index - gap) & mask)) {
+        keys[2 * gap] = keys[2 * index];
+        keys[2 * gap + 1] = keys[2 * index + 1];
+        values[gap] = values[index];
+        gap = index;
+      }
+    }
+
+    values[gap] = null;
+    size--;
+  }
+}
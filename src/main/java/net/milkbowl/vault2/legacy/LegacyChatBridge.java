@@ -0,0 +1,389 @@
+package net.milkbowl.vault2.legacy;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault.chat.Chat;
+import net.milkbowl.vault.permission.Permission;
+import net.milkbowl.vault2.chat.BoolInfoKey;
+import net.milkbowl.vault2.chat.CachingChat;
+import net.milkbowl.vault2.chat.ChatUnlocked;
+import net.milkbowl.vault2.chat.DoubleInfoKey;
+import net.milkbowl.vault2.chat.InfoKey;
+import net.milkbowl.vault2.chat.IntInfoKey;
+import net.milkbowl.vault2.helper.subject.Subject;
+import org.bukkit.OfflinePlayer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Extends the legacy {@link Chat} API on top of a VaultUnlocked {@link ChatUnlocked} provider, so chat
+ * plugins written against Vault keep working with a modern provider.
+ *
+ * Lookups go through a {@link CachingChat}, which caches prefixes, suffixes and info values per world,
+ * subject and node, and is invalidated by the setter overloads of this bridge. Worlds, subjects and
+ * info keys are interned, so a cached {@code getPlayerInfoInteger}-style call resolves through a typed
+ * {@link IntInfoKey}, {@link DoubleInfoKey} or {@link BoolInfoKey} without taking a lock or allocating.
+ * The cache holds values boxed, so a cache miss boxes the provider's value once when it is stored.
+ * A player name that could only be resolved through a blocking profile lookup on the server thread
+ * is treated as an unknown player: getters return their default and setters do nothing.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+@SuppressWarnings("deprecation")
+public class LegacyChatBridge extends Chat {
+
+  /**
+   * The default number of world and subject pairs kept in the cache.
+   */
+  public static final int DEFAULT_CACHE_SIZE = 4096;
+
+  private final CachingChat chat;
+
+  private final LegacySubjects subjects = new LegacySubjects();
+
+  private final Map<String, IntInfoKey> intKeys = new ConcurrentHashMap<>();
+  private final Map<String, DoubleInfoKey> doubleKeys = new ConcurrentHashMap<>();
+  private final Map<String, BoolInfoKey> boolKeys = new ConcurrentHashMap<>();
+  private final Map<String, InfoKey<String>> stringKeys = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs a new {@code LegacyChatBridge} with a cache of {@link #DEFAULT_CACHE_SIZE} entries.
+   *
+   * @param chat  the provider to delegate to; must not be null
+   * @param perms the legacy permission API used for the group methods of {@link Chat}; must not be null
+   */
+  public LegacyChatBridge(@NotNull final ChatUnlocked chat, @NotNull final Permission perms) {
+
+    this(chat, perms, DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * Constructs a new {@code LegacyChatBridge}.
+   *
+   * @param chat      the provider to delegate to; if it is not already a {@link CachingChat} it is wrapped in one
+   * @param perms     the legacy permission API used for the group methods of {@link Chat}; must not be null
+   * @param cacheSize the number of world and subject pairs kept in the cache
+   */
+  public LegacyChatBridge(@NotNull final ChatUnlocked chat, @NotNull final Permission perms, final int cacheSize) {
+
+    super(perms);
+    this.chat = (chat instanceof CachingChat)? (CachingChat)chat : new CachingChat(chat, cacheSize);
+  }
+
+  public CachingChat chat() {
+
+    return chat;
+  }
+
+  /**
+   * Discards the cached subject and metadata of the specified player.
+   *
+   * @param player the player whose data is discarded; must not be null
+   */
+  public void invalidate(@NotNull final OfflinePlayer player) {
+
+    chat.invalidate(subjects.player(player));
+    subjects.invalidate(player);
+  }
+
+  private IntInfoKey intKey(final String node) {
+
+    final IntInfoKey key = intKeys.get(node);
+    return (key != null)? key : intKeys.computeIfAbsent(node, IntInfoKey::of);
+  }
+
+  private DoubleInfoKey doubleKey(final String node) {
+
+    final DoubleInfoKey key = doubleKeys.get(node);
+    return (key != null)? key : doubleKeys.computeIfAbsent(node, DoubleInfoKey::of);
+  }
+
+  private BoolInfoKey boolKey(final String node) {
+
+    final BoolInfoKey key = boolKeys.get(node);
+    return (key != null)? key : boolKeys.computeIfAbsent(node, BoolInfoKey::of);
+  }
+
+  private InfoKey<String> stringKey(final String node) {
+
+    final InfoKey<String> key = stringKeys.get(node);
+    return (key != null)? key : stringKeys.computeIfAbsent(node, InfoKey::stringKey);
+  }
+
+  private String prefix(final String world, final Subject subject) {
+
+    return (subject == null)? null : chat.getPrefixOrNull(subjects.context(world), subject);
+  }
+
+  private String suffix(final String world, final Subject subject) {
+
+    return (subject == null)? null : chat.getSuffixOrNull(subjects.context(world), subject);
+  }
+
+  @Override
+  public String getName() {
+
+    return chat.getName();
+  }
+
+  @Override
+  public boolean isEnabled() {
+
+    return chat.isEnabled();
+  }
+
+  @Override
+  public String getPlayerPrefix(final String world, final String player) {
+
+    return prefix(world, subjects.player(player));
+  }
+
+  @Override
+  public void setPlayerPrefix(final String world, final String player, final String prefix) {
+
+    final Subject subject = subjects.player(player);
+    if(subject != null) {
+      chat.setPrefix(subjects.context(world), subject, (prefix == null)? "" : prefix);
+    }
+  }
+
+  @Override
+  public String getPlayerPrefix(final String world, final OfflinePlayer player) {
+
+    return prefix(world, subjects.player(player));
+  }
+
+  @Override
+  public void setPlayerPrefix(final String world, final OfflinePlayer player, final String prefix) {
+
+    chat.setPrefix(subjects.context(world), subjects.player(player), (prefix == null)? "" : prefix);
+  }
+
+  @Override
+  public String getGroupPrefix(final String world, final String group) {
+
+    return prefix(world, subjects.group(group));
+  }
+
+  @Override
+  public void setGroupPrefix(final String world, final String group, final String prefix) {
+
+    chat.setPrefix(subjects.context(world), subjects.group(group), (prefix == null)? "" : prefix);
+  }
+
+  @Override
+  public String getPlayerSuffix(final String world, final String player) {
+
+    return suffix(world, subjects.player(player));
+  }
+
+  @Override
+  public void setPlayerSuffix(final String world, final String player, final String suffix) {
+
+    final Subject subject = subjects.player(player);
+    if(subject != null) {
+      chat.setSuffix(subjects.context(world), subject, (suffix == null)? "" : suffix);
+    }
+  }
+
+  @Override
+  public String getPlayerSuffix(final String world, final OfflinePlayer player) {
+
+    return suffix(world, subjects.player(player));
+  }
+
+  @Override
+  public void setPlayerSuffix(final String world, final OfflinePlayer player, final String suffix) {
+
+    chat.setSuffix(subjects.context(world), subjects.player(player), (suffix == null)? "" : suffix);
+  }
+
+  @Override
+  public String getGroupSuffix(final String world, final String group) {
+
+    return suffix(world, subjects.group(group));
+  }
+
+  @Override
+  public void setGroupSuffix(final String world, final String group, final String suffix) {
+
+    chat.setSuffix(subjects.context(world), subjects.group(group), (suffix == null)? "" : suffix);
+  }
+
+  @Override
+  public int getPlayerInfoInteger(final String world, final String player, final String node, final int defaultValue) {
+
+    final Subject subject = subjects.player(player);
+    return (subject == null)? defaultValue : chat.getInt(subjects.context(world), subject, intKey(node), defaultValue);
+  }
+
+  @Override
+  public void setPlayerInfoInteger(final String world, final String player, final String node, final int value) {
+
+    final Subject subject = subjects.player(player);
+    if(subject != null) {
+      chat.set(subjects.context(world), subject, intKey(node), value);
+    }
+  }
+
+  @Override
+  public int getPlayerInfoInteger(final String world, final OfflinePlayer player, final String node, final int defaultValue) {
+
+    return chat.getInt(subjects.context(world), subjects.player(player), intKey(node), defaultValue);
+  }
+
+  @Override
+  public void setPlayerInfoInteger(final String world, final OfflinePlayer player, final String node, final int value) {
+
+    chat.set(subjects.context(world), subjects.player(player), intKey(node), value);
+  }
+
+  @Override
+  public int getGroupInfoInteger(final String world, final String group, final String node, final int defaultValue) {
+
+    return chat.getInt(subjects.context(world), subjects.group(group), intKey(node), defaultValue);
+  }
+
+  @Override
+  public void setGroupInfoInteger(final String world, final String group, final String node, final int value) {
+
+    chat.set(subjects.context(world), subjects.group(group), intKey(node), value);
+  }
+
+  @Override
+  public double getPlayerInfoDouble(final String world, final String player, final String node, final double defaultValue) {
+
+    final Subject subject = subjects.player(player);
+    return (subject == null)? defaultValue : chat.getDouble(subjects.context(world), subject, doubleKey(node), defaultValue);
+  }
+
+  @Override
+  public void setPlayerInfoDouble(final String world, final String player, final String node, final double value) {
+
+    final Subject subject = subjects.player(player);
+    if(subject != null) {
+      chat.set(subjects.context(world), subject, doubleKey(node), value);
+    }
+  }
+
+  @Override
+  public double getPlayerInfoDouble(final String world, final OfflinePlayer player, final String node, final double defaultValue) {
+
+    return chat.getDouble(subjects.context(world), subjects.player(player), doubleKey(node), defaultValue);
+  }
+
+  @Override
+  public void setPlayerInfoDouble(final String world, final OfflinePlayer player, final String node, final double value) {
+
+    chat.set(subjects.context(world), subjects.player(player), doubleKey(node), value);
+  }
+
+  @Override
+  public double getGroupInfoDouble(final String world, final String group, final String node, final double defaultValue) {
+
+    return chat.getDouble(subjects.context(world), subjects.group(group), doubleKey(node), defaultValue);
+  }
+
+  @Override
+  public void setGroupInfoDouble(final String world, final String group, final String node, final double value) {
+
+    chat.set(subjects.context(world), subjects.group(group), doubleKey(node), value);
+  }
+
+  @Override
+  public boolean getPlayerInfoBoolean(final String world, final String player, final String node, final boolean defaultValue) {
+
+    final Subject subject = subjects.player(player);
+    return (subject == null)? defaultValue : chat.getBool(subjects.context(world), subject, boolKey(node), defaultValue);
+  }
+
+  @Override
+  public void setPlayerInfoBoolean(final String world, final String player, final String node, final boolean value) {
+
+    final Subject subject = subjects.player(player);
+    if(subject != null) {
+      chat.set(subjects.context(world), subject, boolKey(node), value);
+    }
+  }
+
+  @Override
+  public boolean getPlayerInfoBoolean(final String world, final OfflinePlayer player, final String node, final boolean defaultValue) {
+
+    return chat.getBool(subjects.context(world), subjects.player(player), boolKey(node), defaultValue);
+  }
+
+  @Override
+  public void setPlayerInfoBoolean(final String world, final OfflinePlayer player, final String node, final boolean value) {
+
+    chat.set(subjects.context(world), subjects.player(player), boolKey(node), value);
+  }
+
+  @Override
+  public boolean getGroupInfoBoolean(final String world, final String group, final String node, final boolean defaultValue) {
+
+    return chat.getBool(subjects.context(world), subjects.group(group), boolKey(node), defaultValue);
+  }
+
+  @Override
+  public void setGroupInfoBoolean(final String world, final String group, final String node, final boolean value) {
+
+    chat.set(subjects.context(world), subjects.group(group), boolKey(node), value);
+  }
+
+  @Override
+  public String getPlayerInfoString(final String world, final String player, final String node, final String defaultValue) {
+
+    final Subject subject = subjects.player(player);
+    return (subject == null)? defaultValue : chat.getOrDefault(subjects.context(world), subject, stringKey(node), defaultValue);
+  }
+
+  @Override
+  public void setPlayerInfoString(final String world, final String player, final String node, final String value) {
+
+    final Subject subject = subjects.player(player);
+    if(subject != null) {
+      chat.set(subjects.context(world), subject, stringKey(node), value);
+    }
+  }
+
+  @Override
+  public String getPlayerInfoString(final String world, final OfflinePlayer player, final String node, final String defaultValue) {
+
+    return chat.getOrDefault(subjects.context(world), subjects.player(player), stringKey(node), defaultValue);
+  }
+
+  @Override
+  public void setPlayerInfoString(final String world, final OfflinePlayer player, final String node, final String value) {
+
+    chat.set(subjects.context(world), subjects.player(player), stringKey(node), value);
+  }
+
+  @Override
+  public String getGroupInfoString(final String world, final String group, final String node, final String defaultValue) {
+
+    return chat.getOrDefault(subjects.context(world), subjects.group(group), stringKey(node), defaultValue);
+  }
+
+  @Override
+  public void setGroupInfoString(final String world, final String group, final String node, final String value) {
+
+    chat.set(subjects.context(world), subjects.group(group), stringKey(node), value);
+  }
+}
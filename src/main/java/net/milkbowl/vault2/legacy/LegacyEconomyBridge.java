@@ -0,0 +1,635 @@
+package net.milkbowl.vault2.legacy;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault.economy.EconomyResponse;
+import net.milkbowl.vault2.economy.Economy;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implements the legacy {@link net.milkbowl.vault.economy.Economy} interface on top of a VaultUnlocked
+ * {@link Economy} provider, so plugins written against Vault keep working with a modern provider.
+ *
+ * Calls made with an {@link OfflinePlayer} resolve straight to the player's {@link UUID}; only
+ * {@code createPlayerAccount} reads the player's name, to name the new account. Name-based calls
+ * resolve through a cached, case-insensitive name-to-UUID index that is filled from
+ * {@link Economy#getUUIDNameMap()}, from players seen by this bridge and from {@link #index(UUID, String)}.
+ * An unknown name never reloads the index on the calling thread: it schedules one reload on the
+ * bridge's executor, at most once per {@link #INDEX_REFRESH_INTERVAL}, and resolves as unknown until
+ * that reload completes. Creating an account for a name the index does not
+ * know succeeds only for an online player or on an offline-mode server. Amounts are converted between {@code double} and
+ * {@link BigDecimal} using the provider's fractional digits, which are cached per currency; call
+ * {@link #refresh()} if the provider's currencies change.
+ *
+ * Banks map to the provider's shared accounts and are identified by a UUID derived from the
+ * case-insensitive bank name.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+@SuppressWarnings("deprecation")
+public class LegacyEconomyBridge implements net.milkbowl.vault.economy.Economy {
+
+  /**
+   * The minimum time between reloads of the name index caused by unknown names, in milliseconds.
+   */
+  public static final long INDEX_REFRESH_INTERVAL = 5000L;
+
+  private final Economy economy;
+  private final String pluginName;
+
+  private final Map<String, UUID> names = new ConcurrentHashMap<>();
+  private final Map<String, Integer> scales = new ConcurrentHashMap<>();
+  private final Map<String, String> banks = new ConcurrentHashMap<>();
+
+  private final Executor executor;
+  private final AtomicLong lastIndexRefresh = new AtomicLong();
+
+  private volatile String defaultCurrency;
+
+  /**
+   * Constructs a new {@code LegacyEconomyBridge} that reloads its name index on a shared daemon thread.
+   *
+   * @param economy    the provider to delegate to; must not be null
+   * @param pluginName the plugin name passed to the provider on behalf of legacy callers; must not be null
+   */
+  public LegacyEconomyBridge(@NotNull final Economy economy, @NotNull final String pluginName) {
+
+    this(economy, pluginName, IndexExecutor.INSTANCE);
+  }
+
+  /**
+   * Constructs a new {@code LegacyEconomyBridge}.
+   *
+   * @param economy    the provider to delegate to; must not be null
+   * @param pluginName the plugin name passed to the provider on behalf of legacy callers; must not be null
+   * @param executor   the executor that reloads the name index when an unknown name is looked up; must not be null
+   */
+  public LegacyEconomyBridge(@NotNull final Economy economy, @NotNull final String pluginName, @NotNull final Executor executor) {
+
+    this.economy = economy;
+    this.pluginName = pluginName;
+    this.executor = executor;
+  }
+
+  public Economy economy() {
+
+    return economy;
+  }
+
+  /**
+   * Records a name-to-UUID mapping in the bridge's index.
+   *
+   * @param id   the account's identifier; must not be null
+   * @param name the account's name; must not be null
+   */
+  public void index(@NotNull final UUID id, @NotNull final String name) {
+
+    names.put(name.toLowerCase(Locale.ROOT), id);
+  }
+
+  /**
+   * Clears the cached name index, default currency and currency scales.
+   */
+  public void refresh() {
+
+    names.clear();
+    scales.clear();
+    defaultCurrency = null;
+    lastIndexRefresh.set(0L);
+  }
+
+  /**
+   * Reloads the name index from {@link Economy#getUUIDNameMap()} on the calling thread. The provider
+   * is authoritative, so a name that now belongs to another account is remapped.
+   */
+  public void reindex() {
+
+    for(final Map.Entry<UUID, String> entry : economy.getUUIDNameMap().entrySet()) {
+      if(entry.getValue() != null) {
+        names.put(entry.getValue().toLowerCase(Locale.ROOT), entry.getKey());
+      }
+    }
+  }
+
+  /**
+   * Resolves an account name to its identifier using the name index. An unknown name schedules a
+   * reload of the index on the bridge's executor, at most once per {@link #INDEX_REFRESH_INTERVAL}
+   * across all threads, and resolves to null without waiting for it.
+   *
+   * @param name the account name; may be null
+   * @return the account's identifier, or null if the name is unknown
+   */
+  @Nullable
+  public UUID resolve(@Nullable final String name) {
+
+    if(name == null) {
+      return null;
+    }
+
+    final String key = name.toLowerCase(Locale.ROOT);
+    final UUID id = names.get(key);
+    if(id != null) {
+      return id;
+    }
+
+    final long now = System.currentTimeMillis();
+    final long last = lastIndexRefresh.get();
+    if(now - last >= INDEX_REFRESH_INTERVAL && lastIndexRefresh.compareAndSet(last, now)) {
+      executor.execute(this::reindex);
+    }
+    return null;
+  }
+
+  /**
+   * Resolves the UUID of a player the provider does not know yet. An online player resolves to
+   * their own UUID. Otherwise, an offline-mode server resolves to the UUID it would assign the name,
+   * and an online-mode server does not resolve the name, since guessing would create an account
+   * the player never owns and looking the profile up could block the calling thread.
+   */
+  @Nullable
+  private static UUID unknownPlayer(final String name) {
+
+    final Player player = Bukkit.getPlayerExact(name);
+    if(player != null) {
+      return player.getUniqueId();
+    }
+
+    if(Bukkit.getOnlineMode()) {
+      return null;
+    }
+    return UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static UUID bank(final String name) {
+
+    return UUID.nameUUIDFromBytes(("Bank:" + name.toLowerCase(Locale.ROOT)).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private String defaultCurrency() {
+
+    String currency = defaultCurrency;
+    if(currency == null) {
+      currency = economy.getDefaultCurrency(pluginName);
+      defaultCurrency = currency;
+    }
+    return currency;
+  }
+
+  private BigDecimal toDecimal(final double amount) {
+
+    final BigDecimal value = BigDecimal.valueOf(amount);
+    final int scale = fractionalDigits();
+    return (scale < 0)? value : value.setScale(scale, RoundingMode.HALF_EVEN);
+  }
+
+  private static EconomyResponse convert(final net.milkbowl.vault2.economy.EconomyResponse response) {
+
+    return new EconomyResponse(response.amount.doubleValue(), response.balance.doubleValue(), convert(response.type),
+                               response.errorMessage);
+  }
+
+  private static EconomyResponse.ResponseType convert(final net.milkbowl.vault2.economy.EconomyResponse.ResponseType type) {
+
+    switch(type) {
+      case SUCCESS:
+        return EconomyResponse.ResponseType.SUCCESS;
+      case NOT_IMPLEMENTED:
+        return EconomyResponse.ResponseType.NOT_IMPLEMENTED;
+      default:
+        return EconomyResponse.ResponseType.FAILURE;
+    }
+  }
+
+  private static EconomyResponse unknown(final double amount) {
+
+    return new EconomyResponse(amount, 0, EconomyResponse.ResponseType.FAILURE, "Account does not exist.");
+  }
+
+  private EconomyResponse noBanks() {
+
+    return new EconomyResponse(0, 0, EconomyResponse.ResponseType.NOT_IMPLEMENTED, economy.getName() + " does not support shared accounts.");
+  }
+
+  private EconomyResponse bankResult(final boolean result, final String message) {
+
+    return new EconomyResponse(0, 0, (result)? EconomyResponse.ResponseType.SUCCESS : EconomyResponse.ResponseType.FAILURE,
+                               (result)? "" : message);
+  }
+
+  @Override
+  public boolean isEnabled() {
+
+    return economy.isEnabled();
+  }
+
+  @Override
+  public String getName() {
+
+    return economy.getName();
+  }
+
+  @Override
+  public boolean hasBankSupport() {
+
+    return economy.hasSharedAccountSupport();
+  }
+
+  @Override
+  public int fractionalDigits() {
+
+    return scales.computeIfAbsent(defaultCurrency(), currency->economy.fractionalDigits(pluginName, currency));
+  }
+
+  @Override
+  public String format(final double amount) {
+
+    return economy.format(pluginName, toDecimal(amount));
+  }
+
+  @Override
+  public String currencyNamePlural() {
+
+    return economy.defaultCurrencyNamePlural(pluginName);
+  }
+
+  @Override
+  public String currencyNameSingular() {
+
+    return economy.defaultCurrencyNameSingular(pluginName);
+  }
+
+  @Override
+  public boolean hasAccount(final String playerName) {
+
+    final UUID id = resolve(playerName);
+    return id != null && economy.hasAccount(id);
+  }
+
+  @Override
+  public boolean hasAccount(final OfflinePlayer player) {
+
+    return economy.hasAccount(player.getUniqueId());
+  }
+
+  @Override
+  public boolean hasAccount(final String playerName, final String worldName) {
+
+    final UUID id = resolve(playerName);
+    return id != null && economy.hasAccount(id, worldName);
+  }
+
+  @Override
+  public boolean hasAccount(final OfflinePlayer player, final String worldName) {
+
+    return economy.hasAccount(player.getUniqueId(), worldName);
+  }
+
+  @Override
+  public double getBalance(final String playerName) {
+
+    final UUID id = resolve(playerName);
+    return (id == null)? 0 : economy.balance(pluginName, id).doubleValue();
+  }
+
+  @Override
+  public double getBalance(final OfflinePlayer player) {
+
+    return economy.balance(pluginName, player.getUniqueId()).doubleValue();
+  }
+
+  @Override
+  public double getBalance(final String playerName, final String world) {
+
+    final UUID id = resolve(playerName);
+    return (id == null)? 0 : economy.balance(pluginName, id, world).doubleValue();
+  }
+
+  @Override
+  public double getBalance(final OfflinePlayer player, final String world) {
+
+    return economy.balance(pluginName, player.getUniqueId(), world).doubleValue();
+  }
+
+  @Override
+  public boolean has(final String playerName, final double amount) {
+
+    final UUID id = resolve(playerName);
+    return id != null && economy.has(pluginName, id, toDecimal(amount));
+  }
+
+  @Override
+  public boolean has(final OfflinePlayer player, final double amount) {
+
+    return economy.has(pluginName, player.getUniqueId(), toDecimal(amount));
+  }
+
+  @Override
+  public boolean has(final String playerName, final String worldName, final double amount) {
+
+    final UUID id = resolve(playerName);
+    return id != null && economy.has(pluginName, id, worldName, toDecimal(amount));
+  }
+
+  @Override
+  public boolean has(final OfflinePlayer player, final String worldName, final double amount) {
+
+    return economy.has(pluginName, player.getUniqueId(), worldName, toDecimal(amount));
+  }
+
+  @Override
+  public EconomyResponse withdrawPlayer(final String playerName, final double amount) {
+
+    final UUID id = resolve(playerName);
+    return (id == null)? unknown(amount) : convert(economy.withdraw(pluginName, id, toDecimal(amount)));
+  }
+
+  @Override
+  public EconomyResponse withdrawPlayer(final OfflinePlayer player, final double amount) {
+
+    return convert(economy.withdraw(pluginName, player.getUniqueId(), toDecimal(amount)));
+  }
+
+  @Override
+  public EconomyResponse withdrawPlayer(final String playerName, final String worldName, final double amount) {
+
+    final UUID id = resolve(playerName);
+    return (id == null)? unknown(amount) : convert(economy.withdraw(pluginName, id, worldName, toDecimal(amount)));
+  }
+
+  @Override
+  public EconomyResponse withdrawPlayer(final OfflinePlayer player, final String worldName, final double amount) {
+
+    return convert(economy.withdraw(pluginName, player.getUniqueId(), worldName, toDecimal(amount)));
+  }
+
+  @Override
+  public EconomyResponse depositPlayer(final String playerName, final double amount) {
+
+    final UUID id = resolve(playerName);
+    return (id == null)? unknown(amount) : convert(economy.deposit(pluginName, id, toDecimal(amount)));
+  }
+
+  @Override
+  public EconomyResponse depositPlayer(final OfflinePlayer player, final double amount) {
+
+    return convert(economy.deposit(pluginName, player.getUniqueId(), toDecimal(amount)));
+  }
+
+  @Override
+  public EconomyResponse depositPlayer(final String playerName, final String worldName, final double amount) {
+
+    final UUID id = resolve(playerName);
+    return (id == null)? unknown(amount) : convert(economy.deposit(pluginName, id, worldName, toDecimal(amount)));
+  }
+
+  @Override
+  public EconomyResponse depositPlayer(final OfflinePlayer player, final String worldName, final double amount) {
+
+    return convert(economy.deposit(pluginName, player.getUniqueId(), worldName, toDecimal(amount)));
+  }
+
+  @Override
+  public EconomyResponse createBank(final String name, final String player) {
+
+    final UUID owner = resolve(player);
+    if(owner == null) {
+      return unknown(0);
+    }
+    return createBank(name, owner);
+  }
+
+  @Override
+  public EconomyResponse createBank(final String name, final OfflinePlayer player) {
+
+    return createBank(name, player.getUniqueId());
+  }
+
+  private EconomyResponse createBank(final String name, final UUID owner) {
+
+    if(!economy.hasSharedAccountSupport()) {
+      return noBanks();
+    }
+
+    final UUID id = bank(name);
+    final boolean created = economy.createSharedAccount(pluginName, id, name, owner);
+    if(created) {
+      banks.put(name.toLowerCase(Locale.ROOT), name);
+    }
+    return bankResult(created, "Unable to create bank " + name + ".");
+  }
+
+  @Override
+  public EconomyResponse deleteBank(final String name) {
+
+    if(!economy.hasSharedAccountSupport()) {
+      return noBanks();
+    }
+
+    final boolean deleted = economy.deleteAccount(pluginName, bank(name));
+    if(deleted) {
+      banks.remove(name.toLowerCase(Locale.ROOT));
+    }
+    return bankResult(deleted, "Unable to delete bank " + name + ".");
+  }
+
+  @Override
+  public EconomyResponse bankBalance(final String name) {
+
+    if(!economy.hasSharedAccountSupport()) {
+      return noBanks();
+    }
+
+    final UUID id = bank(name);
+    if(!economy.hasAccount(id)) {
+      return unknown(0);
+    }
+    return new EconomyResponse(0, economy.balance(pluginName, id).doubleValue(), EconomyResponse.ResponseType.SUCCESS, "");
+  }
+
+  @Override
+  public EconomyResponse bankHas(final String name, final double amount) {
+
+    if(!economy.hasSharedAccountSupport()) {
+      return noBanks();
+    }
+
+    final UUID id = bank(name);
+    if(!economy.hasAccount(id)) {
+      return unknown(amount);
+    }
+
+    final BigDecimal balance = economy.balance(pluginName, id);
+    final boolean has = balance.compareTo(toDecimal(amount)) >= 0;
+    return new EconomyResponse(amount, balance.doubleValue(), (has)? EconomyResponse.ResponseType.SUCCESS : EconomyResponse.ResponseType.FAILURE,
+                               (has)? "" : "The bank does not have enough money.");
+  }
+
+  @Override
+  public EconomyResponse bankWithdraw(final String name, final double amount) {
+
+    if(!economy.hasSharedAccountSupport()) {
+      return noBanks();
+    }
+    return convert(economy.withdraw(pluginName, bank(name), toDecimal(amount)));
+  }
+
+  @Override
+  public EconomyResponse bankDeposit(final String name, final double amount) {
+
+    if(!economy.hasSharedAccountSupport()) {
+      return noBanks();
+    }
+    return convert(economy.deposit(pluginName, bank(name), toDecimal(amount)));
+  }
+
+  @Override
+  public EconomyResponse isBankOwner(final String name, final String playerName) {
+
+    final UUID id = resolve(playerName);
+    if(id == null) {
+      return unknown(0);
+    }
+    return isBankOwner(name, id);
+  }
+
+  @Override
+  public EconomyResponse isBankOwner(final String name, final OfflinePlayer player) {
+
+    return isBankOwner(name, player.getUniqueId());
+  }
+
+  private EconomyResponse isBankOwner(final String name, final UUID player) {
+
+    if(!economy.hasSharedAccountSupport()) {
+      return noBanks();
+    }
+    return bankResult(economy.isAccountOwner(pluginName, bank(name), player), "That player is not a bank owner.");
+  }
+
+  @Override
+  public EconomyResponse isBankMember(final String name, final String playerName) {
+
+    final UUID id = resolve(playerName);
+    if(id == null) {
+      return unknown(0);
+    }
+    return isBankMember(name, id);
+  }
+
+  @Override
+  public EconomyResponse isBankMember(final String name, final OfflinePlayer player) {
+
+    return isBankMember(name, player.getUniqueId());
+  }
+
+  private EconomyResponse isBankMember(final String name, final UUID player) {
+
+    if(!economy.hasSharedAccountSupport()) {
+      return noBanks();
+    }
+    return bankResult(economy.isAccountMember(pluginName, bank(name), player), "That player is not a bank member.");
+  }
+
+  /**
+   * The VaultUnlocked API cannot enumerate shared accounts, so this returns the banks created
+   * through this bridge and not deleted since.
+   *
+   * @return the names of the known banks
+   */
+  @Override
+  public List<String> getBanks() {
+
+    return new ArrayList<>(banks.values());
+  }
+
+  @Override
+  public boolean createPlayerAccount(final String playerName) {
+
+    return createPlayerAccount(playerName, null);
+  }
+
+  @Override
+  public boolean createPlayerAccount(final OfflinePlayer player) {
+
+    final String name = player.getName();
+    if(name != null) {
+      index(player.getUniqueId(), name);
+    }
+    return economy.createAccount(player.getUniqueId(), (name == null)? player.getUniqueId().toString() : name, true);
+  }
+
+  @Override
+  public boolean createPlayerAccount(final String playerName, final String worldName) {
+
+    UUID id = resolve(playerName);
+    if(id == null) {
+      id = unknownPlayer(playerName);
+      if(id == null) {
+        return false;
+      }
+    }
+
+    final boolean created = (worldName == null)? economy.createAccount(id, playerName, true)
+                                               : economy.createAccount(id, playerName, worldName, true);
+    if(created) {
+      index(id, playerName);
+    }
+    return created;
+  }
+
+  @Override
+  public boolean createPlayerAccount(final OfflinePlayer player, final String worldName) {
+
+    final String name = player.getName();
+    if(name != null) {
+      index(player.getUniqueId(), name);
+    }
+    return economy.createAccount(player.getUniqueId(), (name == null)? player.getUniqueId().toString() : name, worldName, true);
+  }
+
+  /**
+   * Holds the single daemon thread that reloads name indexes for bridges built without an executor,
+   * started on first use.
+   */
+  private static final class IndexExecutor {
+
+    private static final ExecutorService INSTANCE = Executors.newSingleThreadExecutor(runnable->{
+      final Thread thread = new Thread(runnable, "vault-legacy-name-index");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+}
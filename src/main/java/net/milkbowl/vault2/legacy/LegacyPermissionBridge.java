@@ -0,0 +1,297 @@
+package net.milkbowl.vault2.legacy;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault.permission.Permission;
+import net.milkbowl.vault2.helper.TriState;
+import net.milkbowl.vault2.helper.context.Context;
+import net.milkbowl.vault2.helper.subject.Subject;
+import net.milkbowl.vault2.permission.PermissionUnlocked;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Extends the legacy {@link Permission} API on top of a VaultUnlocked {@link PermissionUnlocked}
+ * provider, so plugins written against Vault keep working with a modern provider.
+ *
+ * The bridge interns one {@link Context} per world name, with a null world mapping to
+ * {@link Context#GLOBAL}, and caches the {@link Subject} of each player by name and by UUID so legacy
+ * calls do not allocate or resolve a player per check. Names are resolved through Bukkit once, online
+ * players first. A name that could only be resolved through a blocking profile lookup on the server
+ * thread is treated as an unknown player: checks are denied and changes fail. Call
+ * {@link #invalidate(OfflinePlayer)} when a player's name changes.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+@SuppressWarnings("deprecation")
+public class LegacyPermissionBridge extends Permission {
+
+  private final PermissionUnlocked permission;
+
+  private final LegacySubjects subjects = new LegacySubjects();
+
+  /**
+   * Constructs a new {@code LegacyPermissionBridge}.
+   *
+   * @param permission the provider to delegate to; must not be null
+   * @param plugin     the plugin used for transient permission attachments; may be null
+   */
+  public LegacyPermissionBridge(@NotNull final PermissionUnlocked permission, @Nullable final Plugin plugin) {
+
+    this.permission = permission;
+    this.plugin = plugin;
+  }
+
+  public PermissionUnlocked permission() {
+
+    return permission;
+  }
+
+  /**
+   * Discards the cached subject of the specified player.
+   *
+   * @param player the player whose subject is discarded; must not be null
+   */
+  public void invalidate(@NotNull final OfflinePlayer player) {
+
+    subjects.invalidate(player);
+  }
+
+  /**
+   * Checks several permission nodes for a player at once, issuing every lookup through
+   * {@link PermissionUnlocked#hasAsync(Context, Subject, String)} before waiting on any of them.
+   *
+   * @param world       the world name, or null for the global context
+   * @param player      the player to check; must not be null
+   * @param permissions the permission nodes to check; must not be null
+   * @return true if every node is granted; false otherwise
+   */
+  public boolean playerHasAll(@Nullable final String world, @NotNull final OfflinePlayer player, @NotNull final String... permissions) {
+
+    final Context context = context(world);
+    final Subject subject = subject(player);
+
+    final CompletableFuture<?>[] lookups = new CompletableFuture<?>[permissions.length];
+    for(int i = 0; i < permissions.length; i++) {
+      lookups[i] = permission.hasAsync(context, subject, permissions[i]);
+    }
+
+    for(final CompletableFuture<?> lookup : lookups) {
+      if(lookup.join() != TriState.TRUE) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Context context(final String world) {
+
+    return subjects.context(world);
+  }
+
+  private Subject subject(final OfflinePlayer player) {
+
+    return subjects.player(player);
+  }
+
+  @Nullable
+  private Subject subject(final String name) {
+
+    return subjects.player(name);
+  }
+
+  @Override
+  public String getName() {
+
+    return permission.getName();
+  }
+
+  @Override
+  public boolean isEnabled() {
+
+    return permission.isEnabled();
+  }
+
+  @Override
+  public boolean hasSuperPermsCompat() {
+
+    return permission.hasSuperPermsSupport();
+  }
+
+  @Override
+  public boolean hasGroupSupport() {
+
+    return permission.hasGroupSupport();
+  }
+
+  @Override
+  public String[] getGroups() {
+
+    return permission.groups();
+  }
+
+  @Override
+  public boolean playerHas(final String world, final String player, final String permission) {
+
+    final Subject subject = subject(player);
+    return subject != null && this.permission.has(context(world), subject, permission) == TriState.TRUE;
+  }
+
+  @Override
+  public boolean playerHas(final String world, final OfflinePlayer player, final String permission) {
+
+    return this.permission.has(context(world), subject(player), permission) == TriState.TRUE;
+  }
+
+  @Override
+  public boolean playerAdd(final String world, final String player, final String permission) {
+
+    final Subject subject = subject(player);
+    return subject != null && this.permission.setPermission(context(world), subject, permission, TriState.TRUE);
+  }
+
+  @Override
+  public boolean playerAdd(final String world, final OfflinePlayer player, final String permission) {
+
+    return this.permission.setPermission(context(world), subject(player), permission, TriState.TRUE);
+  }
+
+  @Override
+  public boolean playerAddTransient(final OfflinePlayer player, final String permission) {
+
+    return this.permission.setTransientPermission(Context.GLOBAL, subject(player), permission, TriState.TRUE);
+  }
+
+  @Override
+  public boolean playerRemoveTransient(final OfflinePlayer player, final String permission) {
+
+    return this.permission.setTransientPermission(Context.GLOBAL, subject(player), permission, TriState.UNDEFINED);
+  }
+
+  @Override
+  public boolean playerAddTransient(final String worldName, final OfflinePlayer player, final String permission) {
+
+    return this.permission.setTransientPermission(context(worldName), subject(player), permission, TriState.TRUE);
+  }
+
+  @Override
+  public boolean playerRemoveTransient(final String worldName, final OfflinePlayer player, final String permission) {
+
+    return this.permission.setTransientPermission(context(worldName), subject(player), permission, TriState.UNDEFINED);
+  }
+
+  @Override
+  public boolean playerRemove(final String world, final String player, final String permission) {
+
+    final Subject subject = subject(player);
+    return subject != null && this.permission.setPermission(context(world), subject, permission, TriState.UNDEFINED);
+  }
+
+  @Override
+  public boolean playerRemove(final String world, final OfflinePlayer player, final String permission) {
+
+    return this.permission.setPermission(context(world), subject(player), permission, TriState.UNDEFINED);
+  }
+
+  @Override
+  public boolean groupHas(final String world, final String group, final String permission) {
+
+    return this.permission.groupHas(context(world), group, permission) == TriState.TRUE;
+  }
+
+  @Override
+  public boolean groupAdd(final String world, final String group, final String permission) {
+
+    return this.permission.groupSetPermission(context(world), group, permission, TriState.TRUE);
+  }
+
+  @Override
+  public boolean groupRemove(final String world, final String group, final String permission) {
+
+    return this.permission.groupSetPermission(context(world), group, permission, TriState.UNDEFINED);
+  }
+
+  @Override
+  public boolean playerInGroup(final String world, final String player, final String group) {
+
+    final Subject subject = subject(player);
+    return subject != null && permission.inGroup(context(world), subject, group);
+  }
+
+  @Override
+  public boolean playerInGroup(final String world, final OfflinePlayer player, final String group) {
+
+    return permission.inGroup(context(world), subject(player), group);
+  }
+
+  @Override
+  public boolean playerAddGroup(final String world, final String player, final String group) {
+
+    final Subject subject = subject(player);
+    return subject != null && permission.addGroup(context(world), subject, group);
+  }
+
+  @Override
+  public boolean playerAddGroup(final String world, final OfflinePlayer player, final String group) {
+
+    return permission.addGroup(context(world), subject(player), group);
+  }
+
+  @Override
+  public boolean playerRemoveGroup(final String world, final String player, final String group) {
+
+    final Subject subject = subject(player);
+    return subject != null && permission.removeGroup(context(world), subject, group);
+  }
+
+  @Override
+  public boolean playerRemoveGroup(final String world, final OfflinePlayer player, final String group) {
+
+    return permission.removeGroup(context(world), subject(player), group);
+  }
+
+  @Override
+  public String[] getPlayerGroups(final String world, final String player) {
+
+    final Subject subject = subject(player);
+    return (subject == null)? new String[0] : permission.getGroups(context(world), subject);
+  }
+
+  @Override
+  public String[] getPlayerGroups(final String world, final OfflinePlayer player) {
+
+    return permission.getGroups(context(world), subject(player));
+  }
+
+  @Override
+  public String getPrimaryGroup(final String world, final String player) {
+
+    final Subject subject = subject(player);
+    return (subject == null)? null : permission.primaryGroup(context(world), subject);
+  }
+
+  @Override
+  public String getPrimaryGroup(final String world, final OfflinePlayer player) {
+
+    return permission.primaryGroup(context(world), subject(player));
+  }
+}
@@ -0,0 +1,139 @@
+package net.milkbowl.vault2.legacy;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.helper.context.Context;
+import net.milkbowl.vault2.helper.subject.Subject;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the {@link Context} of each world name and caches the {@link Subject} of each player and
+ * group for the legacy bridges, so legacy string-based calls do not allocate or resolve a player per
+ * call. A null world maps to {@link Context#GLOBAL}. Player names are resolved through Bukkit once,
+ * online players first. On the server thread of an online-mode server, the name of a player who is
+ * not online resolves to null rather than blocking on a profile lookup. Each cache is cleared once it holds {@link #MAX_CACHED_SUBJECTS} entries.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+class LegacySubjects {
+
+  /**
+   * The number of cached subjects after which a subject cache is cleared.
+   */
+  static final int MAX_CACHED_SUBJECTS = 10000;
+
+  private final Map<String, Context> contexts = new ConcurrentHashMap<>();
+  private final Map<String, Subject> names = new ConcurrentHashMap<>();
+  private final Map<UUID, Subject> players = new ConcurrentHashMap<>();
+  private final Map<String, Subject> groups = new ConcurrentHashMap<>();
+
+  Context context(final String world) {
+
+    if(world == null) {
+      return Context.GLOBAL;
+    }
+
+    final Context context = contexts.get(world);
+    if(context != null) {
+      return context;
+    }
+    return contexts.computeIfAbsent(world, Context::fromWorld);
+  }
+
+  Subject player(final OfflinePlayer player) {
+
+    final Subject subject = players.get(player.getUniqueId());
+    if(subject != null) {
+      return subject;
+    }
+
+    if(players.size() >= MAX_CACHED_SUBJECTS) {
+      players.clear();
+    }
+    return players.computeIfAbsent(player.getUniqueId(), id->Subject.player(id, player.getName()));
+  }
+
+  @Nullable
+  Subject player(final String name) {
+
+    final String key = name.toLowerCase(Locale.ROOT);
+    final Subject subject = names.get(key);
+    if(subject != null) {
+      return subject;
+    }
+
+    final OfflinePlayer player = lookup(name);
+    if(player == null) {
+      return null;
+    }
+
+    if(names.size() >= MAX_CACHED_SUBJECTS) {
+      names.clear();
+    }
+    final Subject resolved = player(player);
+    names.put(key, resolved);
+    return resolved;
+  }
+
+  //an online-mode server may fetch the profile of a player who is not online, which must not block
+  //the server thread; such names stay unresolved there and are not cached.
+  private static OfflinePlayer lookup(final String name) {
+
+    final Player online = Bukkit.getPlayerExact(name);
+    if(online != null) {
+      return online;
+    }
+
+    if(Bukkit.getOnlineMode() && Bukkit.isPrimaryThread()) {
+      return null;
+    }
+    return Bukkit.getOfflinePlayer(name);
+  }
+
+  Subject group(final String name) {
+
+    final Subject subject = groups.get(name);
+    if(subject != null) {
+      return subject;
+    }
+
+    if(groups.size() >= MAX_CACHED_SUBJECTS) {
+      groups.clear();
+    }
+    return groups.computeIfAbsent(name, Subject::group);
+  }
+
+  void invalidate(final OfflinePlayer player) {
+
+    final Subject subject = players.remove(player.getUniqueId());
+    if(subject != null && subject.displayIdentifier() != null) {
+      names.remove(subject.displayIdentifier().toLowerCase(Locale.ROOT));
+    }
+    if(player.getName() != null) {
+      names.remove(player.getName().toLowerCase(Locale.ROOT));
+    }
+  }
+}
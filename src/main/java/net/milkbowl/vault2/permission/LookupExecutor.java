@@ -0,0 +1,59 @@
+package net.milkbowl.vault2.permission;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the pool that runs the default asynchronous lookups of {@link PermissionUnlocked}. Provider
+ * lookups may block on storage, so they are kept off the common fork-join pool, whose few threads
+ * are shared with parallel streams and every other default-pool future in the process.
+ *
+ * The pool is capped at {@link #THREADS} threads, which exit after a minute without work, and queues
+ * lookups beyond that, so a slow provider backs up its own queue rather than adding threads. Callers
+ * that need more parallelism pass their own executor to the asynchronous lookups.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+final class LookupExecutor {
+
+  static final int THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+  static final ExecutorService INSTANCE = create();
+
+  private LookupExecutor() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  private static ExecutorService create() {
+
+    final AtomicInteger threads = new AtomicInteger();
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 60L, TimeUnit.SECONDS,
+                                                               new LinkedBlockingQueue<>(), runnable->{
+      final Thread thread = new Thread(runnable, "vault-permission-lookup-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+}
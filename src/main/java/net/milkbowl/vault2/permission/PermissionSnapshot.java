@@ -0,0 +1,146 @@
+package net.milkbowl.vault2.permission;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.helper.TriState;
+import net.milkbowl.vault2.permission.engine.PermissionTrie;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * An immutable view of a subject's effective permissions and groups within a single context.
+ *
+ * A snapshot is resolved once and then answers {@link #has(String)}, {@link #inGroup(String)} and
+ * {@link #primaryGroup()} without locking, so it may be shared freely between threads. Providers
+ * replace a subject's snapshot with a new instance when that subject's data changes rather than
+ * mutating it; callers that need the latest state should request a new snapshot.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public final class PermissionSnapshot {
+
+  private static final String[] NO_GROUPS = new String[0];
+
+  private final PermissionTrie permissions;
+  private final String[] groups;
+  private final String primaryGroup;
+
+  /**
+   * Constructs a new {@code PermissionSnapshot} from fully resolved data.
+   *
+   * @param permissions  the subject's effective permissions, including those inherited from groups
+   * @param groups       the subject's effective groups
+   * @param primaryGroup the subject's primary group, or null if none is defined
+   */
+  public PermissionSnapshot(@NotNull final PermissionTrie permissions, @NotNull final Collection<String> groups,
+                            @Nullable final String primaryGroup) {
+
+    this.permissions = permissions;
+    this.groups = groups.toArray(NO_GROUPS);
+    this.primaryGroup = primaryGroup;
+  }
+
+  /**
+   * Resolves the state of the specified permission for the snapshot's subject.
+   *
+   * @param permission the permission node to resolve; must not be null
+   * @return the resolved {@link TriState} for the node
+   */
+  @NotNull
+  public TriState has(@NotNull final String permission) {
+
+    return permissions.has(permission);
+  }
+
+  /**
+   * Resolves the highest or lowest numeric suffix granted directly below the given prefix.
+   *
+   * @param prefix  the node prefix preceding the numeric suffix, with or without the trailing dot; must not be null
+   * @param highest true to resolve the highest granted suffix; false to resolve the lowest
+   * @return an {@link OptionalLong} containing the resolved suffix, or an empty optional if none is granted
+   * @see PermissionTrie#numericValue(String, boolean)
+   */
+  @NotNull
+  public OptionalLong numericValue(@NotNull final String prefix, final boolean highest) {
+
+    return permissions.numericValue(prefix, highest);
+  }
+
+  /**
+   * Determines whether the snapshot's subject belongs to any group.
+   *
+   * @return true if the subject belongs to at least one group; false otherwise
+   */
+  public boolean inGroup() {
+
+    return groups.length > 0;
+  }
+
+  /**
+   * Determines whether the snapshot's subject belongs to the specified group. Group names are
+   * compared case-insensitively.
+   *
+   * @param group the name of the group; must not be null
+   * @return true if the subject belongs to the group; false otherwise
+   */
+  public boolean inGroup(@NotNull final String group) {
+
+    for(final String name : groups) {
+      if(name.equalsIgnoreCase(group)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Retrieves the primary group of the snapshot's subject.
+   *
+   * @return an optional containing the primary group, or an empty optional if none is defined
+   */
+  public Optional<String> primaryGroup() {
+
+    return Optional.ofNullable(primaryGroup);
+  }
+
+  /**
+   * Retrieves the primary group of the snapshot's subject, or null if none is defined.
+   *
+   * @return the primary group, or null if none is defined
+   */
+  @Nullable
+  public String primaryGroupOrNull() {
+
+    return primaryGroup;
+  }
+
+  /**
+   * Retrieves the groups of the snapshot's subject.
+   *
+   * @return a copy of the subject's effective groups; may be empty
+   */
+  @NotNull
+  public String[] groups() {
+
+    return groups.clone();
+  }
+}
@@ -19,9 +19,15 @@ package net.milkbowl.vault2.permission;
 import net.milkbowl.vault2.helper.context.Context;
 import net.milkbowl.vault2.helper.subject.Subject;
 import net.milkbowl.vault2.helper.TriState;
+import net.milkbowl.vault2.permission.engine.PermissionTrie;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.OptionalLong;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Represents a permission provider to manage permissions, groups, and related operations
@@ -39,6 +45,14 @@ import java.util.concurrent.CompletableFuture;
  */
 public interface PermissionUnlocked {
 
+  /**
+   * The highest suffix probed by the default {@link #numericValue(Context, Subject, String, boolean)}
+   * implementation.
+   *
+   * @since 2.21
+   */
+  int NUMERIC_PROBE_LIMIT = 100;
+
   /**
    * Checks whether this permission provider is enabled.
    *
@@ -123,6 +137,178 @@ public interface PermissionUnlocked {
   CompletableFuture<TriState> hasAsync(@NotNull final Context context, @NotNull final Subject subject,
                                        @NotNull final String permission);
 
+  /**
+   * Resolves the highest numeric suffix granted to the subject under the given prefix, such as
+   * {@code 5} for a subject that has {@code homes.limit.5}.
+   *
+   * @param context the context in which the permission is being checked; cannot be null
+   * @param subject the subject for whom the value is being resolved; cannot be null
+   * @param prefix the node prefix preceding the numeric suffix, with or without the trailing dot; cannot be null
+   * @return an {@link OptionalLong} containing the highest granted suffix, or an empty optional if none is granted
+   * @see #numericValue(Context, Subject, String, boolean)
+   * @since 2.21
+   */
+  @NotNull
+  default OptionalLong numericValue(@NotNull final Context context, @NotNull final Subject subject,
+                                    @NotNull final String prefix) {
+
+    return numericValue(context, subject, prefix, true);
+  }
+
+  /**
+   * Resolves the highest or lowest numeric suffix granted to the subject under the given prefix.
+   *
+   * Providers that keep an index of their nodes should override this method, for example with
+   * {@link net.milkbowl.vault2.permission.engine.PermissionTrie#numericValue(String, boolean)}. The
+   * default implementation probes {@link #has(Context, Subject, String)} for the suffixes from 1 to
+   * {@link #NUMERIC_PROBE_LIMIT}, stopping at the first granted one, so it costs up to one lookup
+   * per value and cannot see larger values. Probing only sees what {@code has} answers, so a
+   * wildcard covering the prefix counts as a grant of every probed suffix.
+   *
+   * @param context the context in which the permission is being checked; cannot be null
+   * @param subject the subject for whom the value is being resolved; cannot be null
+   * @param prefix the node prefix preceding the numeric suffix, with or without the trailing dot; cannot be null
+   * @param highest true to resolve the highest granted suffix; false to resolve the lowest
+   * @return an {@link OptionalLong} containing the resolved suffix, or an empty optional if none is granted
+   * @since 2.21
+   */
+  @NotNull
+  default OptionalLong numericValue(@NotNull final Context context, @NotNull final Subject subject,
+                                    @NotNull final String prefix, final boolean highest) {
+
+    final String base = (prefix.endsWith("."))? prefix : prefix + ".";
+    if(highest) {
+      for(int i = NUMERIC_PROBE_LIMIT; i > 0; i--) {
+        if(has(context, subject, base + i) == TriState.TRUE) {
+          return OptionalLong.of(i);
+        }
+      }
+    } else {
+      for(int i = 1; i <= NUMERIC_PROBE_LIMIT; i++) {
+        if(has(context, subject, base + i) == TriState.TRUE) {
+          return OptionalLong.of(i);
+        }
+      }
+    }
+    return OptionalLong.empty();
+  }
+
+  /**
+   * Asynchronously resolves the highest or lowest numeric suffix granted to the subject under the
+   * given prefix. The lookup runs on a small, bounded shared pool of daemon threads reserved for
+   * permission lookups, never on the common {@link java.util.concurrent.ForkJoinPool}, since
+   * providers may block on storage. Callers issuing many lookups should supply their own executor.
+   *
+   * @param context the context in which the permission is being checked; cannot be null
+   * @param subject the subject for whom the value is being resolved; cannot be null
+   * @param prefix the node prefix preceding the numeric suffix, with or without the trailing dot; cannot be null
+   * @param highest true to resolve the highest granted suffix; false to resolve the lowest
+   * @return a {@link CompletableFuture} that completes with the resolved suffix, or an empty optional if none is granted
+   * @since 2.21
+   */
+  @NotNull
+  default CompletableFuture<OptionalLong> numericValueAsync(@NotNull final Context context, @NotNull final Subject subject,
+                                                            @NotNull final String prefix, final boolean highest) {
+
+    return numericValueAsync(context, subject, prefix, highest, LookupExecutor.INSTANCE);
+  }
+
+  /**
+   * Asynchronously resolves the highest or lowest numeric suffix granted to the subject under the
+   * given prefix, running the lookup on the specified executor.
+   *
+   * @param context the context in which the permission is being checked; cannot be null
+   * @param subject the subject for whom the value is being resolved; cannot be null
+   * @param prefix the node prefix preceding the numeric suffix, with or without the trailing dot; cannot be null
+   * @param highest true to resolve the highest granted suffix; false to resolve the lowest
+   * @param executor the executor to run the lookup on; cannot be null
+   * @return a {@link CompletableFuture} that completes with the resolved suffix, or an empty optional if none is granted
+   * @since 2.21
+   */
+  @NotNull
+  default CompletableFuture<OptionalLong> numericValueAsync(@NotNull final Context context, @NotNull final Subject subject,
+                                                            @NotNull final String prefix, final boolean highest,
+                                                            @NotNull final Executor executor) {
+
+    return CompletableFuture.supplyAsync(()->numericValue(context, subject, prefix, highest), executor);
+  }
+
+  /**
+   * Retrieves the subject's effective permission nodes within the given context, including those
+   * inherited from its groups, for compiling a {@link PermissionSnapshot}. Wildcard nodes keep their
+   * {@code ".*"} suffix and negated nodes map to {@link TriState#FALSE}.
+   *
+   * Providers should override this method, or {@link #snapshot(Context, Subject)} itself. The default
+   * implementation cannot enumerate nodes and returns an empty map, so snapshots of a provider that
+   * overrides neither resolve every permission to {@link TriState#UNDEFINED}.
+   *
+   * @param context the context of the nodes; cannot be null
+   * @param subject the subject whose nodes are retrieved; cannot be null
+   * @return the subject's effective nodes and their states; may be empty
+   * @since 2.21
+   */
+  @NotNull
+  default Map<String, TriState> nodes(@NotNull final Context context, @NotNull final Subject subject) {
+
+    return Collections.emptyMap();
+  }
+
+  /**
+   * Retrieves an immutable snapshot of the subject's effective permissions and groups within the
+   * given context. The snapshot answers permission and group checks without locking, may be shared
+   * between threads and does not reflect changes made after it was taken.
+   *
+   * The default implementation compiles {@link #nodes(Context, Subject)} into a
+   * {@link net.milkbowl.vault2.permission.engine.PermissionTrie} and captures
+   * {@link #getGroups(Context, Subject)} and {@link #primaryGroup(Context, Subject)}, so it costs one
+   * compilation per call. Providers that serve many reads should keep their snapshots in a
+   * {@link net.milkbowl.vault2.permission.engine.SnapshotStore} and override this method to return them.
+   *
+   * @param context the context of the snapshot; cannot be null
+   * @param subject the subject of the snapshot; cannot be null
+   * @return the subject's permission snapshot
+   * @since 2.21
+   */
+  @NotNull
+  default PermissionSnapshot snapshot(@NotNull final Context context, @NotNull final Subject subject) {
+
+    return new PermissionSnapshot(PermissionTrie.compile(nodes(context, subject)),
+                                  Arrays.asList(getGroups(context, subject)), primaryGroup(context, subject));
+  }
+
+  /**
+   * Asynchronously retrieves a snapshot of the subject's effective permissions and groups
+   * within the given context. The snapshot is taken on a small, bounded shared pool of daemon threads
+   * reserved for permission lookups, never on the common {@link java.util.concurrent.ForkJoinPool}.
+   *
+   * @param context the context of the snapshot; cannot be null
+   * @param subject the subject of the snapshot; cannot be null
+   * @return a {@link CompletableFuture} that completes with the subject's permission snapshot
+   * @since 2.21
+   */
+  @NotNull
+  default CompletableFuture<PermissionSnapshot> snapshotAsync(@NotNull final Context context, @NotNull final Subject subject) {
+
+    return snapshotAsync(context, subject, LookupExecutor.INSTANCE);
+  }
+
+  /**
+   * Asynchronously retrieves a snapshot of the subject's effective permissions and groups
+   * within the given context, taking it on the specified executor.
+   *
+   * @param context the context of the snapshot; cannot be null
+   * @param subject the subject of the snapshot; cannot be null
+   * @param executor the executor to take the snapshot on; cannot be null
+   * @return a {@link CompletableFuture} that completes with the subject's permission snapshot
+   * @since 2.21
+   */
+  @NotNull
+  default CompletableFuture<PermissionSnapshot> snapshotAsync(@NotNull final Context context, @NotNull final Subject subject,
+                                                              @NotNull final Executor executor) {
+
+    return CompletableFuture.supplyAsync(()->snapshot(context, subject), executor);
+  }
+
   /**
    * Sets the specified permission for a subject within a given context to a specified state.
    *
@@ -0,0 +1,503 @@
+package net.milkbowl.vault2.permission.engine;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.helper.TriState;
+import net.milkbowl.vault2.helper.context.Context;
+import net.milkbowl.vault2.helper.subject.Subject;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Holds the group inheritance graph for each {@link Context} and memoizes the transitive closure of
+ * every group, so that membership and inherited permission checks become bit operations.
+ *
+ * Each group is assigned a dense integer id within its context, and its ancestors (including
+ * itself) are kept as a {@link BitSet} over those ids. When inheritance changes, only the groups
+ * that inherit from the changed group are recomputed, and only the subjects whose effective
+ * groups contain one of them are invalidated. Cycles are rejected when inheritance is added.
+ *
+ * Contexts are matched by their values, so two {@link Context} instances with the same values
+ * share a graph. Group names are case-insensitive and subjects are keyed by their
+ * {@link Subject#identifier()}.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class GroupGraph {
+
+  private final Map<Map<String, String>, Layer> layers = new ConcurrentHashMap<>();
+
+  /**
+   * Registers a group in the specified context if it is not already known.
+   *
+   * @param context the context in which the group exists; must not be null
+   * @param group the name of the group; must not be null
+   * @return the dense id of the group within the context
+   */
+  public int defineGroup(@NotNull final Context context, @NotNull final String group) {
+
+    final Layer layer = layer(context);
+    layer.lock.writeLock().lock();
+    try {
+      return layer.id(group);
+    } finally {
+      layer.lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Makes a group inherit from a parent group within the specified context.
+   *
+   * @param context the context in which the inheritance applies; must not be null
+   * @param group the inheriting group; must not be null
+   * @param parent the group being inherited from; must not be null
+   * @return true if the inheritance was added; false if it already existed or would create a cycle
+   */
+  public boolean addInheritance(@NotNull final Context context, @NotNull final String group, @NotNull final String parent) {
+
+    final Layer layer = layer(context);
+    layer.lock.writeLock().lock();
+    try {
+      final int child = layer.id(group);
+      final int ancestor = layer.id(parent);
+      if(layer.ancestors.get(ancestor).get(child) || layer.parents.get(child).get(ancestor)) {
+        return false;
+      }
+
+      layer.parents.get(child).set(ancestor);
+      layer.recompute(child);
+      return true;
+    } finally {
+      layer.lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a direct inheritance between a group and a parent group within the specified context.
+   *
+   * @param context the context in which the inheritance applies; must not be null
+   * @param group the inheriting group; must not be null
+   * @param parent the group being inherited from; must not be null
+   * @return true if the inheritance was removed; false if it did not exist
+   */
+  public boolean removeInheritance(@NotNull final Context context, @NotNull final String group, @NotNull final String parent) {
+
+    final Layer layer = layer(context);
+    layer.lock.writeLock().lock();
+    try {
+      final Integer child = layer.ids.get(key(group));
+      final Integer ancestor = layer.ids.get(key(parent));
+      if(child == null || ancestor == null || !layer.parents.get(child).get(ancestor)) {
+        return false;
+      }
+
+      layer.parents.get(child).clear(ancestor);
+      layer.recompute(child);
+      return true;
+    } finally {
+      layer.lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Sets the compiled permissions held directly by a group within the specified context.
+   *
+   * @param context the context in which the permissions apply; must not be null
+   * @param group the name of the group; must not be null
+   * @param permissions the group's own compiled permissions; must not be null
+   */
+  public void setPermissions(@NotNull final Context context, @NotNull final String group, @NotNull final PermissionTrie permissions) {
+
+    final Layer layer = layer(context);
+    layer.lock.writeLock().lock();
+    try {
+      layer.permissions.set(layer.id(group), permissions);
+    } finally {
+      layer.lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Adds a subject to a group within the specified context.
+   *
+   * @param context the context in which the membership applies; must not be null
+   * @param subject the subject being added; must not be null
+   * @param group the name of the group; must not be null
+   * @return true if the subject was added; false if it was already a direct member
+   */
+  public boolean addGroup(@NotNull final Context context, @NotNull final Subject subject, @NotNull final String group) {
+
+    final Layer layer = layer(context);
+    layer.lock.writeLock().lock();
+    try {
+      final int id = layer.id(group);
+      final BitSet direct = layer.members.computeIfAbsent(subject.identifier(), k->new BitSet());
+      if(direct.get(id)) {
+        return false;
+      }
+      direct.set(id);
+      layer.effective.remove(subject.identifier());
+      return true;
+    } finally {
+      layer.lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a subject from a group within the specified context.
+   *
+   * @param context the context in which the membership applies; must not be null
+   * @param subject the subject being removed; must not be null
+   * @param group the name of the group; must not be null
+   * @return true if the subject was removed; false if it was not a direct member
+   */
+  public boolean removeGroup(@NotNull final Context context, @NotNull final Subject subject, @NotNull final String group) {
+
+    final Layer layer = layer(context);
+    layer.lock.writeLock().lock();
+    try {
+      final Integer id = layer.ids.get(key(group));
+      final BitSet direct = layer.members.get(subject.identifier());
+      if(id == null || direct == null || !direct.get(id)) {
+        return false;
+      }
+      direct.clear(id);
+      layer.effective.remove(subject.identifier());
+      return true;
+    } finally {
+      layer.lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Determines whether the subject is in any group, directly or through inheritance, within the specified context.
+   *
+   * @param context the context in which the membership is checked; must not be null
+   * @param subject the subject to check; must not be null
+   * @return true if the subject is in at least one group; false otherwise
+   */
+  public boolean inGroup(@NotNull final Context context, @NotNull final Subject subject) {
+
+    final Layer layer = layer(context);
+    layer.lock.readLock().lock();
+    try {
+      final BitSet direct = layer.members.get(subject.identifier());
+      return direct != null && !direct.isEmpty();
+    } finally {
+      layer.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Determines whether the subject is in the group, directly or through inheritance, within the specified context.
+   *
+   * @param context the context in which the membership is checked; must not be null
+   * @param subject the subject to check; must not be null
+   * @param group the name of the group; must not be null
+   * @return true if the subject is in the group; false otherwise
+   */
+  public boolean inGroup(@NotNull final Context context, @NotNull final Subject subject, @NotNull final String group) {
+
+    final Layer layer = layer(context);
+    final Integer id = layer.ids.get(key(group));
+    if(id == null) {
+      return false;
+    }
+    return effective(layer, subject.identifier()).get(id);
+  }
+
+  /**
+   * Determines whether a group inherits from another group within the specified context.
+   *
+   * @param context the context in which the inheritance is checked; must not be null
+   * @param group the inheriting group; must not be null
+   * @param parent the possible ancestor; must not be null
+   * @return true if the group is, or inherits from, the parent group; false otherwise
+   */
+  public boolean inherits(@NotNull final Context context, @NotNull final String group, @NotNull final String parent) {
+
+    final Layer layer = layer(context);
+    final Integer child = layer.ids.get(key(group));
+    final Integer ancestor = layer.ids.get(key(parent));
+    if(child == null || ancestor == null) {
+      return false;
+    }
+
+    layer.lock.readLock().lock();
+    try {
+      return layer.ancestors.get(child).get(ancestor);
+    } finally {
+      layer.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Retrieves every group the subject belongs to, directly or through inheritance, within the specified context.
+   *
+   * @param context the context in which the groups are retrieved; must not be null
+   * @param subject the subject whose groups are retrieved; must not be null
+   * @return the names of the subject's effective groups; may be empty
+   */
+  @NotNull
+  public String[] getGroups(@NotNull final Context context, @NotNull final Subject subject) {
+
+    final Layer layer = layer(context);
+    final BitSet groups = effective(layer, subject.identifier());
+
+    layer.lock.readLock().lock();
+    try {
+      final String[] names = new String[groups.cardinality()];
+      int index = 0;
+      for(int id = groups.nextSetBit(0); id >= 0; id = groups.nextSetBit(id + 1)) {
+        names[index++] = layer.names.get(id);
+      }
+      return names;
+    } finally {
+      layer.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Resolves a permission for a group, checking the group itself first and then its ancestors in
+   * order of distance. The first defined state wins.
+   *
+   * @param context the context in which the permission is checked; must not be null
+   * @param group the name of the group; must not be null
+   * @param permission the permission node to resolve; must not be null
+   * @return the resolved {@link TriState} for the group
+   */
+  @NotNull
+  public TriState groupHas(@NotNull final Context context, @NotNull final String group, @NotNull final String permission) {
+
+    final Layer layer = layer(context);
+    final Integer id = layer.ids.get(key(group));
+    if(id == null) {
+      return TriState.UNDEFINED;
+    }
+
+    layer.lock.readLock().lock();
+    try {
+      return layer.resolve(id, permission);
+    } finally {
+      layer.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Resolves a permission for a subject through the groups it belongs to directly. A negation
+   * resolved through any of those groups wins over a grant.
+   *
+   * @param context the context in which the permission is checked; must not be null
+   * @param subject the subject whose groups are consulted; must not be null
+   * @param permission the permission node to resolve; must not be null
+   * @return the resolved {@link TriState} inherited by the subject
+   */
+  @NotNull
+  public TriState has(@NotNull final Context context, @NotNull final Subject subject, @NotNull final String permission) {
+
+    final Layer layer = layer(context);
+    layer.lock.readLock().lock();
+    try {
+      final BitSet direct = layer.members.get(subject.identifier());
+      if(direct == null) {
+        return TriState.UNDEFINED;
+      }
+
+      TriState result = TriState.UNDEFINED;
+      for(int id = direct.nextSetBit(0); id >= 0; id = direct.nextSetBit(id + 1)) {
+        final TriState state = layer.resolve(id, permission);
+        if(state == TriState.FALSE) {
+          return TriState.FALSE;
+        }
+        if(state == TriState.TRUE) {
+          result = TriState.TRUE;
+        }
+      }
+      return result;
+    } finally {
+      layer.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Removes every group, inheritance and membership held for the specified context.
+   *
+   * @param context the context to clear; must not be null
+   */
+  public void clear(@NotNull final Context context) {
+
+    layers.remove(context.asMap());
+  }
+
+  private BitSet effective(final Layer layer, final String subject) {
+
+    final BitSet cached = layer.effective.get(subject);
+    if(cached != null) {
+      return cached;
+    }
+
+    layer.lock.readLock().lock();
+    try {
+      final BitSet direct = layer.members.get(subject);
+      final BitSet groups = new BitSet();
+      if(direct != null) {
+        for(int id = direct.nextSetBit(0); id >= 0; id = direct.nextSetBit(id + 1)) {
+          groups.or(layer.ancestors.get(id));
+        }
+      }
+      layer.effective.put(subject, groups);
+      return groups;
+    } finally {
+      layer.lock.readLock().unlock();
+    }
+  }
+
+  private Layer layer(final Context context) {
+
+    final Layer layer = layers.get(context.asMap());
+    if(layer != null) {
+      return layer;
+    }
+    return layers.computeIfAbsent(new HashMap<>(context.asMap()), k->new Layer());
+  }
+
+  private static String key(final String group) {
+
+    return group.toLowerCase(Locale.ROOT);
+  }
+
+  private static final class Layer {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<BitSet> parents = new ArrayList<>();
+    private final List<BitSet> ancestors = new ArrayList<>();
+    private final List<int[]> order = new ArrayList<>();
+    private final List<PermissionTrie> permissions = new ArrayList<>();
+
+    private final Map<String, BitSet> members = new HashMap<>();
+    private final Map<String, BitSet> effective = new ConcurrentHashMap<>();
+
+    private int id(final String group) {
+
+      final Integer existing = ids.get(key(group));
+      if(existing != null) {
+        return existing;
+      }
+
+      final int id = names.size();
+      final BitSet self = new BitSet();
+      self.set(id);
+
+      names.add(group);
+      parents.add(new BitSet());
+      ancestors.add(self);
+      order.add(new int[] { id });
+      permissions.add(PermissionTrie.empty());
+      ids.put(key(group), id);
+      return id;
+    }
+
+    /**
+     * Recomputes the closure of the changed group and of every group inheriting from it, then
+     * invalidates the subjects whose effective groups touched that subgraph.
+     */
+    private void recompute(final int changed) {
+
+      final BitSet dirty = new BitSet();
+      for(int id = 0; id < ancestors.size(); id++) {
+        if(ancestors.get(id).get(changed)) {
+          dirty.set(id);
+        }
+      }
+
+      final BitSet affected = (BitSet)dirty.clone();
+      for(int id = dirty.nextSetBit(0); id >= 0; id = dirty.nextSetBit(0)) {
+        recompute(id, dirty);
+      }
+
+      effective.values().removeIf(groups->groups.intersects(affected));
+    }
+
+    private void recompute(final int id, final BitSet dirty) {
+
+      final BitSet direct = parents.get(id);
+      for(int parent = direct.nextSetBit(0); parent >= 0; parent = direct.nextSetBit(parent + 1)) {
+        if(dirty.get(parent)) {
+          recompute(parent, dirty);
+        }
+      }
+
+      final BitSet closure = new BitSet();
+      closure.set(id);
+      for(int parent = direct.nextSetBit(0); parent >= 0; parent = direct.nextSetBit(parent + 1)) {
+        closure.or(ancestors.get(parent));
+      }
+      ancestors.set(id, closure);
+      order.set(id, breadthFirst(id, closure.cardinality()));
+      dirty.clear(id);
+    }
+
+    private int[] breadthFirst(final int id, final int size) {
+
+      final int[] result = new int[size];
+      final BitSet seen = new BitSet();
+      final ArrayDeque<Integer> queue = new ArrayDeque<>();
+      queue.add(id);
+      seen.set(id);
+
+      int index = 0;
+      while(!queue.isEmpty()) {
+        final int current = queue.poll();
+        result[index++] = current;
+
+        final BitSet direct = parents.get(current);
+        for(int parent = direct.nextSetBit(0); parent >= 0; parent = direct.nextSetBit(parent + 1)) {
+          if(!seen.get(parent)) {
+            seen.set(parent);
+            queue.add(parent);
+          }
+        }
+      }
+      return result;
+    }
+
+    private TriState resolve(final int id, final String permission) {
+
+      for(final int group : order.get(id)) {
+        final TriState state = permissions.get(group).has(permission);
+        if(state != TriState.UNDEFINED) {
+          return state;
+        }
+      }
+      return TriState.UNDEFINED;
+    }
+  }
+}
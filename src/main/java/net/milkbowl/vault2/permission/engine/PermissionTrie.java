@@ -0,0 +1,426 @@
+package net.milkbowl.vault2.permission.engine;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.helper.TriState;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * An immutable, compiled view of the permission nodes granted to and negated for a single subject.
+ *
+ * Nodes are split on {@code '.'} into segments which are stored in a segment trie, with repeated
+ * segments sharing one string within the trie. A
+ * node ending in {@code ".*"} (or the bare node {@code "*"}) is a wildcard that applies to every
+ * node below its prefix. Lookups walk the queried permission in place, so {@link #has(String)}
+ * performs no allocation and no string splitting.
+ *
+ * Resolution order for a lookup is:
+ * <ol>
+ *   <li>an exact match for the queried node,</li>
+ *   <li>the most specific wildcard along the node's path,</li>
+ *   <li>{@link TriState#UNDEFINED} if neither exists.</li>
+ * </ol>
+ * If the same node is both granted and negated, the negation wins.
+ *
+ * Matching is case-insensitive, mirroring the behaviour of Bukkit permission nodes.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public final class PermissionTrie {
+
+  /**
+   * The wildcard segment used to grant or negate every node below a prefix.
+   */
+  public static final String WILDCARD = "*";
+
+  /**
+   * The prefix used to mark a node as negated when compiling from a flat node collection.
+   */
+  public static final char NEGATION = '-';
+
+  private static final PermissionTrie EMPTY = new PermissionTrie(new Node(), 0);
+
+  private final Node root;
+  private final int size;
+
+  private PermissionTrie(final Node root, final int size) {
+
+    this.root = root;
+    this.size = size;
+  }
+
+  /**
+   * Returns an empty trie that answers {@link TriState#UNDEFINED} for every node.
+   *
+   * @return the shared empty trie
+   */
+  @NotNull
+  public static PermissionTrie empty() {
+
+    return EMPTY;
+  }
+
+  /**
+   * Compiles the provided node states into a trie. Entries with a value of
+   * {@link TriState#UNDEFINED} are ignored.
+   *
+   * @param nodes the permission nodes and their states; must not be null
+   * @return the compiled trie
+   */
+  @NotNull
+  public static PermissionTrie compile(@NotNull final Map<String, TriState> nodes) {
+
+    if(nodes.isEmpty()) {
+      return EMPTY;
+    }
+
+    final BuildNode root = new BuildNode();
+    final Map<String, String> segments = new HashMap<>();
+    int size = 0;
+    for(final Map.Entry<String, TriState> entry : nodes.entrySet()) {
+      if(entry.getValue() != TriState.UNDEFINED && root.insert(entry.getKey(), entry.getValue(), segments)) {
+        size++;
+      }
+    }
+    return new PermissionTrie(root.freeze(), size);
+  }
+
+  /**
+   * Compiles the granted and negated nodes of a subject into a trie.
+   *
+   * @param granted the nodes that are granted; must not be null
+   * @param negated the nodes that are negated; must not be null
+   * @return the compiled trie
+   */
+  @NotNull
+  public static PermissionTrie compile(@NotNull final Collection<String> granted, @NotNull final Collection<String> negated) {
+
+    if(granted.isEmpty() && negated.isEmpty()) {
+      return EMPTY;
+    }
+
+    final BuildNode root = new BuildNode();
+    final Map<String, String> segments = new HashMap<>();
+    int size = 0;
+    for(final String node : granted) {
+      if(root.insert(node, TriState.TRUE, segments)) {
+        size++;
+      }
+    }
+    for(final String node : negated) {
+      if(root.insert(node, TriState.FALSE, segments)) {
+        size++;
+      }
+    }
+    return new PermissionTrie(root.freeze(), size);
+  }
+
+  /**
+   * Compiles a flat collection of nodes into a trie, where nodes prefixed with {@link #NEGATION}
+   * are treated as negated and all others as granted.
+   *
+   * @param nodes the nodes to compile; must not be null
+   * @return the compiled trie
+   */
+  @NotNull
+  public static PermissionTrie compile(@NotNull final Collection<String> nodes) {
+
+    final List<String> granted = new ArrayList<>(nodes.size());
+    final List<String> negated = new ArrayList<>();
+    for(final String node : nodes) {
+      if(!node.isEmpty() && node.charAt(0) == NEGATION) {
+        negated.add(node.substring(1));
+      } else {
+        granted.add(node);
+      }
+    }
+    return compile(granted, negated);
+  }
+
+  /**
+   * Resolves the state of the specified permission node.
+   *
+   * @param permission the permission node to resolve; must not be null
+   * @return the resolved {@link TriState} for the node
+   */
+  @NotNull
+  public TriState has(@NotNull final String permission) {
+
+    Node node = root;
+    TriState wildcard = root.wildcard;
+
+    final int length = permission.length();
+    int start = 0;
+    while(start <= length) {
+      int end = permission.indexOf('.', start);
+      if(end < 0) {
+        end = length;
+      }
+
+      node = node.child(permission, start, end);
+      if(node == null) {
+        return wildcard;
+      }
+
+      if(end == length) {
+        return (node.value != TriState.UNDEFINED)? node.value : wildcard;
+      }
+
+      if(node.wildcard != TriState.UNDEFINED) {
+        wildcard = node.wildcard;
+      }
+      start = end + 1;
+    }
+    return wildcard;
+  }
+
+  /**
+   * Resolves the highest or lowest numeric suffix granted directly below the given prefix, such as
+   * {@code 5} for a trie containing {@code homes.limit.5}. Only explicitly granted numeric nodes are
+   * considered; wildcards and negated nodes never contribute a value.
+   *
+   * @param prefix the node prefix preceding the numeric suffix, with or without the trailing dot; must not be null
+   * @param highest true to resolve the highest granted suffix; false to resolve the lowest
+   * @return an {@link OptionalLong} containing the resolved suffix, or an empty optional if none is granted
+   */
+  @NotNull
+  public OptionalLong numericValue(@NotNull final String prefix, final boolean highest) {
+
+    final int length = (prefix.endsWith("."))? prefix.length() - 1 : prefix.length();
+
+    Node node = root;
+    int start = 0;
+    while(node != null && start <= length) {
+      int end = prefix.indexOf('.', start);
+      if(end < 0 || end > length) {
+        end = length;
+      }
+      node = node.child(prefix, start, end);
+      start = end + 1;
+    }
+
+    if(node == null) {
+      return OptionalLong.empty();
+    }
+
+    boolean found = false;
+    long result = 0;
+    for(int i = 0; i < node.children.length; i++) {
+      if(node.children[i].value != TriState.TRUE) {
+        continue;
+      }
+
+      final long value = parse(node.segments[i]);
+      if(value < 0) {
+        continue;
+      }
+
+      if(!found || (highest? value > result : value < result)) {
+        result = value;
+        found = true;
+      }
+    }
+    return (found)? OptionalLong.of(result) : OptionalLong.empty();
+  }
+
+  /**
+   * Checks whether the trie contains no nodes.
+   *
+   * @return true if no nodes were compiled into this trie; false otherwise
+   */
+  public boolean isEmpty() {
+
+    return size == 0;
+  }
+
+  /**
+   * Retrieves the number of distinct nodes, including wildcards, compiled into this trie.
+   *
+   * @return the number of nodes in this trie
+   */
+  public int size() {
+
+    return size;
+  }
+
+  /**
+   * Returns the canonical instance of a node segment within one compilation, so that a segment
+   * repeated under many prefixes is stored once. The table lives only as long as the compilation,
+   * so segments of discarded tries are never retained.
+   *
+   * @param segment  the segment to intern
+   * @param segments the segments seen so far in this compilation
+   * @return the interned, lower-cased segment
+   */
+  static String intern(final String segment, final Map<String, String> segments) {
+
+    final String lower = segment.toLowerCase(Locale.ROOT);
+    final String existing = segments.putIfAbsent(lower, lower);
+    return (existing == null)? lower : existing;
+  }
+
+  /**
+   * Parses a segment consisting solely of decimal digits, returning -1 if the segment is not a
+   * non-negative number that fits in a long.
+   */
+  static long parse(final String segment) {
+
+    if(segment.isEmpty() || segment.length() > 18) {
+      return -1;
+    }
+
+    long value = 0;
+    for(int i = 0; i < segment.length(); i++) {
+      final char c = segment.charAt(i);
+      if(c < '0' || c > '9') {
+        return -1;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+
+  /**
+   * Computes the case-insensitive hash of a region of a string, matching {@link String#hashCode()}
+   * of the lower-cased region, without allocating.
+   */
+  static int hash(final String value, final int start, final int end) {
+
+    int hash = 0;
+    for(int i = start; i < end; i++) {
+      hash = 31 * hash + Character.toLowerCase(value.charAt(i));
+    }
+    return hash;
+  }
+
+  private static final class Node {
+
+    private static final String[] NO_SEGMENTS = new String[0];
+    private static final int[] NO_HASHES = new int[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private String[] segments = NO_SEGMENTS;
+    private int[] hashes = NO_HASHES;
+    private Node[] children = NO_CHILDREN;
+
+    private TriState value = TriState.UNDEFINED;
+    private TriState wildcard = TriState.UNDEFINED;
+
+    private Node child(final String permission, final int start, final int end) {
+
+      final int length = end - start;
+      final int hash = hash(permission, start, end);
+
+      //children are sorted by hash, so locate the first candidate and then scan collisions.
+      int index = Arrays.binarySearch(hashes, hash);
+      if(index < 0) {
+        return null;
+      }
+      while(index > 0 && hashes[index - 1] == hash) {
+        index--;
+      }
+
+      for(; index < hashes.length && hashes[index] == hash; index++) {
+        final String segment = segments[index];
+        if(segment.length() == length && permission.regionMatches(true, start, segment, 0, length)) {
+          return children[index];
+        }
+      }
+      return null;
+    }
+  }
+
+  private static final class BuildNode {
+
+    private final Map<String, BuildNode> children = new HashMap<>();
+
+    private TriState value = TriState.UNDEFINED;
+    private TriState wildcard = TriState.UNDEFINED;
+
+    private boolean insert(final String permission, final TriState state, final Map<String, String> segments) {
+
+      if(permission.isEmpty()) {
+        return false;
+      }
+
+      BuildNode node = this;
+      final int length = permission.length();
+      int start = 0;
+      while(true) {
+        int end = permission.indexOf('.', start);
+        if(end < 0) {
+          end = length;
+        }
+
+        final String segment = permission.substring(start, end);
+        if(end == length && segment.equals(WILDCARD)) {
+          final boolean added = node.wildcard == TriState.UNDEFINED;
+          node.wildcard = merge(node.wildcard, state);
+          return added;
+        }
+
+        node = node.children.computeIfAbsent(intern(segment, segments), k->new BuildNode());
+        if(end == length) {
+          final boolean added = node.value == TriState.UNDEFINED;
+          node.value = merge(node.value, state);
+          return added;
+        }
+        start = end + 1;
+      }
+    }
+
+    private static TriState merge(final TriState existing, final TriState state) {
+
+      return (existing == TriState.FALSE)? TriState.FALSE : state;
+    }
+
+    private Node freeze() {
+
+      final Node node = new Node();
+      node.value = value;
+      node.wildcard = wildcard;
+
+      if(!children.isEmpty()) {
+        final List<Map.Entry<String, BuildNode>> entries = new ArrayList<>(children.entrySet());
+        Collections.sort(entries, (a, b)->Integer.compare(a.getKey().hashCode(), b.getKey().hashCode()));
+
+        final int size = entries.size();
+        node.segments = new String[size];
+        node.hashes = new int[size];
+        node.children = new Node[size];
+        for(int i = 0; i < size; i++) {
+          final Map.Entry<String, BuildNode> entry = entries.get(i);
+          node.segments[i] = entry.getKey();
+          node.hashes[i] = entry.getKey().hashCode();
+          node.children[i] = entry.getValue().freeze();
+        }
+      }
+      return node;
+    }
+  }
+}
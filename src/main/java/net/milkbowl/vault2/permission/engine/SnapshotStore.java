@@ -0,0 +1,147 @@
+package net.milkbowl.vault2.permission.engine;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.helper.context.Context;
+import net.milkbowl.vault2.helper.subject.Subject;
+import net.milkbowl.vault2.permission.PermissionSnapshot;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Holds the current {@link PermissionSnapshot} of each subject per {@link Context} for providers.
+ *
+ * Reads never lock: a snapshot is published by replacing the map entry for the subject, so a
+ * reader on any thread sees either the previous snapshot or the new one in full. Providers call
+ * {@link #update(Context, Subject, PermissionSnapshot)} or {@link #invalidate(Context, Subject)}
+ * whenever a subject's permissions or groups change, and {@link #invalidateAll()} when group data
+ * shared between subjects changes.
+ *
+ * Contexts are matched by their values and subjects by their {@link Subject#identifier()}.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class SnapshotStore {
+
+  private final Map<Map<String, String>, Map<String, PermissionSnapshot>> snapshots = new ConcurrentHashMap<>();
+
+  private final BiFunction<Context, Subject, PermissionSnapshot> loader;
+
+  /**
+   * Constructs a new {@code SnapshotStore} that resolves missing snapshots with the provided loader.
+   *
+   * @param loader resolves a fresh snapshot for a context and subject; must not be null
+   */
+  public SnapshotStore(@NotNull final BiFunction<Context, Subject, PermissionSnapshot> loader) {
+
+    this.loader = loader;
+  }
+
+  /**
+   * Retrieves the current snapshot for the subject, resolving it with the loader if none is held.
+   *
+   * @param context the context of the snapshot; must not be null
+   * @param subject the subject of the snapshot; must not be null
+   * @return the current snapshot
+   */
+  @NotNull
+  public PermissionSnapshot get(@NotNull final Context context, @NotNull final Subject subject) {
+
+    final Map<String, PermissionSnapshot> subjects = subjects(context);
+    final PermissionSnapshot snapshot = subjects.get(subject.identifier());
+    if(snapshot != null) {
+      return snapshot;
+    }
+    return subjects.computeIfAbsent(subject.identifier(), k->loader.apply(context, subject));
+  }
+
+  /**
+   * Retrieves the current snapshot for the subject without resolving a missing one.
+   *
+   * @param context the context of the snapshot; must not be null
+   * @param subject the subject of the snapshot; must not be null
+   * @return the current snapshot, or null if none is held
+   */
+  @Nullable
+  public PermissionSnapshot getIfPresent(@NotNull final Context context, @NotNull final Subject subject) {
+
+    final Map<String, PermissionSnapshot> subjects = snapshots.get(context.asMap());
+    return (subjects == null)? null : subjects.get(subject.identifier());
+  }
+
+  /**
+   * Atomically replaces the snapshot held for the subject.
+   *
+   * @param context the context of the snapshot; must not be null
+   * @param subject the subject of the snapshot; must not be null
+   * @param snapshot the new snapshot; must not be null
+   */
+  public void update(@NotNull final Context context, @NotNull final Subject subject, @NotNull final PermissionSnapshot snapshot) {
+
+    subjects(context).put(subject.identifier(), snapshot);
+  }
+
+  /**
+   * Discards the snapshot held for the subject in the specified context, so that the next read
+   * resolves a fresh one.
+   *
+   * @param context the context of the snapshot; must not be null
+   * @param subject the subject of the snapshot; must not be null
+   */
+  public void invalidate(@NotNull final Context context, @NotNull final Subject subject) {
+
+    final Map<String, PermissionSnapshot> subjects = snapshots.get(context.asMap());
+    if(subjects != null) {
+      subjects.remove(subject.identifier());
+    }
+  }
+
+  /**
+   * Discards the snapshots held for the subject in every context.
+   *
+   * @param subject the subject whose snapshots are discarded; must not be null
+   */
+  public void invalidate(@NotNull final Subject subject) {
+
+    for(final Map<String, PermissionSnapshot> subjects : snapshots.values()) {
+      subjects.remove(subject.identifier());
+    }
+  }
+
+  /**
+   * Discards every held snapshot.
+   */
+  public void invalidateAll() {
+
+    snapshots.clear();
+  }
+
+  private Map<String, PermissionSnapshot> subjects(final Context context) {
+
+    final Map<String, PermissionSnapshot> subjects = snapshots.get(context.asMap());
+    if(subjects != null) {
+      return subjects;
+    }
+    return snapshots.computeIfAbsent(new HashMap<>(context.asMap()), k->new ConcurrentHashMap<>());
+  }
+}
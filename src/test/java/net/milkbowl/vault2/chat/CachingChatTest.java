@@ -0,0 +1,103 @@
+package net.milkbowl.vault2.chat;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.helper.context.Context;
+import net.milkbowl.vault2.helper.subject.Subject;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CachingChatTest {
+
+  private final Subject player = Subject.player(UUID.randomUUID(), "Player");
+
+  @Test
+  public void primitiveGettersReadThroughTheCache() {
+
+    final MapChat provider = new MapChat()
+            .value(player, IntInfoKey.of("homes"), 4)
+            .value(player, DoubleInfoKey.of("rate"), 1.5)
+            .value(player, BoolInfoKey.of("muted"), true);
+    final CachingChat chat = new CachingChat(provider, 16);
+
+    for(int i = 0; i < 3; i++) {
+      assertEquals(4, chat.getInt(Context.GLOBAL, player, IntInfoKey.of("homes"), 0));
+      assertEquals(1.5, chat.getDouble(Context.GLOBAL, player, DoubleInfoKey.of("rate"), 0.0), 0.0);
+      assertTrue(chat.getBool(Context.GLOBAL, player, BoolInfoKey.of("muted"), false));
+      assertEquals(7, chat.getInt(Context.GLOBAL, player, IntInfoKey.of("missing"), 7));
+    }
+    assertEquals(4, provider.lookups.get());
+  }
+
+  @Test
+  public void contextsWithEqualValuesShareEntries() {
+
+    final MapChat provider = new MapChat().value(player, IntInfoKey.of("homes"), 4);
+    final CachingChat chat = new CachingChat(provider, 16);
+
+    chat.getInt(new Context("world"), player, IntInfoKey.of("homes"), 0);
+    chat.getInt(new Context("world"), player, IntInfoKey.of("homes"), 0);
+    chat.getInt(new Context("nether"), player, IntInfoKey.of("homes"), 0);
+
+    assertEquals(2, provider.lookups.get());
+    assertEquals(2, chat.size());
+  }
+
+  @Test
+  public void invalidateDropsTheSubjectInEveryContext() {
+
+    final Subject other = Subject.player(UUID.randomUUID(), "Other");
+    final MapChat provider = new MapChat().value(player, IntInfoKey.of("homes"), 4);
+    final CachingChat chat = new CachingChat(provider, 16);
+
+    chat.getInt(new Context("world"), player, IntInfoKey.of("homes"), 0);
+    chat.getInt(new Context("nether"), player, IntInfoKey.of("homes"), 0);
+    chat.getInt(new Context("world"), other, IntInfoKey.of("homes"), 0);
+    chat.invalidate(player);
+    assertEquals(1, chat.size());
+
+    provider.value(player, IntInfoKey.of("homes"), 5);
+    assertEquals(5, chat.getInt(new Context("world"), player, IntInfoKey.of("homes"), 0));
+
+    chat.invalidateAll();
+    assertEquals(0, chat.size());
+  }
+
+  @Test
+  public void evictsTheLeastRecentlyReadEntries() {
+
+    final MapChat provider = new MapChat();
+    final CachingChat chat = new CachingChat(provider, 8);
+
+    final Subject kept = Subject.player(UUID.randomUUID(), "Kept");
+    chat.getInt(Context.GLOBAL, kept, IntInfoKey.of("homes"), 0);
+    for(int i = 0; i < 20; i++) {
+      chat.getInt(Context.GLOBAL, Subject.player(UUID.randomUUID(), "P" + i), IntInfoKey.of("homes"), 0);
+      chat.getInt(Context.GLOBAL, kept, IntInfoKey.of("homes"), 0);
+    }
+
+    assertFalse(chat.size() > 8);
+    final int lookups = provider.lookups.get();
+    chat.getInt(Context.GLOBAL, kept, IntInfoKey.of("homes"), 0);
+    assertEquals(lookups, provider.lookups.get());
+  }
+}
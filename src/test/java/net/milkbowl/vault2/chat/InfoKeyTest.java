@@ -0,0 +1,106 @@
+package net.milkbowl.vault2.chat;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.helper.context.Context;
+import net.milkbowl.vault2.helper.subject.Subject;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class InfoKeyTest {
+
+  private final Subject player = Subject.player(UUID.randomUUID(), "Player");
+
+  @Test
+  public void keysOfDifferentTypesOnOneNodeDiffer() {
+
+    assertFalse(InfoKey.stringKey("rank").equals(InfoKey.intKey("rank")));
+    assertFalse(InfoKey.intKey("rank").equals(InfoKey.doubleKey("rank")));
+    assertEquals(InfoKey.intKey("rank"), IntInfoKey.of("rank"));
+    assertEquals(InfoKey.intKey("rank").hashCode(), IntInfoKey.of("rank").hashCode());
+    assertEquals(InfoKey.stringKey("rank"), InfoKey.stringKey("rank"));
+  }
+
+  @Test
+  public void registryGivesEachTypedKeyItsOwnId() {
+
+    final InfoKeyRegistry registry = new InfoKeyRegistry();
+    final int text = registry.id(InfoKey.stringKey("rank"));
+    final int number = registry.id(IntInfoKey.of("rank"));
+
+    assertFalse(text == number);
+    assertEquals(text, registry.id(InfoKey.stringKey("rank")));
+    assertEquals(IntInfoKey.of("rank"), registry.key(number));
+    assertEquals(2, registry.size());
+  }
+
+  @Test
+  public void chatMetaKeepsTypedKeysOnOneNodeApart() {
+
+    final Map<InfoKey<?>, Object> values = new HashMap<>();
+    values.put(InfoKey.stringKey("rank"), "gold");
+    values.put(IntInfoKey.of("rank"), 3);
+    final ChatMeta meta = new ChatMeta(null, null, values);
+
+    assertEquals(3, meta.getInt(IntInfoKey.of("rank"), 0));
+    assertEquals(Optional.of("gold"), meta.get(InfoKey.stringKey("rank")));
+    assertEquals(1.5, meta.getDouble(DoubleInfoKey.of("rank"), 1.5), 0.0);
+    assertFalse(meta.contains(BoolInfoKey.of("rank")));
+  }
+
+  @Test
+  public void cacheKeepsTypedKeysOnOneNodeApart() {
+
+    final MapChat provider = new MapChat()
+            .value(player, InfoKey.stringKey("rank"), "gold")
+            .value(player, IntInfoKey.of("rank"), 3);
+    final CachingChat chat = new CachingChat(provider, 16);
+
+    assertEquals(Optional.of("gold"), chat.get(Context.GLOBAL, player, InfoKey.stringKey("rank")));
+    assertEquals(3, chat.getInt(Context.GLOBAL, player, IntInfoKey.of("rank"), 0));
+    assertEquals(Optional.of("gold"), chat.get(Context.GLOBAL, player, InfoKey.stringKey("rank")));
+    assertEquals(3, chat.getInt(Context.GLOBAL, player, IntInfoKey.of("rank"), 0));
+    assertEquals(2, provider.lookups.get());
+
+    final ChatMeta meta = chat.meta(Context.GLOBAL, player, Arrays.<InfoKey<?>>asList(InfoKey.stringKey("rank"), IntInfoKey.of("rank")));
+    assertEquals(3, meta.getInt(IntInfoKey.of("rank"), 0));
+    assertEquals("gold", meta.getOrDefault(InfoKey.stringKey("rank"), ""));
+  }
+
+  @Test
+  public void eachCacheHasItsOwnKeyIds() {
+
+    final MapChat provider = new MapChat().value(player, IntInfoKey.of("homes"), 4);
+    final CachingChat first = new CachingChat(provider, 16);
+    final CachingChat second = new CachingChat(provider, 16);
+
+    for(int i = 0; i < 100; i++) {
+      first.getInt(Context.GLOBAL, player, IntInfoKey.of("node" + i), 0);
+    }
+    assertEquals(4, second.getInt(Context.GLOBAL, player, IntInfoKey.of("homes"), 0));
+    assertEquals(4, first.getInt(Context.GLOBAL, player, IntInfoKey.of("homes"), 0));
+    assertEquals(102, provider.lookups.get());
+  }
+}
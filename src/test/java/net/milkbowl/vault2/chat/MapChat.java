@@ -0,0 +1,166 @@
+package net.milkbowl.vault2.chat;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.helper.context.Context;
+import net.milkbowl.vault2.helper.subject.Subject;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A chat provider over in-memory maps that relies on every default method of {@link ChatUnlocked},
+ * counting the lookups made against it. Values are stored per subject and {@link InfoKey}.
+ */
+public class MapChat implements ChatUnlocked {
+
+  final Map<String, String> prefixes = new ConcurrentHashMap<>();
+  final Map<String, String> suffixes = new ConcurrentHashMap<>();
+  final Map<String, Map<InfoKey<?>, Object>> values = new ConcurrentHashMap<>();
+  final AtomicInteger lookups = new AtomicInteger();
+
+  <T> MapChat value(final Subject subject, final InfoKey<T> key, final T value) {
+
+    values.computeIfAbsent(subject.identifier(), k->new ConcurrentHashMap<>()).put(key, value);
+    return this;
+  }
+
+  @Override
+  public boolean isEnabled() {
+
+    return true;
+  }
+
+  @Override
+  public String getName() {
+
+    return "Map";
+  }
+
+  @Override
+  public boolean hasGroupSupport() {
+
+    return true;
+  }
+
+  @Override
+  public Optional<String> getPrefix(final Context context, final Subject subject) {
+
+    lookups.incrementAndGet();
+    return Optional.ofNullable(prefixes.get(subject.identifier()));
+  }
+
+  @Override
+  public CompletableFuture<Optional<String>> getPrefixAsync(final Context context, final Subject subject) {
+
+    return CompletableFuture.completedFuture(getPrefix(context, subject));
+  }
+
+  @Override
+  public Optional<String> getSuffix(final Context context, final Subject subject) {
+
+    lookups.incrementAndGet();
+    return Optional.ofNullable(suffixes.get(subject.identifier()));
+  }
+
+  @Override
+  public CompletableFuture<Optional<String>> getSuffixAsync(final Context context, final Subject subject) {
+
+    return CompletableFuture.completedFuture(getSuffix(context, subject));
+  }
+
+  @Override
+  public boolean setPrefix(final Context context, final Subject subject, final String prefix) {
+
+    prefixes.put(subject.identifier(), prefix);
+    return true;
+  }
+
+  @Override
+  public CompletableFuture<Boolean> setPrefixAsync(final Context context, final Subject subject, final String prefix) {
+
+    return CompletableFuture.completedFuture(setPrefix(context, subject, prefix));
+  }
+
+  @Override
+  public boolean copyPrefix(final Context context, final Subject from, final Subject to) {
+
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public CompletableFuture<Boolean> copyPrefixAsync(final Context context, final Subject from, final Subject to) {
+
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean setSuffix(final Context context, final Subject subject, final String suffix) {
+
+    suffixes.put(subject.identifier(), suffix);
+    return true;
+  }
+
+  @Override
+  public CompletableFuture<Boolean> setSuffixAsync(final Context context, final Subject subject, final String suffix) {
+
+    return CompletableFuture.completedFuture(setSuffix(context, subject, suffix));
+  }
+
+  @Override
+  public boolean copySuffix(final Context context, final Subject from, final Subject to) {
+
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public CompletableFuture<Boolean> copySuffixAsync(final Context context, final Subject from, final Subject to) {
+
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> Optional<T> get(final Context context, final Subject subject, final InfoKey<T> key) {
+
+    lookups.incrementAndGet();
+    final Map<InfoKey<?>, Object> subjectValues = values.get(subject.identifier());
+    return Optional.ofNullable((subjectValues == null)? null : (T)subjectValues.get(key));
+  }
+
+  @Override
+  public <T> CompletableFuture<Optional<T>> getAsync(final Context context, final Subject subject, final InfoKey<T> key) {
+
+    return CompletableFuture.completedFuture(get(context, subject, key));
+  }
+
+  @Override
+  public <T> boolean set(final Context context, final Subject subject, final InfoKey<T> key, final T value) {
+
+    value(subject, key, value);
+    return true;
+  }
+
+  @Override
+  public <T> CompletableFuture<Boolean> setAsync(final Context context, final Subject subject, final InfoKey<T> key, final T value) {
+
+    return CompletableFuture.completedFuture(set(context, subject, key, value));
+  }
+}
@@ -0,0 +1,249 @@
+package net.milkbowl.vault2.economy.async;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.EconomyResponse;
+import net.milkbowl.vault2.economy.EconomyResponse.ResponseType;
+import net.milkbowl.vault2.economy.MultiEconomyResponse;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncTransferTest {
+
+  private static final UUID FROM = UUID.randomUUID();
+  private static final UUID TO = UUID.randomUUID();
+  private static final BigDecimal AMOUNT = new BigDecimal("10");
+
+  private final List<BigDecimal> deposits = new CopyOnWriteArrayList<>();
+  private final List<BigDecimal> refunds = new CopyOnWriteArrayList<>();
+
+  @Test
+  public void depositsTheRequestedAmountOnSuccess() throws Exception {
+
+    final MultiEconomyResponse response = AsyncTransfer.compose(FROM, TO, AMOUNT, 1, TimeUnit.SECONDS,
+        ()->done(response(new BigDecimal("999"), ResponseType.SUCCESS)),
+        value->record(deposits, value, ResponseType.SUCCESS),
+        value->record(refunds, value, ResponseType.SUCCESS)).get(5, TimeUnit.SECONDS);
+
+    assertEquals(ResponseType.SUCCESS, response.type);
+    assertEquals(AMOUNT, response.amount);
+    assertEquals(1, deposits.size());
+    assertEquals(AMOUNT, deposits.get(0));
+    assertTrue(refunds.isEmpty());
+  }
+
+  @Test
+  public void failedWithdrawalDepositsNothing() throws Exception {
+
+    final MultiEconomyResponse response = AsyncTransfer.compose(FROM, TO, AMOUNT, 1, TimeUnit.SECONDS,
+        ()->done(response(AMOUNT, ResponseType.FAILURE)),
+        value->record(deposits, value, ResponseType.SUCCESS),
+        value->record(refunds, value, ResponseType.SUCCESS)).get(5, TimeUnit.SECONDS);
+
+    assertEquals(ResponseType.FAILURE, response.type);
+    assertTrue(deposits.isEmpty());
+    assertTrue(refunds.isEmpty());
+  }
+
+  @Test
+  public void failedDepositRefundsTheSameAmount() throws Exception {
+
+    final MultiEconomyResponse response = AsyncTransfer.compose(FROM, TO, AMOUNT, 1, TimeUnit.SECONDS,
+        ()->done(response(new BigDecimal("999"), ResponseType.SUCCESS)),
+        value->record(deposits, value, ResponseType.FAILURE),
+        value->record(refunds, value, ResponseType.SUCCESS)).get(5, TimeUnit.SECONDS);
+
+    assertEquals(ResponseType.FAILURE, response.type);
+    assertEquals(1, deposits.size());
+    assertEquals(1, refunds.size());
+    assertEquals(deposits.get(0), refunds.get(0));
+    assertEquals(AMOUNT, refunds.get(0));
+  }
+
+  @Test
+  public void throwingDepositIsRefunded() throws Exception {
+
+    final CompletableFuture<MultiEconomyResponse> transfer = AsyncTransfer.compose(FROM, TO, AMOUNT, 1, TimeUnit.SECONDS,
+        ()->done(response(AMOUNT, ResponseType.SUCCESS)),
+        value->{
+          throw new IllegalStateException("down");
+        },
+        value->record(refunds, value, ResponseType.SUCCESS));
+
+    try {
+      transfer.get(5, TimeUnit.SECONDS);
+      fail("A throwing deposit must fail the transfer.");
+    } catch(final ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    assertEquals(1, refunds.size());
+    assertEquals(AMOUNT, refunds.get(0));
+  }
+
+  @Test
+  public void lateWithdrawalIsRefunded() throws Exception {
+
+    final CompletableFuture<EconomyResponse> withdrawal = new CompletableFuture<>();
+    final CompletableFuture<MultiEconomyResponse> transfer = AsyncTransfer.compose(FROM, TO, AMOUNT, 20, TimeUnit.MILLISECONDS,
+        ()->withdrawal,
+        value->record(deposits, value, ResponseType.SUCCESS),
+        value->record(refunds, value, ResponseType.SUCCESS));
+
+    assertTimedOut(transfer);
+    withdrawal.complete(response(AMOUNT, ResponseType.SUCCESS));
+
+    assertTrue(deposits.isEmpty());
+    assertEquals(1, refunds.size());
+    assertEquals(AMOUNT, refunds.get(0));
+  }
+
+  @Test
+  public void lateDepositFailureIsRefunded() throws Exception {
+
+    final CompletableFuture<EconomyResponse> deposit = new CompletableFuture<>();
+    final CompletableFuture<MultiEconomyResponse> transfer = AsyncTransfer.compose(FROM, TO, AMOUNT, 20, TimeUnit.MILLISECONDS,
+        ()->done(response(AMOUNT, ResponseType.SUCCESS)),
+        value->deposit,
+        value->record(refunds, value, ResponseType.SUCCESS));
+
+    assertTimedOut(transfer);
+    deposit.complete(response(AMOUNT, ResponseType.FAILURE));
+
+    assertEquals(1, refunds.size());
+    assertEquals(AMOUNT, refunds.get(0));
+  }
+
+  @Test
+  public void lateDepositSuccessIsNotRefunded() throws Exception {
+
+    final CompletableFuture<EconomyResponse> deposit = new CompletableFuture<>();
+    final CompletableFuture<MultiEconomyResponse> transfer = AsyncTransfer.compose(FROM, TO, AMOUNT, 20, TimeUnit.MILLISECONDS,
+        ()->done(response(AMOUNT, ResponseType.SUCCESS)),
+        value->deposit,
+        value->record(refunds, value, ResponseType.SUCCESS));
+
+    assertTimedOut(transfer);
+    deposit.complete(response(AMOUNT, ResponseType.SUCCESS));
+
+    assertTrue(refunds.isEmpty());
+  }
+
+  @Test
+  public void lateOutcomesAreReported() throws Exception {
+
+    final List<LateOutcome> outcomes = new CopyOnWriteArrayList<>();
+    final LateOutcomeListener listener = (from, to, amount, outcome, response, failure)->outcomes.add(outcome);
+    final long refunded = AsyncTransfer.lateOutcomes(LateOutcome.REFUNDED);
+    final long deposited = AsyncTransfer.lateOutcomes(LateOutcome.DEPOSITED);
+
+    final CompletableFuture<EconomyResponse> withdrawal = new CompletableFuture<>();
+    assertTimedOut(AsyncTransfer.compose(FROM, TO, AMOUNT, 20, TimeUnit.MILLISECONDS, listener,
+        ()->withdrawal,
+        value->record(deposits, value, ResponseType.SUCCESS),
+        value->record(refunds, value, ResponseType.SUCCESS)));
+    withdrawal.complete(response(AMOUNT, ResponseType.SUCCESS));
+
+    final CompletableFuture<EconomyResponse> deposit = new CompletableFuture<>();
+    assertTimedOut(AsyncTransfer.compose(FROM, TO, AMOUNT, 20, TimeUnit.MILLISECONDS, listener,
+        ()->done(response(AMOUNT, ResponseType.SUCCESS)),
+        value->deposit,
+        value->record(refunds, value, ResponseType.SUCCESS)));
+    deposit.complete(response(AMOUNT, ResponseType.SUCCESS));
+
+    assertEquals(Arrays.asList(LateOutcome.REFUNDED, LateOutcome.DEPOSITED), outcomes);
+    assertTrue(AsyncTransfer.lateOutcomes(LateOutcome.REFUNDED) > refunded);
+    assertTrue(AsyncTransfer.lateOutcomes(LateOutcome.DEPOSITED) > deposited);
+  }
+
+  @Test
+  public void failedLateRefundIsReported() throws Exception {
+
+    final List<Throwable> failures = new CopyOnWriteArrayList<>();
+    final List<LateOutcome> outcomes = new CopyOnWriteArrayList<>();
+    final CompletableFuture<EconomyResponse> deposit = new CompletableFuture<>();
+    assertTimedOut(AsyncTransfer.compose(FROM, TO, AMOUNT, 20, TimeUnit.MILLISECONDS,
+        (from, to, amount, outcome, response, failure)->{
+          outcomes.add(outcome);
+          failures.add(failure);
+        },
+        ()->done(response(AMOUNT, ResponseType.SUCCESS)),
+        value->deposit,
+        value->{
+          throw new IllegalStateException("down");
+        }));
+    deposit.complete(response(AMOUNT, ResponseType.FAILURE));
+
+    assertEquals(Collections.singletonList(LateOutcome.REFUND_FAILED), outcomes);
+    assertTrue(failures.get(0) instanceof IllegalStateException);
+  }
+
+  @Test
+  public void lateWithdrawalFailureIsReported() throws Exception {
+
+    final List<LateOutcome> outcomes = new CopyOnWriteArrayList<>();
+    final CompletableFuture<EconomyResponse> withdrawal = new CompletableFuture<>();
+    assertTimedOut(AsyncTransfer.compose(FROM, TO, AMOUNT, 20, TimeUnit.MILLISECONDS,
+        (from, to, amount, outcome, response, failure)->outcomes.add(outcome),
+        ()->withdrawal,
+        value->record(deposits, value, ResponseType.SUCCESS),
+        value->record(refunds, value, ResponseType.SUCCESS)));
+    withdrawal.complete(response(AMOUNT, ResponseType.FAILURE));
+
+    assertEquals(Collections.singletonList(LateOutcome.WITHDRAWAL_FAILED), outcomes);
+    assertTrue(refunds.isEmpty());
+  }
+
+  private static void assertTimedOut(final CompletableFuture<MultiEconomyResponse> transfer) throws Exception {
+
+    try {
+      transfer.get(5, TimeUnit.SECONDS);
+      fail("The transfer should have timed out.");
+    } catch(final ExecutionException e) {
+      assertTrue(EconomyTimeouts.isTimeout(e));
+    }
+  }
+
+  private static CompletableFuture<EconomyResponse> record(final List<BigDecimal> calls, final BigDecimal value,
+                                                           final ResponseType type) {
+
+    calls.add(value);
+    return done(response(value, type));
+  }
+
+  private static EconomyResponse response(final BigDecimal amount, final ResponseType type) {
+
+    return new EconomyResponse(amount, BigDecimal.ZERO, type, (type == ResponseType.SUCCESS)? "" : "failed");
+  }
+
+  private static CompletableFuture<EconomyResponse> done(final EconomyResponse response) {
+
+    return CompletableFuture.completedFuture(response);
+  }
+}
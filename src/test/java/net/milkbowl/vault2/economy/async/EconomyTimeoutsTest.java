@@ -0,0 +1,115 @@
+package net.milkbowl.vault2.economy.async;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EconomyTimeoutsTest {
+
+  @Test
+  public void timeoutCompletesOffTheTimerThread() throws Exception {
+
+    final AtomicReference<String> thread = new AtomicReference<>();
+    final CompletableFuture<String> bounded = EconomyTimeouts.within(new CompletableFuture<String>(), 10, TimeUnit.MILLISECONDS, "Test")
+            .whenComplete((value, failure)->thread.set(Thread.currentThread().getName()));
+
+    assertTimedOut(bounded);
+    assertFalse("vault-economy-timeouts".equals(thread.get()));
+  }
+
+  @Test
+  public void timeoutCompletesOnTheSuppliedExecutor() throws Exception {
+
+    final AtomicReference<String> thread = new AtomicReference<>();
+    final Executor executor = runnable->{
+      final Thread worker = new Thread(runnable, "test-completer");
+      worker.setDaemon(true);
+      worker.start();
+    };
+    final CompletableFuture<String> source = new CompletableFuture<>();
+    final CompletableFuture<String> bounded = EconomyTimeouts.within(source, 10, TimeUnit.MILLISECONDS, "Test", true, executor)
+            .whenComplete((value, failure)->thread.set(Thread.currentThread().getName()));
+
+    assertTimedOut(bounded);
+    assertEquals("test-completer", thread.get());
+    source.handle((value, failure)->failure).get(5, TimeUnit.SECONDS);
+    assertTrue(source.isCancelled());
+  }
+
+  @Test
+  public void completionBeforeTheTimeoutWins() throws Exception {
+
+    final CompletableFuture<String> source = new CompletableFuture<>();
+    final CompletableFuture<String> bounded = EconomyTimeouts.within(source, 1, TimeUnit.SECONDS, "Test");
+
+    source.complete("done");
+    assertEquals("done", bounded.get(5, TimeUnit.SECONDS));
+    assertFalse(source.isCancelled());
+  }
+
+  @Test
+  public void blockedCompletionsDoNotGrowThePool() throws Exception {
+
+    final Set<String> threads = ConcurrentHashMap.newKeySet();
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<CompletableFuture<String>> bounded = new ArrayList<>();
+    for(int i = 0; i < EconomyTimeouts.Timer.COMPLETER_THREADS * 4; i++) {
+      bounded.add(EconomyTimeouts.within(new CompletableFuture<String>(), 10, TimeUnit.MILLISECONDS, "Test")
+              .whenComplete((value, failure)->{
+                threads.add(Thread.currentThread().getName());
+                try {
+                  release.await(5, TimeUnit.SECONDS);
+                } catch(final InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                }
+              }));
+    }
+
+    Thread.sleep(200);
+    release.countDown();
+    for(final CompletableFuture<String> future : bounded) {
+      assertTimedOut(future);
+    }
+    assertTrue(threads.size() <= EconomyTimeouts.Timer.COMPLETER_THREADS);
+  }
+
+  private static void assertTimedOut(final CompletableFuture<String> bounded) throws Exception {
+
+    try {
+      bounded.get(5, TimeUnit.SECONDS);
+      fail("The future should have timed out.");
+    } catch(final ExecutionException e) {
+      assertTrue(EconomyTimeouts.isTimeout(e));
+    }
+  }
+}
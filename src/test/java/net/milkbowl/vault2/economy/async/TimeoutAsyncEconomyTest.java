@@ -0,0 +1,111 @@
+package net.milkbowl.vault2.economy.async;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.AsyncEconomy;
+import net.milkbowl.vault2.economy.EconomyResponse;
+import net.milkbowl.vault2.economy.EconomyResponse.ResponseType;
+import net.milkbowl.vault2.economy.MultiEconomyResponse;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TimeoutAsyncEconomyTest {
+
+  private static final UUID FROM = UUID.randomUUID();
+  private static final UUID TO = UUID.randomUUID();
+  private static final BigDecimal AMOUNT = new BigDecimal("10");
+
+  private final List<String> calls = new CopyOnWriteArrayList<>();
+  private final CompletableFuture<EconomyResponse> pendingDeposit = new CompletableFuture<>();
+
+  @Test
+  public void transferRunsThroughTheViewsStages() throws Exception {
+
+    final AsyncEconomy view = new TimeoutAsyncEconomy(delegate(true), 1, TimeUnit.SECONDS);
+    final MultiEconomyResponse response = view.transfer("test", FROM, TO, AMOUNT).get(5, TimeUnit.SECONDS);
+
+    assertEquals(ResponseType.SUCCESS, response.type);
+    assertEquals(2, calls.size());
+    assertEquals("withdraw " + FROM, calls.get(0));
+    assertEquals("deposit " + TO, calls.get(1));
+  }
+
+  @Test
+  public void transferDepositIsBoundedByTheDeadline() throws Exception {
+
+    final AsyncEconomy view = new TimeoutAsyncEconomy(delegate(false), Deadline.after(50, TimeUnit.MILLISECONDS));
+    final CompletableFuture<MultiEconomyResponse> transfer = view.transfer("test", FROM, TO, AMOUNT);
+
+    try {
+      transfer.get(5, TimeUnit.SECONDS);
+      fail("The transfer should have timed out at the deadline.");
+    } catch(final ExecutionException e) {
+      assertTrue(EconomyTimeouts.isTimeout(e));
+    }
+
+    pendingDeposit.complete(new EconomyResponse(AMOUNT, BigDecimal.ZERO, ResponseType.FAILURE, "failed"));
+    assertEquals("deposit " + FROM, calls.get(calls.size() - 1));
+  }
+
+  @Test
+  public void expiredDeadlineFailsTransferWithoutReachingTheDelegate() throws Exception {
+
+    final AsyncEconomy view = new TimeoutAsyncEconomy(delegate(true), Deadline.after(0, TimeUnit.NANOSECONDS));
+
+    try {
+      view.transfer("test", FROM, TO, AMOUNT).get(5, TimeUnit.SECONDS);
+      fail("A transfer after the deadline should fail at once.");
+    } catch(final ExecutionException e) {
+      assertTrue(EconomyTimeouts.isTimeout(e));
+    }
+    assertTrue(calls.isEmpty());
+  }
+
+  /**
+   * Creates a delegate that records withdrawals and deposits, answering deposits to the target at
+   * once only if {@code settle} is true.
+   */
+  private AsyncEconomy delegate(final boolean settle) {
+
+    return (AsyncEconomy)Proxy.newProxyInstance(AsyncEconomy.class.getClassLoader(), new Class<?>[] { AsyncEconomy.class }, (proxy, method, args)->{
+
+      final String name = method.getName();
+      if(!name.equals("withdraw") && !name.equals("deposit")) {
+        throw new UnsupportedOperationException(name);
+      }
+
+      final UUID account = (UUID)args[1];
+      calls.add(name + " " + account);
+      if(!settle && name.equals("deposit") && account.equals(TO)) {
+        return pendingDeposit;
+      }
+      return CompletableFuture.completedFuture(new EconomyResponse(AMOUNT, BigDecimal.ZERO, ResponseType.SUCCESS, ""));
+    });
+  }
+}
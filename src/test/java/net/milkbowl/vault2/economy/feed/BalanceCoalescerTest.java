@@ -0,0 +1,101 @@
+package net.milkbowl.vault2.economy.feed;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BalanceCoalescerTest {
+
+  private final UUID account = UUID.randomUUID();
+  private final List<BalanceChanged> received = new ArrayList<>();
+  private final BalanceCoalescer coalescer = new BalanceCoalescer(received::add);
+
+  private BalanceChanged change(final String currency, final int from, final int to) {
+
+    return new BalanceChanged(account, null, currency, BigDecimal.valueOf(from), BigDecimal.valueOf(to), "test");
+  }
+
+  @Test
+  public void collapsesAWindowIntoOneEvent() {
+
+    coalescer.accept(change(null, 10, 15));
+    coalescer.accept(change(null, 15, 7));
+    coalescer.accept(change(null, 7, 12));
+
+    assertEquals(1, coalescer.flush());
+    assertEquals(1, received.size());
+    assertEquals(BigDecimal.valueOf(10), received.get(0).oldBalance());
+    assertEquals(BigDecimal.valueOf(12), received.get(0).newBalance());
+    assertEquals(3, received.get(0).changes());
+    assertEquals(3, coalescer.absorbed());
+    assertEquals(1, coalescer.emitted());
+  }
+
+  @Test
+  public void netZeroWindowEmitsNothing() {
+
+    coalescer.accept(change(null, 10, 15));
+    coalescer.accept(change(null, 15, 10));
+
+    assertEquals(0, coalescer.flush());
+    assertTrue(received.isEmpty());
+    assertEquals(0, coalescer.pending());
+  }
+
+  @Test
+  public void netZeroIgnoresScale() {
+
+    coalescer.accept(new BalanceChanged(account, null, null, new BigDecimal("10.00"), new BigDecimal("12.5"), "test"));
+    coalescer.accept(new BalanceChanged(account, null, null, new BigDecimal("12.5"), new BigDecimal("10"), "test"));
+
+    assertEquals(0, coalescer.flush());
+  }
+
+  @Test
+  public void netZeroWindowDoesNotLeakIntoTheNext() {
+
+    coalescer.accept(change(null, 10, 15));
+    coalescer.accept(change(null, 15, 10));
+    coalescer.flush();
+
+    coalescer.accept(change(null, 10, 4));
+    assertEquals(1, coalescer.flush());
+    assertEquals(BigDecimal.valueOf(10), received.get(0).oldBalance());
+    assertEquals(BigDecimal.valueOf(4), received.get(0).newBalance());
+    assertEquals(1, received.get(0).changes());
+  }
+
+  @Test
+  public void keepsBalancesOfEachCurrencyApart() {
+
+    coalescer.accept(change(null, 10, 15));
+    coalescer.accept(change("gems", 1, 2));
+    coalescer.accept(change("gems", 2, 1));
+    coalescer.accept(change("tokens", 0, 3));
+
+    assertEquals(2, coalescer.flush());
+    assertEquals(0, coalescer.flush());
+  }
+}
@@ -0,0 +1,128 @@
+package net.milkbowl.vault2.economy.feed;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EconomyChangeFeedTest {
+
+  private static BalanceChanged event(final int balance) {
+
+    return new BalanceChanged(UUID.randomUUID(), null, null, BigDecimal.ZERO, BigDecimal.valueOf(balance), "test");
+  }
+
+  @Test
+  public void discardsEventsWithoutSubscribers() {
+
+    final EconomyChangeFeed feed = new EconomyChangeFeed(4, OverflowPolicy.DROP_NEWEST);
+
+    assertFalse(feed.publish(event(1)));
+    assertEquals(0, feed.size());
+  }
+
+  @Test
+  public void dropNewestCountsDiscardedEvents() {
+
+    final EconomyChangeFeed feed = new EconomyChangeFeed(4, OverflowPolicy.DROP_NEWEST);
+    final AtomicInteger received = new AtomicInteger();
+    feed.subscribe(event->received.incrementAndGet());
+
+    for(int i = 0; i < 6; i++) {
+      feed.publish(event(i));
+    }
+
+    assertEquals(2, feed.dropped());
+    assertEquals(4, feed.drain());
+    assertEquals(4, received.get());
+  }
+
+  @Test
+  public void blockingPublishFromDispatcherListenerDrainsInline() throws InterruptedException {
+
+    final ExecutorService dispatcher = Executors.newSingleThreadExecutor();
+    try {
+      final EconomyChangeFeed feed = new EconomyChangeFeed(2, OverflowPolicy.BLOCK, dispatcher, 1);
+      final AtomicInteger received = new AtomicInteger();
+      final CountDownLatch done = new CountDownLatch(1);
+      feed.subscribe(event->{
+        //every listener call refills the ring from the dispatcher thread until 64 events were seen.
+        if(received.incrementAndGet() < 64) {
+          for(int i = 0; i < 4; i++) {
+            feed.publish(event(i));
+          }
+        } else {
+          done.countDown();
+        }
+      });
+
+      feed.publish(event(0));
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+      assertEquals(0, feed.dropped());
+    } finally {
+      dispatcher.shutdownNow();
+    }
+  }
+
+  @Test
+  public void concurrentDrainsDeliverInPublicationOrder() throws InterruptedException {
+
+    final EconomyChangeFeed feed = new EconomyChangeFeed(8, OverflowPolicy.BLOCK, null, 2);
+    final List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+    feed.subscribe(event->received.add(event.newBalance().intValue()));
+
+    final int events = 20_000;
+    final AtomicBoolean publishing = new AtomicBoolean(true);
+    final Runnable drainer = ()->{
+      while(publishing.get()) {
+        feed.drain();
+      }
+    };
+    final Thread first = new Thread(drainer);
+    final Thread second = new Thread(drainer);
+    first.start();
+    second.start();
+
+    for(int i = 0; i < events; i++) {
+      feed.publish(event(i));
+    }
+    publishing.set(false);
+    first.join();
+    second.join();
+    feed.drain();
+
+    assertEquals(events, received.size());
+    for(int i = 0; i < events; i++) {
+      assertEquals(i, (int)received.get(i));
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package net.milkbowl.vault2.economy.feed;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ThresholdIndexTest {
+
+  private final UUID account = UUID.randomUUID();
+  private final ThresholdIndex index = new ThresholdIndex();
+  private final List<String> crossings = new ArrayList<>();
+
+  private ThresholdSubscription watch(final UUID account, final int threshold, final ThresholdDirection direction) {
+
+    return index.add(account, null, BigDecimal.valueOf(threshold), direction,
+                     (event, crossed, way)->crossings.add(way + " " + crossed));
+  }
+
+  private void change(final UUID account, final int from, final int to) {
+
+    index.accept(new BalanceChanged(account, null, null, BigDecimal.valueOf(from), BigDecimal.valueOf(to), "test"));
+  }
+
+  @Test
+  public void upwardCrossingExcludesTheOldAndIncludesTheNewBalance() {
+
+    watch(null, 100, ThresholdDirection.EITHER);
+
+    change(account, 100, 150);
+    assertTrue(crossings.isEmpty());
+
+    change(account, 50, 100);
+    assertEquals(Arrays.asList("UPWARD 100"), crossings);
+  }
+
+  @Test
+  public void downwardCrossingExcludesTheNewAndIncludesTheOldBalance() {
+
+    watch(null, 100, ThresholdDirection.EITHER);
+
+    change(account, 150, 100);
+    assertTrue(crossings.isEmpty());
+
+    change(account, 100, 99);
+    assertEquals(Arrays.asList("DOWNWARD 100"), crossings);
+  }
+
+  @Test
+  public void reportsOnlyTheSubscribedDirection() {
+
+    watch(null, 100, ThresholdDirection.UPWARD);
+    watch(null, 200, ThresholdDirection.DOWNWARD);
+
+    change(account, 50, 250);
+    change(account, 250, 50);
+    assertEquals(Arrays.asList("UPWARD 100", "DOWNWARD 200"), crossings);
+  }
+
+  @Test
+  public void reportsSeveralThresholdsInTheOrderTheyWerePassed() {
+
+    watch(null, 100, ThresholdDirection.EITHER);
+    watch(null, 200, ThresholdDirection.EITHER);
+    watch(null, 300, ThresholdDirection.EITHER);
+
+    change(account, 100, 300);
+    assertEquals(Arrays.asList("UPWARD 200", "UPWARD 300"), crossings);
+
+    crossings.clear();
+    change(account, 350, 50);
+    assertEquals(Arrays.asList("DOWNWARD 300", "DOWNWARD 200", "DOWNWARD 100"), crossings);
+  }
+
+  @Test
+  public void accountSubscriptionsIgnoreOtherAccounts() {
+
+    watch(account, 100, ThresholdDirection.EITHER);
+
+    change(UUID.randomUUID(), 50, 150);
+    assertTrue(crossings.isEmpty());
+
+    change(account, 50, 150);
+    assertEquals(Arrays.asList("UPWARD 100"), crossings);
+  }
+
+  @Test
+  public void currenciesAreIndexedApart() {
+
+    index.add(null, "gems", BigDecimal.valueOf(100), ThresholdDirection.EITHER,
+              (event, crossed, way)->crossings.add("gems " + crossed));
+
+    change(account, 50, 150);
+    assertTrue(crossings.isEmpty());
+
+    index.accept(new BalanceChanged(account, null, "gems", BigDecimal.valueOf(50), BigDecimal.valueOf(150), "test"));
+    assertEquals(Arrays.asList("gems 100"), crossings);
+  }
+
+  @Test
+  public void cancelledSubscriptionsAreRemoved() {
+
+    final ThresholdSubscription first = watch(null, 100, ThresholdDirection.EITHER);
+    final ThresholdSubscription second = watch(account, 100, ThresholdDirection.EITHER);
+    final ThresholdSubscription third = watch(null, 200, ThresholdDirection.EITHER);
+    assertEquals(2, index.size());
+
+    first.cancel();
+    assertEquals(2, index.size());
+    change(account, 50, 250);
+    assertEquals(Arrays.asList("UPWARD 100", "UPWARD 200"), crossings);
+
+    second.cancel();
+    third.cancel();
+    assertEquals(0, index.size());
+
+    crossings.clear();
+    change(account, 250, 50);
+    assertTrue(crossings.isEmpty());
+  }
+}
@@ -0,0 +1,105 @@
+package net.milkbowl.vault2.economy.hold;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.BalanceKey;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HoldWheelTest {
+
+  private static final long TICK = 10;
+
+  private static Hold hold(final long id, final long deadline) {
+
+    final BalanceKey key = new BalanceKey(UUID.randomUUID(), null, null);
+    return new Hold(new HoldId(id), key, key, BigDecimal.ONE, "Test", 0, deadline);
+  }
+
+  @Test
+  public void expiresHoldsWhenTheirTickPasses() {
+
+    final HoldWheel wheel = new HoldWheel(TICK, 4, 0);
+    final Hold early = hold(1, 15);
+    final Hold late = hold(2, 35);
+    wheel.schedule(early);
+    wheel.schedule(late);
+
+    assertTrue(wheel.advance(19).isEmpty());
+
+    final List<Hold> first = wheel.advance(20);
+    assertEquals(1, first.size());
+    assertSame(early, first.get(0));
+
+    final List<Hold> second = wheel.advance(40);
+    assertEquals(1, second.size());
+    assertSame(late, second.get(0));
+  }
+
+  @Test
+  public void keepsHoldsSeveralRotationsAway() {
+
+    final HoldWheel wheel = new HoldWheel(TICK, 4, 0);
+    final Hold far = hold(1, 100);
+    wheel.schedule(far);
+
+    assertTrue(wheel.advance(50).isEmpty());
+    assertTrue(wheel.advance(90).isEmpty());
+    assertEquals(1, wheel.advance(100).size());
+  }
+
+  @Test
+  public void skippingManyRotationsVisitsEverySlot() {
+
+    final HoldWheel wheel = new HoldWheel(TICK, 4, 0);
+    final Hold a = hold(1, 20);
+    final Hold b = hold(2, 30);
+    wheel.schedule(a);
+    wheel.schedule(b);
+
+    assertEquals(2, wheel.advance(1_000).size());
+  }
+
+  @Test
+  public void finishedHoldsAreDropped() {
+
+    final HoldWheel wheel = new HoldWheel(TICK, 4, 0);
+    final Hold hold = hold(1, 20);
+    wheel.schedule(hold);
+    hold.active = false;
+
+    assertTrue(wheel.advance(40).isEmpty());
+  }
+
+  @Test
+  public void roundsSlotsToAPowerOfTwo() {
+
+    final HoldWheel wheel = new HoldWheel(TICK, 5, 0);
+    final Hold hold = hold(1, 70);
+    wheel.schedule(hold);
+
+    assertTrue(wheel.advance(60).isEmpty());
+    assertEquals(1, wheel.advance(70).size());
+  }
+}
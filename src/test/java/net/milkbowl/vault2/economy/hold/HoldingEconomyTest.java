@@ -0,0 +1,168 @@
+package net.milkbowl.vault2.economy.hold;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.EconomyResponse;
+import net.milkbowl.vault2.economy.EconomyResponse.ResponseType;
+import net.milkbowl.vault2.economy.lock.AccountLockManager;
+import net.milkbowl.vault2.economy.mapped.MappedEconomy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HoldingEconomyTest {
+
+  private static final String PLUGIN = "Test";
+
+  private final UUID buyer = UUID.randomUUID();
+  private final UUID seller = UUID.randomUUID();
+
+  private Path directory;
+  private MappedEconomy mapped;
+  private HoldingEconomy economy;
+
+  @Before
+  public void open() throws IOException {
+
+    directory = Files.createTempDirectory("vault-hold");
+    mapped = new MappedEconomy(directory, Arrays.asList("coins", "gems"), 2);
+    economy = new HoldingEconomy(mapped, new AccountLockManager(), 10, TimeUnit.MILLISECONDS, 8);
+
+    mapped.createAccount(buyer, "buyer", true);
+    mapped.createAccount(seller, "seller", true);
+    mapped.deposit(PLUGIN, buyer, new BigDecimal("100"));
+    mapped.deposit(PLUGIN, buyer, "world", "gems", new BigDecimal("5"));
+  }
+
+  @After
+  public void close() throws IOException {
+
+    mapped.close();
+    final File[] files = directory.toFile().listFiles();
+    if(files != null) {
+      for(final File file : files) {
+        Files.deleteIfExists(file.toPath());
+      }
+    }
+    Files.deleteIfExists(directory);
+  }
+
+  @Test
+  public void holdReducesAvailableBalance() {
+
+    assertNotNull(economy.hold(PLUGIN, buyer, new BigDecimal("60"), 1, TimeUnit.MINUTES));
+
+    assertEquals(0, new BigDecimal("40").compareTo(economy.available(PLUGIN, buyer)));
+    assertEquals(0, new BigDecimal("60").compareTo(economy.held(PLUGIN, buyer)));
+    assertNull(economy.hold(PLUGIN, buyer, new BigDecimal("50"), 1, TimeUnit.MINUTES));
+    assertEquals(1, economy.refused());
+  }
+
+  @Test
+  public void defaultHoldGuardsEveryOverloadShape() {
+
+    economy.hold(PLUGIN, buyer, new BigDecimal("60"), 1, TimeUnit.MINUTES);
+
+    assertFalse(economy.has(PLUGIN, buyer, "world", new BigDecimal("50")));
+    assertFalse(economy.has(PLUGIN, buyer, "world", "coins", new BigDecimal("50")));
+    assertFalse(economy.withdraw(PLUGIN, buyer, "world", new BigDecimal("50")).transactionSuccess());
+    assertFalse(economy.withdraw(PLUGIN, buyer, "world", "coins", new BigDecimal("50")).transactionSuccess());
+    assertFalse(economy.withdraw(PLUGIN, UUID.randomUUID(), buyer, new BigDecimal("50")).transactionSuccess());
+    assertEquals(ResponseType.FAILURE, economy.transfer(PLUGIN, buyer, seller, "world", new BigDecimal("50")).type());
+    assertFalse(economy.canWithdraw(PLUGIN, buyer, new BigDecimal("50")).transactionSuccess());
+    assertTrue(economy.withdraw(PLUGIN, buyer, "world", new BigDecimal("40")).transactionSuccess());
+  }
+
+  @Test
+  public void holdDoesNotGuardOtherCurrencies() {
+
+    economy.hold(PLUGIN, buyer, new BigDecimal("100"), 1, TimeUnit.MINUTES);
+
+    assertTrue(economy.withdraw(PLUGIN, buyer, "world", "gems", new BigDecimal("5")).transactionSuccess());
+  }
+
+  @Test
+  public void setsBelowTheHeldAmountAreRefused() {
+
+    economy.hold(PLUGIN, buyer, new BigDecimal("60"), 1, TimeUnit.MINUTES);
+
+    assertFalse(economy.set(PLUGIN, buyer, new BigDecimal("10")).transactionSuccess());
+    assertFalse(economy.setBalance(PLUGIN, buyer, "world", "coins", new BigDecimal("10")).transactionSuccess());
+    assertFalse(economy.compareAndSetBalance(PLUGIN, buyer, new BigDecimal("100"), new BigDecimal("10")).transactionSuccess());
+    assertFalse(economy.deleteAccount(PLUGIN, buyer));
+    assertTrue(economy.setBalance(PLUGIN, buyer, new BigDecimal("60")).transactionSuccess());
+  }
+
+  @Test
+  public void captureWithdrawsOnBehalfOfTheHolder() {
+
+    final HoldId hold = economy.hold(PLUGIN, buyer, new BigDecimal("60"), 1, TimeUnit.MINUTES);
+
+    final EconomyResponse response = economy.capture(hold, new BigDecimal("45"));
+
+    assertTrue(response.transactionSuccess());
+    assertEquals(0, new BigDecimal("55").compareTo(mapped.balance(PLUGIN, buyer)));
+    assertEquals(0, economy.held(PLUGIN, buyer).signum());
+    assertFalse(economy.capture(hold).transactionSuccess());
+  }
+
+  @Test
+  public void releaseFreesTheHeldAmount() {
+
+    final HoldId hold = economy.hold(PLUGIN, buyer, "world", "coins", new BigDecimal("60"), 1, TimeUnit.MINUTES);
+
+    assertTrue(economy.release(hold));
+    assertFalse(economy.release(hold));
+    assertEquals(0, new BigDecimal("100").compareTo(economy.available(PLUGIN, buyer)));
+    assertEquals(1, economy.released());
+  }
+
+  @Test
+  public void holdsExpire() throws InterruptedException {
+
+    final HoldId hold = economy.hold(PLUGIN, buyer, new BigDecimal("60"), 20, TimeUnit.MILLISECONDS);
+
+    Thread.sleep(60);
+
+    assertEquals(1, economy.expire());
+    assertFalse(economy.find(hold).isPresent());
+    assertEquals(0, economy.outstanding());
+    assertTrue(economy.withdraw(PLUGIN, buyer, new BigDecimal("100")).transactionSuccess());
+  }
+
+  @Test
+  public void noAsyncView() {
+
+    assertFalse(economy.supportsAsync());
+    assertFalse(economy.async().isPresent());
+  }
+}
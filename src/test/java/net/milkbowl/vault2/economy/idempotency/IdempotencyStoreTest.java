@@ -0,0 +1,153 @@
+package net.milkbowl.vault2.economy.idempotency;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IdempotencyStoreTest {
+
+  private static CompletableFuture<String> run(final IdempotencyStore store, final UUID id, final Object fingerprint,
+                                               final AtomicInteger runs, final CompletableFuture<String> result) {
+
+    return store.execute(id, fingerprint, ()->{
+      runs.incrementAndGet();
+      return result;
+    }, ()->"conflict");
+  }
+
+  @Test
+  public void duplicateRunsOnce() {
+
+    final IdempotencyStore store = new IdempotencyStore();
+    final UUID id = UUID.randomUUID();
+    final AtomicInteger runs = new AtomicInteger();
+
+    assertEquals("done", run(store, id, "deposit", runs, CompletableFuture.completedFuture("done")).join());
+    assertEquals("done", run(store, id, "deposit", runs, CompletableFuture.completedFuture("again")).join());
+    assertEquals(1, runs.get());
+    assertEquals(1, store.hits());
+    assertEquals(1, store.misses());
+  }
+
+  @Test
+  public void reusedIdWithDifferentFingerprintConflicts() {
+
+    final IdempotencyStore store = new IdempotencyStore();
+    final UUID id = UUID.randomUUID();
+    final AtomicInteger runs = new AtomicInteger();
+
+    run(store, id, "deposit", runs, CompletableFuture.completedFuture("done"));
+
+    assertEquals("conflict", run(store, id, "withdraw", runs, CompletableFuture.completedFuture("other")).join());
+    assertEquals(1, runs.get());
+    assertEquals(1, store.conflicts());
+  }
+
+  @Test
+  public void failedOperationIsForgotten() {
+
+    final IdempotencyStore store = new IdempotencyStore();
+    final UUID id = UUID.randomUUID();
+    final AtomicInteger runs = new AtomicInteger();
+    final CompletableFuture<String> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new IllegalStateException("timeout"));
+
+    assertTrue(run(store, id, "deposit", runs, failed).isCompletedExceptionally());
+    assertEquals("done", run(store, id, "deposit", runs, CompletableFuture.completedFuture("done")).join());
+    assertEquals(2, runs.get());
+  }
+
+  @Test
+  public void pendingEntryIsNotEvicted() {
+
+    final IdempotencyStore store = new IdempotencyStore(1, 10, TimeUnit.MINUTES);
+    final UUID pending = UUID.randomUUID();
+    final AtomicInteger runs = new AtomicInteger();
+    final CompletableFuture<String> slow = new CompletableFuture<>();
+
+    final CompletableFuture<String> first = run(store, pending, "deposit", runs, slow);
+    for(int i = 0; i < 4; i++) {
+      run(store, UUID.randomUUID(), "deposit", new AtomicInteger(), CompletableFuture.completedFuture("other"));
+    }
+
+    final CompletableFuture<String> retry = run(store, pending, "deposit", runs, CompletableFuture.completedFuture("twice"));
+    assertFalse(first.isDone());
+    assertFalse(retry.isDone());
+    assertEquals(1, runs.get());
+
+    slow.complete("done");
+    assertEquals("done", first.join());
+    assertEquals("done", retry.join());
+  }
+
+  @Test
+  public void completedEntriesBeyondMaximumAreEvicted() {
+
+    final IdempotencyStore store = new IdempotencyStore(2, 10, TimeUnit.MINUTES);
+    for(int i = 0; i < 8; i++) {
+      run(store, UUID.randomUUID(), "deposit", new AtomicInteger(), CompletableFuture.completedFuture("done"));
+    }
+
+    assertTrue(store.size() <= 2);
+  }
+
+  @Test
+  public void expiredEntryRunsAgain() throws InterruptedException {
+
+    final IdempotencyStore store = new IdempotencyStore(16, 1, TimeUnit.MILLISECONDS);
+    final UUID id = UUID.randomUUID();
+    final AtomicInteger runs = new AtomicInteger();
+
+    run(store, id, "deposit", runs, CompletableFuture.completedFuture("first"));
+    Thread.sleep(5);
+
+    assertEquals("second", run(store, id, "deposit", runs, CompletableFuture.completedFuture("second")).join());
+    assertEquals(2, runs.get());
+  }
+
+  @Test
+  public void cancellingOneCallerLeavesTheOutcomeForRetries() {
+
+    final IdempotencyStore store = new IdempotencyStore();
+    final UUID id = UUID.randomUUID();
+    final AtomicInteger runs = new AtomicInteger();
+    final CompletableFuture<String> pending = new CompletableFuture<>();
+
+    final CompletableFuture<String> first = run(store, id, "deposit", runs, pending);
+    final CompletableFuture<String> concurrent = run(store, id, "deposit", runs, pending);
+    assertTrue(first.cancel(false));
+    assertFalse(concurrent.isDone());
+
+    pending.complete("done");
+    assertEquals("done", concurrent.join());
+
+    final CompletableFuture<String> retry = run(store, id, "deposit", runs, CompletableFuture.completedFuture("again"));
+    assertFalse(retry.isCancelled());
+    assertEquals("done", retry.join());
+    assertEquals(1, runs.get());
+    assertEquals(2, store.hits());
+  }
+}
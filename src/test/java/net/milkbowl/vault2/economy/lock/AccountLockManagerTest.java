@@ -0,0 +1,157 @@
+package net.milkbowl.vault2.economy.lock;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AccountLockManagerTest {
+
+  //fixed, so that whether the two accounts share a stripe does not vary between runs
+  private final UUID first = UUID.fromString("6f1c2a4e-0b7d-4c55-9a3e-2d8f1b6c7e90");
+  private final UUID second = UUID.fromString("c3e95b12-74af-4e08-b1d6-5a2f9c8e0d43");
+  private final ExecutorService other = Executors.newSingleThreadExecutor();
+
+  @After
+  public void shutdown() {
+
+    other.shutdownNow();
+  }
+
+  //tries the accounts from another thread, since stripes are reentrant for the holder
+  private boolean lockableElsewhere(final AccountLockManager locks, final LockMode mode, final UUID... accounts)
+          throws ExecutionException, InterruptedException {
+
+    return other.submit(()->{
+      final AccountLock lock = locks.tryLock(mode, 20, TimeUnit.MILLISECONDS, accounts);
+      if(lock == null) {
+        return false;
+      }
+      lock.close();
+      return true;
+    }).get();
+  }
+
+  @Test
+  public void opposingTransfersDoNotDeadlock() throws InterruptedException {
+
+    final AccountLockManager locks = new AccountLockManager();
+    final AtomicInteger balance = new AtomicInteger();
+    final CountDownLatch start = new CountDownLatch(1);
+    final Thread forward = new Thread(()->transfer(locks, start, balance, first, second, 1));
+    final Thread backward = new Thread(()->transfer(locks, start, balance, second, first, -1));
+    forward.start();
+    backward.start();
+
+    start.countDown();
+    forward.join(10_000);
+    backward.join(10_000);
+
+    assertFalse("opposing lock orders deadlocked", forward.isAlive() || backward.isAlive());
+    assertEquals(0, balance.get());
+    assertFalse(locks.isWriteLocked(first));
+    assertFalse(locks.isWriteLocked(second));
+  }
+
+  private static void transfer(final AccountLockManager locks, final CountDownLatch start, final AtomicInteger balance,
+                               final UUID from, final UUID to, final int delta) {
+
+    try {
+      start.await();
+    } catch(final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+
+    for(int i = 0; i < 20_000; i++) {
+      try(final AccountLock ignored = locks.lock(LockMode.WRITE, from, to)) {
+        balance.addAndGet(delta);
+      }
+    }
+  }
+
+  @Test
+  public void duplicateAccountsAreLockedOnce() throws ExecutionException, InterruptedException {
+
+    final AccountLockManager locks = new AccountLockManager();
+
+    final AccountLock lock = locks.lock(LockMode.WRITE, first, first);
+    assertEquals(1, lock.stripes());
+    assertTrue(locks.isWriteLocked(first));
+
+    lock.close();
+    assertFalse(locks.isWriteLocked(first));
+    assertTrue(lockableElsewhere(locks, LockMode.WRITE, first));
+  }
+
+  @Test
+  public void accountsSharingAStripeAreLockedOnce() throws ExecutionException, InterruptedException {
+
+    final AccountLockManager locks = new AccountLockManager(1, false);
+
+    try(final AccountLock lock = locks.lock(LockMode.WRITE, first, second)) {
+      assertEquals(1, lock.stripes());
+      assertFalse(lockableElsewhere(locks, LockMode.WRITE, UUID.randomUUID()));
+    }
+    assertFalse(locks.isWriteLocked(first));
+    assertTrue(lockableElsewhere(locks, LockMode.WRITE, second));
+  }
+
+  @Test
+  public void readersShareAndWritersExclude() throws ExecutionException, InterruptedException {
+
+    final AccountLockManager locks = new AccountLockManager();
+
+    try(final AccountLock ignored = locks.lock(LockMode.READ, first)) {
+      assertTrue(lockableElsewhere(locks, LockMode.READ, first));
+      assertFalse(lockableElsewhere(locks, LockMode.WRITE, first));
+      assertTrue(lockableElsewhere(locks, LockMode.WRITE, second));
+    }
+
+    try(final AccountLock ignored = locks.lock(LockMode.WRITE, first)) {
+      assertFalse(lockableElsewhere(locks, LockMode.READ, first));
+      assertFalse(lockableElsewhere(locks, LockMode.READ, second, first));
+    }
+
+    assertTrue(lockableElsewhere(locks, LockMode.WRITE, first, second));
+    assertEquals(3, locks.timeouts());
+  }
+
+  @Test
+  public void timedOutAcquisitionsReleaseWhatTheyTook() throws ExecutionException, InterruptedException {
+
+    final AccountLockManager locks = new AccountLockManager();
+
+    try(final AccountLock ignored = locks.lock(LockMode.WRITE, second)) {
+      assertFalse(lockableElsewhere(locks, LockMode.WRITE, first, second));
+    }
+    assertFalse(locks.isWriteLocked(first));
+    assertTrue(lockableElsewhere(locks, LockMode.WRITE, first, second));
+  }
+}
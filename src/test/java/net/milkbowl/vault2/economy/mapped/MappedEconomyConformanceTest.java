@@ -0,0 +1,63 @@
+package net.milkbowl.vault2.economy.mapped;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.Economy;
+import net.milkbowl.vault2.economy.testkit.EconomyConformanceTest;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class MappedEconomyConformanceTest extends EconomyConformanceTest {
+
+  private Path directory;
+
+  @Override
+  protected Economy createEconomy() throws IOException {
+
+    directory = Files.createTempDirectory("vault-stress");
+    return new MappedEconomy(directory, Arrays.asList("coins", "gems"), 2);
+  }
+
+  @Override
+  protected void disposeEconomy(final Economy economy) throws IOException {
+
+    ((MappedEconomy)economy).close();
+    final File[] files = directory.toFile().listFiles();
+    if(files != null) {
+      for(final File file : files) {
+        Files.deleteIfExists(file.toPath());
+      }
+    }
+    Files.deleteIfExists(directory);
+  }
+
+  @Test
+  public void conformsAfterReopening() throws IOException {
+
+    stress().seed(1).assertConformance();
+
+    ((MappedEconomy)economy).close();
+    economy = new MappedEconomy(directory, Arrays.asList("coins", "gems"), 2);
+
+    stress().seed(1).assertConformance();
+  }
+}
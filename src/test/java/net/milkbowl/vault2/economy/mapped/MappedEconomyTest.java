@@ -0,0 +1,258 @@
+package net.milkbowl.vault2.economy.mapped;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.ByteBuffer;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MappedEconomyTest {
+
+  private static final String PLUGIN = "Test";
+  private static final List<String> CURRENCIES = Arrays.asList("coins", "gems");
+
+  private Path directory;
+  private Path crashed;
+  private MappedEconomy economy;
+
+  @Before
+  public void open() throws IOException {
+
+    directory = Files.createTempDirectory("vault-mapped");
+    crashed = Files.createTempDirectory("vault-mapped-crashed");
+    economy = new MappedEconomy(directory, CURRENCIES, 2);
+  }
+
+  @After
+  public void close() throws IOException {
+
+    economy.close();
+    delete(directory);
+    delete(crashed);
+  }
+
+  private static void delete(final Path path) throws IOException {
+
+    final File[] files = path.toFile().listFiles();
+    if(files != null) {
+      for(final File file : files) {
+        Files.deleteIfExists(file.toPath());
+      }
+    }
+    Files.deleteIfExists(path);
+  }
+
+  /**
+   * Copies the data directory as a crash would leave it: the table as of the last checkpoint and
+   * the journal of every change since.
+   */
+  private void crash() throws IOException {
+
+    for(final String file : Arrays.asList("accounts.dat", "names.dat", "journal.log")) {
+      Files.copy(directory.resolve(file), crashed.resolve(file), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  @Test
+  public void refusesNegativeBalances() {
+
+    final UUID account = UUID.randomUUID();
+    economy.createAccount(account, "account", true);
+    economy.deposit(PLUGIN, account, BigDecimal.TEN);
+
+    assertFalse(economy.setBalance(PLUGIN, account, new BigDecimal("-1")).transactionSuccess());
+    assertFalse(economy.compareAndSetBalance(PLUGIN, account, BigDecimal.TEN, new BigDecimal("-1")).transactionSuccess());
+    assertFalse(economy.set(PLUGIN, account, new BigDecimal("-1")).transactionSuccess());
+    assertEquals(0, BigDecimal.TEN.compareTo(economy.balance(PLUGIN, account)));
+  }
+
+  @Test
+  public void recoversFromTheJournal() throws IOException {
+
+    final UUID account = UUID.randomUUID();
+    economy.createAccount(account, "account", true);
+    economy.renameAccount(account, "renamed");
+    economy.deposit(PLUGIN, account, "world", "gems", new BigDecimal("2.50"));
+    crash();
+
+    try(final MappedEconomy recovered = new MappedEconomy(crashed, CURRENCIES, 2)) {
+      assertEquals("renamed", recovered.getAccountName(account).orElse(null));
+      assertEquals(0, new BigDecimal("2.50").compareTo(recovered.balance(PLUGIN, account, "world", "gems")));
+    }
+  }
+
+  @Test
+  public void recoveryDoesNotAppendNamesAgain() throws IOException {
+
+    final UUID account = UUID.randomUUID();
+    final UUID deleted = UUID.randomUUID();
+    economy.createAccount(account, "account", true);
+    economy.renameAccount(account, "renamed");
+    economy.createAccount(deleted, "deleted", true);
+    economy.deleteAccount(PLUGIN, deleted);
+    crash();
+
+    final Path journal = Files.createTempFile("vault-journal", ".log");
+    try {
+      Files.copy(crashed.resolve("journal.log"), journal, StandardCopyOption.REPLACE_EXISTING);
+      final long names = Files.size(crashed.resolve("names.dat"));
+
+      for(int i = 0; i < 3; i++) {
+
+        Files.copy(journal, crashed.resolve("journal.log"), StandardCopyOption.REPLACE_EXISTING);
+        try(final MappedEconomy recovered = new MappedEconomy(crashed, CURRENCIES, 2)) {
+          assertEquals("renamed", recovered.getAccountName(account).orElse(null));
+          assertFalse(recovered.hasAccount(deleted));
+        }
+        assertEquals(names, Files.size(crashed.resolve("names.dat")));
+      }
+    } finally {
+      Files.deleteIfExists(journal);
+    }
+  }
+
+  @Test
+  public void recoveryAppendsNamesTheSegmentLost() throws IOException {
+
+    final UUID account = UUID.randomUUID();
+    economy.createAccount(account, "account", true);
+    economy.renameAccount(account, "renamed");
+    economy.sync();
+    Files.copy(directory.resolve("journal.log"), crashed.resolve("journal.log"));
+
+    try(final MappedEconomy recovered = new MappedEconomy(crashed, CURRENCIES, 2)) {
+      assertTrue(recovered.hasAccount(account));
+      assertEquals("renamed", recovered.getAccountName(account).orElse(null));
+    }
+  }
+
+  @Test
+  public void tableChangesOnlyAtCheckpoints() throws IOException {
+
+    final UUID account = UUID.randomUUID();
+    economy.createAccount(account, "account", true);
+    economy.checkpoint();
+    final byte[] checkpointed = Files.readAllBytes(directory.resolve("accounts.dat"));
+
+    economy.deposit(PLUGIN, account, BigDecimal.TEN);
+    economy.createAccount(UUID.randomUUID(), "other", true);
+    assertTrue(Arrays.equals(checkpointed, Files.readAllBytes(directory.resolve("accounts.dat"))));
+
+    assertTrue(economy.checkpoint() > 0);
+    assertFalse(Arrays.equals(checkpointed, Files.readAllBytes(directory.resolve("accounts.dat"))));
+    assertEquals(0, Files.size(directory.resolve("accounts.dat.shadow")));
+  }
+
+  @Test
+  public void intactShadowIsPublishedOnOpen() throws IOException {
+
+    final UUID account = UUID.randomUUID();
+    economy.createAccount(account, "account", true);
+    economy.checkpoint();
+    crash();
+
+    economy.deposit(PLUGIN, account, BigDecimal.TEN);
+    economy.checkpoint();
+    shadow(Files.readAllBytes(directory.resolve("accounts.dat")));
+
+    try(final MappedEconomy recovered = new MappedEconomy(crashed, CURRENCIES, 2)) {
+      assertEquals(0, BigDecimal.TEN.compareTo(recovered.balance(PLUGIN, account)));
+    }
+    assertEquals(0, Files.size(crashed.resolve("accounts.dat.shadow")));
+  }
+
+  @Test
+  public void tornShadowIsDiscardedOnOpen() throws IOException {
+
+    final UUID account = UUID.randomUUID();
+    economy.createAccount(account, "account", true);
+    economy.deposit(PLUGIN, account, BigDecimal.ONE);
+    economy.checkpoint();
+    crash();
+    final byte[] checkpointed = Files.readAllBytes(crashed.resolve("accounts.dat"));
+    Files.write(crashed.resolve("accounts.dat.shadow"), Arrays.copyOf(checkpointed, 100));
+
+    try(final MappedEconomy recovered = new MappedEconomy(crashed, CURRENCIES, 2)) {
+      assertEquals(0, BigDecimal.ONE.compareTo(recovered.balance(PLUGIN, account)));
+    }
+    assertEquals(0, Files.size(crashed.resolve("accounts.dat.shadow")));
+  }
+
+  @Test
+  public void growingPublishesTheTable() throws IOException {
+
+    final Path small = Files.createTempDirectory("vault-mapped-small");
+    try {
+      final UUID[] accounts = new UUID[40];
+      try(final MappedEconomy grown = new MappedEconomy(small, CURRENCIES, 2, 16)) {
+
+        for(int i = 0; i < accounts.length; i++) {
+
+          accounts[i] = UUID.randomUUID();
+          grown.createAccount(accounts[i], "account" + i, true);
+          grown.deposit(PLUGIN, accounts[i], BigDecimal.valueOf(i));
+        }
+
+        for(final String file : Arrays.asList("accounts.dat", "names.dat", "journal.log")) {
+          Files.copy(small.resolve(file), crashed.resolve(file), StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+
+      try(final MappedEconomy recovered = new MappedEconomy(crashed, CURRENCIES, 2)) {
+
+        assertEquals(accounts.length, recovered.size());
+        for(int i = 0; i < accounts.length; i++) {
+          assertEquals("account" + i, recovered.getAccountName(accounts[i]).orElse(null));
+          assertEquals(0, BigDecimal.valueOf(i).compareTo(recovered.balance(PLUGIN, accounts[i])));
+        }
+      }
+    } finally {
+      delete(small);
+    }
+  }
+
+  /**
+   * Leaves a complete shadow file in the crashed directory, as a checkpoint interrupted after
+   * forcing it would, publishing the given table.
+   */
+  private void shadow(final byte[] table) throws IOException {
+
+    final ByteBuffer bytes = ByteBuffer.allocate(12 + table.length + 16);
+    bytes.putLong(0).putInt(table.length).put(table).putLong(-1);
+
+    final CRC32 crc = new CRC32();
+    crc.update(bytes.array(), 0, bytes.position());
+    bytes.putLong(crc.getValue());
+    Files.write(crashed.resolve("accounts.dat.shadow"), bytes.array());
+  }
+}
@@ -0,0 +1,122 @@
+package net.milkbowl.vault2.economy.migrate;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.store.OffHeapEconomy;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EconomyMigratorTest {
+
+  private static final String PLUGIN = "Test";
+  private static final List<String> CURRENCIES = Arrays.asList("coins", "gems");
+
+  private final OffHeapEconomy source = new OffHeapEconomy(CURRENCIES, 2);
+  //accounts the target creates before it fails the way a crashing server would, escaping the migrator
+  private final AtomicInteger creations = new AtomicInteger(Integer.MAX_VALUE);
+  private final OffHeapEconomy target = new OffHeapEconomy(CURRENCIES, 2) {
+    @Override
+    public boolean createAccount(final UUID accountID, final String name, final boolean player) {
+
+      if(creations.getAndDecrement() <= 0) {
+        throw new AssertionError("crashed");
+      }
+      return super.createAccount(accountID, name, player);
+    }
+  };
+
+  private void populate(final int accounts) {
+
+    for(int i = 0; i < accounts; i++) {
+      final UUID account = UUID.randomUUID();
+      source.createAccount(account, "account" + i, true);
+      source.deposit(PLUGIN, account, "world", "coins", BigDecimal.valueOf(i + 1));
+      source.deposit(PLUGIN, account, "world", "gems", BigDecimal.valueOf(2 * i + 1));
+    }
+  }
+
+  private EconomyMigrator migrator(final Path checkpoint) {
+
+    return new EconomyMigrator(source, target, PLUGIN)
+            .worlds(Collections.singletonList("world"))
+            .parallelism(1)
+            .batchSize(10)
+            .checkpoint(checkpoint);
+  }
+
+  @Test
+  public void resumesAnInterruptedMigration() throws IOException {
+
+    populate(35);
+    final Path checkpoint = Files.createTempFile("migration", ".checkpoint");
+    try {
+      creations.set(10);
+      try {
+        migrator(checkpoint).migrate();
+        fail("The first run should have been interrupted");
+      } catch(final IllegalStateException expected) {
+        assertTrue(expected.getCause() instanceof AssertionError);
+      }
+
+      creations.set(Integer.MAX_VALUE);
+      final MigrationReport report = migrator(checkpoint).migrate();
+      assertTrue(report.toString(), report.isSuccessful());
+      assertEquals(35, report.accounts());
+      assertEquals(10, report.skipped());
+      assertEquals(25, report.migrated());
+      assertTrue(report.mismatches().isEmpty());
+    } finally {
+      Files.deleteIfExists(checkpoint);
+    }
+  }
+
+  @Test
+  public void refusesToResumeWithOtherWorldsOrCurrencies() throws IOException {
+
+    populate(15);
+    final Path checkpoint = Files.createTempFile("migration", ".checkpoint");
+    try {
+      migrator(checkpoint).migrate();
+
+      try {
+        migrator(checkpoint).worlds(Arrays.asList("world", "nether")).migrate();
+        fail("A run over other worlds must not resume from the checkpoint");
+      } catch(final IllegalStateException expected) {
+        assertTrue(expected.getMessage(), expected.getMessage().contains("worlds=world currencies=coins,gems"));
+      }
+
+      final MigrationReport resumed = migrator(checkpoint).migrate();
+      assertEquals(15, resumed.skipped());
+      assertEquals(0, resumed.migrated());
+    } finally {
+      Files.deleteIfExists(checkpoint);
+    }
+  }
+}
@@ -0,0 +1,353 @@
+package net.milkbowl.vault2.economy.netting;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.BalanceKey;
+import net.milkbowl.vault2.economy.Economy;
+import net.milkbowl.vault2.economy.EconomyResponse;
+import net.milkbowl.vault2.economy.EconomyResponse.ResponseType;
+import net.milkbowl.vault2.economy.ForwardingEconomy;
+import net.milkbowl.vault2.economy.idempotency.IdempotentEconomy;
+import net.milkbowl.vault2.economy.mapped.MappedEconomy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NettingEconomyTest {
+
+  private static final String PLUGIN = "Test";
+
+  private final UUID account = UUID.randomUUID();
+  private final UUID other = UUID.randomUUID();
+
+  private Path directory;
+  private MappedEconomy mapped;
+  private NettingEconomy economy;
+
+  @Before
+  public void open() throws IOException {
+
+    directory = Files.createTempDirectory("vault-netting");
+    mapped = new MappedEconomy(directory, Arrays.asList("coins", "gems"), 2);
+    economy = new NettingEconomy(mapped, PLUGIN, 4);
+
+    mapped.createAccount(account, "account", true);
+    mapped.createAccount(other, "other", true);
+    mapped.deposit(PLUGIN, account, new BigDecimal("100"));
+  }
+
+  @After
+  public void close() throws IOException {
+
+    mapped.close();
+    final File[] files = directory.toFile().listFiles();
+    if(files != null) {
+      for(final File file : files) {
+        Files.deleteIfExists(file.toPath());
+      }
+    }
+    Files.deleteIfExists(directory);
+  }
+
+  private static void assertAmount(final String expected, final BigDecimal actual) {
+
+    assertEquals(expected + " != " + actual, 0, new BigDecimal(expected).compareTo(actual));
+  }
+
+  @Test
+  public void depositsSettleAsOneWrite() {
+
+    for(int i = 0; i < 5; i++) {
+      assertTrue(economy.deposit(PLUGIN, account, new BigDecimal("10")).transactionSuccess());
+    }
+
+    assertAmount("100", mapped.balance(PLUGIN, account));
+    assertAmount("150", economy.balance(PLUGIN, account));
+    assertAmount("50", economy.pending(account));
+
+    assertEquals(1, economy.settle());
+    assertAmount("150", mapped.balance(PLUGIN, account));
+    assertEquals(1, economy.settlements());
+    assertEquals(5, economy.absorbed());
+  }
+
+  @Test
+  public void withdrawalsCannotOverdraw() {
+
+    assertTrue(economy.withdraw(PLUGIN, account, new BigDecimal("80")).transactionSuccess());
+    assertFalse(economy.withdraw(PLUGIN, account, new BigDecimal("30")).transactionSuccess());
+    assertFalse(economy.has(PLUGIN, account, new BigDecimal("30")));
+  }
+
+  @Test
+  public void otherOverloadShapesCannotOverdraw() {
+
+    assertTrue(economy.withdraw(PLUGIN, account, new BigDecimal("80")).transactionSuccess());
+
+    assertFalse(economy.withdraw(PLUGIN, account, "world", new BigDecimal("80")).transactionSuccess());
+    assertFalse(economy.withdraw(PLUGIN, account, "world", "coins", new BigDecimal("80")).transactionSuccess());
+    assertEquals(ResponseType.FAILURE, economy.transfer(PLUGIN, account, other, "world", new BigDecimal("80")).type);
+    assertAmount("20", mapped.balance(PLUGIN, account));
+
+    assertTrue(economy.withdraw(PLUGIN, account, "world", new BigDecimal("15")).transactionSuccess());
+    assertAmount("5", economy.balance(PLUGIN, account));
+  }
+
+  @Test
+  public void otherCurrenciesAreNettedSeparately() {
+
+    economy.deposit(PLUGIN, account, "world", "gems", new BigDecimal("3"));
+    economy.deposit(PLUGIN, account, new BigDecimal("3"));
+
+    assertEquals(2, economy.tracked());
+    assertAmount("3", economy.pending(account, "gems"));
+    assertAmount("3", economy.pending(account));
+  }
+
+  @Test
+  public void setsSettleFirstAndReload() {
+
+    economy.deposit(PLUGIN, account, new BigDecimal("10"));
+
+    assertTrue(economy.setBalance(PLUGIN, account, new BigDecimal("40")).transactionSuccess());
+    assertAmount("40", economy.balance(PLUGIN, account));
+    assertAmount("0", economy.pending(account));
+  }
+
+  @Test
+  public void refusedSettlementsAreDroppedAndReported() {
+
+    final List<BigDecimal> reported = new ArrayList<>();
+    economy.unsettled((key, delta)->reported.add(delta));
+
+    assertTrue(economy.withdraw(PLUGIN, account, new BigDecimal("60")).transactionSuccess());
+    mapped.withdraw(PLUGIN, account, new BigDecimal("90"));
+
+    assertEquals(0, economy.settle());
+    assertEquals(1, economy.dropped());
+    assertEquals(1, reported.size());
+    assertAmount("-60", reported.get(0));
+    assertAmount("10", economy.balance(PLUGIN, account));
+    assertFalse(economy.withdraw(PLUGIN, account, new BigDecimal("20")).transactionSuccess());
+  }
+
+  @Test
+  public void transactionIdsAreNettedOnce() {
+
+    final UUID transaction = UUID.randomUUID();
+
+    assertTrue(economy.withdraw(PLUGIN, transaction, account, new BigDecimal("30")).transactionSuccess());
+    assertTrue(economy.withdraw(PLUGIN, transaction, account, new BigDecimal("30")).transactionSuccess());
+    assertFalse(economy.deposit(PLUGIN, transaction, account, new BigDecimal("30")).transactionSuccess());
+
+    assertAmount("70", economy.balance(PLUGIN, account));
+    assertEquals(ResponseType.SUCCESS, economy.transfer(PLUGIN, UUID.randomUUID(), account, other, new BigDecimal("20")).type);
+    assertAmount("50", economy.balance(PLUGIN, account));
+  }
+
+  @Test
+  public void idleBalancesRetire() {
+
+    economy.deposit(PLUGIN, account, new BigDecimal("1"));
+    economy.settle();
+    assertEquals(1, economy.tracked());
+
+    economy.settle();
+    assertEquals(0, economy.tracked());
+    assertAmount("101", economy.balance(PLUGIN, account));
+  }
+
+  @Test
+  public void noDepositsAreLostToRetirement() throws InterruptedException {
+
+    final int threads = 4;
+    final int deposits = 5_000;
+    final AtomicBoolean running = new AtomicBoolean(true);
+
+    final Thread settler = new Thread(()->{
+      while(running.get()) {
+        economy.settle();
+      }
+    });
+    settler.start();
+
+    final List<Thread> workers = new ArrayList<>();
+    for(int t = 0; t < threads; t++) {
+
+      final Thread worker = new Thread(()->{
+        for(int i = 0; i < deposits; i++) {
+          economy.deposit(PLUGIN, account, BigDecimal.ONE);
+          if(i % 64 == 0) {
+            Thread.yield();
+          }
+        }
+      });
+      workers.add(worker);
+      worker.start();
+    }
+
+    for(final Thread worker : workers) {
+      worker.join();
+    }
+    running.set(false);
+    settler.join();
+    economy.settle();
+
+    assertAmount(String.valueOf(100 + threads * deposits), mapped.balance(PLUGIN, account));
+  }
+
+  @Test
+  public void retirementRollsBackWhenAStripeIsBusy() {
+
+    final DeltaCell cell = new DeltaCell(new BalanceKey(account, null, null), 4);
+    cell.add(BigDecimal.ONE);
+
+    synchronized(cell) {
+      assertFalse(cell.retire());
+    }
+    assertFalse(cell.dead());
+    assertTrue(cell.add(BigDecimal.ONE));
+    assertAmount("2", cell.pending());
+  }
+
+  /**
+   * Applies the first deposit and then throws, as a provider timing out after its write would.
+   */
+  private static final class FlakyEconomy extends ForwardingEconomy {
+
+    private final AtomicBoolean failed = new AtomicBoolean();
+
+    private FlakyEconomy(final Economy economy) {
+
+      super(economy);
+    }
+
+    @Override
+    public EconomyResponse deposit(final String pluginName, final UUID transactionID, final UUID accountID, final BigDecimal amount) {
+
+      final EconomyResponse response = super.deposit(pluginName, transactionID, accountID, amount);
+      if(response.type != ResponseType.NOT_IMPLEMENTED && failed.compareAndSet(false, true)) {
+        throw new IllegalStateException("timed out");
+      }
+      return response;
+    }
+
+    @Override
+    public EconomyResponse deposit(final String pluginName, final UUID accountID, final BigDecimal amount) {
+
+      final EconomyResponse response = super.deposit(pluginName, accountID, amount);
+      if(failed.compareAndSet(false, true)) {
+        throw new IllegalStateException("timed out");
+      }
+      return response;
+    }
+  }
+
+  @Test
+  public void unknownSettlementsAreRetriedUnderTheirTransactionId() {
+
+    final NettingEconomy netting = new NettingEconomy(new FlakyEconomy(new IdempotentEconomy(mapped)), PLUGIN, 4);
+
+    assertTrue(netting.deposit(PLUGIN, account, new BigDecimal("50")).transactionSuccess());
+    assertEquals(0, netting.settle());
+    assertEquals(1, netting.failures());
+    assertAmount("150", mapped.balance(PLUGIN, account));
+    assertAmount("150", netting.balance(PLUGIN, account));
+
+    assertTrue(netting.deposit(PLUGIN, account, new BigDecimal("5")).transactionSuccess());
+    assertAmount("55", netting.pending(account));
+
+    assertEquals(1, netting.settle());
+    assertEquals(1, netting.failures());
+    assertAmount("155", mapped.balance(PLUGIN, account));
+    assertAmount("155", netting.balance(PLUGIN, account));
+    assertAmount("0", netting.pending(account));
+  }
+
+  @Test
+  public void unknownSettlementsWithoutTransactionIdsAreDroppedAndReported() {
+
+    final List<BigDecimal> reported = new ArrayList<>();
+    final NettingEconomy netting = new NettingEconomy(new FlakyEconomy(mapped), PLUGIN, 4)
+            .unsettled((key, delta)->reported.add(delta));
+
+    assertTrue(netting.deposit(PLUGIN, account, new BigDecimal("50")).transactionSuccess());
+    assertEquals(0, netting.settle());
+    assertEquals(1, netting.failures());
+    assertEquals(1, reported.size());
+    assertAmount("150", mapped.balance(PLUGIN, account));
+
+    assertEquals(0, netting.settle());
+    assertAmount("150", mapped.balance(PLUGIN, account));
+    assertAmount("150", netting.balance(PLUGIN, account));
+  }
+
+  @Test
+  public void readsDuringSettlementStayWithinTheDeposits() throws InterruptedException {
+
+    final int deposits = 20_000;
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final AtomicBoolean consistent = new AtomicBoolean(true);
+    final AtomicLong issued = new AtomicLong();
+
+    final Thread settler = new Thread(()->{
+      while(running.get()) {
+        economy.settle();
+      }
+    });
+    final Thread reader = new Thread(()->{
+      BigDecimal last = BigDecimal.ZERO;
+      while(running.get()) {
+        final BigDecimal balance = economy.balance(PLUGIN, account);
+        if(balance.compareTo(last) < 0 || balance.compareTo(BigDecimal.valueOf(100 + issued.get())) > 0) {
+          consistent.set(false);
+        }
+        last = balance;
+      }
+    });
+    settler.start();
+    reader.start();
+
+    for(int i = 0; i < deposits; i++) {
+      issued.incrementAndGet();
+      economy.deposit(PLUGIN, account, BigDecimal.ONE);
+    }
+    running.set(false);
+    settler.join();
+    reader.join();
+    economy.settle();
+
+    assertTrue("a read went backwards or exceeded the issued deposits", consistent.get());
+    assertAmount(String.valueOf(100 + deposits), mapped.balance(PLUGIN, account));
+  }
+}
@@ -0,0 +1,134 @@
+package net.milkbowl.vault2.economy.store;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapBalanceStoreTest {
+
+  private static void assertAmount(final String expected, final BigDecimal actual) {
+
+    assertEquals(expected + " != " + actual, 0, new BigDecimal(expected).compareTo(actual));
+  }
+
+  @Test
+  public void createsAndRemovesAccounts() {
+
+    final OffHeapBalanceStore store = new OffHeapBalanceStore(2, 2);
+    final UUID account = UUID.randomUUID();
+
+    assertTrue(store.create(account));
+    assertFalse(store.create(account));
+    assertTrue(store.contains(account));
+    assertEquals(1, store.size());
+
+    assertTrue(store.remove(account));
+    assertFalse(store.remove(account));
+    assertFalse(store.contains(account));
+    assertEquals(0, store.size());
+  }
+
+  @Test
+  public void depositsAndWithdrawsPerSlot() {
+
+    final OffHeapBalanceStore store = new OffHeapBalanceStore(2, 2);
+    final UUID account = UUID.randomUUID();
+
+    assertAmount("10.25", store.deposit(account, 0, new BigDecimal("10.25")));
+    assertAmount("3", store.deposit(account, 1, new BigDecimal("3")));
+    assertAmount("0.25", store.withdraw(account, 0, new BigDecimal("10")));
+    assertNull(store.withdraw(account, 0, new BigDecimal("1")));
+    assertNull(store.withdraw(UUID.randomUUID(), 0, BigDecimal.ZERO));
+
+    assertEquals(25, store.units(account, 0));
+    assertAmount("3", store.balance(account, 1));
+  }
+
+  @Test
+  public void rejectsNegativeAmounts() {
+
+    final OffHeapBalanceStore store = new OffHeapBalanceStore(1, 2);
+    final UUID account = UUID.randomUUID();
+    store.deposit(account, 0, BigDecimal.TEN);
+
+    assertThrows(IllegalArgumentException.class, ()->store.deposit(account, 0, new BigDecimal("-1")));
+    assertThrows(IllegalArgumentException.class, ()->store.withdraw(account, 0, new BigDecimal("-1")));
+    assertAmount("10", store.balance(account, 0));
+  }
+
+  @Test
+  public void rejectsAmountsFinerThanTheScale() {
+
+    final OffHeapBalanceStore store = new OffHeapBalanceStore(1, 2);
+
+    assertThrows(IllegalArgumentException.class, ()->store.deposit(UUID.randomUUID(), 0, new BigDecimal("0.001")));
+    assertThrows(IndexOutOfBoundsException.class, ()->store.balance(UUID.randomUUID(), 1));
+  }
+
+  @Test
+  public void compareAndSetRequiresTheExpectedBalance() {
+
+    final OffHeapBalanceStore store = new OffHeapBalanceStore(1, 2);
+    final UUID account = UUID.randomUUID();
+    store.set(account, 0, new BigDecimal("5"));
+
+    assertFalse(store.compareAndSet(account, 0, new BigDecimal("4"), new BigDecimal("7")));
+    assertTrue(store.compareAndSet(account, 0, new BigDecimal("5.00"), new BigDecimal("7")));
+    assertAmount("7", store.balance(account, 0));
+    assertFalse(store.compareAndSet(UUID.randomUUID(), 0, BigDecimal.ZERO, BigDecimal.ONE));
+  }
+
+  @Test
+  public void growsAndKeepsRecordsAcrossRemovals() {
+
+    final OffHeapBalanceStore store = new OffHeapBalanceStore(1, 0, 0, 4);
+    final List<UUID> accounts = new ArrayList<>();
+    for(int i = 0; i < 20_000; i++) {
+
+      final UUID account = UUID.randomUUID();
+      accounts.add(account);
+      store.deposit(account, 0, BigDecimal.valueOf(i));
+    }
+
+    for(int i = 0; i < accounts.size(); i += 2) {
+      assertTrue(store.remove(accounts.get(i)));
+    }
+
+    assertEquals(10_000, store.size());
+    for(int i = 0; i < accounts.size(); i++) {
+      assertEquals(i % 2 == 1, store.contains(accounts.get(i)));
+      assertEquals((i % 2 == 1)? i : 0, store.units(accounts.get(i), 0));
+    }
+
+    final Set<UUID> visited = new HashSet<>();
+    store.forEach(visited::add);
+    assertEquals(10_000, visited.size());
+  }
+}
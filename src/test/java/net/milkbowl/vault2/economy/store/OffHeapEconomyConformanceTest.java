@@ -0,0 +1,31 @@
+package net.milkbowl.vault2.economy.store;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.Economy;
+import net.milkbowl.vault2.economy.testkit.EconomyConformanceTest;
+
+import java.util.Arrays;
+
+public class OffHeapEconomyConformanceTest extends EconomyConformanceTest {
+
+  @Override
+  protected Economy createEconomy() {
+
+    return new OffHeapEconomy(Arrays.asList("coins", "gems"), 2);
+  }
+}
@@ -0,0 +1,76 @@
+package net.milkbowl.vault2.economy.store;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapEconomyTest {
+
+  private static final String PLUGIN = "Test";
+
+  private final OffHeapEconomy economy = new OffHeapEconomy(Arrays.asList("coins", "gems"), 2);
+
+  @Test
+  public void refusesUnknownAccountsAndInvalidAmounts() {
+
+    final UUID account = UUID.randomUUID();
+
+    assertFalse(economy.deposit(PLUGIN, account, BigDecimal.ONE).transactionSuccess());
+    assertFalse(economy.hasAccount(account));
+
+    economy.createAccount(account, "account", true);
+    assertFalse(economy.deposit(PLUGIN, account, new BigDecimal("-1")).transactionSuccess());
+    assertFalse(economy.deposit(PLUGIN, account, new BigDecimal("0.001")).transactionSuccess());
+    assertFalse(economy.setBalance(PLUGIN, account, new BigDecimal("-1")).transactionSuccess());
+    assertFalse(economy.deposit(PLUGIN, account, "world", "stars", BigDecimal.ONE).transactionSuccess());
+  }
+
+  @Test
+  public void keepsOneBalancePerCurrency() {
+
+    final UUID account = UUID.randomUUID();
+    economy.createAccount(account, "account", true);
+
+    assertTrue(economy.deposit(PLUGIN, account, new BigDecimal("5")).transactionSuccess());
+    assertTrue(economy.deposit(PLUGIN, account, "world", "gems", new BigDecimal("2")).transactionSuccess());
+    assertFalse(economy.withdraw(PLUGIN, account, "world", "gems", new BigDecimal("3")).transactionSuccess());
+
+    assertEquals(0, new BigDecimal("5").compareTo(economy.balance(PLUGIN, account, "world")));
+    assertEquals(0, new BigDecimal("2").compareTo(economy.balance(PLUGIN, account, "world", "gems")));
+  }
+
+  @Test
+  public void deletingForgetsTheName() {
+
+    final UUID account = UUID.randomUUID();
+    economy.createAccount(account, "account", true);
+    assertTrue(economy.renameAccount(account, "renamed"));
+    assertEquals("renamed", economy.getAccountName(account).orElse(null));
+
+    assertTrue(economy.deleteAccount(PLUGIN, account));
+    assertFalse(economy.getAccountName(account).isPresent());
+    assertFalse(economy.getUUIDNameMap().containsKey(account));
+  }
+}
@@ -0,0 +1,99 @@
+package net.milkbowl.vault2.economy.testkit;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.Economy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the {@link EconomyStress} scenarios as JUnit tests against a provider. A provider's test
+ * extends this class and implements {@link #createEconomy()}; each test gets a fresh economy, which
+ * is passed to {@link #disposeEconomy(Economy)} afterwards. Subclasses may override
+ * {@link #configure(EconomyStress)} to size the scenarios.
+ */
+public abstract class EconomyConformanceTest {
+
+  protected Economy economy;
+
+  /**
+   * Creates the economy under test, called before every test.
+   *
+   * @return a test instance of the provider
+   * @throws Exception if the economy cannot be created
+   */
+  protected abstract Economy createEconomy() throws Exception;
+
+  /**
+   * Releases the economy under test, called after every test. Does nothing by default.
+   *
+   * @param economy the economy to release
+   * @throws Exception if the economy cannot be released
+   */
+  protected void disposeEconomy(final Economy economy) throws Exception {
+
+  }
+
+  /**
+   * Configures the kit for the economy under test. Defaults to a small, contended run.
+   *
+   * @param stress the kit to configure
+   * @return the configured kit
+   */
+  protected EconomyStress configure(final EconomyStress stress) {
+
+    return stress.accounts(8).threads(4).operationsPerThread(2_000);
+  }
+
+  protected final EconomyStress stress() {
+
+    return configure(new EconomyStress(economy));
+  }
+
+  @Before
+  public void createEconomyUnderTest() throws Exception {
+
+    economy = createEconomy();
+  }
+
+  @After
+  public void disposeEconomyUnderTest() throws Exception {
+
+    if(economy != null) {
+      disposeEconomy(economy);
+    }
+  }
+
+  @Test
+  public void appliesAndReportsSingleOperations() {
+
+    stress().conformance().assertPassed();
+  }
+
+  @Test
+  public void conservesMoneyUnderConcurrentTransfers() {
+
+    stress().transfers().assertPassed();
+  }
+
+  @Test
+  public void readsAreLinearizable() {
+
+    stress().reads().assertPassed();
+  }
+}
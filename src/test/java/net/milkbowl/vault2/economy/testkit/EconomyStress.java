@@ -0,0 +1,535 @@
+package net.milkbowl.vault2.economy.testkit;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.AsyncEconomy;
+import net.milkbowl.vault2.economy.Economy;
+import net.milkbowl.vault2.economy.EconomyResponse;
+import net.milkbowl.vault2.economy.EconomyResponse.ResponseType;
+import net.milkbowl.vault2.economy.MultiEconomyResponse;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A conformance and load kit for an {@link Economy} or {@link AsyncEconomy}. Every scenario returns
+ * a {@link StressReport}, and {@link #assertConformance()} runs them all and throws an
+ * {@link AssertionError} on the first scenario that finds a violation. Provider tests normally
+ * extend {@link EconomyConformanceTest}, which runs each scenario as its own test.
+ *
+ * The scenarios are:
+ * <ul>
+ *   <li>{@link #conformance()}: single-threaded checks that deposit, withdraw and transfer report
+ *   and apply the balances they claim, and that overdrawing is refused without side effects.</li>
+ *   <li>{@link #transfers()}: worker threads transfer random amounts among a small set of accounts.
+ *   Total money must be conserved and no balance may ever be observed negative.</li>
+ *   <li>{@link #reads()}: writer threads deposit while reader threads read. Each read must lie
+ *   between the deposits completed before it started and those issued before it finished, and no
+ *   reader may see an account's balance go backwards.</li>
+ * </ul>
+ *
+ * The kit works on its own accounts, derived from {@link #seed(long)}, and moves them to the initial
+ * balance before each scenario, so it should be pointed at a test instance of the provider.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public class EconomyStress {
+
+  private static final int MAX_VIOLATIONS = 1000;
+  private static final int READ_INTERVAL = 16;
+
+  private final Operations operations;
+
+  private String pluginName = "VaultTestKit";
+  private int accounts = 16;
+  private int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+  private int operationsPerThread = 10_000;
+  private long initialBalance = 1_000;
+  private long maxAmount = 50;
+  private long seed = 0x5EED;
+
+  public EconomyStress(final Economy economy) {
+
+    this.operations = Operations.of(economy);
+  }
+
+  public EconomyStress(final AsyncEconomy async) {
+
+    this.operations = Operations.of(async);
+  }
+
+  public EconomyStress pluginName(final String pluginName) {
+
+    this.pluginName = pluginName;
+    return this;
+  }
+
+  /**
+   * Sets the number of accounts the scenarios contend on. Fewer accounts means more contention.
+   *
+   * @param accounts the number of accounts, at least two
+   * @return this kit
+   */
+  public EconomyStress accounts(final int accounts) {
+
+    if(accounts < 2) {
+      throw new IllegalArgumentException("At least two accounts are required, was " + accounts);
+    }
+    this.accounts = accounts;
+    return this;
+  }
+
+  /**
+   * Sets the number of worker threads. {@link #reads()} splits them between writers and readers.
+   *
+   * @param threads the number of worker threads, at least two
+   * @return this kit
+   */
+  public EconomyStress threads(final int threads) {
+
+    if(threads < 2) {
+      throw new IllegalArgumentException("At least two threads are required, was " + threads);
+    }
+    this.threads = threads;
+    return this;
+  }
+
+  public EconomyStress operationsPerThread(final int operationsPerThread) {
+
+    this.operationsPerThread = operationsPerThread;
+    return this;
+  }
+
+  public EconomyStress initialBalance(final long initialBalance) {
+
+    this.initialBalance = initialBalance;
+    return this;
+  }
+
+  /**
+   * Sets the largest amount moved by a single transfer; amounts are whole numbers from one to this value.
+   *
+   * @param maxAmount the largest transfer amount
+   * @return this kit
+   */
+  public EconomyStress maxAmount(final long maxAmount) {
+
+    this.maxAmount = maxAmount;
+    return this;
+  }
+
+  /**
+   * Sets the seed of the kit's accounts and random choices, making a run repeatable.
+   *
+   * @param seed the seed
+   * @return this kit
+   */
+  public EconomyStress seed(final long seed) {
+
+    this.seed = seed;
+    return this;
+  }
+
+  /**
+   * Runs every scenario in order.
+   *
+   * @return the reports of all scenarios
+   */
+  public List<StressReport> run() {
+
+    return Arrays.asList(conformance(), transfers(), reads());
+  }
+
+  /**
+   * Runs every scenario and fails on the first one that found a violation.
+   *
+   * @return the reports of all scenarios
+   * @throws AssertionError if a scenario found a violation
+   */
+  public List<StressReport> assertConformance() {
+
+    final List<StressReport> reports = run();
+    for(final StressReport report : reports) {
+      report.assertPassed();
+    }
+    return reports;
+  }
+
+  /**
+   * Runs the single-threaded conformance checks.
+   *
+   * @return the report of the scenario
+   */
+  public StressReport conformance() {
+
+    final List<String> violations = new ArrayList<>();
+    final UUID[] ids = prepare(2, violations);
+    final BigDecimal initial = BigDecimal.valueOf(initialBalance);
+    final BigDecimal amount = BigDecimal.valueOf(Math.max(1, Math.min(maxAmount, initialBalance)));
+    final long started = System.nanoTime();
+
+    final EconomyResponse deposit = operations.deposit(pluginName, ids[0], amount);
+    expect(violations, "deposit", deposit, initial.add(amount), ids[0]);
+
+    final EconomyResponse withdraw = operations.withdraw(pluginName, ids[0], amount);
+    expect(violations, "withdraw", withdraw, initial, ids[0]);
+
+    final EconomyResponse overdraw = operations.withdraw(pluginName, ids[1], initial.add(amount));
+    if(overdraw.type == ResponseType.SUCCESS) {
+      violations.add("withdraw of more than the balance succeeded");
+    }
+    expectBalance(violations, "refused withdraw", ids[1], initial);
+
+    final MultiEconomyResponse transfer = operations.transfer(pluginName, ids[0], ids[1], amount);
+    if(transfer.type != ResponseType.SUCCESS) {
+      violations.add("transfer within the balance failed: " + transfer.errorMessage);
+    } else {
+      expectReported(violations, "transfer source", transfer.balance(ids[0]), initial.subtract(amount));
+      expectReported(violations, "transfer target", transfer.balance(ids[1]), initial.add(amount));
+    }
+    expectBalance(violations, "transfer source", ids[0], initial.subtract(amount));
+    expectBalance(violations, "transfer target", ids[1], initial.add(amount));
+
+    final MultiEconomyResponse overdrawnTransfer = operations.transfer(pluginName, ids[0], ids[1], initial);
+    if(overdrawnTransfer.type == ResponseType.SUCCESS) {
+      violations.add("transfer of more than the balance succeeded");
+    }
+    expectBalance(violations, "refused transfer source", ids[0], initial.subtract(amount));
+    expectBalance(violations, "refused transfer target", ids[1], initial.add(amount));
+
+    return new StressReport("conformance", 7, 2, System.nanoTime() - started, new long[0], violations);
+  }
+
+  /**
+   * Runs the concurrent transfer scenario.
+   *
+   * @return the report of the scenario
+   */
+  public StressReport transfers() {
+
+    final List<String> violations = new ArrayList<>();
+    final UUID[] ids = prepare(accounts, violations);
+    final AtomicLong rejected = new AtomicLong();
+
+    final Worker[] workers = new Worker[threads];
+    for(int t = 0; t < threads; t++) {
+      workers[t] = new Worker(t, operationsPerThread + operationsPerThread / READ_INTERVAL + 1, violations) {
+
+        @Override
+        void operation(final int index) {
+
+          final int from = random.nextInt(ids.length);
+          final int to = (from + 1 + random.nextInt(ids.length - 1)) % ids.length;
+          final BigDecimal amount = BigDecimal.valueOf(1 + (long)(random.nextDouble() * maxAmount));
+
+          final long start = System.nanoTime();
+          final MultiEconomyResponse response = operations.transfer(pluginName, ids[from], ids[to], amount);
+          record(System.nanoTime() - start);
+
+          if(response.type != ResponseType.SUCCESS) {
+            rejected.incrementAndGet();
+          } else {
+            nonNegative(response.balance(ids[from]), ids[from]);
+            nonNegative(response.balance(ids[to]), ids[to]);
+          }
+
+          if(index % READ_INTERVAL == 0) {
+            final UUID account = ids[random.nextInt(ids.length)];
+            final long readStart = System.nanoTime();
+            final BigDecimal balance = operations.balance(pluginName, account);
+            record(System.nanoTime() - readStart);
+            nonNegative(Optional.of(balance), account);
+          }
+        }
+
+        private void nonNegative(final Optional<BigDecimal> balance, final UUID account) {
+
+          if(balance.isPresent() && balance.get().signum() < 0) {
+            violation("observed negative balance " + balance.get() + " for " + account);
+          }
+        }
+      };
+    }
+
+    final long elapsed = runAll(workers);
+
+    BigDecimal total = BigDecimal.ZERO;
+    for(final UUID id : ids) {
+
+      final BigDecimal balance = operations.balance(pluginName, id);
+      if(balance.signum() < 0) {
+        add(violations, "final balance of " + id + " is negative: " + balance);
+      }
+      total = total.add(balance);
+    }
+
+    final BigDecimal expected = BigDecimal.valueOf(initialBalance).multiply(BigDecimal.valueOf(ids.length));
+    if(total.compareTo(expected) != 0) {
+      add(violations, "money was not conserved: expected a total of " + expected + " but found " + total);
+    }
+
+    return report("transfers", workers, rejected.get(), elapsed, violations);
+  }
+
+  /**
+   * Runs the concurrent read linearizability scenario.
+   *
+   * @return the report of the scenario
+   */
+  public StressReport reads() {
+
+    final List<String> violations = new ArrayList<>();
+    final UUID[] ids = prepare(accounts, violations);
+    final BigDecimal initial = BigDecimal.valueOf(initialBalance);
+    final AtomicLongArray issued = new AtomicLongArray(ids.length);
+    final AtomicLongArray completed = new AtomicLongArray(ids.length);
+    final AtomicLong rejected = new AtomicLong();
+
+    final int writers = threads / 2;
+    final Worker[] workers = new Worker[threads];
+    for(int t = 0; t < threads; t++) {
+
+      if(t < writers) {
+        workers[t] = new Worker(t, operationsPerThread, violations) {
+
+          @Override
+          void operation(final int index) {
+
+            final int account = random.nextInt(ids.length);
+            issued.incrementAndGet(account);
+
+            final long start = System.nanoTime();
+            final EconomyResponse response = operations.deposit(pluginName, ids[account], BigDecimal.ONE);
+            record(System.nanoTime() - start);
+
+            if(response.type == ResponseType.SUCCESS) {
+              completed.incrementAndGet(account);
+            } else {
+              rejected.incrementAndGet();
+            }
+          }
+        };
+        continue;
+      }
+
+      workers[t] = new Worker(t, operationsPerThread, violations) {
+
+        private final BigDecimal[] last = filled(ids.length, initial);
+
+        @Override
+        void operation(final int index) {
+
+          final int account = random.nextInt(ids.length);
+          final long lower = completed.get(account);
+
+          final long start = System.nanoTime();
+          final BigDecimal balance = operations.balance(pluginName, ids[account]);
+          record(System.nanoTime() - start);
+
+          final long upper = issued.get(account);
+          if(balance.compareTo(initial.add(BigDecimal.valueOf(lower))) < 0 || balance.compareTo(initial.add(BigDecimal.valueOf(upper))) > 0) {
+            violation("read " + balance + " for " + ids[account] + " outside [" + initial.add(BigDecimal.valueOf(lower))
+                      + ", " + initial.add(BigDecimal.valueOf(upper)) + "]");
+          }
+          if(balance.compareTo(last[account]) < 0) {
+            violation("balance of " + ids[account] + " went backwards from " + last[account] + " to " + balance);
+          }
+          last[account] = balance;
+        }
+      };
+    }
+
+    final long elapsed = runAll(workers);
+
+    for(int i = 0; i < ids.length; i++) {
+      expectBalance(violations, "after deposits", ids[i], initial.add(BigDecimal.valueOf(completed.get(i))));
+    }
+
+    return report("reads", workers, rejected.get(), elapsed, violations);
+  }
+
+  private UUID[] prepare(final int count, final List<String> violations) {
+
+    final UUID[] ids = new UUID[count];
+    final BigDecimal initial = BigDecimal.valueOf(initialBalance);
+
+    for(int i = 0; i < count; i++) {
+
+      ids[i] = UUID.nameUUIDFromBytes(("VaultTestKit:" + seed + ":" + i).getBytes(StandardCharsets.UTF_8));
+      if(!operations.hasAccount(ids[i]) && !operations.createAccount(ids[i], "testkit-" + i)) {
+        add(violations, "could not create account " + ids[i]);
+        continue;
+      }
+
+      final int difference = initial.compareTo(operations.balance(pluginName, ids[i]));
+      if(difference > 0) {
+        operations.deposit(pluginName, ids[i], initial.subtract(operations.balance(pluginName, ids[i])));
+      } else if(difference < 0) {
+        operations.withdraw(pluginName, ids[i], operations.balance(pluginName, ids[i]).subtract(initial));
+      }
+      expectBalance(violations, "setup", ids[i], initial);
+    }
+    return ids;
+  }
+
+  private long runAll(final Worker[] workers) {
+
+    final CountDownLatch start = new CountDownLatch(1);
+    final Thread[] running = new Thread[workers.length];
+    for(int i = 0; i < workers.length; i++) {
+
+      final Worker worker = workers[i];
+      running[i] = new Thread(()->{
+        try {
+          start.await();
+          worker.run();
+        } catch(final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }, "vault-testkit-" + i);
+      running[i].start();
+    }
+
+    final long started = System.nanoTime();
+    start.countDown();
+    for(final Thread thread : running) {
+      try {
+        thread.join();
+      } catch(final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for the stress workers", e);
+      }
+    }
+    return System.nanoTime() - started;
+  }
+
+  private StressReport report(final String scenario, final Worker[] workers, final long rejected, final long elapsed,
+                              final List<String> violations) {
+
+    int recorded = 0;
+    for(final Worker worker : workers) {
+      recorded += worker.recorded;
+    }
+
+    final long[] latencies = new long[recorded];
+    int offset = 0;
+    for(final Worker worker : workers) {
+      System.arraycopy(worker.latencies, 0, latencies, offset, worker.recorded);
+      offset += worker.recorded;
+    }
+    return new StressReport(scenario, recorded, rejected, elapsed, latencies, violations);
+  }
+
+  private void expect(final List<String> violations, final String operation, final EconomyResponse response,
+                      final BigDecimal expected, final UUID account) {
+
+    if(response.type != ResponseType.SUCCESS) {
+      violations.add(operation + " failed: " + response.errorMessage);
+      return;
+    }
+    if(response.balance.compareTo(expected) != 0) {
+      violations.add(operation + " reported balance " + response.balance + ", expected " + expected);
+    }
+    expectBalance(violations, operation, account, expected);
+  }
+
+  private static void expectReported(final List<String> violations, final String operation, final Optional<BigDecimal> balance,
+                                     final BigDecimal expected) {
+
+    if(balance.isPresent() && balance.get().compareTo(expected) != 0) {
+      violations.add(operation + " reported balance " + balance.get() + ", expected " + expected);
+    }
+  }
+
+  private void expectBalance(final List<String> violations, final String operation, final UUID account, final BigDecimal expected) {
+
+    final BigDecimal balance = operations.balance(pluginName, account);
+    if(balance.compareTo(expected) != 0) {
+      add(violations, operation + ": balance of " + account + " is " + balance + ", expected " + expected);
+    }
+  }
+
+  private static BigDecimal[] filled(final int length, final BigDecimal value) {
+
+    final BigDecimal[] values = new BigDecimal[length];
+    Arrays.fill(values, value);
+    return values;
+  }
+
+  private static void add(final List<String> violations, final String violation) {
+
+    synchronized(violations) {
+      if(violations.size() < MAX_VIOLATIONS) {
+        violations.add(violation);
+      }
+    }
+  }
+
+  /**
+   * A worker thread's loop, random source and latency samples. Exceptions thrown by the provider
+   * are violations.
+   */
+  private abstract class Worker {
+
+    final Random random;
+    final long[] latencies;
+    final List<String> violations;
+    int recorded = 0;
+
+    Worker(final int index, final int samples, final List<String> violations) {
+
+      this.random = new Random(seed * 31 + index);
+      this.latencies = new long[samples];
+      this.violations = violations;
+    }
+
+    abstract void operation(int index);
+
+    void run() {
+
+      for(int i = 0; i < operationsPerThread; i++) {
+        try {
+          operation(i);
+        } catch(final RuntimeException e) {
+          violation("operation threw " + e);
+        }
+      }
+    }
+
+    void record(final long nanos) {
+
+      if(recorded < latencies.length) {
+        latencies[recorded++] = nanos;
+      }
+    }
+
+    void violation(final String violation) {
+
+      add(violations, violation);
+    }
+  }
+}
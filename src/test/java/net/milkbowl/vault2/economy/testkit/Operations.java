@@ -0,0 +1,131 @@
+package net.milkbowl.vault2.economy.testkit;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.economy.AsyncEconomy;
+import net.milkbowl.vault2.economy.Economy;
+import net.milkbowl.vault2.economy.EconomyResponse;
+import net.milkbowl.vault2.economy.MultiEconomyResponse;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * The subset of provider operations exercised by {@link EconomyStress}, so the same scenarios run
+ * against an {@link Economy} and, by joining each future, against an {@link AsyncEconomy}.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+interface Operations {
+
+  boolean hasAccount(UUID account);
+
+  boolean createAccount(UUID account, String name);
+
+  BigDecimal balance(String pluginName, UUID account);
+
+  EconomyResponse deposit(String pluginName, UUID account, BigDecimal amount);
+
+  EconomyResponse withdraw(String pluginName, UUID account, BigDecimal amount);
+
+  MultiEconomyResponse transfer(String pluginName, UUID from, UUID to, BigDecimal amount);
+
+  static Operations of(final Economy economy) {
+
+    return new Operations() {
+
+      @Override
+      public boolean hasAccount(final UUID account) {
+
+        return economy.hasAccount(account);
+      }
+
+      @Override
+      public boolean createAccount(final UUID account, final String name) {
+
+        return economy.createAccount(account, name, true);
+      }
+
+      @Override
+      public BigDecimal balance(final String pluginName, final UUID account) {
+
+        return economy.balance(pluginName, account);
+      }
+
+      @Override
+      public EconomyResponse deposit(final String pluginName, final UUID account, final BigDecimal amount) {
+
+        return economy.deposit(pluginName, account, amount);
+      }
+
+      @Override
+      public EconomyResponse withdraw(final String pluginName, final UUID account, final BigDecimal amount) {
+
+        return economy.withdraw(pluginName, account, amount);
+      }
+
+      @Override
+      public MultiEconomyResponse transfer(final String pluginName, final UUID from, final UUID to, final BigDecimal amount) {
+
+        return economy.transfer(pluginName, from, to, amount);
+      }
+    };
+  }
+
+  static Operations of(final AsyncEconomy async) {
+
+    return new Operations() {
+
+      @Override
+      public boolean hasAccount(final UUID account) {
+
+        return async.hasAccount(account).join();
+      }
+
+      @Override
+      public boolean createAccount(final UUID account, final String name) {
+
+        return async.createAccount(account, name, true).join();
+      }
+
+      @Override
+      public BigDecimal balance(final String pluginName, final UUID account) {
+
+        return async.balance(pluginName, account).join();
+      }
+
+      @Override
+      public EconomyResponse deposit(final String pluginName, final UUID account, final BigDecimal amount) {
+
+        return async.deposit(pluginName, account, amount).join();
+      }
+
+      @Override
+      public EconomyResponse withdraw(final String pluginName, final UUID account, final BigDecimal amount) {
+
+        return async.withdraw(pluginName, account, amount).join();
+      }
+
+      @Override
+      public MultiEconomyResponse transfer(final String pluginName, final UUID from, final UUID to, final BigDecimal amount) {
+
+        return async.transfer(pluginName, from, to, amount).join();
+      }
+    };
+  }
+}
@@ -0,0 +1,162 @@
+package net.milkbowl.vault2.economy.testkit;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of one {@link EconomyStress} scenario: the invariant violations found, the number of
+ * operations and their latency distribution.
+ *
+ * @author creatorfromhell
+ * @since 2.21
+ */
+public final class StressReport {
+
+  private final String scenario;
+  private final long operations;
+  private final long rejected;
+  private final long elapsedNanos;
+  private final long[] latencies;
+  private final List<String> violations;
+
+  StressReport(final String scenario, final long operations, final long rejected, final long elapsedNanos,
+               final long[] latencies, final List<String> violations) {
+
+    this.scenario = scenario;
+    this.operations = operations;
+    this.rejected = rejected;
+    this.elapsedNanos = elapsedNanos;
+    this.latencies = latencies;
+    this.violations = Collections.unmodifiableList(violations);
+
+    Arrays.sort(this.latencies);
+  }
+
+  public String scenario() {
+
+    return scenario;
+  }
+
+  /**
+   * Retrieves the number of provider operations issued by the scenario's worker threads.
+   *
+   * @return the number of operations
+   */
+  public long operations() {
+
+    return operations;
+  }
+
+  /**
+   * Retrieves the number of mutations the provider declined, such as withdrawals from an account
+   * without sufficient funds. Declined mutations are expected and not violations.
+   *
+   * @return the number of declined mutations
+   */
+  public long rejected() {
+
+    return rejected;
+  }
+
+  public long elapsedNanos() {
+
+    return elapsedNanos;
+  }
+
+  /**
+   * Retrieves the number of operations completed per second across all worker threads.
+   *
+   * @return the throughput of the scenario
+   */
+  public double throughput() {
+
+    return (elapsedNanos == 0)? 0 : operations * (double)TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+  }
+
+  /**
+   * Retrieves a latency percentile of the recorded operations.
+   *
+   * @param percentile the percentile, between 0 and 100
+   * @return the latency in nanoseconds, or zero if nothing was recorded
+   */
+  public long percentile(final double percentile) {
+
+    if(latencies.length == 0) {
+      return 0;
+    }
+
+    final int index = (int)Math.ceil(percentile / 100D * latencies.length) - 1;
+    return latencies[Math.max(0, Math.min(latencies.length - 1, index))];
+  }
+
+  public long p50() {
+
+    return percentile(50);
+  }
+
+  public long p99() {
+
+    return percentile(99);
+  }
+
+  public long max() {
+
+    return (latencies.length == 0)? 0 : latencies[latencies.length - 1];
+  }
+
+  /**
+   * Retrieves the invariant violations found by the scenario.
+   *
+   * @return an unmodifiable list of violation descriptions; empty if the provider behaved correctly
+   */
+  public List<String> violations() {
+
+    return violations;
+  }
+
+  public boolean passed() {
+
+    return violations.isEmpty();
+  }
+
+  /**
+   * Fails with an {@link AssertionError} listing the violations, if there are any. Test frameworks
+   * report the error as a test failure.
+   *
+   * @return this report
+   * @throws AssertionError if the scenario found a violation
+   */
+  public StressReport assertPassed() {
+
+    if(!violations.isEmpty()) {
+      throw new AssertionError(scenario + " found " + violations.size() + " violation(s):\n  "
+                               + String.join("\n  ", violations.subList(0, Math.min(violations.size(), 20))));
+    }
+    return this;
+  }
+
+  @Override
+  public String toString() {
+
+    return String.format("%s: %d ops (%d rejected) at %.0f ops/s, p50=%.3fms p99=%.3fms max=%.3fms, %d violation(s)",
+                         scenario, operations, rejected, throughput(), p50() / 1e6, p99() / 1e6, max() / 1e6, violations.size());
+  }
+}
@@ -0,0 +1,40 @@
+package net.milkbowl.vault2.economy.testkit;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class StressReportTest {
+
+  @Test
+  public void violationsFailTheReport() {
+
+    final StressReport passed = new StressReport("passed", 1, 0, 1, new long[] { 1 }, Collections.emptyList());
+    final StressReport failed = new StressReport("failed", 1, 0, 1, new long[] { 1 }, Collections.singletonList("balance went negative"));
+
+    assertTrue(passed.passed());
+    assertFalse(failed.passed());
+    passed.assertPassed();
+    assertThrows(AssertionError.class, failed::assertPassed);
+  }
+}
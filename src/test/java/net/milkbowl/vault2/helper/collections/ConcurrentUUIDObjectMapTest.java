@@ -0,0 +1,96 @@
+package net.milkbowl.vault2.helper.collections;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentUUIDObjectMapTest {
+
+  @Test
+  public void concurrentWritersKeepEveryEntry() throws InterruptedException {
+
+    final ConcurrentUUIDObjectMap<Integer> map = new ConcurrentUUIDObjectMap<>(4, 16);
+    final int threads = 4;
+    final int perThread = 10_000;
+
+    final List<Thread> workers = new ArrayList<>();
+    for(int t = 0; t < threads; t++) {
+
+      final long thread = t;
+      final Thread worker = new Thread(()->{
+        for(int i = 0; i < perThread; i++) {
+          map.put(new UUID(thread, i), i);
+          if(i % 2 == 1) {
+            map.remove(new UUID(thread, i - 1));
+          }
+        }
+      });
+      workers.add(worker);
+      worker.start();
+    }
+
+    for(final Thread worker : workers) {
+      worker.join();
+    }
+
+    assertEquals(threads * perThread / 2, map.size());
+    final AtomicInteger visited = new AtomicInteger();
+    map.forEach((key, value)->{
+      assertEquals(1, value % 2);
+      visited.incrementAndGet();
+    });
+    assertEquals(threads * perThread / 2, visited.get());
+  }
+
+  @Test
+  public void computeIfAbsentRunsOncePerKey() throws InterruptedException {
+
+    final ConcurrentUUIDObjectMap<Object> map = new ConcurrentUUIDObjectMap<>();
+    final UUID key = UUID.randomUUID();
+    final AtomicInteger computed = new AtomicInteger();
+
+    final List<Thread> workers = new ArrayList<>();
+    for(int t = 0; t < 4; t++) {
+
+      final Thread worker = new Thread(()->{
+        for(int i = 0; i < 1_000; i++) {
+          map.computeIfAbsent(key, k->{
+            computed.incrementAndGet();
+            return new Object();
+          });
+        }
+      });
+      workers.add(worker);
+      worker.start();
+    }
+
+    for(final Thread worker : workers) {
+      worker.join();
+    }
+
+    assertEquals(1, computed.get());
+    assertTrue(map.containsKey(key));
+  }
+}
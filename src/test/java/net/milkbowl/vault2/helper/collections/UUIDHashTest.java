@@ -0,0 +1,53 @@
+package net.milkbowl.vault2.helper.collections;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UUIDHashTest {
+
+  @Test
+  public void hashesAreStable() {
+
+    assertEquals(-5451962507482445012L, UUIDHash.hash(1L, 0L));
+    assertEquals(-8425685708332354137L, UUIDHash.hash(0x123456789ABCDEF0L, 0x0FEDCBA987654321L));
+    assertEquals(UUIDHash.hash(1L, 0L), UUIDHash.hash(new UUID(1L, 0L)));
+  }
+
+  @Test
+  public void sequentialKeysSpreadAcrossLowAndHighBits() {
+
+    final Set<Integer> low = new HashSet<>();
+    final Set<Integer> high = new HashSet<>();
+    for(long i = 0; i < 1024; i++) {
+
+      final long hash = UUIDHash.hash(0L, i);
+      low.add((int)hash & 255);
+      high.add((int)(hash >>> 32) & 255);
+    }
+
+    assertTrue("low bits used " + low.size(), low.size() > 230);
+    assertTrue("high bits used " + high.size(), high.size() > 230);
+  }
+}
@@ -0,0 +1,86 @@
+package net.milkbowl.vault2.helper.collections;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+
+public class UUIDLongMapTest {
+
+  @Test
+  public void absentKeysReadAsTheMissingValue() {
+
+    final UUIDLongMap map = new UUIDLongMap(0, -1);
+    final UUID key = UUID.randomUUID();
+
+    assertEquals(-1, map.get(key));
+    assertEquals(-1, map.put(key, 5));
+    assertEquals(5, map.remove(key));
+    assertEquals(-1, map.remove(key));
+    assertFalse(map.containsKey(key));
+  }
+
+  @Test
+  public void addToStartsFromTheMissingValue() {
+
+    final UUIDLongMap map = new UUIDLongMap(0, 10);
+    final UUID key = UUID.randomUUID();
+
+    assertEquals(13, map.addTo(key, 3));
+    assertEquals(11, map.addTo(key, -2));
+    map.put(key, Long.MAX_VALUE);
+    assertThrows(ArithmeticException.class, ()->map.addTo(key, 1));
+  }
+
+  @Test
+  public void matchesHashMapUnderRandomOperations() {
+
+    final UUIDLongMap map = new UUIDLongMap();
+    final Map<UUID, Long> model = new HashMap<>();
+    final Random random = new Random(11);
+
+    for(int i = 0; i < 50_000; i++) {
+
+      final UUID key = new UUID(random.nextInt(8), random.nextInt(1024));
+      switch(random.nextInt(3)) {
+        case 0:
+          final Long removed = model.remove(key);
+          assertEquals((removed == null)? 0 : removed, map.remove(key));
+          break;
+        case 1:
+          assertEquals((long)model.merge(key, 1L, Long::sum), map.addTo(key, 1));
+          break;
+        default:
+          final Long previous = model.put(key, (long)i);
+          assertEquals((previous == null)? 0 : previous, map.put(key, i));
+      }
+    }
+
+    assertEquals(model.size(), map.size());
+    final Map<UUID, Long> visited = new HashMap<>();
+    map.forEach(visited::put);
+    assertEquals(model, visited);
+  }
+}
@@ -0,0 +1,125 @@
+package net.milkbowl.vault2.helper.collections;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class UUIDObjectMapTest {
+
+  @Test
+  public void putsGetsAndRemoves() {
+
+    final UUIDObjectMap<String> map = new UUIDObjectMap<>();
+    final UUID key = UUID.randomUUID();
+
+    assertNull(map.put(key, "a"));
+    assertEquals("a", map.put(key, "b"));
+    assertEquals("b", map.get(key));
+    assertEquals("b", map.get(key.getMostSignificantBits(), key.getLeastSignificantBits()));
+    assertTrue(map.containsKey(key));
+    assertEquals(1, map.size());
+
+    assertFalse(map.remove(key, "a"));
+    assertTrue(map.remove(key, "b"));
+    assertNull(map.get(key));
+    assertTrue(map.isEmpty());
+  }
+
+  @Test
+  public void putIfAbsentAndComputeIfAbsentKeepExistingValues() {
+
+    final UUIDObjectMap<String> map = new UUIDObjectMap<>();
+    final UUID key = UUID.randomUUID();
+
+    assertNull(map.putIfAbsent(key, "a"));
+    assertEquals("a", map.putIfAbsent(key, "b"));
+    assertEquals("a", map.computeIfAbsent(key, k->"c"));
+    assertEquals("d", map.computeIfAbsent(UUID.randomUUID(), k->"d"));
+    assertEquals(2, map.size());
+  }
+
+  @Test
+  public void rejectsNullValues() {
+
+    final UUIDObjectMap<String> map = new UUIDObjectMap<>();
+
+    assertThrows(IllegalArgumentException.class, ()->map.put(UUID.randomUUID(), null));
+  }
+
+  @Test
+  public void matchesHashMapUnderRandomOperations() {
+
+    final UUIDObjectMap<Integer> map = new UUIDObjectMap<>(4);
+    final Map<UUID, Integer> model = new HashMap<>();
+    final List<UUID> keys = new ArrayList<>();
+    final Random random = new Random(7);
+    for(int i = 0; i < 512; i++) {
+      //few distinct bits, so home slots collide and removal has to shift probe runs back
+      keys.add(new UUID(0L, random.nextInt(4096)));
+    }
+
+    for(int i = 0; i < 50_000; i++) {
+
+      final UUID key = keys.get(random.nextInt(keys.size()));
+      if(random.nextInt(3) == 0) {
+        assertEquals(model.remove(key), map.remove(key));
+      } else {
+        assertEquals(model.put(key, i), map.put(key, i));
+      }
+    }
+
+    assertEquals(model.size(), map.size());
+    for(final UUID key : keys) {
+      assertEquals(model.get(key), map.get(key));
+    }
+
+    final Map<UUID, Integer> visited = new HashMap<>();
+    map.forEach(visited::put);
+    assertEquals(model, visited);
+  }
+
+  @Test
+  public void clearEmptiesTheMap() {
+
+    final UUIDObjectMap<Object> map = new UUIDObjectMap<>();
+    final Object value = new Object();
+    for(int i = 0; i < 100; i++) {
+      map.put(UUID.randomUUID(), value);
+    }
+
+    map.clear();
+    assertTrue(map.isEmpty());
+
+    final UUID key = UUID.randomUUID();
+    map.put(key, value);
+    assertSame(value, map.get(key));
+  }
+}
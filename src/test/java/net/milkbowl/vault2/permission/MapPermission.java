@@ -0,0 +1,265 @@
+package net.milkbowl.vault2.permission;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.helper.TriState;
+import net.milkbowl.vault2.helper.context.Context;
+import net.milkbowl.vault2.helper.subject.Subject;
+import net.milkbowl.vault2.permission.engine.PermissionTrie;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A permission provider over in-memory node maps that relies on every default method of
+ * {@link PermissionUnlocked}, counting the lookups made against it.
+ */
+public class MapPermission implements PermissionUnlocked {
+
+  final Map<String, Map<String, TriState>> nodes = new HashMap<>();
+  final Map<String, String[]> groups = new HashMap<>();
+  final AtomicInteger lookups = new AtomicInteger();
+
+  MapPermission node(final Subject subject, final String node, final TriState value) {
+
+    nodes.computeIfAbsent(subject.identifier(), k->new HashMap<>()).put(node, value);
+    return this;
+  }
+
+  MapPermission groups(final Subject subject, final String... names) {
+
+    groups.put(subject.identifier(), names);
+    return this;
+  }
+
+  @Override
+  public boolean isEnabled() {
+
+    return true;
+  }
+
+  @Override
+  public String getName() {
+
+    return "Map";
+  }
+
+  @Override
+  public boolean hasGroupSupport() {
+
+    return true;
+  }
+
+  @Override
+  public boolean hasSuperPermsSupport() {
+
+    return false;
+  }
+
+  @Override
+  public boolean copyPermissions(final Context context, final Subject from, final Subject to, final boolean includeTransient) {
+
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public CompletableFuture<Boolean> copyPermissionsAsync(final Context context, final Subject from, final Subject to, final boolean includeTransient) {
+
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public TriState has(final Context context, final Subject subject, final String permission) {
+
+    lookups.incrementAndGet();
+    final Map<String, TriState> subjectNodes = nodes.get(subject.identifier());
+    return (subjectNodes == null)? TriState.UNDEFINED : PermissionTrie.compile(subjectNodes).has(permission);
+  }
+
+  @Override
+  public CompletableFuture<TriState> hasAsync(final Context context, final Subject subject, final String permission) {
+
+    return CompletableFuture.completedFuture(has(context, subject, permission));
+  }
+
+  @Override
+  public Map<String, TriState> nodes(final Context context, final Subject subject) {
+
+    lookups.incrementAndGet();
+    return new HashMap<>(nodes.getOrDefault(subject.identifier(), new HashMap<>()));
+  }
+
+  @Override
+  public boolean setPermission(final Context context, final Subject subject, final String permission, final TriState value) {
+
+    node(subject, permission, value);
+    return true;
+  }
+
+  @Override
+  public CompletableFuture<Boolean> setPermissionAsync(final Context context, final Subject subject, final String permission, final TriState value) {
+
+    return CompletableFuture.completedFuture(setPermission(context, subject, permission, value));
+  }
+
+  @Override
+  public boolean setTransientPermission(final Context context, final Subject subject, final String permission, final TriState value) {
+
+    return setPermission(context, subject, permission, value);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> setTransientPermissionAsync(final Context context, final Subject subject, final String permission, final TriState value) {
+
+    return setPermissionAsync(context, subject, permission, value);
+  }
+
+  @Override
+  public String[] groups() {
+
+    return new String[0];
+  }
+
+  @Override
+  public String primaryGroup(final Context context, final Subject subject) {
+
+    final String[] names = getGroups(context, subject);
+    return (names.length == 0)? null : names[0];
+  }
+
+  @Override
+  public CompletableFuture<String> primaryGroupAsync(final Context context, final Subject subject) {
+
+    return CompletableFuture.completedFuture(primaryGroup(context, subject));
+  }
+
+  @Override
+  public String[] getGroups(final Context context, final Subject subject) {
+
+    lookups.incrementAndGet();
+    return groups.getOrDefault(subject.identifier(), new String[0]);
+  }
+
+  @Override
+  public CompletableFuture<String[]> getGroupsAsync(final Context context, final Subject subject) {
+
+    return CompletableFuture.completedFuture(getGroups(context, subject));
+  }
+
+  @Override
+  public boolean copyGroups(final Context context, final Subject from, final Subject to) {
+
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public CompletableFuture<Boolean> copyGroupsAsync(final Context context, final Subject from, final Subject to) {
+
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean inGroup(final Context context, final Subject subject) {
+
+    return getGroups(context, subject).length > 0;
+  }
+
+  @Override
+  public boolean inGroup(final Context context, final Subject subject, final String group) {
+
+    for(final String name : getGroups(context, subject)) {
+      if(name.equalsIgnoreCase(group)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public CompletableFuture<Boolean> inGroupAsync(final Context context, final Subject subject) {
+
+    return CompletableFuture.completedFuture(inGroup(context, subject));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> inGroupAsync(final Context context, final Subject subject, final String group) {
+
+    return CompletableFuture.completedFuture(inGroup(context, subject, group));
+  }
+
+  @Override
+  public boolean addGroup(final Context context, final Subject subject, final String group) {
+
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public CompletableFuture<Boolean> addGroupAsync(final Context context, final Subject subject, final String group) {
+
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean removeGroup(final Context context, final Subject subject, final String group) {
+
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public CompletableFuture<Boolean> removeGroupAsync(final Context context, final Subject subject, final String group) {
+
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public TriState groupHas(final Context context, final String group, final String permission) {
+
+    return has(context, Subject.group(group), permission);
+  }
+
+  @Override
+  public CompletableFuture<TriState> groupHasAsync(final Context context, final String group, final String permission) {
+
+    return CompletableFuture.completedFuture(groupHas(context, group, permission));
+  }
+
+  @Override
+  public boolean groupSetPermission(final Context context, final String group, final String permission, final TriState value) {
+
+    return setPermission(context, Subject.group(group), permission, value);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> groupSetPermissionAsync(final Context context, final String group, final String permission, final TriState value) {
+
+    return CompletableFuture.completedFuture(groupSetPermission(context, group, permission, value));
+  }
+
+  @Override
+  public boolean groupSetTransientPermission(final Context context, final String group, final String permission, final TriState value) {
+
+    return groupSetPermission(context, group, permission, value);
+  }
+
+  @Override
+  public CompletableFuture<Boolean> groupSetTransientPermissionAsync(final Context context, final String group, final String permission, final TriState value) {
+
+    return groupSetPermissionAsync(context, group, permission, value);
+  }
+}
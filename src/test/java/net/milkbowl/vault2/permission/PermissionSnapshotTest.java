@@ -0,0 +1,150 @@
+package net.milkbowl.vault2.permission;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.helper.TriState;
+import net.milkbowl.vault2.helper.context.Context;
+import net.milkbowl.vault2.helper.subject.Subject;
+import net.milkbowl.vault2.permission.engine.PermissionTrie;
+import net.milkbowl.vault2.permission.engine.SnapshotStore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PermissionSnapshotTest {
+
+  private final Subject player = Subject.player(UUID.randomUUID(), "Player");
+
+  @Test
+  public void defaultSnapshotIsCompiledFromTheProvidersNodes() {
+
+    final MapPermission provider = new MapPermission()
+            .node(player, "worldedit.*", TriState.TRUE)
+            .node(player, "worldedit.wand", TriState.FALSE)
+            .node(player, "homes.limit.4", TriState.TRUE)
+            .groups(player, "builder", "default");
+
+    final PermissionSnapshot snapshot = provider.snapshot(Context.GLOBAL, player);
+
+    assertEquals(TriState.TRUE, snapshot.has("worldedit.brush"));
+    assertEquals(TriState.FALSE, snapshot.has("worldedit.wand"));
+    assertEquals(TriState.UNDEFINED, snapshot.has("essentials.fly"));
+    assertEquals(OptionalLong.of(4), snapshot.numericValue("homes.limit", true));
+    assertTrue(snapshot.inGroup());
+    assertTrue(snapshot.inGroup("BUILDER"));
+    assertEquals("builder", snapshot.primaryGroupOrNull());
+  }
+
+  @Test
+  public void snapshotNeverCallsTheProviderAfterItIsTaken() {
+
+    final MapPermission provider = new MapPermission().node(player, "fly", TriState.TRUE);
+    final PermissionSnapshot snapshot = provider.snapshot(Context.GLOBAL, player);
+    final int lookups = provider.lookups.get();
+
+    for(int i = 0; i < 100; i++) {
+      snapshot.has("fly");
+      snapshot.inGroup("admin");
+    }
+    assertEquals(lookups, provider.lookups.get());
+  }
+
+  @Test
+  public void snapshotIsFrozenAtCreation() {
+
+    final MapPermission provider = new MapPermission().node(player, "fly", TriState.TRUE).groups(player, "vip");
+    final PermissionSnapshot snapshot = provider.snapshot(Context.GLOBAL, player);
+
+    provider.node(player, "fly", TriState.FALSE).groups(player);
+    assertEquals(TriState.TRUE, snapshot.has("fly"));
+    assertTrue(snapshot.inGroup("vip"));
+    assertEquals(TriState.FALSE, provider.snapshot(Context.GLOBAL, player).has("fly"));
+  }
+
+  @Test
+  public void groupsCannotBeChangedThroughTheSnapshot() {
+
+    final List<String> groups = new ArrayList<>(Arrays.asList("admin"));
+    final PermissionSnapshot snapshot = new PermissionSnapshot(PermissionTrie.empty(), groups, null);
+
+    groups.add("mod");
+    snapshot.groups()[0] = "guest";
+
+    assertEquals(Collections.singletonList("admin"), Arrays.asList(snapshot.groups()));
+    assertFalse(snapshot.primaryGroup().isPresent());
+    assertNull(snapshot.primaryGroupOrNull());
+  }
+
+  @Test
+  public void providerWithoutNodesResolvesNothing() {
+
+    final PermissionSnapshot snapshot = new PermissionSnapshot(PermissionTrie.compile(Collections.<String, TriState>emptyMap()),
+                                                               Collections.<String>emptyList(), null);
+
+    assertEquals(TriState.UNDEFINED, snapshot.has("fly"));
+    assertFalse(snapshot.inGroup());
+  }
+
+  @Test
+  public void storeSwapsSnapshotsWhole() throws Exception {
+
+    final AtomicInteger loads = new AtomicInteger();
+    final SnapshotStore store = new SnapshotStore((context, subject)->{
+      loads.incrementAndGet();
+      return new PermissionSnapshot(PermissionTrie.compile(Arrays.asList("fly")), Collections.<String>emptyList(), null);
+    });
+
+    final PermissionSnapshot first = store.get(Context.GLOBAL, player);
+    assertSame(first, store.get(Context.GLOBAL, player));
+    assertEquals(1, loads.get());
+
+    final PermissionSnapshot replaced = new PermissionSnapshot(PermissionTrie.compile(Arrays.asList("-fly")),
+                                                               Collections.<String>emptyList(), null);
+    final Thread[] readers = new Thread[4];
+    final AtomicInteger torn = new AtomicInteger();
+    for(int i = 0; i < readers.length; i++) {
+      readers[i] = new Thread(()->{
+        for(int read = 0; read < 10_000; read++) {
+          if(store.get(Context.GLOBAL, player).has("fly") == TriState.UNDEFINED) {
+            torn.incrementAndGet();
+          }
+        }
+      });
+      readers[i].start();
+    }
+    store.update(Context.GLOBAL, player, replaced);
+    for(final Thread reader : readers) {
+      reader.join();
+    }
+
+    assertEquals(0, torn.get());
+    assertSame(replaced, store.get(Context.GLOBAL, player));
+    assertEquals(TriState.FALSE, store.get(Context.GLOBAL, player).has("fly"));
+  }
+}
@@ -0,0 +1,75 @@
+package net.milkbowl.vault2.permission;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.helper.TriState;
+import net.milkbowl.vault2.helper.context.Context;
+import net.milkbowl.vault2.helper.subject.Subject;
+import org.junit.Test;
+
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class PermissionUnlockedTest {
+
+  private final Subject player = Subject.player(UUID.randomUUID(), "Player");
+
+  @Test
+  public void numericValueProbesExplicitNodes() {
+
+    final MapPermission provider = new MapPermission()
+            .node(player, "homes.limit.5", TriState.TRUE)
+            .node(player, "homes.limit.3", TriState.TRUE)
+            .node(player, "homes.limit.9", TriState.FALSE);
+
+    assertEquals(OptionalLong.of(5), provider.numericValue(Context.GLOBAL, player, "homes.limit"));
+    assertEquals(OptionalLong.of(3), provider.numericValue(Context.GLOBAL, player, "homes.limit.", false));
+    assertFalse(provider.numericValue(Context.GLOBAL, player, "warps.limit").isPresent());
+  }
+
+  @Test
+  public void numericValueOnlyQueriesPermissions() {
+
+    final MapPermission provider = new MapPermission().node(player, "homes.limit.99", TriState.TRUE);
+
+    assertEquals(OptionalLong.of(99), provider.numericValue(Context.GLOBAL, player, "homes.limit"));
+    assertEquals(2, provider.lookups.get());
+  }
+
+  @Test
+  public void explicitNodeBelowAnUnrelatedWildcardStillResolves() {
+
+    final MapPermission provider = new MapPermission()
+            .node(player, "essentials.*", TriState.TRUE)
+            .node(player, "homes.limit.5", TriState.TRUE);
+
+    assertEquals(OptionalLong.of(5), provider.numericValue(Context.GLOBAL, player, "homes.limit"));
+  }
+
+  @Test
+  public void numericValueAsyncRunsOffTheCaller() throws Exception {
+
+    final MapPermission provider = new MapPermission().node(player, "homes.limit.7", TriState.TRUE);
+
+    assertEquals(OptionalLong.of(7), provider.numericValueAsync(Context.GLOBAL, player, "homes.limit", true)
+            .get(5, TimeUnit.SECONDS));
+  }
+}
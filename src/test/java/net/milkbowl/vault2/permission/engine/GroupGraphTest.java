@@ -0,0 +1,147 @@
+package net.milkbowl.vault2.permission.engine;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.helper.TriState;
+import net.milkbowl.vault2.helper.context.Context;
+import net.milkbowl.vault2.helper.subject.Subject;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GroupGraphTest {
+
+  private final GroupGraph graph = new GroupGraph();
+  private final Context context = Context.GLOBAL;
+  private final Subject player = Subject.player(UUID.randomUUID(), "Player");
+
+  @Test
+  public void rejectsSelfInheritance() {
+
+    assertFalse(graph.addInheritance(context, "admin", "admin"));
+    assertFalse(graph.addInheritance(context, "admin", "ADMIN"));
+  }
+
+  @Test
+  public void rejectsDirectAndTransitiveCycles() {
+
+    assertTrue(graph.addInheritance(context, "admin", "mod"));
+    assertTrue(graph.addInheritance(context, "mod", "default"));
+
+    assertFalse(graph.addInheritance(context, "mod", "admin"));
+    assertFalse(graph.addInheritance(context, "default", "admin"));
+    assertFalse(graph.inherits(context, "default", "admin"));
+    assertTrue(graph.inherits(context, "admin", "default"));
+  }
+
+  @Test
+  public void rejectsDuplicateInheritance() {
+
+    assertTrue(graph.addInheritance(context, "admin", "mod"));
+    assertFalse(graph.addInheritance(context, "admin", "mod"));
+  }
+
+  @Test
+  public void removingInheritanceAllowsTheReverseEdge() {
+
+    assertTrue(graph.addInheritance(context, "admin", "mod"));
+    assertTrue(graph.removeInheritance(context, "admin", "mod"));
+    assertFalse(graph.removeInheritance(context, "admin", "mod"));
+    assertTrue(graph.addInheritance(context, "mod", "admin"));
+  }
+
+  @Test
+  public void closestGroupDecidesThePermission() {
+
+    graph.addInheritance(context, "admin", "mod");
+    graph.addInheritance(context, "mod", "default");
+    graph.setPermissions(context, "default", PermissionTrie.compile(Arrays.asList("chat.color", "build")));
+    graph.setPermissions(context, "mod", PermissionTrie.compile(Arrays.asList("-chat.color", "kick")));
+    graph.setPermissions(context, "admin", PermissionTrie.compile(Arrays.asList("chat.color")));
+
+    assertEquals(TriState.TRUE, graph.groupHas(context, "admin", "chat.color"));
+    assertEquals(TriState.FALSE, graph.groupHas(context, "mod", "chat.color"));
+    assertEquals(TriState.TRUE, graph.groupHas(context, "default", "chat.color"));
+    assertEquals(TriState.TRUE, graph.groupHas(context, "admin", "build"));
+    assertEquals(TriState.UNDEFINED, graph.groupHas(context, "default", "kick"));
+  }
+
+  @Test
+  public void nearerAncestorWinsOverFartherOne() {
+
+    graph.defineGroup(context, "default");
+    graph.addInheritance(context, "admin", "mod");
+    graph.addInheritance(context, "mod", "default");
+    graph.addInheritance(context, "admin", "vip");
+    graph.setPermissions(context, "default", PermissionTrie.compile(Arrays.asList("-fly")));
+    graph.setPermissions(context, "vip", PermissionTrie.compile(Arrays.asList("fly")));
+
+    assertEquals(TriState.TRUE, graph.groupHas(context, "admin", "fly"));
+    graph.removeInheritance(context, "admin", "vip");
+    assertEquals(TriState.FALSE, graph.groupHas(context, "admin", "fly"));
+  }
+
+  @Test
+  public void negationThroughAnyDirectGroupWins() {
+
+    graph.setPermissions(context, "builder", PermissionTrie.compile(Arrays.asList("worldedit.*")));
+    graph.setPermissions(context, "guest", PermissionTrie.compile(Arrays.asList("-worldedit.wand")));
+    graph.addGroup(context, player, "builder");
+    graph.addGroup(context, player, "guest");
+
+    assertEquals(TriState.FALSE, graph.has(context, player, "worldedit.wand"));
+    assertEquals(TriState.TRUE, graph.has(context, player, "worldedit.brush"));
+  }
+
+  @Test
+  public void effectiveGroupsFollowInheritanceChanges() {
+
+    graph.addGroup(context, player, "admin");
+    assertEquals(new HashSet<>(Arrays.asList("admin")), new HashSet<>(Arrays.asList(graph.getGroups(context, player))));
+
+    graph.addInheritance(context, "admin", "mod");
+    graph.addInheritance(context, "mod", "default");
+    assertTrue(graph.inGroup(context, player, "default"));
+    assertEquals(new HashSet<>(Arrays.asList("admin", "mod", "default")),
+                 new HashSet<>(Arrays.asList(graph.getGroups(context, player))));
+
+    graph.removeInheritance(context, "mod", "default");
+    assertFalse(graph.inGroup(context, player, "default"));
+    assertTrue(graph.inGroup(context, player, "MOD"));
+
+    assertTrue(graph.removeGroup(context, player, "admin"));
+    assertFalse(graph.inGroup(context, player));
+    assertFalse(graph.inGroup(context, player, "mod"));
+  }
+
+  @Test
+  public void contextsAreIsolated() {
+
+    final Context nether = new Context("world_nether");
+    graph.addGroup(context, player, "admin");
+
+    assertFalse(graph.inGroup(nether, player, "admin"));
+    assertTrue(graph.addInheritance(nether, "mod", "admin"));
+    assertTrue(graph.addInheritance(context, "admin", "mod"));
+  }
+}
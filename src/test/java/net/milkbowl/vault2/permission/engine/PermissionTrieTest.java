@@ -0,0 +1,103 @@
+package net.milkbowl.vault2.permission.engine;
+/*
+    This file is part of Vault.
+
+    Vault is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    Vault is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with Vault.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.milkbowl.vault2.helper.TriState;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PermissionTrieTest {
+
+  @Test
+  public void exactMatchWinsOverWildcard() {
+
+    final PermissionTrie trie = PermissionTrie.compile(Arrays.asList("essentials.*", "-essentials.fly"));
+
+    assertEquals(TriState.TRUE, trie.has("essentials.home"));
+    assertEquals(TriState.TRUE, trie.has("essentials.home.other"));
+    assertEquals(TriState.FALSE, trie.has("essentials.fly"));
+    assertEquals(TriState.UNDEFINED, trie.has("worldedit.wand"));
+  }
+
+  @Test
+  public void mostSpecificWildcardApplies() {
+
+    final PermissionTrie trie = PermissionTrie.compile(Arrays.asList("*", "-worldedit.*", "worldedit.wand.*"));
+
+    assertEquals(TriState.TRUE, trie.has("anything.at.all"));
+    assertEquals(TriState.FALSE, trie.has("worldedit.brush"));
+    assertEquals(TriState.TRUE, trie.has("worldedit.wand.use"));
+  }
+
+  @Test
+  public void negationWinsWhenNodeIsBothGrantedAndNegated() {
+
+    final PermissionTrie trie = PermissionTrie.compile(Arrays.asList("shop.sell"), Arrays.asList("shop.sell"));
+
+    assertEquals(TriState.FALSE, trie.has("shop.sell"));
+    assertEquals(1, trie.size());
+  }
+
+  @Test
+  public void matchingIsCaseInsensitive() {
+
+    final PermissionTrie trie = PermissionTrie.compile(Arrays.asList("Essentials.Home"));
+
+    assertEquals(TriState.TRUE, trie.has("essentials.home"));
+    assertEquals(TriState.TRUE, trie.has("ESSENTIALS.HOME"));
+  }
+
+  @Test
+  public void undefinedEntriesAreIgnored() {
+
+    final Map<String, TriState> nodes = new HashMap<>();
+    nodes.put("a.b", TriState.UNDEFINED);
+
+    assertSame(PermissionTrie.empty(), PermissionTrie.compile(new HashMap<>()));
+    assertTrue(PermissionTrie.compile(nodes).isEmpty());
+  }
+
+  @Test
+  public void numericValueConsidersOnlyGrantedNumbers() {
+
+    final PermissionTrie trie = PermissionTrie.compile(Arrays.asList("homes.limit.3", "homes.limit.250", "-homes.limit.900",
+                                                                     "homes.limit.vip", "homes.limit.*"));
+
+    assertEquals(OptionalLong.of(250), trie.numericValue("homes.limit", true));
+    assertEquals(OptionalLong.of(3), trie.numericValue("homes.limit.", false));
+    assertFalse(trie.numericValue("warps.limit", true).isPresent());
+  }
+
+  @Test
+  public void segmentsAreSharedWithinOneTrie() {
+
+    final Map<String, String> segments = new HashMap<>();
+    final String first = PermissionTrie.intern(new String("Home"), segments);
+
+    assertSame(first, PermissionTrie.intern("home", segments));
+    assertEquals(1, segments.size());
+  }
+}